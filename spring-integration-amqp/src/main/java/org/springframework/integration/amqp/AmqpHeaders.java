@@ -72,4 +72,24 @@ public abstract class AmqpHeaders {
 
 	public static final String USER_ID = PREFIX + "userId";
 
+	/**
+	 * Set to true or false on publisher confirm messages sent to the ack/nack channels.
+	 * @since 2.1.1
+	 */
+	public static final String PUBLISH_CONFIRM = PREFIX + "publishConfirm";
+
+	public static final String RETURN_REPLY_CODE = PREFIX + "returnReplyCode";
+
+	public static final String RETURN_REPLY_TEXT = PREFIX + "returnReplyText";
+
+	public static final String RETURN_EXCHANGE = PREFIX + "returnExchange";
+
+	public static final String RETURN_ROUTING_KEY = PREFIX + "returnRoutingKey";
+
+	/**
+	 * The List of header Maps, one per delivery, on batched inbound messages.
+	 * @since 2.1.1
+	 */
+	public static final String BATCHED_HEADERS = PREFIX + "batchedHeaders";
+
 }
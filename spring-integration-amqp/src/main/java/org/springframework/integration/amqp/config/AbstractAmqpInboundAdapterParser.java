@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -129,6 +129,10 @@ abstract class AbstractAmqpInboundAdapterParser extends AbstractSingleBeanDefini
 		for (String attributeName : CONTAINER_REFERENCE_ATTRIBUTES) {
 			IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, attributeName);
 		}
+		if (!element.hasAttribute("prefetch-count") && element.hasAttribute("batch-size")) {
+			// allow a whole batch to be delivered before the first ack
+			builder.addPropertyValue("prefetchCount", element.getAttribute("batch-size"));
+		}
 		return builder.getBeanDefinition();
 	}
 
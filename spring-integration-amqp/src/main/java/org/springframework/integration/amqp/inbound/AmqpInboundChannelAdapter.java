@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,22 +16,41 @@
 
 package org.springframework.integration.amqp.inbound;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
 
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.rabbit.core.ChannelAwareMessageListener;
 import org.springframework.amqp.rabbit.listener.AbstractMessageListenerContainer;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.integration.amqp.AmqpHeaders;
 import org.springframework.integration.amqp.support.AmqpHeaderMapper;
 import org.springframework.integration.amqp.support.DefaultAmqpHeaderMapper;
 import org.springframework.integration.endpoint.MessageProducerSupport;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.util.Assert;
 
+import com.rabbitmq.client.Channel;
+
 /**
  * Adapter that receives Messages from an AMQP Queue, converts them into
  * Spring Integration Messages, and sends the results to a Message Channel.
+ * <p>
+ * When a 'batchSize' greater than 1 is set, up to that many deliveries on each consumer channel
+ * are gathered and sent as a single Message whose payload is the List of converted payloads;
+ * a partial batch is sent once its first delivery is older than the 'batchTimeout'. Each batch
+ * is acknowledged with a single multiple ack, so the container's acknowledge mode is switched
+ * from AUTO to MANUAL. The container's 'prefetchCount' should be at least the 'batchSize'.
  * 
  * @author Mark Fisher
  * @since 2.1
@@ -44,6 +63,18 @@ public class AmqpInboundChannelAdapter extends MessageProducerSupport {
 
 	private volatile AmqpHeaderMapper headerMapper = new DefaultAmqpHeaderMapper();
 
+	private volatile int batchSize = 1;
+
+	private volatile long batchTimeout = 1000;
+
+	private volatile boolean ackBatches;
+
+	private final ConcurrentMap<Channel, Batch> batches = new ConcurrentHashMap<Channel, Batch>();
+
+	private volatile ThreadPoolTaskScheduler ownTaskScheduler;
+
+	private volatile ScheduledFuture<?> flushTask;
+
 
 	public AmqpInboundChannelAdapter(AbstractMessageListenerContainer listenerContainer) {
 		Assert.notNull(listenerContainer, "listenerContainer must not be null");
@@ -64,27 +95,217 @@ public class AmqpInboundChannelAdapter extends MessageProducerSupport {
 		this.headerMapper = headerMapper;
 	}
 
+	/**
+	 * Set the maximum number of deliveries to gather into a single Message with a
+	 * List payload (default 1, no batching).
+	 * @since 2.1.1
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Set the time in milliseconds after which a partial batch is sent (default 1000).
+	 * @since 2.1.1
+	 */
+	public void setBatchTimeout(long batchTimeout) {
+		Assert.isTrue(batchTimeout > 0, "'batchTimeout' must be greater than 0");
+		this.batchTimeout = batchTimeout;
+	}
+
 	@Override
 	protected void onInit() {
-		this.messageListenerContainer.setMessageListener(new MessageListener() {
-			public void onMessage(Message message) {
-				Object payload = messageConverter.fromMessage(message);
-				Map<String, ?> headers = headerMapper.toHeadersFromRequest(message.getMessageProperties());
-				sendMessage(MessageBuilder.withPayload(payload).copyHeaders(headers).build());
+		if (this.batchSize > 1) {
+			Assert.isTrue(this.messageListenerContainer.isExposeListenerChannel(),
+					"The listenerContainer must expose the listener channel when batching");
+			Assert.isTrue(!this.messageListenerContainer.isChannelTransacted(),
+					"Batching is not supported with a transacted listenerContainer");
+			if (AcknowledgeMode.AUTO.equals(this.messageListenerContainer.getAcknowledgeMode())) {
+				this.messageListenerContainer.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+				this.ackBatches = true;
 			}
-		});
+			this.messageListenerContainer.setMessageListener(new ChannelAwareMessageListener() {
+				public void onMessage(Message message, Channel channel) throws Exception {
+					addToBatch(message, channel);
+				}
+			});
+		}
+		else {
+			this.messageListenerContainer.setMessageListener(new MessageListener() {
+				public void onMessage(Message message) {
+					Object payload = messageConverter.fromMessage(message);
+					Map<String, ?> headers = headerMapper.toHeadersFromRequest(message.getMessageProperties());
+					sendMessage(MessageBuilder.withPayload(payload).copyHeaders(headers).build());
+				}
+			});
+		}
 		this.messageListenerContainer.afterPropertiesSet();
 		super.onInit();
 	}
 
 	@Override
 	protected void doStart() {
+		if (this.batchSize > 1) {
+			TaskScheduler taskScheduler = getTaskScheduler();
+			if (taskScheduler == null) {
+				ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+				scheduler.setThreadNamePrefix("amqp-batch-");
+				scheduler.afterPropertiesSet();
+				this.ownTaskScheduler = scheduler;
+				taskScheduler = scheduler;
+			}
+			this.flushTask = taskScheduler.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					flushExpiredBatches();
+				}
+			}, this.batchTimeout);
+		}
 		this.messageListenerContainer.start();
 	}
 
 	@Override
 	protected void doStop() {
 		this.messageListenerContainer.stop();
+		if (this.flushTask != null) {
+			this.flushTask.cancel(false);
+			this.flushTask = null;
+		}
+		if (this.ownTaskScheduler != null) {
+			this.ownTaskScheduler.destroy();
+			this.ownTaskScheduler = null;
+		}
+		// the consumers are cancelled, so requeue the partial batches now rather than
+		// leaving them unacknowledged until their channels are eventually closed
+		for (Batch batch : this.batches.values()) {
+			synchronized (batch) {
+				this.rejectBatch(batch);
+			}
+		}
+		this.batches.clear();
+	}
+
+	private void addToBatch(Message message, Channel channel) throws IOException {
+		Batch batch = this.batches.get(channel);
+		if (batch == null) {
+			batch = new Batch(channel);
+			Batch existing = this.batches.putIfAbsent(channel, batch);
+			if (existing != null) {
+				batch = existing;
+			}
+		}
+		Object payload = this.messageConverter.fromMessage(message);
+		Map<String, ?> headers = this.headerMapper.toHeadersFromRequest(message.getMessageProperties());
+		synchronized (batch) {
+			batch.add(payload, headers, message.getMessageProperties().getDeliveryTag());
+			if (batch.size() >= this.batchSize) {
+				this.sendBatch(batch);
+			}
+		}
+	}
+
+	private void flushExpiredBatches() {
+		long now = System.currentTimeMillis();
+		for (Batch batch : this.batches.values()) {
+			synchronized (batch) {
+				if (!batch.channel.isOpen()) {
+					// the consumer was restarted; its deliveries will be redelivered
+					batch.clear();
+					this.batches.remove(batch.channel);
+				}
+				else if (batch.size() > 0 && now - batch.firstArrival >= this.batchTimeout) {
+					try {
+						this.sendBatch(batch);
+					}
+					catch (Exception e) {
+						if (logger.isWarnEnabled()) {
+							logger.warn("failed to send AMQP batch", e);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Send the batch and acknowledge it with a single multiple ack; on failure the
+	 * batch is rejected and requeued. Must be called while holding the batch's monitor.
+	 */
+	private void sendBatch(Batch batch) throws IOException {
+		org.springframework.integration.Message<?> batchMessage = MessageBuilder.withPayload(new ArrayList<Object>(batch.payloads))
+				.setHeader(AmqpHeaders.BATCHED_HEADERS, new ArrayList<Map<String, ?>>(batch.headers))
+				.build();
+		long deliveryTag = batch.lastDeliveryTag;
+		batch.clear();
+		try {
+			this.sendMessage(batchMessage);
+		}
+		catch (RuntimeException e) {
+			if (this.ackBatches) {
+				batch.channel.basicNack(deliveryTag, true, true);
+			}
+			throw e;
+		}
+		if (this.ackBatches) {
+			batch.channel.basicAck(deliveryTag, true);
+		}
+	}
+
+	/**
+	 * Discard the batch without sending it, rejecting and requeueing its deliveries
+	 * if the adapter acknowledges batches. Must be called while holding the batch's monitor.
+	 */
+	private void rejectBatch(Batch batch) {
+		if (this.ackBatches && batch.size() > 0 && batch.channel.isOpen()) {
+			try {
+				batch.channel.basicNack(batch.lastDeliveryTag, true, true);
+			}
+			catch (Exception e) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("failed to reject AMQP batch; it will be redelivered when its channel is closed", e);
+				}
+			}
+		}
+		batch.clear();
+	}
+
+
+	/**
+	 * The deliveries gathered so far on one consumer channel.
+	 */
+	private static class Batch {
+
+		private final Channel channel;
+
+		private final List<Object> payloads = new ArrayList<Object>();
+
+		private final List<Map<String, ?>> headers = new ArrayList<Map<String, ?>>();
+
+		private long lastDeliveryTag;
+
+		private long firstArrival;
+
+		Batch(Channel channel) {
+			this.channel = channel;
+		}
+
+		void add(Object payload, Map<String, ?> headers, long deliveryTag) {
+			if (this.payloads.isEmpty()) {
+				this.firstArrival = System.currentTimeMillis();
+			}
+			this.payloads.add(payload);
+			this.headers.add(headers);
+			this.lastDeliveryTag = deliveryTag;
+		}
+
+		int size() {
+			return this.payloads.size();
+		}
+
+		void clear() {
+			this.payloads.clear();
+			this.headers.clear();
+		}
 	}
 
 }
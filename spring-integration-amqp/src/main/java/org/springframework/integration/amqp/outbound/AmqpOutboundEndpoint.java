@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  * 
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -13,19 +13,44 @@
 
 package org.springframework.integration.amqp.outbound;
 
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Address;
 import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.MessageListener;
 import org.springframework.amqp.core.MessagePostProcessor;
 import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.ChannelProxy;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.integration.amqp.AmqpHeaders;
 import org.springframework.integration.amqp.support.AmqpHeaderMapper;
 import org.springframework.integration.amqp.support.DefaultAmqpHeaderMapper;
 import org.springframework.integration.handler.AbstractReplyProducingMessageHandler;
@@ -33,15 +58,30 @@ import org.springframework.integration.handler.ExpressionEvaluatingMessageProces
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.util.Assert;
 
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.ReturnListener;
+
 /**
  * Adapter that converts and sends Messages to an AMQP Exchange.
+ * <p>
+ * As a gateway, replies are received on a temporary queue per request by default. When a
+ * 'replyQueueName' is provided, a single long-lived listener container consumes that queue
+ * and replies are matched to the waiting requests by their correlation id.
+ * <p>
+ * As an adapter, when a 'confirmAckChannel' or 'confirmNackChannel' is provided, messages are
+ * published on a dedicated channel in publisher-confirm mode and each broker ack/nack is sent
+ * asynchronously to the corresponding channel; when a 'returnChannel' is provided, messages
+ * are published as mandatory and unroutable messages are sent to it.
  * 
  * @author Mark Fisher
  * @author Oleg Zhurakousky
  * @author Gary Russell
  * @since 2.1
  */
-public class AmqpOutboundEndpoint extends AbstractReplyProducingMessageHandler {
+public class AmqpOutboundEndpoint extends AbstractReplyProducingMessageHandler implements DisposableBean {
 
 	private static final ExpressionParser expressionParser = new SpelExpressionParser(new SpelParserConfiguration(true, true));
 
@@ -64,6 +104,41 @@ public class AmqpOutboundEndpoint extends AbstractReplyProducingMessageHandler {
 
 	private volatile AmqpHeaderMapper headerMapper = new DefaultAmqpHeaderMapper();
 
+	private volatile String replyQueueName;
+
+	private volatile long replyTimeout = 5000;
+
+	private volatile int replyListenerConcurrency = 1;
+
+	private volatile SimpleMessageListenerContainer replyListenerContainer;
+
+	private final ConcurrentMap<String, PendingReply> pendingReplies = new ConcurrentHashMap<String, PendingReply>();
+
+	private final String correlationIdPrefix = UUID.randomUUID().toString() + ".";
+
+	private final AtomicLong correlationSequence = new AtomicLong();
+
+	private volatile MessageChannel confirmAckChannel;
+
+	private volatile MessageChannel confirmNackChannel;
+
+	private volatile MessageChannel returnChannel;
+
+	private volatile String confirmCorrelationExpression;
+
+	private volatile ExpressionEvaluatingMessageProcessor<Object> confirmCorrelationGenerator;
+
+	private volatile MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
+
+	// guarded by confirmsMonitor
+	private final TreeMap<Long, Message<?>> pendingConfirms = new TreeMap<Long, Message<?>>();
+
+	private final Object confirmsMonitor = new Object();
+
+	private final Object publisherMonitor = new Object();
+
+	private volatile Channel publisherChannel;
+
 	@Override
 	protected void onInit() {
 		super.onInit();
@@ -79,6 +154,18 @@ public class AmqpOutboundEndpoint extends AbstractReplyProducingMessageHandler {
 			Expression expression = expressionParser.parseExpression(this.routingKeyExpression);
 			this.routingKeyGenerator = new ExpressionEvaluatingMessageProcessor<String>(expression, String.class);
 		}
+		if (this.confirmCorrelationExpression != null) {
+			Expression expression = expressionParser.parseExpression(this.confirmCorrelationExpression);
+			this.confirmCorrelationGenerator = new ExpressionEvaluatingMessageProcessor<Object>(expression);
+			this.confirmCorrelationGenerator.setBeanFactory(this.getBeanFactory());
+		}
+		if (this.isPublishingWithListeners() || this.replyQueueName != null) {
+			Assert.state(this.amqpTemplate instanceof RabbitTemplate,
+					"A RabbitTemplate is required for publisher confirms, returns and a fixed reply queue");
+		}
+		if (this.expectReply && this.replyQueueName != null) {
+			this.startReplyListenerContainer();
+		}
 	}
 
 	public AmqpOutboundEndpoint(AmqpTemplate amqpTemplate) {
@@ -110,6 +197,78 @@ public class AmqpOutboundEndpoint extends AbstractReplyProducingMessageHandler {
 		this.expectReply = expectReply;
 	}
 
+	/**
+	 * Set the name of a queue on which replies are received by a long-lived listener
+	 * container and dispatched to waiting requests by correlation id, instead of
+	 * creating a temporary reply queue per request. The replying application must
+	 * copy the request's correlationId into the reply.
+	 * @since 2.1.1
+	 */
+	public void setReplyQueueName(String replyQueueName) {
+		this.replyQueueName = replyQueueName;
+	}
+
+	/**
+	 * Set the time in milliseconds to wait for a reply when a 'replyQueueName' is
+	 * used (default 5 seconds). A negative value waits indefinitely.
+	 * @since 2.1.1
+	 */
+	public void setReplyTimeout(long replyTimeout) {
+		this.replyTimeout = replyTimeout;
+	}
+
+	/**
+	 * Set the number of concurrent consumers on the reply queue (default 1).
+	 * @since 2.1.1
+	 */
+	public void setReplyListenerConcurrency(int replyListenerConcurrency) {
+		Assert.isTrue(replyListenerConcurrency > 0, "'replyListenerConcurrency' must be greater than 0");
+		this.replyListenerConcurrency = replyListenerConcurrency;
+	}
+
+	/**
+	 * Set the channel to which a message is sent when the broker confirms (acks) a
+	 * published message. Enables publisher confirms.
+	 * @since 2.1.1
+	 */
+	public void setConfirmAckChannel(MessageChannel confirmAckChannel) {
+		this.confirmAckChannel = confirmAckChannel;
+	}
+
+	/**
+	 * Set the channel to which a message is sent when the broker rejects (nacks) a
+	 * published message, or when the publisher channel fails before the confirm
+	 * arrives. Enables publisher confirms.
+	 * @since 2.1.1
+	 */
+	public void setConfirmNackChannel(MessageChannel confirmNackChannel) {
+		this.confirmNackChannel = confirmNackChannel;
+	}
+
+	/**
+	 * Set an expression, evaluated against the request message when it is published,
+	 * whose result becomes the payload of the ack/nack message. By default the
+	 * request payload is used. The request headers are always copied.
+	 * @since 2.1.1
+	 */
+	public void setConfirmCorrelationExpression(String confirmCorrelationExpression) {
+		this.confirmCorrelationExpression = confirmCorrelationExpression;
+	}
+
+	/**
+	 * Set the channel to which messages returned by the broker as unroutable are sent.
+	 * Messages are published with the 'mandatory' flag when this is set.
+	 * @since 2.1.1
+	 */
+	public void setReturnChannel(MessageChannel returnChannel) {
+		this.returnChannel = returnChannel;
+	}
+
+	public void setMessagePropertiesConverter(MessagePropertiesConverter messagePropertiesConverter) {
+		Assert.notNull(messagePropertiesConverter, "messagePropertiesConverter must not be null");
+		this.messagePropertiesConverter = messagePropertiesConverter;
+	}
+
 	@Override
 	public String getComponentType() {
 		return expectReply ? "amqp:outbound-gateway" : "amqp:outbound-channel-adapter";
@@ -126,14 +285,29 @@ public class AmqpOutboundEndpoint extends AbstractReplyProducingMessageHandler {
 			routingKey = this.routingKeyGenerator.processMessage(requestMessage);
 		}
 		if (this.expectReply) {
+			if (this.replyQueueName != null) {
+				return this.sendAndReceiveWithReplyQueue(exchangeName, routingKey, requestMessage);
+			}
 			return this.sendAndReceive(exchangeName, routingKey, requestMessage);
 		}
+		else if (this.isPublishingWithListeners()) {
+			this.publish(exchangeName, routingKey, requestMessage);
+			return null;
+		}
 		else {
 			this.send(exchangeName, routingKey, requestMessage);
 			return null;
 		}
 	}
 
+	private boolean isPublishingWithListeners() {
+		return this.isConfirming() || this.returnChannel != null;
+	}
+
+	private boolean isConfirming() {
+		return this.confirmAckChannel != null || this.confirmNackChannel != null;
+	}
+
 	private void send(String exchangeName, String routingKey, final Message<?> requestMessage) {
 		this.amqpTemplate.convertAndSend(exchangeName, routingKey, requestMessage.getPayload(),
 				new MessagePostProcessor() {
@@ -153,6 +327,33 @@ public class AmqpOutboundEndpoint extends AbstractReplyProducingMessageHandler {
 		this.headerMapper.fromHeadersToRequest(requestMessage.getHeaders(), amqpMessageProperties);
 		org.springframework.amqp.core.Message amqpMessage = converter.toMessage(requestMessage.getPayload(), amqpMessageProperties);
 		org.springframework.amqp.core.Message amqpReplyMessage = this.amqpTemplate.sendAndReceive(exchangeName, routingKey, amqpMessage);
+		return this.buildReplyMessage(converter, amqpReplyMessage);
+	}
+
+	private Message<?> sendAndReceiveWithReplyQueue(String exchangeName, String routingKey, Message<?> requestMessage) {
+		MessageConverter converter = ((RabbitTemplate) this.amqpTemplate).getMessageConverter();
+		MessageProperties amqpMessageProperties = new MessageProperties();
+		this.headerMapper.fromHeadersToRequest(requestMessage.getHeaders(), amqpMessageProperties);
+		org.springframework.amqp.core.Message amqpMessage = converter.toMessage(requestMessage.getPayload(), amqpMessageProperties);
+		String correlationId = this.correlationIdPrefix + this.correlationSequence.incrementAndGet();
+		amqpMessage.getMessageProperties().setCorrelationId(this.toBytes(correlationId));
+		amqpMessage.getMessageProperties().setReplyToAddress(new Address(ExchangeTypes.DIRECT, "", this.replyQueueName));
+		PendingReply pendingReply = new PendingReply();
+		this.pendingReplies.put(correlationId, pendingReply);
+		try {
+			this.amqpTemplate.send(exchangeName, routingKey, amqpMessage);
+			return this.buildReplyMessage(converter, pendingReply.await(this.replyTimeout));
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		finally {
+			this.pendingReplies.remove(correlationId);
+		}
+	}
+
+	private Message<?> buildReplyMessage(MessageConverter converter, org.springframework.amqp.core.Message amqpReplyMessage) {
 		if (amqpReplyMessage == null) {
 			return null;
 		}
@@ -165,4 +366,255 @@ public class AmqpOutboundEndpoint extends AbstractReplyProducingMessageHandler {
 		return builder.build();
 	}
 
+	/**
+	 * Publish on the dedicated publisher channel, registering the message for
+	 * confirmation when confirms are enabled.
+	 */
+	private void publish(String exchangeName, String routingKey, Message<?> requestMessage) {
+		RabbitTemplate rabbitTemplate = (RabbitTemplate) this.amqpTemplate;
+		MessageProperties amqpMessageProperties = new MessageProperties();
+		this.headerMapper.fromHeadersToRequest(requestMessage.getHeaders(), amqpMessageProperties);
+		org.springframework.amqp.core.Message amqpMessage =
+				rabbitTemplate.getMessageConverter().toMessage(requestMessage.getPayload(), amqpMessageProperties);
+		BasicProperties basicProperties = this.messagePropertiesConverter.fromMessageProperties(
+				amqpMessage.getMessageProperties(), "UTF-8");
+		Message<?> confirmMessage = null;
+		if (this.isConfirming()) {
+			Object correlationData = (this.confirmCorrelationGenerator != null) ?
+					this.confirmCorrelationGenerator.processMessage(requestMessage) : requestMessage.getPayload();
+			confirmMessage = MessageBuilder.withPayload(correlationData).copyHeaders(requestMessage.getHeaders()).build();
+		}
+		synchronized (this.publisherMonitor) {
+			long sequence = -1;
+			try {
+				Channel channel = this.obtainPublisherChannel();
+				if (confirmMessage != null) {
+					sequence = channel.getNextPublishSeqNo();
+					synchronized (this.confirmsMonitor) {
+						this.pendingConfirms.put(sequence, confirmMessage);
+					}
+				}
+				channel.basicPublish(exchangeName, routingKey, this.returnChannel != null, false,
+						basicProperties, amqpMessage.getBody());
+			}
+			catch (Exception e) {
+				if (sequence >= 0) {
+					synchronized (this.confirmsMonitor) {
+						this.pendingConfirms.remove(sequence);
+					}
+				}
+				this.resetPublisherChannel();
+				throw new MessageHandlingException(requestMessage, "failed to publish AMQP Message", e);
+			}
+		}
+	}
+
+	private Channel obtainPublisherChannel() throws IOException {
+		Channel channel = this.publisherChannel;
+		if (channel != null && channel.isOpen()) {
+			return channel;
+		}
+		if (channel != null) {
+			this.resetPublisherChannel();
+		}
+		ConnectionFactory connectionFactory = ((RabbitTemplate) this.amqpTemplate).getConnectionFactory();
+		channel = connectionFactory.createConnection().createChannel(false);
+		PublisherListener listener = new PublisherListener();
+		if (this.isConfirming()) {
+			channel.confirmSelect();
+			channel.setConfirmListener(listener);
+		}
+		if (this.returnChannel != null) {
+			channel.setReturnListener(listener);
+		}
+		this.publisherChannel = channel;
+		return channel;
+	}
+
+	/**
+	 * Close the publisher channel; confirms still outstanding on it can never arrive,
+	 * so they are reported as nacks.
+	 */
+	private void resetPublisherChannel() {
+		synchronized (this.publisherMonitor) {
+			Channel channel = this.publisherChannel;
+			this.publisherChannel = null;
+			if (channel != null) {
+				// close the physical channel so that a channel in confirm mode is never returned to a cache
+				RabbitUtils.closeChannel((channel instanceof ChannelProxy) ? ((ChannelProxy) channel).getTargetChannel() : channel);
+			}
+			this.processConfirms(this.removePendingConfirms(null), false);
+		}
+	}
+
+	/**
+	 * Remove the pending confirms up to and including the given delivery tag,
+	 * or all of them if the tag is null. Removal is atomic with respect to the
+	 * publisher and the confirm listener, so each confirm is reported exactly once.
+	 */
+	private List<Message<?>> removePendingConfirms(Long upToDeliveryTag) {
+		synchronized (this.confirmsMonitor) {
+			Map<Long, Message<?>> confirmed = (upToDeliveryTag != null) ?
+					this.pendingConfirms.headMap(upToDeliveryTag + 1) : this.pendingConfirms;
+			List<Message<?>> messages = new ArrayList<Message<?>>(confirmed.values());
+			confirmed.clear();
+			return messages;
+		}
+	}
+
+	private void processConfirms(Collection<Message<?>> messages, boolean ack) {
+		for (Message<?> message : messages) {
+			this.sendConfirm(message, ack);
+		}
+	}
+
+	private void sendConfirm(Message<?> message, boolean ack) {
+		MessageChannel channel = (ack) ? this.confirmAckChannel : this.confirmNackChannel;
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.send(MessageBuilder.fromMessage(message).setHeader(AmqpHeaders.PUBLISH_CONFIRM, ack).build());
+		}
+		catch (Exception e) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("failed to send publisher confirm for " + message, e);
+			}
+		}
+	}
+
+	private void startReplyListenerContainer() {
+		ConnectionFactory connectionFactory = ((RabbitTemplate) this.amqpTemplate).getConnectionFactory();
+		SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+		container.setQueueNames(this.replyQueueName);
+		container.setConcurrentConsumers(this.replyListenerConcurrency);
+		container.setMessageListener(new ReplyListener());
+		container.afterPropertiesSet();
+		container.start();
+		this.replyListenerContainer = container;
+	}
+
+	public void destroy() {
+		SimpleMessageListenerContainer container = this.replyListenerContainer;
+		if (container != null) {
+			this.replyListenerContainer = null;
+			container.destroy();
+		}
+		this.resetPublisherChannel();
+	}
+
+	private byte[] toBytes(String correlationId) {
+		try {
+			return correlationId.getBytes("UTF-8");
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+
+	/**
+	 * A request waiting for its reply from the reply listener.
+	 */
+	private static class PendingReply {
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+
+		private volatile org.springframework.amqp.core.Message reply;
+
+		void reply(org.springframework.amqp.core.Message reply) {
+			this.reply = reply;
+			this.latch.countDown();
+		}
+
+		org.springframework.amqp.core.Message await(long timeout) throws InterruptedException {
+			if (timeout < 0) {
+				this.latch.await();
+			}
+			else {
+				this.latch.await(timeout, TimeUnit.MILLISECONDS);
+			}
+			return this.reply;
+		}
+	}
+
+
+	private class ReplyListener implements MessageListener {
+
+		public void onMessage(org.springframework.amqp.core.Message message) {
+			byte[] correlationId = message.getMessageProperties().getCorrelationId();
+			PendingReply pendingReply = null;
+			if (correlationId != null) {
+				try {
+					pendingReply = pendingReplies.get(new String(correlationId, "UTF-8"));
+				}
+				catch (UnsupportedEncodingException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			if (pendingReply != null) {
+				pendingReply.reply(message);
+			}
+			else if (logger.isWarnEnabled()) {
+				logger.warn("Discarding reply without a waiting request (late or uncorrelated): " + message);
+			}
+		}
+	}
+
+
+	/**
+	 * Receives publisher confirms and returned messages on the connection's thread.
+	 */
+	private class PublisherListener implements ConfirmListener, ReturnListener {
+
+		public void handleAck(long deliveryTag, boolean multiple) {
+			this.confirm(deliveryTag, multiple, true);
+		}
+
+		public void handleNack(long deliveryTag, boolean multiple) {
+			this.confirm(deliveryTag, multiple, false);
+		}
+
+		private void confirm(long deliveryTag, boolean multiple, boolean ack) {
+			if (multiple) {
+				processConfirms(removePendingConfirms(deliveryTag), ack);
+			}
+			else {
+				Message<?> message;
+				synchronized (confirmsMonitor) {
+					message = pendingConfirms.remove(deliveryTag);
+				}
+				if (message != null) {
+					sendConfirm(message, ack);
+				}
+			}
+		}
+
+		public void handleReturn(int replyCode, String replyText, String exchange, String routingKey,
+				BasicProperties properties, byte[] body) throws IOException {
+			MessageChannel channel = returnChannel;
+			if (channel == null) {
+				return;
+			}
+			try {
+				MessageProperties messageProperties = messagePropertiesConverter.toMessageProperties(
+						properties, new Envelope(0, false, exchange, routingKey), "UTF-8");
+				org.springframework.amqp.core.Message amqpMessage = new org.springframework.amqp.core.Message(body, messageProperties);
+				Object payload = ((RabbitTemplate) amqpTemplate).getMessageConverter().fromMessage(amqpMessage);
+				Map<String, ?> headers = headerMapper.toHeadersFromReply(messageProperties);
+				channel.send(MessageBuilder.withPayload(payload).copyHeaders(headers)
+						.setHeader(AmqpHeaders.RETURN_REPLY_CODE, replyCode)
+						.setHeader(AmqpHeaders.RETURN_REPLY_TEXT, replyText)
+						.setHeader(AmqpHeaders.RETURN_EXCHANGE, exchange)
+						.setHeader(AmqpHeaders.RETURN_ROUTING_KEY, routingKey)
+						.build());
+			}
+			catch (Exception e) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("failed to send returned message to the return channel", e);
+				}
+			}
+		}
+	}
+
 }
@@ -16,11 +16,17 @@
 
 package org.springframework.integration.amqp.config;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageListener;
 import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.ChannelAwareMessageListener;
 import org.springframework.amqp.rabbit.listener.AbstractMessageListenerContainer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
@@ -32,9 +38,14 @@ import org.springframework.integration.test.util.TestUtils;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import com.rabbitmq.client.Channel;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 /**
  * @author Mark Fisher
@@ -172,4 +183,34 @@ public class AmqpInboundChannelAdapterParserTests {
 		assertNotNull(siMessage.getHeaders().get(AmqpHeaders.APP_ID));
 		assertNotNull(siMessage.getHeaders().get(AmqpHeaders.CONTENT_TYPE));
 	}
+
+	@Test
+	public void withBatching() throws Exception {
+		AmqpInboundChannelAdapter adapter = context.getBean("withBatching", AmqpInboundChannelAdapter.class);
+		assertEquals(2, TestUtils.getPropertyValue(adapter, "batchSize"));
+		assertEquals(500L, TestUtils.getPropertyValue(adapter, "batchTimeout"));
+		AbstractMessageListenerContainer mlc =
+				TestUtils.getPropertyValue(adapter, "messageListenerContainer", AbstractMessageListenerContainer.class);
+		assertEquals(2, TestUtils.getPropertyValue(mlc, "prefetchCount"));
+		assertEquals(AcknowledgeMode.MANUAL, mlc.getAcknowledgeMode());
+		ChannelAwareMessageListener listener =
+				TestUtils.getPropertyValue(mlc, "messageListener", ChannelAwareMessageListener.class);
+		Channel channel = mock(Channel.class);
+		for (long deliveryTag = 1; deliveryTag <= 3; deliveryTag++) {
+			MessageProperties amqpProperties = new MessageProperties();
+			amqpProperties.setDeliveryTag(deliveryTag);
+			amqpProperties.setContentType(MessageProperties.CONTENT_TYPE_TEXT_PLAIN);
+			amqpProperties.setHeader("foo", "foo" + deliveryTag);
+			listener.onMessage(new Message(("hello" + deliveryTag).getBytes(), amqpProperties), channel);
+		}
+		QueueChannel requestChannel = context.getBean("requestChannel", QueueChannel.class);
+		org.springframework.integration.Message<?> siMessage = requestChannel.receive(0);
+		assertEquals(Arrays.asList("hello1", "hello2"), siMessage.getPayload());
+		List<?> batchedHeaders = (List<?>) siMessage.getHeaders().get(AmqpHeaders.BATCHED_HEADERS);
+		assertEquals("foo2", ((Map<?, ?>) batchedHeaders.get(1)).get("foo"));
+		assertNull(requestChannel.receive(0));
+		verify(channel).basicAck(2L, true);
+		verifyNoMoreInteractions(channel);
+	}
+
 }
@@ -39,7 +39,9 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.util.ReflectionUtils;
 
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import static junit.framework.Assert.assertEquals;
 
@@ -99,4 +101,15 @@ public class AmqpOutboundChannelAdapterParserTests {
 		Mockito.verify(amqpTemplate, Mockito.times(1)).send(Mockito.any(String.class), Mockito.any(String.class), Mockito.any(org.springframework.amqp.core.Message.class));
 	}
 
+	@Test
+	public void withPublisherConfirms() {
+		Object eventDrivenConsumer = context.getBean("withPublisherConfirms");
+		AmqpOutboundEndpoint endpoint = TestUtils.getPropertyValue(eventDrivenConsumer, "handler", AmqpOutboundEndpoint.class);
+		assertSame(context.getBean("ackChannel"), TestUtils.getPropertyValue(endpoint, "confirmAckChannel"));
+		assertSame(context.getBean("nackChannel"), TestUtils.getPropertyValue(endpoint, "confirmNackChannel"));
+		assertSame(context.getBean("returnChannel"), TestUtils.getPropertyValue(endpoint, "returnChannel"));
+		assertEquals("headers.foo", TestUtils.getPropertyValue(endpoint, "confirmCorrelationExpression"));
+		assertNotNull(TestUtils.getPropertyValue(endpoint, "confirmCorrelationGenerator"));
+	}
+
 }
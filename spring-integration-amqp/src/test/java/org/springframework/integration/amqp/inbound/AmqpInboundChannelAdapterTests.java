@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.amqp.inbound;
+
+import org.junit.Test;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.ChannelAwareMessageListener;
+import org.springframework.amqp.rabbit.listener.AbstractMessageListenerContainer;
+import org.springframework.integration.channel.QueueChannel;
+
+import com.rabbitmq.client.Channel;
+
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 2.1.1
+ */
+public class AmqpInboundChannelAdapterTests {
+
+	@Test
+	public void partialBatchIsRequeuedOnStop() throws Exception {
+		StubListenerContainer container = new StubListenerContainer();
+		container.setConnectionFactory(mock(ConnectionFactory.class));
+		container.setExposeListenerChannel(true);
+		AmqpInboundChannelAdapter adapter = new AmqpInboundChannelAdapter(container);
+		QueueChannel outputChannel = new QueueChannel();
+		adapter.setOutputChannel(outputChannel);
+		adapter.setBatchSize(10);
+		adapter.afterPropertiesSet();
+		adapter.start();
+		ChannelAwareMessageListener listener = (ChannelAwareMessageListener) container.getMessageListener();
+		Channel channel = mock(Channel.class);
+		when(channel.isOpen()).thenReturn(true);
+		for (long deliveryTag = 1; deliveryTag <= 3; deliveryTag++) {
+			MessageProperties amqpProperties = new MessageProperties();
+			amqpProperties.setDeliveryTag(deliveryTag);
+			listener.onMessage(new Message(("hello" + deliveryTag).getBytes(), amqpProperties), channel);
+		}
+		adapter.stop();
+		assertNull(outputChannel.receive(0));
+		verify(channel).isOpen();
+		verify(channel).basicNack(3L, true, true);
+		verifyNoMoreInteractions(channel);
+	}
+
+
+	private static class StubListenerContainer extends AbstractMessageListenerContainer {
+
+		StubListenerContainer() {
+			this.setAcknowledgeMode(AcknowledgeMode.AUTO);
+		}
+
+		@Override
+		protected void doInitialize() {
+		}
+
+		@Override
+		protected void doShutdown() {
+		}
+
+		@Override
+		public void start() {
+		}
+
+		@Override
+		public void stop() {
+		}
+	}
+
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.amqp.outbound;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.integration.Message;
+import org.springframework.integration.amqp.AmqpHeaders;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.test.util.TestUtils;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.ReturnListener;
+
+/**
+ * @since 2.1.1
+ */
+public class AmqpOutboundEndpointTests {
+
+	private Channel channel;
+
+	private AmqpOutboundEndpoint endpoint;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@Before
+	public void setup() throws Exception {
+		ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+		Connection connection = mock(Connection.class);
+		this.channel = mock(Channel.class);
+		when(connectionFactory.createConnection()).thenReturn(connection);
+		when(connection.createChannel(false)).thenReturn(this.channel);
+		when(this.channel.isOpen()).thenReturn(true);
+		this.endpoint = new AmqpOutboundEndpoint(new RabbitTemplate(connectionFactory));
+		this.endpoint.setExchangeName("ex");
+		this.endpoint.setRoutingKey("rk");
+	}
+
+	@After
+	public void tearDown() {
+		this.endpoint.destroy();
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	public void confirmsAreRoutedToAckAndNackChannels() throws Exception {
+		QueueChannel acks = new QueueChannel();
+		QueueChannel nacks = new QueueChannel();
+		this.endpoint.setConfirmAckChannel(acks);
+		this.endpoint.setConfirmNackChannel(nacks);
+		this.endpoint.setConfirmCorrelationExpression("payload.toUpperCase()");
+		this.endpoint.afterPropertiesSet();
+		when(this.channel.getNextPublishSeqNo()).thenReturn(1L, 2L, 3L);
+
+		this.endpoint.handleMessage(MessageBuilder.withPayload("foo").setHeader("bar", "baz").build());
+		this.endpoint.handleMessage(MessageBuilder.withPayload("qux").build());
+		this.endpoint.handleMessage(MessageBuilder.withPayload("fiz").build());
+
+		verify(this.channel).confirmSelect();
+		ArgumentCaptor<ConfirmListener> listener = ArgumentCaptor.forClass(ConfirmListener.class);
+		verify(this.channel).setConfirmListener(listener.capture());
+		verify(this.channel, times(3)).basicPublish(eq("ex"), eq("rk"), eq(false), eq(false),
+				any(BasicProperties.class), any(byte[].class));
+
+		listener.getValue().handleAck(2, true);
+		listener.getValue().handleNack(3, false);
+
+		Message<?> ack = acks.receive(0);
+		assertNotNull(ack);
+		assertEquals("FOO", ack.getPayload());
+		assertEquals("baz", ack.getHeaders().get("bar"));
+		assertEquals(Boolean.TRUE, ack.getHeaders().get(AmqpHeaders.PUBLISH_CONFIRM));
+		assertEquals("QUX", acks.receive(0).getPayload());
+		assertNull(acks.receive(0));
+		Message<?> nack = nacks.receive(0);
+		assertEquals("FIZ", nack.getPayload());
+		assertEquals(Boolean.FALSE, nack.getHeaders().get(AmqpHeaders.PUBLISH_CONFIRM));
+	}
+
+	@Test
+	public void outstandingConfirmsAreNackedOnDestroy() throws Exception {
+		QueueChannel nacks = new QueueChannel();
+		this.endpoint.setConfirmNackChannel(nacks);
+		this.endpoint.afterPropertiesSet();
+		when(this.channel.getNextPublishSeqNo()).thenReturn(1L);
+		this.endpoint.handleMessage(MessageBuilder.withPayload("foo").build());
+		this.endpoint.destroy();
+		verify(this.channel).close();
+		assertEquals("foo", nacks.receive(0).getPayload());
+	}
+
+	@Test
+	public void returnsAreSentToReturnChannel() throws Exception {
+		QueueChannel returns = new QueueChannel();
+		this.endpoint.setReturnChannel(returns);
+		this.endpoint.afterPropertiesSet();
+		this.endpoint.handleMessage(MessageBuilder.withPayload("foo").build());
+
+		ArgumentCaptor<BasicProperties> properties = ArgumentCaptor.forClass(BasicProperties.class);
+		verify(this.channel).basicPublish(eq("ex"), eq("rk"), eq(true), eq(false), properties.capture(), any(byte[].class));
+		ArgumentCaptor<ReturnListener> listener = ArgumentCaptor.forClass(ReturnListener.class);
+		verify(this.channel).setReturnListener(listener.capture());
+		listener.getValue().handleReturn(312, "NO_ROUTE", "ex", "rk", properties.getValue(), "foo".getBytes());
+
+		Message<?> returned = returns.receive(0);
+		assertNotNull(returned);
+		assertEquals("foo", returned.getPayload());
+		assertEquals(312, returned.getHeaders().get(AmqpHeaders.RETURN_REPLY_CODE));
+		assertEquals("NO_ROUTE", returned.getHeaders().get(AmqpHeaders.RETURN_REPLY_TEXT));
+		assertEquals("ex", returned.getHeaders().get(AmqpHeaders.RETURN_EXCHANGE));
+		assertEquals("rk", returned.getHeaders().get(AmqpHeaders.RETURN_ROUTING_KEY));
+	}
+
+	@Test
+	public void repliesAreCorrelatedToTheirRequests() throws Exception {
+		Consumer consumer = this.startReplyQueueEndpoint(5000);
+		QueueChannel fooReplies = new QueueChannel();
+		QueueChannel barReplies = new QueueChannel();
+		this.sendInBackground("foo", fooReplies);
+		this.sendInBackground("bar", barReplies);
+
+		ArgumentCaptor<BasicProperties> properties = ArgumentCaptor.forClass(BasicProperties.class);
+		ArgumentCaptor<byte[]> bodies = ArgumentCaptor.forClass(byte[].class);
+		verify(this.channel, timeout(5000).times(2)).basicPublish(eq("ex"), eq("rk"), anyBoolean(), anyBoolean(),
+				properties.capture(), bodies.capture());
+		List<BasicProperties> requests = properties.getAllValues();
+		int foo = "foo".equals(new String(bodies.getAllValues().get(0))) ? 0 : 1;
+		String fooCorrelationId = requests.get(foo).getCorrelationId();
+		String barCorrelationId = requests.get(1 - foo).getCorrelationId();
+		assertNotNull(fooCorrelationId);
+		assertFalse(fooCorrelationId.equals(barCorrelationId));
+		assertTrue(requests.get(foo).getReplyTo().endsWith("/replies"));
+
+		// replies arrive in the opposite order to the requests
+		this.deliverReply(consumer, 1, barCorrelationId, "BAR");
+		this.deliverReply(consumer, 2, fooCorrelationId, "FOO");
+
+		Message<?> reply = barReplies.receive(5000);
+		assertNotNull(reply);
+		assertEquals("BAR", reply.getPayload());
+		reply = fooReplies.receive(5000);
+		assertNotNull(reply);
+		assertEquals("FOO", reply.getPayload());
+		assertNull(fooReplies.receive(0));
+		assertNull(barReplies.receive(0));
+		assertTrue(TestUtils.getPropertyValue(this.endpoint, "pendingReplies", Map.class).isEmpty());
+	}
+
+	@Test
+	public void requestTimesOutWithoutReply() throws Exception {
+		this.startReplyQueueEndpoint(100);
+		QueueChannel replies = new QueueChannel();
+		this.endpoint.handleMessage(MessageBuilder.withPayload("foo").setReplyChannel(replies).build());
+
+		verify(this.channel).basicPublish(eq("ex"), eq("rk"), anyBoolean(), anyBoolean(), any(BasicProperties.class),
+				any(byte[].class));
+		assertNull(replies.receive(0));
+		assertTrue(TestUtils.getPropertyValue(this.endpoint, "pendingReplies", Map.class).isEmpty());
+	}
+
+	@Test
+	public void lateReplyIsDiscarded() throws Exception {
+		Consumer consumer = this.startReplyQueueEndpoint(100);
+		QueueChannel timedOutReplies = new QueueChannel();
+		this.endpoint.handleMessage(MessageBuilder.withPayload("foo").setReplyChannel(timedOutReplies).build());
+		ArgumentCaptor<BasicProperties> properties = ArgumentCaptor.forClass(BasicProperties.class);
+		verify(this.channel).basicPublish(eq("ex"), eq("rk"), anyBoolean(), anyBoolean(), properties.capture(),
+				any(byte[].class));
+		String lateCorrelationId = properties.getValue().getCorrelationId();
+
+		this.endpoint.setReplyTimeout(5000);
+		QueueChannel replies = new QueueChannel();
+		this.sendInBackground("bar", replies);
+		verify(this.channel, timeout(5000).times(2)).basicPublish(eq("ex"), eq("rk"), anyBoolean(), anyBoolean(),
+				properties.capture(), any(byte[].class));
+		String correlationId = properties.getValue().getCorrelationId();
+
+		// the late reply must not be taken for the reply to the waiting request
+		this.deliverReply(consumer, 1, lateCorrelationId, "FOO");
+		verify(this.channel, timeout(5000)).basicAck(eq(1L), anyBoolean());
+		assertNull(replies.receive(0));
+		this.deliverReply(consumer, 2, correlationId, "BAR");
+
+		Message<?> reply = replies.receive(5000);
+		assertNotNull(reply);
+		assertEquals("BAR", reply.getPayload());
+		assertNull(timedOutReplies.receive(0));
+	}
+
+	private Consumer startReplyQueueEndpoint(long replyTimeout) throws Exception {
+		this.endpoint.setExpectReply(true);
+		this.endpoint.setReplyQueueName("replies");
+		this.endpoint.setReplyTimeout(replyTimeout);
+		this.endpoint.afterPropertiesSet();
+		ArgumentCaptor<Consumer> consumer = ArgumentCaptor.forClass(Consumer.class);
+		verify(this.channel, timeout(5000)).basicConsume(eq("replies"), anyBoolean(), consumer.capture());
+		return consumer.getValue();
+	}
+
+	private void sendInBackground(final String payload, final QueueChannel replyChannel) {
+		this.executor.execute(new Runnable() {
+			public void run() {
+				endpoint.handleMessage(MessageBuilder.withPayload(payload).setReplyChannel(replyChannel).build());
+			}
+		});
+	}
+
+	private void deliverReply(Consumer consumer, long deliveryTag, String correlationId, String payload)
+			throws Exception {
+		BasicProperties properties = new BasicProperties.Builder().correlationId(correlationId)
+				.contentType("text/plain").build();
+		consumer.handleDelivery("tag", new Envelope(deliveryTag, false, "", "replies"), properties,
+				payload.getBytes());
+	}
+
+}
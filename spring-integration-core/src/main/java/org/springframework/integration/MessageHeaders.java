@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -91,15 +91,30 @@ public final class MessageHeaders implements Map<String, Object>, Serializable {
 
 
 	public MessageHeaders(Map<String, Object> headers) {
+		this(headers, null, null);
+	}
+
+	/**
+	 * Create headers with the given id and timestamp rather than generating new ones.
+	 * Only intended for restoring the headers of a Message that has been deserialized.
+	 * @param headers the other headers
+	 * @param id the id, or null to generate one
+	 * @param timestamp the timestamp, or null to use the current time
+	 * @since 2.1.1
+	 */
+	public MessageHeaders(Map<String, Object> headers, UUID id, Long timestamp) {
 		this.headers = (headers != null) ? new HashMap<String, Object>(headers) : new HashMap<String, Object>();
-		if (MessageHeaders.idGenerator == null){
+		if (id != null) {
+			this.headers.put(ID, id);
+		}
+		else if (MessageHeaders.idGenerator == null){
 			this.headers.put(ID, UUID.randomUUID());
 		}
 		else {
 			this.headers.put(ID, MessageHeaders.idGenerator.generateId());
 		}
 		
-		this.headers.put(TIMESTAMP, new Long(System.currentTimeMillis()));
+		this.headers.put(TIMESTAMP, (timestamp != null) ? timestamp : new Long(System.currentTimeMillis()));
 	}
 
 	public UUID getId() {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,7 +37,7 @@ import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.integration.MessageChannel;
 import org.springframework.integration.annotation.Publisher;
-import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
+import org.springframework.integration.support.channel.CachingChannelResolver;
 import org.springframework.util.Assert;
 
 /**
@@ -73,7 +73,7 @@ public class PublisherAnnotationAdvisor extends AbstractPointcutAdvisor implemen
 	}
 
 	public void setBeanFactory(BeanFactory beanFactory) {
-		this.interceptor.setChannelResolver(new BeanFactoryChannelResolver(beanFactory));
+		this.interceptor.setChannelResolver(new CachingChannelResolver(beanFactory));
 	}
 
 	public Advice getAdvice() {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,6 +32,7 @@ import org.springframework.integration.context.IntegrationObjectSupport;
 import org.springframework.integration.history.MessageHistory;
 import org.springframework.integration.history.TrackableComponent;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.support.metrics.ChannelMetrics;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
@@ -54,6 +55,8 @@ public abstract class AbstractMessageChannel extends IntegrationObjectSupport im
 
 	private final ChannelInterceptorList interceptors = new ChannelInterceptorList();
 
+	private volatile ChannelMetrics metrics;
+
 
 	public String getComponentType() {
 		return "channel";
@@ -107,6 +110,18 @@ public abstract class AbstractMessageChannel extends IntegrationObjectSupport im
 		super.setConversionService(conversionService);
 	}
 
+	/**
+	 * Specify a {@link ChannelMetrics} instance in which this channel should record its
+	 * send (and, if pollable, receive) statistics. Nothing is recorded by default.
+	 */
+	public void setMetrics(ChannelMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public ChannelMetrics getMetrics() {
+		return this.metrics;
+	}
+
 	/**
 	 * Exposes the interceptor list for subclasses.
 	 */
@@ -145,6 +160,22 @@ public abstract class AbstractMessageChannel extends IntegrationObjectSupport im
 	public final boolean send(Message<?> message, long timeout) {
 		Assert.notNull(message, "message must not be null");
 		Assert.notNull(message.getPayload(), "message payload must not be null");
+		ChannelMetrics metrics = this.metrics;
+		if (metrics == null) {
+			return this.doSendWithInterceptors(message, timeout);
+		}
+		long start = metrics.beforeSend();
+		boolean sent = false;
+		try {
+			sent = this.doSendWithInterceptors(message, timeout);
+			return sent;
+		}
+		finally {
+			metrics.afterSend(start, sent);
+		}
+	}
+
+	private boolean doSendWithInterceptors(Message<?> message, long timeout) {
 		if (this.shouldTrack) {
 			message = MessageHistory.write(message, this);
 		}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.integration.channel;
 
 import org.springframework.integration.Message;
 import org.springframework.integration.core.PollableChannel;
+import org.springframework.integration.support.metrics.ChannelMetrics;
 
 /**
  * Base class for all pollable channels.
@@ -51,6 +52,22 @@ public abstract class AbstractPollableChannel extends AbstractMessageChannel imp
 	 * interrupted.
 	 */
 	public final Message<?> receive(long timeout) {
+		ChannelMetrics metrics = this.getMetrics();
+		if (metrics == null) {
+			return this.doReceiveWithInterceptors(timeout);
+		}
+		try {
+			Message<?> message = this.doReceiveWithInterceptors(timeout);
+			metrics.afterReceive(message != null);
+			return message;
+		}
+		catch (RuntimeException e) {
+			metrics.afterReceiveError();
+			throw e;
+		}
+	}
+
+	private Message<?> doReceiveWithInterceptors(long timeout) {
 		if (!this.getInterceptors().preReceive(this)) {
 			return null;
 		}
@@ -17,6 +17,7 @@ import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.integration.MessageChannel;
@@ -29,7 +30,7 @@ import org.springframework.util.Assert;
  * @author Dave Syer
  * @author Oleg Zhurakousky
  */
-public abstract class AbstractSimpleMessageHandlerFactoryBean<H extends MessageHandler> implements FactoryBean<MessageHandler>, BeanFactoryAware {
+public abstract class AbstractSimpleMessageHandlerFactoryBean<H extends MessageHandler> implements FactoryBean<MessageHandler>, BeanFactoryAware, DisposableBean {
 
 	private volatile H handler;
 
@@ -117,4 +118,10 @@ public abstract class AbstractSimpleMessageHandlerFactoryBean<H extends MessageH
 		return true;
 	}
 
+	public void destroy() throws Exception {
+		if (this.handler instanceof DisposableBean) {
+			((DisposableBean) this.handler).destroy();
+		}
+	}
+
 }
\ No newline at end of file
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,7 +32,7 @@ public abstract class AbstractTransformerParser extends AbstractConsumerEndpoint
 		BeanDefinitionBuilder builder = BeanDefinitionBuilder.genericBeanDefinition(
 				IntegrationNamespaceUtils.BASE_PACKAGE + ".transformer.MessageTransformingHandler");
 		BeanDefinitionBuilder transformerBuilder =
-				BeanDefinitionBuilder.genericBeanDefinition(this.getTransformerClassName());
+				BeanDefinitionBuilder.genericBeanDefinition(this.getTransformerClassName(element));
 		this.parseTransformer(element, parserContext, transformerBuilder);
 		String transformerBeanName = BeanDefinitionReaderUtils.registerWithGeneratedName(
 				transformerBuilder.getBeanDefinition(), parserContext.getRegistry());
@@ -43,6 +43,14 @@ public abstract class AbstractTransformerParser extends AbstractConsumerEndpoint
 
 	protected abstract String getTransformerClassName();
 
+	/**
+	 * Subclasses may override this method to choose the transformer class from the element's
+	 * attributes. The default implementation delegates to {@link #getTransformerClassName()}.
+	 */
+	protected String getTransformerClassName(Element element) {
+		return this.getTransformerClassName();
+	}
+
 	protected abstract void parseTransformer(Element element, ParserContext parserContext, BeanDefinitionBuilder builder);
 
 }
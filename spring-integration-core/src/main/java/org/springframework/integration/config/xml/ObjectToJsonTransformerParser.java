@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,6 +32,14 @@ public class ObjectToJsonTransformerParser extends AbstractTransformerParser {
 		return "org.springframework.integration.json.ObjectToJsonTransformer";
 	}
 
+	@Override
+	protected String getTransformerClassName(Element element) {
+		if ("BYTES".equals(element.getAttribute("result-type"))) {
+			return "org.springframework.integration.json.ObjectToJsonBytesTransformer";
+		}
+		return this.getTransformerClassName();
+	}
+
 	@Override
 	protected void parseTransformer(Element element, ParserContext parserContext, BeanDefinitionBuilder builder) {
 		String objectMapper = element.getAttribute("object-mapper");
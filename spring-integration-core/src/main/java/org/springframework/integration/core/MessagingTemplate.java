@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,7 +30,7 @@ import org.springframework.integration.MessageDeliveryException;
 import org.springframework.integration.MessageHeaders;
 import org.springframework.integration.MessagingException;
 import org.springframework.integration.support.MessageBuilder;
-import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
+import org.springframework.integration.support.channel.CachingChannelResolver;
 import org.springframework.integration.support.channel.ChannelResolutionException;
 import org.springframework.integration.support.channel.ChannelResolver;
 import org.springframework.integration.support.converter.MessageConverter;
@@ -91,7 +91,7 @@ public class MessagingTemplate implements MessagingOperations, BeanFactoryAware,
 	 * Set the {@link ChannelResolver} that is to be used to resolve
 	 * {@link MessageChannel} references for this template.
 	 * <p>When running within an application context, the default resolver is a
-	 * {@link BeanFactoryChannelResolver}.
+	 * {@link CachingChannelResolver}.
 	 */
 	public void setChannelResolver(ChannelResolver channelResolver) {
 		Assert.notNull(channelResolver, "'channelResolver' must not be null");
@@ -128,7 +128,7 @@ public class MessagingTemplate implements MessagingOperations, BeanFactoryAware,
 
 	public void setBeanFactory(BeanFactory beanFactory) {
 		if (this.channelResolver == null && beanFactory != null) {
-			this.channelResolver = new BeanFactoryChannelResolver(beanFactory);
+			this.channelResolver = new CachingChannelResolver(beanFactory);
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -131,6 +131,14 @@ public abstract class MessagingGatewaySupport extends AbstractEndpoint implement
 		this.messagingTemplate.setReceiveTimeout(replyTimeout);
 	}
 
+	/**
+	 * Return the timeout value for receiving reply messages.
+	 * @since 2.1.1
+	 */
+	protected long getReplyTimeout() {
+		return this.replyTimeout;
+	}
+
 	/**
 	 * Provide an {@link InboundMessageMapper} for creating request Messages
 	 * from any object passed in a send or sendAndReceive operation.
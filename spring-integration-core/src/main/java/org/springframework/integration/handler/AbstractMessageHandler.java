@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,7 @@ import org.springframework.integration.context.Orderable;
 import org.springframework.integration.core.MessageHandler;
 import org.springframework.integration.history.MessageHistory;
 import org.springframework.integration.history.TrackableComponent;
+import org.springframework.integration.support.metrics.HandlerMetrics;
 import org.springframework.util.Assert;
 
 /**
@@ -42,6 +43,8 @@ public abstract class AbstractMessageHandler extends IntegrationObjectSupport im
 
 	private volatile int order = Ordered.LOWEST_PRECEDENCE;
 
+	private volatile HandlerMetrics metrics;
+
 
 	public void setOrder(int order) {
 		this.order = order;
@@ -60,12 +63,41 @@ public abstract class AbstractMessageHandler extends IntegrationObjectSupport im
 		this.shouldTrack = shouldTrack;
 	}
 
+	/**
+	 * Specify a {@link HandlerMetrics} instance in which this handler should record its
+	 * statistics. Nothing is recorded by default.
+	 */
+	public void setMetrics(HandlerMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public HandlerMetrics getMetrics() {
+		return this.metrics;
+	}
+
 	public final void handleMessage(Message<?> message) {
 		Assert.notNull(message, "Message must not be null");
 		Assert.notNull(message.getPayload(), "Message payload must not be null");
 		if (this.logger.isDebugEnabled()) {
 			this.logger.debug(this + " received message: " + message);
 		}
+		HandlerMetrics metrics = this.metrics;
+		if (metrics == null) {
+			this.doHandleMessage(message);
+			return;
+		}
+		long start = metrics.beforeHandle();
+		boolean success = false;
+		try {
+			this.doHandleMessage(message);
+			success = true;
+		}
+		finally {
+			metrics.afterHandle(start, success);
+		}
+	}
+
+	private void doHandleMessage(Message<?> message) {
 		try {
 			if (message != null && this.shouldTrack) {
 				message = MessageHistory.write(message, this);
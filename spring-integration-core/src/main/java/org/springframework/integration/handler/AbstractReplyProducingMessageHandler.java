@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,10 @@
 
 package org.springframework.integration.handler;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
 import org.springframework.integration.MessageDeliveryException;
@@ -108,10 +112,30 @@ public abstract class AbstractReplyProducingMessageHandler extends AbstractMessa
 		}
 	}
 
-	private void handleResult(Object result, MessageHeaders requestHeaders) {
-		if (result instanceof Iterable<?> && this.shouldSplitReply((Iterable<?>) result)) {
-			for (Object o : (Iterable<?>) result) {
-				this.produceReply(o, requestHeaders);
+	/**
+	 * Produce the reply Message(s) for the given result. Subclasses that complete a request
+	 * asynchronously (returning null from {@link #handleRequestMessage(Message)}) may call
+	 * this once the result is available.
+	 */
+	protected final void handleResult(Object result, MessageHeaders requestHeaders) {
+		if (result instanceof Iterable<?> && this.shouldSplitOutput((Iterable<?>) result)) {
+			Iterator<?> iterator = ((Iterable<?>) result).iterator();
+			try {
+				while (iterator.hasNext()) {
+					this.produceReply(iterator.next(), requestHeaders);
+				}
+			}
+			finally {
+				if (iterator instanceof Closeable) {
+					try {
+						((Closeable) iterator).close();
+					}
+					catch (IOException e) {
+						if (logger.isDebugEnabled()) {
+							logger.debug("failed to close the Iterator of the reply", e);
+						}
+					}
+				}
 			}
 		}
 		else if (result != null) {
@@ -183,7 +207,15 @@ public abstract class AbstractReplyProducingMessageHandler extends AbstractMessa
 		}
 	}
 
-	private boolean shouldSplitReply(Iterable<?> reply) {
+	/**
+	 * Determine whether an Iterable result should be split into one reply Message
+	 * per element. By default, this is the case if any element is a Message or a
+	 * MessageBuilder. Subclasses that produce lazily evaluated results should
+	 * override this so that the result is not iterated more than once. If the
+	 * result's Iterator implements {@link Closeable}, it is closed once all replies
+	 * have been produced or an Exception occurs.
+	 */
+	protected boolean shouldSplitOutput(Iterable<?> reply) {
 		for (Object next : reply) {
 			if (next instanceof Message<?> || next instanceof MessageBuilder<?>) {
 				return true;
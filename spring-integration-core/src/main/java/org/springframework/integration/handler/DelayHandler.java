@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -36,7 +36,7 @@ import org.springframework.integration.core.MessagingTemplate;
 import org.springframework.integration.message.ErrorMessage;
 import org.springframework.integration.store.MessageStore;
 import org.springframework.integration.store.SimpleMessageStore;
-import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
+import org.springframework.integration.support.channel.CachingChannelResolver;
 import org.springframework.integration.support.channel.ChannelResolutionException;
 import org.springframework.integration.support.channel.ChannelResolver;
 import org.springframework.scheduling.TaskScheduler;
@@ -193,7 +193,7 @@ public class DelayHandler extends IntegrationObjectSupport implements MessageHan
 			((InitializingBean) this.getTaskScheduler()).afterPropertiesSet();
 		}
 		if (this.getBeanFactory() != null){
-			this.channelResolver = new BeanFactoryChannelResolver(this.getBeanFactory());
+			this.channelResolver = new CachingChannelResolver(this.getBeanFactory());
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,7 +30,7 @@ import org.springframework.integration.context.IntegrationObjectSupport;
 import org.springframework.integration.core.MessageHandler;
 import org.springframework.integration.core.MessageProducer;
 import org.springframework.integration.filter.MessageFilter;
-import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
+import org.springframework.integration.support.channel.CachingChannelResolver;
 import org.springframework.integration.support.channel.ChannelResolver;
 import org.springframework.util.Assert;
 
@@ -122,7 +122,7 @@ public class MessageHandlerChain extends AbstractMessageHandler implements Messa
 				this.configureChain();
 				BeanFactory beanFactory = this.getBeanFactory();
 				if (this.channelResolver == null && beanFactory != null) {
-					this.channelResolver = new BeanFactoryChannelResolver(beanFactory);
+					this.channelResolver = new CachingChannelResolver(beanFactory);
 				}
 				this.initialized = true;
 			}
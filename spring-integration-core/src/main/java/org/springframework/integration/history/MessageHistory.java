@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,28 +16,49 @@
 
 package org.springframework.integration.history;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.Properties;
 
 import org.springframework.integration.Message;
 import org.springframework.integration.context.NamedComponent;
-import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.message.ErrorMessage;
+import org.springframework.integration.message.GenericMessage;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
 /**
+ * The list of components a Message has passed through, held in its {@link #HEADER_NAME history} header.
+ * <p>
+ * Each instance records a single component and refers to the history of the previous Message in the flow,
+ * so writing the history of another hop neither copies the list nor allocates {@link Properties}; the
+ * entries are created only when the history is read as a List. Instances are immutable.
+ *
  * @author Mark Fisher
  * @since 2.0
  */
-@SuppressWarnings("serial")
 public class MessageHistory implements List<Properties>, Serializable {
 
+	private static final long serialVersionUID = -7044278328856981218L;
+
+	/**
+	 * Serialized as the list of entries, as in previous versions.
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("components", List.class) };
+
 	public static final String HEADER_NAME = "history";
 
 	public static final String NAME_PROPERTY = "name";
@@ -47,7 +68,19 @@ public class MessageHistory implements List<Properties>, Serializable {
 	public static final String TIMESTAMP_PROPERTY = "timestamp";
 
 
-	private final List<Properties> components;
+	private final MessageHistory previous;
+
+	private final String name;
+
+	private final String type;
+
+	private final long timestamp;
+
+	private final int size;
+
+	private transient volatile Entry entry;
+
+	private transient volatile List<Properties> components;
 
 
 	public static MessageHistory read(Message<?> message) {
@@ -55,89 +88,95 @@ public class MessageHistory implements List<Properties>, Serializable {
 				message.getHeaders().get(HEADER_NAME, MessageHistory.class) : null;
 	}
 
+	@SuppressWarnings("unchecked")
 	public static <T> Message<T> write(Message<T> message, NamedComponent component) {
 		Assert.notNull(message, "Message must not be null");
 		Assert.notNull(component, "Component must not be null");
-		Properties metadata = extractMetadata(component);
-		if (!metadata.isEmpty()) {
-			MessageHistory previousHistory = message.getHeaders().get(HEADER_NAME, MessageHistory.class);
-			List<Properties> components = (previousHistory != null) ?
-					new ArrayList<Properties>(previousHistory) : new ArrayList<Properties>();
-			components.add(metadata);
-			MessageHistory history = new MessageHistory(components);
-			message = MessageBuilder.fromMessage(message).setHeader(HEADER_NAME, history).build();
+		String name = component.getComponentName();
+		if (name == null || name.startsWith("org.springframework.integration")) {
+			return message;
 		}
-		return message;
+		MessageHistory previousHistory = message.getHeaders().get(HEADER_NAME, MessageHistory.class);
+		MessageHistory history = new MessageHistory(previousHistory, name, component.getComponentType(),
+				System.currentTimeMillis());
+		Map<String, Object> headers = new HashMap<String, Object>(message.getHeaders());
+		headers.put(HEADER_NAME, history);
+		T payload = message.getPayload();
+		if (payload instanceof Throwable) {
+			return (Message<T>) new ErrorMessage((Throwable) payload, headers);
+		}
+		return new GenericMessage<T>(payload, headers);
 	}
 
 
-	private MessageHistory(List<Properties> components) {
-		Assert.notEmpty(components, "component list must not be empty");
-		this.components = components;
+	private MessageHistory(MessageHistory previous, String name, String type, long timestamp) {
+		this.previous = previous;
+		this.name = name;
+		this.type = type;
+		this.timestamp = timestamp;
+		this.size = (previous != null) ? previous.size + 1 : 1;
 	}
 
 
 	public int size() {
-		return this.components.size();
+		return this.size;
 	}
 
 	public boolean isEmpty() {
-		return this.components.isEmpty();
+		return false;
 	}
 
 	public boolean contains(Object o) {
-		return this.components.contains(o);
+		return this.getComponents().contains(o);
 	}
 	
 	public boolean containsAll(Collection<?> c) {
-		return this.components.containsAll(c);
+		return this.getComponents().containsAll(c);
 	}
 
 	public Properties get(int index) {
-		return this.components.get(index);
+		return this.getComponents().get(index);
 	}
 
 	public Iterator<Properties> iterator() {
-		return Collections.unmodifiableList(this.components).iterator();
+		return this.getComponents().iterator();
 	}
 
 	public ListIterator<Properties> listIterator() {
-		return Collections.unmodifiableList(this.components).listIterator();
+		return this.getComponents().listIterator();
 	}
 
 	public ListIterator<Properties> listIterator(int index) {
-		return Collections.unmodifiableList(this.components).listIterator(index);
+		return this.getComponents().listIterator(index);
 	}
 
 	public List<Properties> subList(int fromIndex, int toIndex) {
-		return Collections.unmodifiableList(this.components).subList(fromIndex, toIndex);
+		return this.getComponents().subList(fromIndex, toIndex);
 	}
 
 	public Object[] toArray() {
-		return this.components.toArray();
+		return this.getComponents().toArray();
 	}
 
 	public <T> T[] toArray(T[] a) {
-		return this.components.toArray(a);
+		return this.getComponents().toArray(a);
 	}
 
 	public int indexOf(Object o) {
-		return this.components.indexOf(o);
+		return this.getComponents().indexOf(o);
 	}
 
 	public int lastIndexOf(Object o) {
-		return this.components.lastIndexOf(o);
+		return this.getComponents().lastIndexOf(o);
 	}
 
 	public String toString() {
-		List<String> names = new ArrayList<String>();
-		for (Properties p : this.components) {
-			String name = p.getProperty(NAME_PROPERTY);
-			if (name != null) {
-				names.add(name);
-			}
+		String[] names = new String[this.size];
+		int i = this.size;
+		for (MessageHistory history = this; history != null; history = history.previous) {
+			names[--i] = history.name;
 		}
-		return StringUtils.collectionToCommaDelimitedString(names);
+		return StringUtils.arrayToCommaDelimitedString(names);
 	}
 
 
@@ -186,26 +225,69 @@ public class MessageHistory implements List<Properties>, Serializable {
 	}
 
 
-	private static Properties extractMetadata(NamedComponent component) {
-		Entry entry = new Entry();
-		String name = component.getComponentName();
-		String type = component.getComponentType();
-		if (name != null && !name.startsWith("org.springframework.integration")) {
-			entry.setName(name);
-			if (type != null) {
-				entry.setType(type);
+	/**
+	 * Return the entries, oldest first, creating them on first access. Entries already
+	 * created for earlier hops are shared.
+	 */
+	private List<Properties> getComponents() {
+		List<Properties> components = this.components;
+		if (components == null) {
+			Properties[] entries = new Properties[this.size];
+			int i = this.size;
+			for (MessageHistory history = this; history != null; history = history.previous) {
+				entries[--i] = history.getEntry();
 			}
+			components = Collections.unmodifiableList(Arrays.asList(entries));
+			this.components = components;
 		}
-		if (!entry.isEmpty()) {
-			entry.setTimestamp(Long.toString(System.currentTimeMillis()));
+		return components;
+	}
+
+	private Entry getEntry() {
+		Entry entry = this.entry;
+		if (entry == null) {
+			entry = new Entry();
+			entry.setName(this.name);
+			if (this.type != null) {
+				entry.setType(this.type);
+			}
+			entry.setTimestamp(Long.toString(this.timestamp));
+			this.entry = entry;
 		}
 		return entry;
 	}
 
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("components", new ArrayList<Properties>(this.getComponents()));
+		out.writeFields();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		this.components = (List<Properties>) fields.get("components", null);
+	}
+
+	/**
+	 * Rebuild the linked representation from the deserialized list of entries.
+	 */
+	private Object readResolve() {
+		Assert.notEmpty(this.components, "component list must not be empty");
+		MessageHistory history = null;
+		for (Properties properties : this.components) {
+			String timestamp = properties.getProperty(TIMESTAMP_PROPERTY);
+			history = new MessageHistory(history, properties.getProperty(NAME_PROPERTY),
+					properties.getProperty(TYPE_PROPERTY), (timestamp != null) ? Long.parseLong(timestamp) : 0);
+		}
+		return history;
+	}
+
 
 	/**
 	 * Inner class for each Entry in the history.
 	 */
+	@SuppressWarnings("serial")
 	public static class Entry extends Properties {
 
 		public String getName() {
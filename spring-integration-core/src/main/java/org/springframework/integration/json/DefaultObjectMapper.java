@@ -0,0 +1,38 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.json;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Holds the ObjectMapper used by the JSON components when none is provided. An
+ * ObjectMapper is thread-safe once configured, and sharing it means that its
+ * serializer and deserializer caches, and its JsonFactory's buffer recycling, are
+ * shared by every component as well.
+ *
+ * @since 2.1.1
+ */
+final class DefaultObjectMapper {
+
+	static final ObjectMapper INSTANCE = new ObjectMapper();
+
+
+	private DefaultObjectMapper() {
+	}
+
+}
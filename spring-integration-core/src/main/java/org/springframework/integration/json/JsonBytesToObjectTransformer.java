@@ -0,0 +1,75 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.json;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.Reader;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+import org.springframework.integration.transformer.AbstractPayloadTransformer;
+import org.springframework.util.Assert;
+
+/**
+ * Transformer implementation that converts a byte-oriented JSON payload into an instance of the
+ * provided target Class. The payload may be a byte array, an {@link InputStream}, a {@link File}
+ * or, for convenience, a {@link Reader} or String; byte-oriented payloads are parsed directly,
+ * without being decoded into a String first. Streams are closed once they have been read.
+ *
+ * @since 2.1.1
+ * @see JsonToObjectTransformer
+ */
+public class JsonBytesToObjectTransformer<T> extends AbstractPayloadTransformer<Object, T> {
+
+	private final Class<T> targetClass;
+
+	private final ObjectMapper objectMapper;
+
+
+	public JsonBytesToObjectTransformer(Class<T> targetClass) {
+		this(targetClass, null);
+	}
+
+	public JsonBytesToObjectTransformer(Class<T> targetClass, ObjectMapper objectMapper) {
+		Assert.notNull(targetClass, "targetClass must not be null");
+		this.targetClass = targetClass;
+		this.objectMapper = (objectMapper != null) ? objectMapper : DefaultObjectMapper.INSTANCE;
+	}
+
+
+	protected T transformPayload(Object payload) throws Exception {
+		if (payload instanceof byte[]) {
+			return this.objectMapper.readValue((byte[]) payload, this.targetClass);
+		}
+		if (payload instanceof InputStream) {
+			return this.objectMapper.readValue((InputStream) payload, this.targetClass);
+		}
+		if (payload instanceof File) {
+			return this.objectMapper.readValue((File) payload, this.targetClass);
+		}
+		if (payload instanceof Reader) {
+			return this.objectMapper.readValue((Reader) payload, this.targetClass);
+		}
+		if (payload instanceof String) {
+			return this.objectMapper.readValue((String) payload, this.targetClass);
+		}
+		throw new IllegalArgumentException("unsupported payload type [" + payload.getClass().getName()
+				+ "]; a byte[], InputStream, File, Reader or String is required");
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,7 +20,6 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonParser;
 import org.codehaus.jackson.JsonToken;
 import org.codehaus.jackson.map.JsonMappingException;
@@ -62,7 +61,7 @@ public class JsonInboundMessageMapper implements InboundMessageMapper<String> {
 
 	private final Map<String, Class<?>> headerTypes = DEFAULT_HEADER_TYPES;
 
-	private volatile ObjectMapper objectMapper = new ObjectMapper();
+	private volatile ObjectMapper objectMapper = DefaultObjectMapper.INSTANCE;
 
 	private volatile boolean mapToPayload = false;
 
@@ -92,7 +91,7 @@ public class JsonInboundMessageMapper implements InboundMessageMapper<String> {
 	}
 
 	public Message<?> toMessage(String jsonMessage) throws Exception {
-		JsonParser parser = new JsonFactory().createJsonParser(jsonMessage);
+		JsonParser parser = this.objectMapper.getJsonFactory().createJsonParser(jsonMessage);
 		if (this.mapToPayload) {
 			try {
 				return MessageBuilder.withPayload(readPayload(parser, jsonMessage)).build();
@@ -103,17 +102,16 @@ public class JsonInboundMessageMapper implements InboundMessageMapper<String> {
 			}
 		}
 		else {
-			String error = MESSAGE_FORMAT_ERROR + jsonMessage;
-			Assert.isTrue(parser.nextToken() == JsonToken.START_OBJECT, error);
+			assertMessageFormat(parser.nextToken() == JsonToken.START_OBJECT, jsonMessage);
 			Map<String, Object> headers = null;
 			Object payload = null;
 			while(parser.nextToken() != JsonToken.END_OBJECT) {
-				Assert.isTrue(parser.getCurrentToken() == JsonToken.FIELD_NAME, error);
+				assertMessageFormat(parser.getCurrentToken() == JsonToken.FIELD_NAME, jsonMessage);
 				boolean isHeadersToken = "headers".equals(parser.getCurrentName());
 				boolean isPayloadToken = "payload".equals(parser.getCurrentName()); 
-				Assert.isTrue(isHeadersToken || isPayloadToken, error);
+				assertMessageFormat(isHeadersToken || isPayloadToken, jsonMessage);
 				if (isHeadersToken) {
-					Assert.isTrue(parser.nextToken() == JsonToken.START_OBJECT, error);
+					assertMessageFormat(parser.nextToken() == JsonToken.START_OBJECT, jsonMessage);
 					headers = readHeaders(parser, jsonMessage);
 				}
 				else if (isPayloadToken) {
@@ -127,7 +125,7 @@ public class JsonInboundMessageMapper implements InboundMessageMapper<String> {
 					}
 				}
 			}
-			Assert.notNull(headers, error);
+			assertMessageFormat(headers != null, jsonMessage);
 			return MessageBuilder.withPayload(payload).copyHeaders(headers).build();
 		}
 	}
@@ -154,4 +152,13 @@ public class JsonInboundMessageMapper implements InboundMessageMapper<String> {
 		return this.objectMapper.readValue(parser, this.payloadType);
 	}
 
+	/**
+	 * Only builds the error message, which includes the whole JSON message, if the check fails.
+	 */
+	private static void assertMessageFormat(boolean expression, String jsonMessage) {
+		if (!expression) {
+			throw new IllegalArgumentException(MESSAGE_FORMAT_ERROR + jsonMessage);
+		}
+	}
+
 }
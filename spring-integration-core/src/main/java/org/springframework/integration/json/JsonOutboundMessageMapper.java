@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,6 @@
 
 package org.springframework.integration.json;
 
-import java.io.StringWriter;
-
 import org.codehaus.jackson.map.ObjectMapper;
 
 import org.springframework.integration.Message;
@@ -35,7 +33,7 @@ public class JsonOutboundMessageMapper implements OutboundMessageMapper<String>
 
 	private volatile boolean shouldExtractPayload = false;
 
-	private volatile ObjectMapper objectMapper = new ObjectMapper();
+	private volatile ObjectMapper objectMapper = DefaultObjectMapper.INSTANCE;
 
 
 	public void setObjectMapper(ObjectMapper objectMapper) {
@@ -48,14 +46,10 @@ public class JsonOutboundMessageMapper implements OutboundMessageMapper<String>
 	}
 
 	public String fromMessage(Message<?> message) throws Exception {
-		StringWriter writer = new StringWriter();
 		if (this.shouldExtractPayload) {
-			this.objectMapper.writeValue(writer, message.getPayload());
-		}
-		else {
-			this.objectMapper.writeValue(writer, message);
+			return this.objectMapper.writeValueAsString(message.getPayload());
 		}
-		return writer.toString();
+		return this.objectMapper.writeValueAsString(message);
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -13,7 +13,6 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.springframework.integration.json;
 
 import org.codehaus.jackson.map.ObjectMapper;
@@ -26,6 +25,7 @@ import org.springframework.util.Assert;
  *
  * @author Mark Fisher
  * @since 2.0
+ * @see JsonBytesToObjectTransformer
  */
 public class JsonToObjectTransformer<T> extends AbstractPayloadTransformer<String, T> {
 
@@ -41,7 +41,7 @@ public class JsonToObjectTransformer<T> extends AbstractPayloadTransformer<Strin
 	public JsonToObjectTransformer(Class<T> targetClass, ObjectMapper objectMapper) {
 		Assert.notNull(targetClass, "targetClass must not be null");
 		this.targetClass = targetClass;
-		this.objectMapper = (objectMapper != null) ? objectMapper : new ObjectMapper();
+		this.objectMapper = (objectMapper != null) ? objectMapper : DefaultObjectMapper.INSTANCE;
 	}
 
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -13,11 +13,8 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.springframework.integration.json;
 
-import java.io.StringWriter;
-
 import org.codehaus.jackson.map.ObjectMapper;
 
 import org.springframework.integration.transformer.AbstractPayloadTransformer;
@@ -28,6 +25,7 @@ import org.springframework.util.Assert;
  *
  * @author Mark Fisher
  * @since 2.0
+ * @see ObjectToJsonBytesTransformer
  */
 public class ObjectToJsonTransformer extends AbstractPayloadTransformer<Object, String> {
 
@@ -40,14 +38,12 @@ public class ObjectToJsonTransformer extends AbstractPayloadTransformer<Object,
 	}
 
 	public ObjectToJsonTransformer() {
-		this.objectMapper = new ObjectMapper();
+		this.objectMapper = DefaultObjectMapper.INSTANCE;
 	}
 
 
 	protected String transformPayload(Object payload) throws Exception {
-		StringWriter writer = new StringWriter();
-		this.objectMapper.writeValue(writer, payload);
-		return writer.toString();
+		return this.objectMapper.writeValueAsString(payload);
 	}
 
 }
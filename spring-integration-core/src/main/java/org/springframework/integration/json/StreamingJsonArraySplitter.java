@@ -0,0 +1,216 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.json;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.io.SegmentedStringWriter;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.type.TypeFactory;
+import org.codehaus.jackson.type.JavaType;
+import org.codehaus.jackson.type.TypeReference;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.splitter.AbstractMessageSplitter;
+import org.springframework.util.Assert;
+
+/**
+ * Message Splitter that reads a payload holding a top-level JSON array with a streaming
+ * parser and emits each element of the array as soon as it has been parsed, so that only
+ * one element at a time is held in memory, however large the array. Accepts {@link File},
+ * {@link InputStream}, {@link Reader}, {@link String} and <code>byte[]</code> payloads; the
+ * stream that is read is closed once the array has been read completely or the split fails.
+ * <p>
+ * Each element is emitted as its JSON text, or bound to an instance of the
+ * {@link #setElementType(Class) element type} if one is provided, in which case
+ * <code>null</code> elements are skipped. Since the number of
+ * elements is not known in advance, the sequence size of the emitted messages is 0, and an
+ * empty array produces no messages.
+ *
+ * @since 2.1.1
+ */
+public class StreamingJsonArraySplitter extends AbstractMessageSplitter {
+
+	private final ObjectMapper objectMapper;
+
+	private volatile JavaType elementType;
+
+
+	public StreamingJsonArraySplitter() {
+		this(DefaultObjectMapper.INSTANCE);
+	}
+
+	public StreamingJsonArraySplitter(ObjectMapper objectMapper) {
+		Assert.notNull(objectMapper, "objectMapper must not be null");
+		this.objectMapper = objectMapper;
+	}
+
+
+	/**
+	 * Specify the type each element should be bound to, rather than being emitted as a
+	 * JSON String.
+	 */
+	public void setElementType(Class<?> elementType) {
+		Assert.notNull(elementType, "elementType must not be null");
+		this.elementType = TypeFactory.defaultInstance().constructType(elementType);
+	}
+
+	public void setElementTypeReference(TypeReference<?> elementTypeReference) {
+		Assert.notNull(elementTypeReference, "elementTypeReference must not be null");
+		this.elementType = TypeFactory.defaultInstance().constructType(elementTypeReference);
+	}
+
+	@Override
+	public String getComponentType() {
+		return "json-array-splitter";
+	}
+
+	@Override
+	protected Object splitMessage(Message<?> message) {
+		Object payload = message.getPayload();
+		JsonFactory jsonFactory = this.objectMapper.getJsonFactory();
+		JsonParser parser = null;
+		try {
+			if (payload instanceof File) {
+				parser = jsonFactory.createJsonParser((File) payload);
+			}
+			else if (payload instanceof InputStream) {
+				parser = jsonFactory.createJsonParser((InputStream) payload);
+			}
+			else if (payload instanceof Reader) {
+				parser = jsonFactory.createJsonParser((Reader) payload);
+			}
+			else if (payload instanceof String) {
+				parser = jsonFactory.createJsonParser((String) payload);
+			}
+			else if (payload instanceof byte[]) {
+				parser = jsonFactory.createJsonParser((byte[]) payload);
+			}
+			else {
+				throw new IllegalArgumentException("unsupported Message payload type [" + payload.getClass().getName()
+						+ "]; a File, InputStream, Reader, String or byte[] is required");
+			}
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new IllegalArgumentException("JSON payload must be an array, but starts with "
+						+ parser.getCurrentToken());
+			}
+			return new ElementIterator(parser);
+		}
+		catch (IllegalArgumentException e) {
+			closeQuietly(parser, payload);
+			throw e;
+		}
+		catch (Exception e) {
+			closeQuietly(parser, payload);
+			throw new MessagingException(message, "failed to open JSON payload for splitting", e);
+		}
+	}
+
+	private Object readElement(JsonParser parser) throws IOException {
+		if (this.elementType != null) {
+			return this.objectMapper.readValue(parser, this.elementType);
+		}
+		JsonFactory jsonFactory = this.objectMapper.getJsonFactory();
+		SegmentedStringWriter writer = new SegmentedStringWriter(jsonFactory._getBufferRecycler());
+		JsonGenerator generator = jsonFactory.createJsonGenerator(writer);
+		generator.copyCurrentStructure(parser);
+		generator.close();
+		return writer.getAndClear();
+	}
+
+	private static void closeQuietly(JsonParser parser, Object payload) {
+		try {
+			if (parser != null) {
+				parser.close();
+			}
+			else if (payload instanceof Closeable) {
+				((Closeable) payload).close();
+			}
+		}
+		catch (IOException e) {
+			// ignore
+		}
+	}
+
+
+	private class ElementIterator implements Iterator<Object>, Closeable {
+
+		private final JsonParser parser;
+
+		private Object next;
+
+		private boolean done;
+
+		ElementIterator(JsonParser parser) {
+			this.parser = parser;
+		}
+
+		public boolean hasNext() {
+			while (this.next == null && !this.done) {
+				try {
+					JsonToken token = this.parser.nextToken();
+					if (token == null) {
+						throw new IOException("unexpected end of JSON array");
+					}
+					if (token == JsonToken.END_ARRAY) {
+						this.close();
+					}
+					else {
+						this.next = readElement(this.parser);
+					}
+				}
+				catch (IOException e) {
+					this.done = true;
+					closeQuietly(this.parser, null);
+					throw new MessagingException("failed to read JSON content for splitting", e);
+				}
+			}
+			return this.next != null;
+		}
+
+		public Object next() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Object current = this.next;
+			this.next = null;
+			return current;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		public void close() throws IOException {
+			this.done = true;
+			this.parser.close();
+		}
+	}
+
+}
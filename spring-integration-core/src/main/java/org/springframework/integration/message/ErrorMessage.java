@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,8 @@ package org.springframework.integration.message;
 
 import java.util.Map;
 
+import org.springframework.integration.MessageHeaders;
+
 /**
  * A message implementation that accepts a {@link Throwable} payload.
  * Once created this object is immutable.
@@ -37,4 +39,12 @@ public class ErrorMessage extends GenericMessage<Throwable> {
 		super(payload, headers);
 	}
 
+	/**
+	 * @see GenericMessage#GenericMessage(Object, MessageHeaders)
+	 * @since 2.1.1
+	 */
+	public ErrorMessage(Throwable payload, MessageHeaders headers) {
+		super(payload, headers);
+	}
+
 }
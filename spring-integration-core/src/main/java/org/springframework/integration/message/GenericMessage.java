@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -46,7 +46,7 @@ public class GenericMessage<T> implements Message<T>, Serializable {
 	 * @param payload the message payload
 	 */
 	public GenericMessage(T payload) {
-		this(payload, null);
+		this(payload, (Map<String, Object>) null);
 	}
 
 	/**
@@ -69,6 +69,22 @@ public class GenericMessage<T> implements Message<T>, Serializable {
 		this.payload = payload;
 	}
 
+	/**
+	 * Create a new message with the given payload and headers. Unlike the headers
+	 * {@link Map} passed to {@link #GenericMessage(Object, Map)}, the MessageHeaders
+	 * are used as they are, keeping their id and timestamp; this is intended for
+	 * restoring a Message that has been deserialized.
+	 * 
+	 * @param payload the message payload
+	 * @param headers message headers, or null to create empty ones
+	 * @since 2.1.1
+	 */
+	public GenericMessage(T payload, MessageHeaders headers) {
+		Assert.notNull(payload, "payload must not be null");
+		this.headers = (headers != null) ? headers : new MessageHeaders(null);
+		this.payload = payload;
+	}
+
 
 	public MessageHeaders getHeaders() {
 		return this.headers;
@@ -28,7 +28,7 @@ import org.springframework.beans.factory.BeanFactory;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
 import org.springframework.integration.MessagingException;
-import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
+import org.springframework.integration.support.channel.CachingChannelResolver;
 import org.springframework.integration.support.channel.ChannelResolutionException;
 import org.springframework.integration.support.channel.ChannelResolver;
 import org.springframework.jmx.export.annotation.ManagedOperation;
@@ -75,7 +75,8 @@ public abstract class AbstractMappingMessageRouter extends AbstractMessageRouter
 
 	/**
 	 * Specify the {@link ChannelResolver} strategy to use.
-	 * The default is a BeanFactoryChannelResolver.
+	 * The default is a {@link CachingChannelResolver}, which caches the channels
+	 * as they are first resolved.
 	 * This is considered an infrastructural configuration option and
 	 * as of 2.1 has been deprecated as a configuration-driven attribute.
 	 */
@@ -134,7 +135,9 @@ public abstract class AbstractMappingMessageRouter extends AbstractMessageRouter
 	public void onInit() {
 		BeanFactory beanFactory = this.getBeanFactory();
 		if (this.channelResolver == null && beanFactory != null) {
-			this.channelResolver = new BeanFactoryChannelResolver(beanFactory);
+			// channels are resolved lazily, so that no channel bean is created (perhaps
+			// before it has been fully initialized) while this router is being initialized
+			this.channelResolver = new CachingChannelResolver(beanFactory);
 		}
 	}
 
@@ -188,16 +191,20 @@ public abstract class AbstractMappingMessageRouter extends AbstractMessageRouter
 		if (this.channelMappings.containsKey(channelKey)) {
 			channelName = this.channelMappings.get(channelKey);
 		}
+		MessageChannel channel = resolveChannelForName(this.applyPrefixAndSuffix(channelName), message);
+		if (channel != null) {
+			channels.add(channel);
+		}
+	}
+
+	private String applyPrefixAndSuffix(String channelName) {
 		if (this.prefix != null) {
 			channelName = this.prefix + channelName;
 		}
 		if (this.suffix != null) {
 			channelName = channelName + this.suffix;
 		}
-		MessageChannel channel = resolveChannelForName(channelName, message);
-		if (channel != null) {
-			channels.add(channel);
-		}
+		return channelName;
 	}
 
 	private void addToCollection(Collection<MessageChannel> channels, Collection<?> channelKeys, Message<?> message) {
@@ -16,8 +16,11 @@
 
 package org.springframework.integration.splitter;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 import org.springframework.integration.Message;
@@ -72,12 +75,24 @@ public abstract class AbstractMessageSplitter extends AbstractReplyProducingMess
 				messageBuilders.add(this.createBuilder(item, headers, correlationId, ++sequenceNumber, sequenceSize));
 			}
 		}
+		else if (result instanceof Iterator) {
+			return new MessageBuilderIterable((Iterator<?>) result, headers, correlationId);
+		}
 		else {
 			messageBuilders.add(this.createBuilder(result, headers, correlationId, 1, 1));
 		}
 		return messageBuilders;
 	}
 
+	/**
+	 * The result is always split, and it must not be iterated more than once
+	 * since it may be backed by a lazily evaluated Iterator.
+	 */
+	@Override
+	protected boolean shouldSplitOutput(Iterable<?> reply) {
+		return true;
+	}
+
 	@SuppressWarnings( { "unchecked", "rawtypes" })
 	private MessageBuilder createBuilder(Object item, MessageHeaders headers, Object correlationId, int sequenceNumber,
 			int sequenceSize) {
@@ -105,7 +120,56 @@ public abstract class AbstractMessageSplitter extends AbstractReplyProducingMess
 	 * Array. The individual elements may be Messages, but it is not necessary. If the elements are not Messages, each
 	 * will be provided as the payload of a Message. It is also acceptable to return a single Object or Message. In that
 	 * case, a single reply Message will be produced.
+	 * <p>
+	 * The return value may also be an Iterator, in which case each element is sent as soon as it is returned by the
+	 * Iterator, so the whole result never needs to be held in memory. Since the number of elements is not known in
+	 * advance, the sequence size of such messages is 0. If the Iterator implements {@link Closeable}, it is closed
+	 * once it is exhausted or an Exception occurs.
 	 */
 	protected abstract Object splitMessage(Message<?> message);
 
+
+	private class MessageBuilderIterable implements Iterable<MessageBuilder<?>> {
+
+		private final Iterator<?> iterator;
+
+		private final MessageHeaders headers;
+
+		private final Object correlationId;
+
+		private MessageBuilderIterable(Iterator<?> iterator, MessageHeaders headers, Object correlationId) {
+			this.iterator = iterator;
+			this.headers = headers;
+			this.correlationId = correlationId;
+		}
+
+		public Iterator<MessageBuilder<?>> iterator() {
+			return new MessageBuilderIterator();
+		}
+
+
+		private class MessageBuilderIterator implements Iterator<MessageBuilder<?>>, Closeable {
+
+			private int sequenceNumber;
+
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			public MessageBuilder<?> next() {
+				return createBuilder(iterator.next(), headers, correlationId, ++this.sequenceNumber, 0);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			public void close() throws IOException {
+				if (iterator instanceof Closeable) {
+					((Closeable) iterator).close();
+				}
+			}
+		}
+	}
+
 }
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.store;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+/**
+ * File-based implementation of {@link MetadataStore} for stores with many keys. Every
+ * {@link #put(String, String)} appends one record to a log file, and all entries are
+ * held in an in-memory index, so that the cost of an update does not depend on the
+ * number of keys. When the log holds more than {@link #setCompactionFactor(int)
+ * compactionFactor} records per key, it is compacted by writing the current entries
+ * to a new file that replaces it. The live log is only moved aside once its replacement
+ * has been completely written, and a log left aside by a crash during the swap is
+ * recovered when the store is initialized.
+ * <p/>
+ * The log is written to 'metadata-store.log' in the base directory, which defaults to
+ * 'java.io.tmpdir' + "/spring-integration/". Records are written to the file as they
+ * are put, so they survive a restart of the JVM; {@link #flush()} additionally forces
+ * them to the storage device. A record left incomplete by a crash is discarded when
+ * the log is loaded.
+ *
+ * @since 2.1.1
+ */
+public class AppendOnlyFileMetadataStore implements MetadataStore, Flushable, InitializingBean, DisposableBean {
+
+	public static final int DEFAULT_COMPACTION_FACTOR = 2;
+
+	private static final int MIN_RECORDS_TO_COMPACT = 1000;
+
+	private static final String CHARSET = "UTF-8";
+
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final ConcurrentMap<String, String> metadata = new ConcurrentHashMap<String, String>();
+
+	private volatile String baseDirectory = System.getProperty("java.io.tmpdir") + "/spring-integration/";
+
+	private volatile int compactionFactor = DEFAULT_COMPACTION_FACTOR;
+
+	private volatile File file;
+
+	private volatile File compactedFile;
+
+	private volatile File backupFile;
+
+	private FileOutputStream outputStream;
+
+	private int recordCount;
+
+
+	public void setBaseDirectory(String baseDirectory) {
+		Assert.hasText(baseDirectory, "'baseDirectory' must be non-empty");
+		this.baseDirectory = baseDirectory;
+	}
+
+	/**
+	 * Specify the number of log records per key at which the log is compacted.
+	 * Defaults to {@value #DEFAULT_COMPACTION_FACTOR}.
+	 */
+	public void setCompactionFactor(int compactionFactor) {
+		Assert.isTrue(compactionFactor > 1, "'compactionFactor' must be greater than 1");
+		this.compactionFactor = compactionFactor;
+	}
+
+	public void afterPropertiesSet() throws Exception {
+		File baseDir = new File(this.baseDirectory);
+		baseDir.mkdirs();
+		this.file = new File(baseDir, "metadata-store.log");
+		this.compactedFile = new File(baseDir, "metadata-store.log.compacting");
+		this.backupFile = new File(baseDir, "metadata-store.log.backup");
+		synchronized (this) {
+			this.recoverLog();
+			this.loadMetadata();
+			this.outputStream = new FileOutputStream(this.file, true);
+			this.compactIfNecessary();
+		}
+	}
+
+	public void put(String key, String value) {
+		Assert.notNull(key, "'key' must not be null");
+		Assert.notNull(value, "'value' must not be null");
+		synchronized (this) {
+			if (value.equals(this.metadata.put(key, value))) {
+				return;
+			}
+			Assert.state(this.outputStream != null, "this store has not been initialized or has been destroyed");
+			try {
+				this.outputStream.write(toRecord(key, value));
+				this.recordCount++;
+				this.compactIfNecessary();
+			}
+			catch (IOException e) {
+				// not fatal for the functionality of the component
+				logger.warn("Failed to persist metadata entry '" + key + "'. This may result in a duplicate "
+						+ "entry after this component is restarted.", e);
+			}
+		}
+	}
+
+	public String get(String key) {
+		return this.metadata.get(key);
+	}
+
+	/**
+	 * Forces the records written so far to the storage device.
+	 */
+	public synchronized void flush() throws IOException {
+		if (this.outputStream != null) {
+			this.outputStream.getFD().sync();
+		}
+	}
+
+	public synchronized void destroy() throws Exception {
+		if (this.outputStream != null) {
+			this.flush();
+			this.outputStream.close();
+			this.outputStream = null;
+		}
+	}
+
+	/**
+	 * Complete or undo a compaction that was interrupted while the logs were being swapped.
+	 * The live log is only moved aside once the compacted log has been completely written,
+	 * so if the live log is missing either file holds all entries; if it is present, any
+	 * other file is a leftover.
+	 */
+	private void recoverLog() throws IOException {
+		if (!this.file.exists()) {
+			File recovered = this.backupFile.exists() ? this.backupFile
+					: (this.compactedFile.exists() ? this.compactedFile : null);
+			if (recovered != null) {
+				logger.warn("Recovering " + this.file.getAbsolutePath() + " from " + recovered.getName());
+				if (!recovered.renameTo(this.file)) {
+					throw new IOException("Failed to recover " + this.file.getAbsolutePath() + " from "
+							+ recovered.getAbsolutePath());
+				}
+			}
+		}
+		this.compactedFile.delete();
+		this.backupFile.delete();
+	}
+
+	private void loadMetadata() throws IOException {
+		if (!this.file.exists()) {
+			return;
+		}
+		long length = this.file.length();
+		long validLength = 0;
+		DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)));
+		try {
+			while (validLength < length) {
+				byte[] key = readField(inputStream, length - validLength - 4);
+				byte[] value = readField(inputStream, length - validLength - 8 - key.length);
+				this.metadata.put(new String(key, CHARSET), new String(value, CHARSET));
+				validLength += 8 + key.length + value.length;
+				this.recordCount++;
+			}
+		}
+		catch (EOFException e) {
+			// a record that was not completely written
+		}
+		finally {
+			inputStream.close();
+		}
+		if (validLength < length) {
+			logger.warn("Discarding an incomplete record at the end of " + this.file.getAbsolutePath());
+			RandomAccessFile randomAccessFile = new RandomAccessFile(this.file, "rw");
+			try {
+				randomAccessFile.setLength(validLength);
+			}
+			finally {
+				randomAccessFile.close();
+			}
+		}
+	}
+
+	private void compactIfNecessary() throws IOException {
+		if (this.recordCount < MIN_RECORDS_TO_COMPACT
+				|| this.recordCount < (long) this.metadata.size() * this.compactionFactor) {
+			return;
+		}
+		File compacted = this.compactedFile;
+		FileOutputStream compactedStream = new FileOutputStream(compacted);
+		int count = 0;
+		try {
+			for (Map.Entry<String, String> entry : this.metadata.entrySet()) {
+				compactedStream.write(toRecord(entry.getKey(), entry.getValue()));
+				count++;
+			}
+			compactedStream.getFD().sync();
+		}
+		finally {
+			compactedStream.close();
+		}
+		this.outputStream.close();
+		try {
+			if (!compacted.renameTo(this.file)) {
+				// some platforms do not replace an existing file on rename: move the live log
+				// aside rather than deleting it until its replacement is in place
+				if (!this.file.renameTo(this.backupFile)) {
+					compacted.delete();
+					throw new IOException("Failed to replace " + this.file.getAbsolutePath() + " with its compacted log");
+				}
+				if (!compacted.renameTo(this.file)) {
+					this.backupFile.renameTo(this.file);
+					compacted.delete();
+					throw new IOException("Failed to replace " + this.file.getAbsolutePath() + " with its compacted log");
+				}
+				this.backupFile.delete();
+			}
+		}
+		finally {
+			this.outputStream = new FileOutputStream(this.file, true);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Compacted " + this.recordCount + " log records to " + count);
+		}
+		this.recordCount = count;
+	}
+
+	private static byte[] toRecord(String key, String value) throws IOException {
+		byte[] keyBytes = key.getBytes(CHARSET);
+		byte[] valueBytes = value.getBytes(CHARSET);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 + keyBytes.length + valueBytes.length);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(keyBytes.length);
+		out.write(keyBytes);
+		out.writeInt(valueBytes.length);
+		out.write(valueBytes);
+		return bytes.toByteArray();
+	}
+
+	private static byte[] readField(DataInputStream inputStream, long remaining) throws IOException {
+		int length = inputStream.readInt();
+		if (length < 0 || length > remaining) {
+			// the length itself was not completely written
+			throw new EOFException();
+		}
+		byte[] bytes = new byte[length];
+		inputStream.readFully(bytes);
+		return bytes;
+	}
+
+}
@@ -0,0 +1,500 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.Message;
+import org.springframework.integration.support.serializer.MessageCodec;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.util.Assert;
+
+/**
+ * {@link MessageStore} intended for the claim check transformers, which keeps large
+ * Messages outside of the Java heap. A Message whose encoded form is at least
+ * {@link #setSpillThreshold(int) spillThreshold} bytes is written with a
+ * {@link MessageCodec} to an off-heap segment; only a small index entry remains on the
+ * heap. Smaller Messages are kept on the heap as they are.
+ * <p/>
+ * Segments are direct {@link ByteBuffer}s, or, when a {@link #setDirectory(File)
+ * directory} is provided, memory-mapped files in that directory. Records are appended
+ * to the current segment; a segment whose records have all been removed is released,
+ * and one that has become mostly empty is compacted by copying its remaining records
+ * to the current segment. Released memory is returned to the operating system when
+ * the buffer is garbage collected.
+ * <p/>
+ * If a {@link #setTimeToLive(long) time to live} is set, Messages that have not been
+ * removed within that time are no longer returned, and are evicted when accessed or
+ * when {@link #expireMessages()} is invoked (e.g. by a scheduled task).
+ * <p/>
+ * The store is not durable: segment files are scratch space and are deleted when the
+ * store is destroyed.
+ *
+ * @since 2.1.1
+ */
+@ManagedResource
+public class ClaimCheckMessageStore implements MessageStore, DisposableBean {
+
+	public static final int DEFAULT_SPILL_THRESHOLD = 8 * 1024;
+
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+
+
+	private final Log logger = LogFactory.getLog(this.getClass());
+
+	private final ConcurrentMap<UUID, Entry> index = new ConcurrentHashMap<UUID, Entry>();
+
+	private final Object segmentMonitor = new Object();
+
+	private final List<Segment> segments = new ArrayList<Segment>();
+
+	private Segment currentSegment;
+
+	private volatile MessageCodec codec = new MessageCodec();
+
+	private volatile int spillThreshold = DEFAULT_SPILL_THRESHOLD;
+
+	private volatile int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+	private volatile double compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+	private volatile File directory;
+
+	private volatile long timeToLive;
+
+
+	/**
+	 * Specify the {@link MessageCodec} used to write Messages to the off-heap segments.
+	 * Payload types that it does not support natively must be Serializable or registered
+	 * with the codec; Messages that cannot be encoded are kept on the heap.
+	 */
+	public void setCodec(MessageCodec codec) {
+		Assert.notNull(codec, "codec must not be null");
+		this.codec = codec;
+	}
+
+	/**
+	 * Specify the encoded size, in bytes, from which Messages are stored off the heap.
+	 * Defaults to {@value #DEFAULT_SPILL_THRESHOLD}.
+	 */
+	public void setSpillThreshold(int spillThreshold) {
+		Assert.isTrue(spillThreshold >= 0, "spillThreshold must not be negative");
+		this.spillThreshold = spillThreshold;
+	}
+
+	/**
+	 * Specify the size, in bytes, of each off-heap segment. A Message larger than a
+	 * segment is stored in a segment of its own. Defaults to 64MB.
+	 */
+	public void setSegmentSize(int segmentSize) {
+		Assert.isTrue(segmentSize > 0, "segmentSize must be greater than zero");
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Specify the fraction of a full segment's bytes that must still be in use for it
+	 * not to be compacted. Defaults to {@value #DEFAULT_COMPACTION_THRESHOLD}; 0 disables
+	 * compaction, so that segments are only released when they are empty.
+	 */
+	public void setCompactionThreshold(double compactionThreshold) {
+		Assert.isTrue(compactionThreshold >= 0 && compactionThreshold < 1,
+				"compactionThreshold must be at least 0 and less than 1");
+		this.compactionThreshold = compactionThreshold;
+	}
+
+	/**
+	 * Specify a directory in which to create memory-mapped segment files. By default,
+	 * segments are direct ByteBuffers, which are limited by the JVM's maximum direct
+	 * memory size.
+	 */
+	public void setDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Specify the number of milliseconds after which a stored Message expires. Defaults
+	 * to 0, meaning that Messages do not expire.
+	 */
+	public void setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	@ManagedAttribute
+	public long getMessageCount() {
+		return this.index.size();
+	}
+
+	@ManagedAttribute
+	public int getSegmentCount() {
+		synchronized (this.segmentMonitor) {
+			return this.segments.size();
+		}
+	}
+
+	/**
+	 * Return the number of bytes of off-heap segments currently held by this store.
+	 */
+	@ManagedAttribute
+	public long getOffHeapSize() {
+		long size = 0;
+		synchronized (this.segmentMonitor) {
+			for (Segment segment : this.segments) {
+				size += segment.capacity;
+			}
+		}
+		return size;
+	}
+
+	public <T> Message<T> addMessage(Message<T> message) {
+		Assert.notNull(message, "message must not be null");
+		UUID id = message.getHeaders().getId();
+		if (this.index.containsKey(id)) {
+			return message;
+		}
+		long expiresAt = (this.timeToLive > 0) ? System.currentTimeMillis() + this.timeToLive : Long.MAX_VALUE;
+		byte[] bytes = this.encodeIfLarge(message);
+		if (bytes == null) {
+			this.index.putIfAbsent(id, new Entry(id, message, expiresAt));
+			return message;
+		}
+		synchronized (this.segmentMonitor) {
+			if (!this.index.containsKey(id)) {
+				this.index.put(id, this.write(id, bytes, expiresAt));
+			}
+		}
+		return message;
+	}
+
+	public Message<?> getMessage(UUID id) {
+		Entry entry = (id != null) ? this.index.get(id) : null;
+		if (entry == null) {
+			return null;
+		}
+		if (entry.isExpired()) {
+			this.evict(entry);
+			return null;
+		}
+		return this.read(entry);
+	}
+
+	public Message<?> removeMessage(UUID id) {
+		Entry entry = (id != null) ? this.index.remove(id) : null;
+		if (entry == null) {
+			return null;
+		}
+		Message<?> message = entry.isExpired() ? null : this.read(entry);
+		if (entry.segment != null) {
+			synchronized (this.segmentMonitor) {
+				this.release(entry);
+			}
+		}
+		return message;
+	}
+
+	/**
+	 * Evict all expired Messages.
+	 * @return the number of Messages evicted
+	 */
+	@ManagedOperation
+	public int expireMessages() {
+		int count = 0;
+		for (Entry entry : this.index.values()) {
+			if (entry.isExpired() && this.evict(entry)) {
+				count++;
+			}
+		}
+		if (count > 0 && logger.isDebugEnabled()) {
+			logger.debug("Evicted " + count + " expired Messages");
+		}
+		return count;
+	}
+
+	/**
+	 * Discard all Messages and release all segments.
+	 */
+	public void destroy() {
+		synchronized (this.segmentMonitor) {
+			this.index.clear();
+			for (Segment segment : this.segments) {
+				segment.free();
+			}
+			this.segments.clear();
+			this.currentSegment = null;
+		}
+	}
+
+	private byte[] encodeIfLarge(Message<?> message) {
+		Object payload = message.getPayload();
+		if (payload instanceof byte[] && ((byte[]) payload).length < this.spillThreshold) {
+			return null;
+		}
+		// UTF-8 encodes a char in at most 3 bytes
+		if (payload instanceof String && ((String) payload).length() * 3L < this.spillThreshold) {
+			return null;
+		}
+		byte[] bytes;
+		try {
+			bytes = this.codec.encode(message);
+		}
+		catch (IOException e) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Keeping Message " + message.getHeaders().getId() + " on the heap: " + e.getMessage());
+			}
+			return null;
+		}
+		return (bytes.length < this.spillThreshold) ? null : bytes;
+	}
+
+	private Message<?> read(Entry entry) {
+		if (entry.message != null) {
+			return entry.message;
+		}
+		try {
+			return (Message<?>) this.codec.decode(entry.segment.read(entry.offset, entry.length));
+		}
+		catch (IOException e) {
+			throw new MessageStoreException("Failed to read Message " + entry.id, e);
+		}
+	}
+
+	private boolean evict(Entry entry) {
+		if (!this.index.remove(entry.id, entry)) {
+			return false;
+		}
+		if (entry.segment != null) {
+			synchronized (this.segmentMonitor) {
+				this.release(entry);
+			}
+		}
+		return true;
+	}
+
+	// the following methods must be called while holding the segmentMonitor
+
+	private Entry write(UUID id, byte[] bytes, long expiresAt) {
+		Segment segment;
+		Segment full = null;
+		if (bytes.length > this.segmentSize) {
+			// never current, so it is released as soon as its only record is removed
+			segment = this.createSegment(bytes.length);
+		}
+		else {
+			segment = this.currentSegment;
+			if (segment == null || segment.remaining() < bytes.length) {
+				full = segment;
+				segment = this.createSegment(this.segmentSize);
+				this.currentSegment = segment;
+			}
+		}
+		Entry entry = new Entry(id, segment, segment.append(bytes), bytes.length, expiresAt);
+		segment.entries.add(entry);
+		if (full != null) {
+			// may compact into the new current segment, so only after this record is written
+			this.reclaim(full);
+		}
+		return entry;
+	}
+
+	private void release(Entry entry) {
+		Segment segment = entry.segment;
+		if (segment.entries.remove(entry)) {
+			segment.liveBytes -= entry.length;
+			this.reclaim(segment);
+		}
+	}
+
+	private void reclaim(Segment segment) {
+		if (segment == this.currentSegment || segment.freed) {
+			return;
+		}
+		if (segment.liveBytes == 0) {
+			this.segments.remove(segment);
+			segment.free();
+		}
+		else if (segment.liveBytes < segment.writePosition * this.compactionThreshold) {
+			this.compact(segment);
+		}
+	}
+
+	private void compact(Segment segment) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Compacting segment with " + segment.entries.size() + " live records");
+		}
+		for (Entry entry : new ArrayList<Entry>(segment.entries)) {
+			Entry moved = this.write(entry.id, segment.read(entry.offset, entry.length), entry.expiresAt);
+			if (this.index.replace(entry.id, entry, moved)) {
+				segment.entries.remove(entry);
+				segment.liveBytes -= entry.length;
+			}
+			else {
+				// removed concurrently; its remover will release the original
+				this.release(moved);
+			}
+		}
+		if (segment.liveBytes == 0) {
+			this.segments.remove(segment);
+			segment.free();
+		}
+	}
+
+	private Segment createSegment(int capacity) {
+		Segment segment;
+		File directory = this.directory;
+		if (directory == null) {
+			segment = new Segment(ByteBuffer.allocateDirect(capacity), null);
+		}
+		else {
+			File file = null;
+			try {
+				file = File.createTempFile("claim-check-", ".segment", directory);
+				file.deleteOnExit();
+				RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+				try {
+					segment = new Segment(randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity), file);
+				}
+				finally {
+					// the mapping remains valid after the channel is closed
+					randomAccessFile.close();
+				}
+			}
+			catch (IOException e) {
+				if (file != null) {
+					file.delete();
+				}
+				throw new MessageStoreException("Failed to create segment file in " + directory, e);
+			}
+		}
+		this.segments.add(segment);
+		return segment;
+	}
+
+
+	private static class Entry {
+
+		private final UUID id;
+
+		private final Message<?> message;
+
+		private final Segment segment;
+
+		private final int offset;
+
+		private final int length;
+
+		private final long expiresAt;
+
+		Entry(UUID id, Message<?> message, long expiresAt) {
+			this(id, message, null, 0, 0, expiresAt);
+		}
+
+		Entry(UUID id, Segment segment, int offset, int length, long expiresAt) {
+			this(id, null, segment, offset, length, expiresAt);
+		}
+
+		private Entry(UUID id, Message<?> message, Segment segment, int offset, int length, long expiresAt) {
+			this.id = id;
+			this.message = message;
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isExpired() {
+			return this.expiresAt != Long.MAX_VALUE && System.currentTimeMillis() >= this.expiresAt;
+		}
+	}
+
+
+	/**
+	 * An append-only region of off-heap memory. Its buffer's own position is never
+	 * changed, so that records may be read through duplicates without locking; a record
+	 * is not overwritten once the index refers to it.
+	 */
+	private static class Segment {
+
+		private final ByteBuffer buffer;
+
+		private final File file;
+
+		private final int capacity;
+
+		private final Set<Entry> entries = new HashSet<Entry>();
+
+		private int writePosition;
+
+		private int liveBytes;
+
+		private boolean freed;
+
+		Segment(ByteBuffer buffer, File file) {
+			this.buffer = buffer;
+			this.file = file;
+			this.capacity = buffer.capacity();
+		}
+
+		int remaining() {
+			return this.capacity - this.writePosition;
+		}
+
+		int append(byte[] bytes) {
+			int offset = this.writePosition;
+			ByteBuffer view = this.buffer.duplicate();
+			view.position(offset);
+			view.put(bytes);
+			this.writePosition += bytes.length;
+			this.liveBytes += bytes.length;
+			return offset;
+		}
+
+		byte[] read(int offset, int length) {
+			byte[] bytes = new byte[length];
+			ByteBuffer view = this.buffer.duplicate();
+			view.position(offset);
+			view.get(bytes);
+			return bytes;
+		}
+
+		void free() {
+			this.freed = true;
+			if (this.file != null && !this.file.delete()) {
+				this.file.deleteOnExit();
+			}
+		}
+	}
+
+}
@@ -19,6 +19,7 @@ package org.springframework.integration.store;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.Flushable;
 import java.io.IOException;
 import java.util.Properties;
 
@@ -35,12 +36,13 @@ import org.springframework.util.DefaultPropertiesPersister;
  * each instance should be constructed with the unique key from which unique file name 
  * will be generated. The file name will be 'persistentKey' + ".last.entry".
  * Files will be written to the 'java.io.tmpdir' +  "/spring-integration/".
+ * The metadata is written when this store is destroyed or {@link #flush()}ed.
  * 
  * @author Oleg Zhurakousky
  * @author Mark Fisher
  * @since 2.0
  */
-public class PropertiesPersistingMetadataStore implements MetadataStore, InitializingBean, DisposableBean {
+public class PropertiesPersistingMetadataStore implements MetadataStore, Flushable, InitializingBean, DisposableBean {
 
 	private final Log logger = LogFactory.getLog(getClass());
 
@@ -82,6 +84,14 @@ public class PropertiesPersistingMetadataStore implements MetadataStore, Initial
 		return this.metadata.getProperty(key);
 	}
 
+	/**
+	 * Writes the current metadata to the properties file. Otherwise the metadata
+	 * is only written when this store is destroyed.
+	 */
+	public void flush() {
+		this.saveMetadata();
+	}
+
 	public void destroy() throws Exception {
 		this.saveMetadata();
 	}
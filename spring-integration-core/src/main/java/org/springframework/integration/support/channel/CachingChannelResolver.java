@@ -0,0 +1,163 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.support.channel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.integration.MessageChannel;
+import org.springframework.integration.support.metrics.StripedCounter;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ChannelResolver} that caches the channels resolved by another ChannelResolver,
+ * so that repeatedly resolving the same names (e.g. router channel keys, or 'replyChannel'
+ * and 'errorChannel' header values) does not look them up each time.
+ * <p>
+ * When created with a {@link BeanFactory}, channels are looked up in it with a
+ * {@link BeanFactoryChannelResolver}, and only singleton beans are cached, so that
+ * channels in other scopes are still looked up on every resolution.
+ * <p>
+ * The cache holds at most {@link #setMaxCacheSize(int) maxCacheSize} channels; once
+ * full, further names are resolved without being cached. It is cleared when a new
+ * BeanFactory is set and, if this resolver is defined as a bean, when its context is
+ * refreshed.
+ *
+ * @since 2.1.1
+ */
+public class CachingChannelResolver implements ChannelResolver, BeanFactoryAware,
+		ApplicationListener<ContextRefreshedEvent> {
+
+	public static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+
+
+	private final Map<String, MessageChannel> channels = new ConcurrentHashMap<String, MessageChannel>();
+
+	private final StripedCounter hitCount = new StripedCounter();
+
+	private final StripedCounter missCount = new StripedCounter();
+
+	private volatile ChannelResolver delegate;
+
+	private volatile BeanFactory beanFactory;
+
+	private volatile int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
+
+	/**
+	 * Create a resolver that looks up channels in the given {@link BeanFactory}.
+	 * @param beanFactory the bean factory to be used to lookup {@link MessageChannel}s.
+	 */
+	public CachingChannelResolver(BeanFactory beanFactory) {
+		Assert.notNull(beanFactory, "BeanFactory must not be null");
+		this.setBeanFactory(beanFactory);
+	}
+
+	/**
+	 * Create a resolver that caches all channels resolved by the given delegate.
+	 */
+	public CachingChannelResolver(ChannelResolver delegate) {
+		Assert.notNull(delegate, "delegate ChannelResolver must not be null");
+		this.delegate = delegate;
+	}
+
+
+	/**
+	 * Specify the maximum number of channels to cache. Default {@value #DEFAULT_MAX_CACHE_SIZE}.
+	 */
+	public void setMaxCacheSize(int maxCacheSize) {
+		Assert.isTrue(maxCacheSize >= 0, "maxCacheSize must not be negative");
+		this.maxCacheSize = maxCacheSize;
+	}
+
+	/**
+	 * Look up channels in the given {@link BeanFactory} from now on. Has no effect if
+	 * this resolver was created with another ChannelResolver.
+	 */
+	public void setBeanFactory(BeanFactory beanFactory) {
+		if (this.delegate == null || this.beanFactory != null) {
+			this.beanFactory = beanFactory;
+			this.delegate = new BeanFactoryChannelResolver(beanFactory);
+			this.clearCache();
+		}
+	}
+
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		this.clearCache();
+	}
+
+	public MessageChannel resolveChannelName(String name) {
+		MessageChannel channel = this.channels.get(name);
+		if (channel != null) {
+			this.hitCount.increment();
+			return channel;
+		}
+		this.missCount.increment();
+		channel = this.delegate.resolveChannelName(name);
+		if (channel != null && this.channels.size() < this.maxCacheSize && this.isCacheable(name)) {
+			this.channels.put(name, channel);
+		}
+		return channel;
+	}
+
+	@ManagedOperation
+	public void clearCache() {
+		this.channels.clear();
+	}
+
+	@ManagedAttribute
+	public int getCacheSize() {
+		return this.channels.size();
+	}
+
+	/**
+	 * @return the number of resolutions answered from the cache
+	 */
+	@ManagedAttribute
+	public long getHitCount() {
+		return this.hitCount.get();
+	}
+
+	/**
+	 * @return the number of resolutions delegated because the name was not cached
+	 */
+	@ManagedAttribute
+	public long getMissCount() {
+		return this.missCount.get();
+	}
+
+	private boolean isCacheable(String name) {
+		BeanFactory beanFactory = this.beanFactory;
+		if (beanFactory == null) {
+			return true;
+		}
+		try {
+			return beanFactory.isSingleton(name);
+		}
+		catch (BeansException e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.support.metrics;
+
+import org.springframework.util.Assert;
+
+/**
+ * Send and receive statistics of a
+ * {@link org.springframework.integration.channel.AbstractMessageChannel}, recorded by the
+ * channel itself once an instance has been
+ * {@link org.springframework.integration.channel.AbstractMessageChannel#setMetrics(ChannelMetrics) set}.
+ * Counts are kept in {@link StripedCounter}s and send durations in a
+ * {@link LatencyHistogram}, so recording neither locks nor allocates. Only one in every
+ * {@link #setSampleInterval(int) sampleInterval} sends is timed; all sends are counted.
+ *
+ * @since 2.1.1
+ */
+public class ChannelMetrics {
+
+	/**
+	 * Returned by {@link #beforeSend()} if the send is not timed.
+	 */
+	public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+
+	private final StripedCounter sendCount = new StripedCounter();
+
+	private final StripedCounter sendErrorCount = new StripedCounter();
+
+	private final StripedCounter receiveCount = new StripedCounter();
+
+	private final StripedCounter receiveErrorCount = new StripedCounter();
+
+	private final LatencyHistogram sendDuration = new LatencyHistogram();
+
+	private volatile int sampleInterval = 1;
+
+	private volatile long lastSendTime;
+
+	private volatile long resetTime = System.currentTimeMillis();
+
+
+	/**
+	 * Specify that only one in every <code>sampleInterval</code> sends (per thread,
+	 * approximately) should be timed. Default 1 (every send).
+	 */
+	public void setSampleInterval(int sampleInterval) {
+		Assert.isTrue(sampleInterval > 0, "sampleInterval must be greater than zero");
+		this.sampleInterval = sampleInterval;
+	}
+
+	public int getSampleInterval() {
+		return this.sampleInterval;
+	}
+
+	/**
+	 * Count a send.
+	 * @return the start time to pass to {@link #afterSend(long, boolean)}
+	 */
+	public long beforeSend() {
+		int sampleInterval = this.sampleInterval;
+		long count = this.sendCount.increment();
+		this.lastSendTime = System.currentTimeMillis();
+		if (sampleInterval > 1 && count % sampleInterval != 0) {
+			return NOT_SAMPLED;
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * Record the outcome of a send: failed sends (including those that threw an
+	 * exception) are counted as errors; the duration of successful sends is recorded.
+	 */
+	public void afterSend(long start, boolean sent) {
+		if (!sent) {
+			this.sendErrorCount.increment();
+		}
+		else if (start != NOT_SAMPLED) {
+			this.sendDuration.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Record the outcome of a receive; only receives that returned a Message are counted.
+	 */
+	public void afterReceive(boolean received) {
+		if (received) {
+			this.receiveCount.increment();
+		}
+	}
+
+	public void afterReceiveError() {
+		this.receiveErrorCount.increment();
+	}
+
+	/**
+	 * @return the number of sends, including failed ones
+	 */
+	public long getSendCount() {
+		return this.sendCount.get();
+	}
+
+	public long getSendErrorCount() {
+		return this.sendErrorCount.get();
+	}
+
+	public long getReceiveCount() {
+		return this.receiveCount.get();
+	}
+
+	public long getReceiveErrorCount() {
+		return this.receiveErrorCount.get();
+	}
+
+	/**
+	 * @return the durations of the timed, successful sends
+	 */
+	public LatencyHistogram getSendDuration() {
+		return this.sendDuration;
+	}
+
+	/**
+	 * @return the time (in milliseconds since the epoch) of the last send, or 0 if
+	 * there has been none
+	 */
+	public long getLastSendTime() {
+		return this.lastSendTime;
+	}
+
+	/**
+	 * @return the time (in milliseconds since the epoch) this instance was created or
+	 * last reset
+	 */
+	public long getResetTime() {
+		return this.resetTime;
+	}
+
+	public void reset() {
+		this.sendCount.reset();
+		this.sendErrorCount.reset();
+		this.receiveCount.reset();
+		this.receiveErrorCount.reset();
+		this.sendDuration.reset();
+		this.lastSendTime = 0;
+		this.resetTime = System.currentTimeMillis();
+	}
+
+	@Override
+	public String toString() {
+		return "ChannelMetrics[sends=" + this.getSendCount() + ", sendErrors=" + this.getSendErrorCount()
+				+ ", receives=" + this.getReceiveCount() + ", receiveErrors=" + this.getReceiveErrorCount()
+				+ ", sendDuration=" + this.sendDuration + "]";
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.support.metrics;
+
+import org.springframework.util.Assert;
+
+/**
+ * Statistics of a {@link org.springframework.integration.handler.AbstractMessageHandler},
+ * recorded by the handler itself once an instance has been
+ * {@link org.springframework.integration.handler.AbstractMessageHandler#setMetrics(HandlerMetrics) set}.
+ * Counts are kept in {@link StripedCounter}s and handling durations in a
+ * {@link LatencyHistogram}, so recording neither locks nor allocates. Only one in every
+ * {@link #setSampleInterval(int) sampleInterval} invocations is timed; all are counted.
+ *
+ * @since 2.1.1
+ */
+public class HandlerMetrics {
+
+	/**
+	 * Returned by {@link #beforeHandle()} if the invocation is not timed.
+	 */
+	public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+
+	private final StripedCounter handleCount = new StripedCounter();
+
+	private final StripedCounter errorCount = new StripedCounter();
+
+	private final StripedCounter activeCount = new StripedCounter();
+
+	private final LatencyHistogram duration = new LatencyHistogram();
+
+	private volatile int sampleInterval = 1;
+
+	private volatile long resetTime = System.currentTimeMillis();
+
+
+	/**
+	 * Specify that only one in every <code>sampleInterval</code> invocations (per thread,
+	 * approximately) should be timed. Default 1 (every invocation).
+	 */
+	public void setSampleInterval(int sampleInterval) {
+		Assert.isTrue(sampleInterval > 0, "sampleInterval must be greater than zero");
+		this.sampleInterval = sampleInterval;
+	}
+
+	public int getSampleInterval() {
+		return this.sampleInterval;
+	}
+
+	/**
+	 * Count an invocation.
+	 * @return the start time to pass to {@link #afterHandle(long, boolean)}
+	 */
+	public long beforeHandle() {
+		int sampleInterval = this.sampleInterval;
+		this.activeCount.add(1);
+		long count = this.handleCount.increment();
+		return (sampleInterval == 1 || count % sampleInterval == 0) ? System.nanoTime() : NOT_SAMPLED;
+	}
+
+	/**
+	 * Record the outcome of an invocation; the duration of successful invocations is recorded.
+	 */
+	public void afterHandle(long start, boolean success) {
+		this.activeCount.add(-1);
+		if (!success) {
+			this.errorCount.increment();
+		}
+		else if (start != NOT_SAMPLED) {
+			this.duration.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @return the number of invocations, including failed ones
+	 */
+	public long getHandleCount() {
+		return this.handleCount.get();
+	}
+
+	public long getErrorCount() {
+		return this.errorCount.get();
+	}
+
+	/**
+	 * @return the number of invocations in progress
+	 */
+	public long getActiveCount() {
+		return this.activeCount.get();
+	}
+
+	/**
+	 * @return the durations of the timed, successful invocations
+	 */
+	public LatencyHistogram getDuration() {
+		return this.duration;
+	}
+
+	/**
+	 * @return the time (in milliseconds since the epoch) this instance was created or
+	 * last reset
+	 */
+	public long getResetTime() {
+		return this.resetTime;
+	}
+
+	/**
+	 * Reset the counts and durations; the number of active invocations is not affected.
+	 */
+	public void reset() {
+		this.handleCount.reset();
+		this.errorCount.reset();
+		this.duration.reset();
+		this.resetTime = System.currentTimeMillis();
+	}
+
+	@Override
+	public String toString() {
+		return "HandlerMetrics[handled=" + this.getHandleCount() + ", errors=" + this.getErrorCount()
+				+ ", active=" + this.getActiveCount() + ", duration=" + this.duration + "]";
+	}
+
+}
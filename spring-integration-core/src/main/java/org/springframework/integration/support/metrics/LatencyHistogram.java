@@ -0,0 +1,226 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.support.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.util.Assert;
+
+/**
+ * A lock-free, fixed-size histogram of durations in nanoseconds. Values are counted in
+ * buckets whose width grows with the value (16 buckets per power of two), so that
+ * percentiles are reported within about 6% of the recorded values, from nanoseconds up
+ * to about 18 minutes (longer durations are counted as the maximum). Recording never
+ * allocates, and histograms can be {@link #merge(LatencyHistogram) merged}, e.g. to
+ * aggregate the durations of several components.
+ * <p>
+ * Reads are not atomic with respect to concurrent recording, so values read while
+ * durations are being recorded are approximate.
+ *
+ * @since 2.1.1
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int MAX_EXPONENT = 39;
+
+	private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final StripedCounter sum = new StripedCounter();
+
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+	private final AtomicLong max = new AtomicLong();
+
+
+	/**
+	 * Record a duration.
+	 * @param nanos the duration in nanoseconds; negative values are counted as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+		this.counts.incrementAndGet(bucketIndex(value));
+		this.sum.add(value);
+		long current;
+		while (value < (current = this.min.get()) && !this.min.compareAndSet(current, value)) {
+			// retry
+		}
+		while (value > (current = this.max.get()) && !this.max.compareAndSet(current, value)) {
+			// retry
+		}
+	}
+
+	/**
+	 * Add the values recorded by another histogram to this one.
+	 */
+	public void merge(LatencyHistogram other) {
+		Assert.notNull(other, "histogram must not be null");
+		for (int i = 0; i < BUCKETS; i++) {
+			long count = other.counts.get(i);
+			if (count > 0) {
+				this.counts.addAndGet(i, count);
+			}
+		}
+		this.sum.add(other.sum.get());
+		long current;
+		long value = other.min.get();
+		while (value < (current = this.min.get()) && !this.min.compareAndSet(current, value)) {
+			// retry
+		}
+		value = other.max.get();
+		while (value > (current = this.max.get()) && !this.max.compareAndSet(current, value)) {
+			// retry
+		}
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.counts.set(i, 0);
+		}
+		this.sum.reset();
+		this.min.set(Long.MAX_VALUE);
+		this.max.set(0);
+	}
+
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += this.counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * @return the sum of the recorded durations in nanoseconds
+	 */
+	public long getSum() {
+		return this.sum.get();
+	}
+
+	/**
+	 * @return the mean duration in nanoseconds, or 0 if nothing has been recorded
+	 */
+	public double getMean() {
+		long count = this.getCount();
+		return (count > 0) ? (double) this.sum.get() / count : 0;
+	}
+
+	/**
+	 * @return the smallest duration in nanoseconds, or 0 if nothing has been recorded
+	 */
+	public long getMin() {
+		long min = this.min.get();
+		return (min == Long.MAX_VALUE) ? 0 : min;
+	}
+
+	/**
+	 * @return the largest duration in nanoseconds
+	 */
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/**
+	 * @return the approximate standard deviation of the durations in nanoseconds
+	 */
+	public double getStandardDeviation() {
+		long count = 0;
+		double sumSquares = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			long bucketCount = this.counts.get(i);
+			if (bucketCount > 0) {
+				double value = bucketValue(i);
+				sumSquares += bucketCount * value * value;
+				count += bucketCount;
+			}
+		}
+		if (count == 0) {
+			return 0;
+		}
+		double mean = (double) this.sum.get() / count;
+		double variance = sumSquares / count - mean * mean;
+		return (variance > 0) ? Math.sqrt(variance) : 0;
+	}
+
+	/**
+	 * Return the duration (in nanoseconds) below which the given percentage of the
+	 * recorded durations fall, e.g. <code>getPercentile(99.9)</code>.
+	 * @param percentile a value between 0 and 100
+	 */
+	public long getPercentile(double percentile) {
+		Assert.isTrue(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = this.counts.get(i);
+			count += snapshot[i];
+		}
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		if (rank >= count) {
+			return this.getMax();
+		}
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.max(this.getMin(), Math.min(this.getMax(), (long) bucketValue(i)));
+			}
+		}
+		return this.getMax();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("[N=%d, min=%d, max=%d, mean=%.1f, p50=%d, p99=%d, p999=%d (ns)]", this.getCount(),
+				this.getMin(), this.getMax(), this.getMean(), this.getPercentile(50), this.getPercentile(99),
+				this.getPercentile(99.9));
+	}
+
+	private static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Return the midpoint of the values counted in the bucket.
+	 */
+	private static double bucketValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lowest + ((1L << shift) - 1) / 2.0;
+	}
+
+}
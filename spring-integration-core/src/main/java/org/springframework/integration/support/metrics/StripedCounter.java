@@ -0,0 +1,89 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.support.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free counter for values updated by many threads. Updates are spread over a
+ * number of cells (each on its own cache line), selected by the updating thread, so
+ * that concurrent updates rarely contend; reads sum all cells.
+ *
+ * @since 2.1.1
+ */
+public class StripedCounter {
+
+	private static final int STRIPES;
+
+	static {
+		int stripes = 1;
+		while (stripes < Runtime.getRuntime().availableProcessors() * 2 && stripes < 64) {
+			stripes <<= 1;
+		}
+		STRIPES = stripes;
+	}
+
+	/**
+	 * Number of longs between the cells in use, so that each is on its own cache line.
+	 */
+	private static final int PADDING = 8;
+
+
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+
+	/**
+	 * Increment the counter.
+	 * @return the new value of the cell used by the current thread, which may be used
+	 * to sample one in every so many updates without further coordination
+	 */
+	public long increment() {
+		return this.cells.incrementAndGet(cellIndex());
+	}
+
+	public void add(long delta) {
+		this.cells.addAndGet(cellIndex(), delta);
+	}
+
+	/**
+	 * Return the sum of all updates since creation or the last {@link #reset()}.
+	 * The value is exact once concurrent updates have completed.
+	 */
+	public long get() {
+		long sum = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			sum += this.cells.get(i * PADDING);
+		}
+		return sum;
+	}
+
+	public void reset() {
+		for (int i = 0; i < STRIPES; i++) {
+			this.cells.set(i * PADDING, 0);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(this.get());
+	}
+
+	private static int cellIndex() {
+		return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * PADDING;
+	}
+
+}
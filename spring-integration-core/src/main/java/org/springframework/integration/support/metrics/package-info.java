@@ -0,0 +1,4 @@
+/**
+ * Provides classes for recording low-overhead runtime metrics of channels and handlers.
+ */
+package org.springframework.integration.support.metrics;
\ No newline at end of file
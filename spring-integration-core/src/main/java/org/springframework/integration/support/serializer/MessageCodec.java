@@ -0,0 +1,488 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.support.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.core.NestedIOException;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHeaders;
+import org.springframework.integration.history.MessageHistory;
+import org.springframework.integration.message.ErrorMessage;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Compact binary codec for {@link Message Messages} and the values they carry, used in
+ * place of Java serialization of the whole {@link GenericMessage}.
+ * <p/>
+ * The id and timestamp headers are written as fixed-width numbers, other well-known header
+ * names as a single byte, and Strings, byte arrays, Integers, Longs, Booleans, Doubles and
+ * UUIDs (as payloads or header values) without any class descriptors. Other types may be
+ * {@link #registerType(int, Class, Serializer, Deserializer) registered} under a numeric
+ * id with their own Serializer and Deserializer; any remaining Serializable value falls back
+ * to Java serialization. As with Java serialization of {@link MessageHeaders}, header values
+ * that cannot be written are dropped. Messages other than {@link GenericMessage} and
+ * {@link ErrorMessage} are written with Java serialization.
+ * <p/>
+ * Every encoded value is self-delimiting, so values may be written back to back on a
+ * stream. Input that starts with the Java serialization stream header is read with Java
+ * serialization, so data written by the previous default serializers remains readable.
+ * <p/>
+ * Instances are thread-safe; types should be registered before the codec is used.
+ *
+ * @since 2.1.1
+ */
+public class MessageCodec {
+
+	private static final Log logger = LogFactory.getLog(MessageCodec.class);
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int JAVA_SERIALIZATION_MAGIC = 0xAC;
+
+	private static final int NULL = 0;
+
+	private static final int STRING = 1;
+
+	private static final int BYTES = 2;
+
+	private static final int INTEGER = 3;
+
+	private static final int LONG = 4;
+
+	private static final int BOOLEAN = 5;
+
+	private static final int DOUBLE = 6;
+
+	private static final int UUID_VALUE = 7;
+
+	private static final int GENERIC_MESSAGE = 8;
+
+	private static final int ERROR_MESSAGE = 9;
+
+	private static final int REGISTERED = 10;
+
+	private static final int SERIALIZED = 11;
+
+	/**
+	 * Byte arrays up to this length are allocated up front; longer ones are read in
+	 * chunks, so that a corrupt length cannot allocate more memory than the input holds.
+	 */
+	private static final int MAX_PREALLOCATED_LENGTH = 64 * 1024;
+
+	/**
+	 * Header names written as their (one-based) index. Entries may only ever be appended.
+	 */
+	private static final String[] WELL_KNOWN_HEADERS = new String[] {
+			MessageHeaders.CORRELATION_ID, MessageHeaders.SEQUENCE_NUMBER, MessageHeaders.SEQUENCE_SIZE,
+			MessageHeaders.SEQUENCE_DETAILS, MessageHeaders.EXPIRATION_DATE, MessageHeaders.PRIORITY,
+			MessageHeaders.REPLY_CHANNEL, MessageHeaders.ERROR_CHANNEL, MessageHistory.HEADER_NAME };
+
+	private static final Map<String, Integer> wellKnownHeaderIndexes = new HashMap<String, Integer>();
+
+	static {
+		for (int i = 0; i < WELL_KNOWN_HEADERS.length; i++) {
+			wellKnownHeaderIndexes.put(WELL_KNOWN_HEADERS[i], i + 1);
+		}
+	}
+
+
+	private final Map<Class<?>, Registration> registrationsByType = new ConcurrentHashMap<Class<?>, Registration>();
+
+	private final Map<Integer, Registration> registrationsById = new ConcurrentHashMap<Integer, Registration>();
+
+	private volatile ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+
+
+	/**
+	 * Specify the ClassLoader used to resolve classes of values read with Java
+	 * serialization. The default is the thread context ClassLoader at construction time.
+	 */
+	public void setClassLoader(ClassLoader classLoader) {
+		Assert.notNull(classLoader, "'classLoader' must not be null");
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * Register a Serializer and Deserializer for values of the given type (and its
+	 * subclasses). The id is written in place of any class name, so it must identify the
+	 * type consistently for every codec reading or writing the same data.
+	 */
+	public <T> void registerType(int typeId, Class<T> type, Serializer<? super T> serializer,
+			Deserializer<? extends T> deserializer) {
+		Assert.isTrue(typeId >= 0, "'typeId' must not be negative");
+		Assert.notNull(type, "'type' must not be null");
+		Assert.notNull(serializer, "'serializer' must not be null");
+		Assert.notNull(deserializer, "'deserializer' must not be null");
+		Assert.isTrue(!this.registrationsById.containsKey(typeId), "type id " + typeId + " is already registered");
+		Assert.isTrue(!this.registrationsByType.containsKey(type), "type " + type.getName() + " is already registered");
+		Registration registration = new Registration(typeId, type, serializer, deserializer);
+		this.registrationsById.put(typeId, registration);
+		this.registrationsByType.put(type, registration);
+	}
+
+	/**
+	 * Write the given Message (or any other supported value) to the stream.
+	 */
+	public void encode(Object value, OutputStream outputStream) throws IOException {
+		DataOutputStream out = new DataOutputStream(outputStream);
+		out.writeByte(FORMAT_VERSION);
+		this.writeValue(value, out);
+		out.flush();
+	}
+
+	public byte[] encode(Object value) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+		this.encode(value, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Read one value, as written by {@link #encode(Object, OutputStream)}, from the stream.
+	 * @throws EOFException if the stream ends before a complete value has been read
+	 */
+	public Object decode(InputStream inputStream) throws IOException {
+		PushbackInputStream pushbackStream = new PushbackInputStream(inputStream, 1);
+		int version = pushbackStream.read();
+		if (version == JAVA_SERIALIZATION_MAGIC) {
+			pushbackStream.unread(version);
+			return this.readSerialized(pushbackStream);
+		}
+		if (version < 0) {
+			throw new EOFException();
+		}
+		if (version != FORMAT_VERSION) {
+			throw new StreamCorruptedException("Unsupported format version: " + version);
+		}
+		return this.readValue(new DataInputStream(pushbackStream));
+	}
+
+	public Object decode(byte[] bytes) throws IOException {
+		Assert.notNull(bytes, "'bytes' must not be null");
+		return this.decode(new ByteArrayInputStream(bytes));
+	}
+
+	private void writeValue(Object value, DataOutputStream out) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		}
+		else if (value instanceof String) {
+			out.writeByte(STRING);
+			writeString((String) value, out);
+		}
+		else if (value instanceof byte[]) {
+			out.writeByte(BYTES);
+			writeBytes((byte[]) value, out);
+		}
+		else if (value instanceof Integer) {
+			out.writeByte(INTEGER);
+			int intValue = (Integer) value;
+			writeVarInt((intValue << 1) ^ (intValue >> 31), out);
+		}
+		else if (value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) value);
+		}
+		else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		}
+		else if (value instanceof UUID) {
+			out.writeByte(UUID_VALUE);
+			writeUuid((UUID) value, out);
+		}
+		else if (value.getClass() == GenericMessage.class) {
+			out.writeByte(GENERIC_MESSAGE);
+			this.writeMessage((Message<?>) value, out);
+		}
+		else if (value.getClass() == ErrorMessage.class) {
+			out.writeByte(ERROR_MESSAGE);
+			this.writeMessage((Message<?>) value, out);
+		}
+		else {
+			Registration registration = this.findRegistration(value.getClass());
+			if (registration != null) {
+				out.writeByte(REGISTERED);
+				writeVarInt(registration.typeId, out);
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+				registration.serialize(value, bytes);
+				writeBytes(bytes.toByteArray(), out);
+			}
+			else if (value instanceof Serializable) {
+				out.writeByte(SERIALIZED);
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+				ObjectOutputStream objectStream = new ObjectOutputStream(bytes);
+				objectStream.writeObject(value);
+				objectStream.flush();
+				writeBytes(bytes.toByteArray(), out);
+			}
+			else {
+				throw new NotSerializableException(value.getClass().getName());
+			}
+		}
+	}
+
+	private Object readValue(DataInputStream in) throws IOException {
+		int tag = in.readUnsignedByte();
+		switch (tag) {
+			case NULL:
+				return null;
+			case STRING:
+				return readString(in);
+			case BYTES:
+				return readBytes(in);
+			case INTEGER:
+				int zigZag = readVarInt(in);
+				return (zigZag >>> 1) ^ -(zigZag & 1);
+			case LONG:
+				return in.readLong();
+			case BOOLEAN:
+				return in.readBoolean();
+			case DOUBLE:
+				return in.readDouble();
+			case UUID_VALUE:
+				return readUuid(in);
+			case GENERIC_MESSAGE:
+			case ERROR_MESSAGE:
+				return this.readMessage(tag == ERROR_MESSAGE, in);
+			case REGISTERED:
+				int typeId = readVarInt(in);
+				Registration registration = this.registrationsById.get(typeId);
+				if (registration == null) {
+					throw new StreamCorruptedException("No type registered for id " + typeId);
+				}
+				return registration.deserializer.deserialize(new ByteArrayInputStream(readBytes(in)));
+			case SERIALIZED:
+				return this.readSerialized(new ByteArrayInputStream(readBytes(in)));
+			default:
+				throw new StreamCorruptedException("Unknown value tag: " + tag);
+		}
+	}
+
+	private void writeMessage(Message<?> message, DataOutputStream out) throws IOException {
+		MessageHeaders headers = message.getHeaders();
+		writeUuid(headers.getId(), out);
+		Long timestamp = headers.getTimestamp();
+		out.writeLong((timestamp != null) ? timestamp : 0);
+		List<Map.Entry<String, Object>> entries = new ArrayList<Map.Entry<String, Object>>(headers.size());
+		for (Map.Entry<String, Object> entry : headers.entrySet()) {
+			String name = entry.getKey();
+			if (MessageHeaders.ID.equals(name) || MessageHeaders.TIMESTAMP.equals(name)) {
+				continue;
+			}
+			if (this.isWritable(entry.getValue())) {
+				entries.add(entry);
+			}
+			else if (logger.isInfoEnabled()) {
+				logger.info("removing non-serializable header: " + name);
+			}
+		}
+		writeVarInt(entries.size(), out);
+		for (Map.Entry<String, Object> entry : entries) {
+			Integer index = wellKnownHeaderIndexes.get(entry.getKey());
+			if (index != null) {
+				writeVarInt(index, out);
+			}
+			else {
+				writeVarInt(0, out);
+				writeString(entry.getKey(), out);
+			}
+			this.writeValue(entry.getValue(), out);
+		}
+		this.writeValue(message.getPayload(), out);
+	}
+
+	private Message<?> readMessage(boolean errorMessage, DataInputStream in) throws IOException {
+		UUID id = readUuid(in);
+		long timestamp = in.readLong();
+		int headerCount = readVarInt(in);
+		if (headerCount < 0) {
+			throw new StreamCorruptedException("Invalid header count: " + headerCount);
+		}
+		// the count is not trusted to size the map
+		Map<String, Object> headers = new HashMap<String, Object>(Math.min(headerCount, 16));
+		for (int i = 0; i < headerCount; i++) {
+			int index = readVarInt(in);
+			String name;
+			if (index == 0) {
+				name = readString(in);
+			}
+			else if (index <= WELL_KNOWN_HEADERS.length) {
+				name = WELL_KNOWN_HEADERS[index - 1];
+			}
+			else {
+				throw new StreamCorruptedException("Unknown header index: " + index);
+			}
+			headers.put(name, this.readValue(in));
+		}
+		// keep the original id and timestamp, as Java deserialization of the headers does
+		MessageHeaders messageHeaders = new MessageHeaders(headers, id, timestamp);
+		Object payload = this.readValue(in);
+		return errorMessage ? new ErrorMessage((Throwable) payload, messageHeaders)
+				: new GenericMessage<Object>(payload, messageHeaders);
+	}
+
+	private Object readSerialized(InputStream inputStream) throws IOException {
+		ObjectInputStream objectStream = new ConfigurableObjectInputStream(inputStream, this.classLoader);
+		try {
+			return objectStream.readObject();
+		}
+		catch (ClassNotFoundException e) {
+			throw new NestedIOException("Failed to deserialize object type", e);
+		}
+	}
+
+	private boolean isWritable(Object value) {
+		return value == null || value instanceof Serializable || this.findRegistration(value.getClass()) != null;
+	}
+
+	private Registration findRegistration(Class<?> type) {
+		Registration registration = this.registrationsByType.get(type);
+		if (registration == null && !this.registrationsByType.isEmpty()) {
+			for (Registration candidate : this.registrationsByType.values()) {
+				if (candidate.type.isAssignableFrom(type)) {
+					return candidate;
+				}
+			}
+		}
+		return registration;
+	}
+
+	private static void writeUuid(UUID uuid, DataOutputStream out) throws IOException {
+		out.writeLong(uuid.getMostSignificantBits());
+		out.writeLong(uuid.getLeastSignificantBits());
+	}
+
+	private static UUID readUuid(DataInputStream in) throws IOException {
+		return new UUID(in.readLong(), in.readLong());
+	}
+
+	private static void writeString(String value, DataOutputStream out) throws IOException {
+		writeBytes(value.getBytes("UTF-8"), out);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return new String(readBytes(in), "UTF-8");
+	}
+
+	private static void writeBytes(byte[] bytes, DataOutputStream out) throws IOException {
+		writeVarInt(bytes.length, out);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		int length = readVarInt(in);
+		if (length < 0) {
+			throw new StreamCorruptedException("Invalid length: " + length);
+		}
+		if (length <= MAX_PREALLOCATED_LENGTH) {
+			byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			return bytes;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(MAX_PREALLOCATED_LENGTH);
+		byte[] buffer = new byte[8192];
+		int remaining = length;
+		while (remaining > 0) {
+			int read = in.read(buffer, 0, Math.min(buffer.length, remaining));
+			if (read < 0) {
+				throw new EOFException("Expected " + length + " bytes but the input ended after "
+						+ (length - remaining));
+			}
+			bytes.write(buffer, 0, read);
+			remaining -= read;
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void writeVarInt(int value, DataOutputStream out) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new StreamCorruptedException("Malformed variable-length integer");
+	}
+
+
+	private static class Registration {
+
+		private final int typeId;
+
+		private final Class<?> type;
+
+		private final Serializer<Object> serializer;
+
+		private final Deserializer<?> deserializer;
+
+		@SuppressWarnings("unchecked")
+		Registration(int typeId, Class<?> type, Serializer<?> serializer, Deserializer<?> deserializer) {
+			this.typeId = typeId;
+			this.type = type;
+			this.serializer = (Serializer<Object>) serializer;
+			this.deserializer = deserializer;
+		}
+
+		void serialize(Object value, OutputStream outputStream) throws IOException {
+			this.serializer.serialize(value, outputStream);
+		}
+	}
+
+}
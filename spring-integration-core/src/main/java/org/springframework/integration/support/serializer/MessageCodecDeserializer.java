@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.support.serializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link Deserializer} that reads Messages and other values written by a {@link MessageCodecSerializer}
+ * (or, for existing data, by Java serialization) with a {@link MessageCodec}. Each call reads exactly one
+ * value, so the same stream may carry any number of values.
+ *
+ * @since 2.1.1
+ */
+public class MessageCodecDeserializer implements Deserializer<Object> {
+
+	private final MessageCodec codec;
+
+
+	public MessageCodecDeserializer() {
+		this(new MessageCodec());
+	}
+
+	public MessageCodecDeserializer(MessageCodec codec) {
+		Assert.notNull(codec, "'codec' must not be null");
+		this.codec = codec;
+	}
+
+
+	public Object deserialize(InputStream inputStream) throws IOException {
+		return this.codec.decode(inputStream);
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.support.serializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.springframework.core.serializer.Serializer;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link Serializer} that writes Messages and other values with a {@link MessageCodec}; for use
+ * with the message stores, {@link org.springframework.integration.transformer.PayloadSerializingTransformer}
+ * and TCP connection factories. Pair with a {@link MessageCodecDeserializer} sharing the same type registrations.
+ *
+ * @since 2.1.1
+ */
+public class MessageCodecSerializer implements Serializer<Object> {
+
+	private final MessageCodec codec;
+
+
+	public MessageCodecSerializer() {
+		this(new MessageCodec());
+	}
+
+	public MessageCodecSerializer(MessageCodec codec) {
+		Assert.notNull(codec, "'codec' must not be null");
+		this.codec = codec;
+	}
+
+
+	public void serialize(Object object, OutputStream outputStream) throws IOException {
+		this.codec.encode(object, outputStream);
+	}
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Provides a compact binary Message codec and its Serializer and Deserializer adapters.
+ */
+package org.springframework.integration.support.serializer;
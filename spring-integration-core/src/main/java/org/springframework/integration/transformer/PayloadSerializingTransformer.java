@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,8 @@ import org.springframework.core.serializer.support.SerializingConverter;
  * Java serialization.
  * 
  * <p>The payload instance must be Serializable if the default converter is used.
+ * A {@link org.springframework.integration.support.serializer.MessageCodecSerializer}
+ * writes Strings, byte arrays and registered types more compactly.
  * 
  * @author Mark Fisher
  * @author Gary Russell
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  * 
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -13,6 +13,9 @@
 
 package org.springframework.integration.util;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -25,6 +28,7 @@ import org.springframework.expression.BeanResolver;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.integration.Message;
@@ -38,7 +42,11 @@ import org.springframework.integration.MessageHandlingException;
  * @since 2.0
  */
 public abstract class AbstractExpressionEvaluator implements BeanFactoryAware {
-	
+
+	private static final int MAX_COMPILED_EXPRESSIONS = 256;
+
+	private static final Object NOT_COMPILED = new Object();
+
 	private final Log logger = LogFactory.getLog(this.getClass());
 
 	private final StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
@@ -49,6 +57,8 @@ public abstract class AbstractExpressionEvaluator implements BeanFactoryAware {
 
 	private volatile BeanResolver beanResolver;
 
+	private final ConcurrentMap<Expression, Object> compiledExpressions = new ConcurrentHashMap<Expression, Object>();
+
 	public AbstractExpressionEvaluator() {
 		this.evaluationContext.setTypeConverter(this.typeConverter);
 		this.evaluationContext.addPropertyAccessor(new MapAccessor());
@@ -81,8 +91,17 @@ public abstract class AbstractExpressionEvaluator implements BeanFactoryAware {
 		return this.evaluationContext;
 	}
 
+	@SuppressWarnings("unchecked")
 	protected <T> T evaluateExpression(Expression expression, Message<?> message, Class<T> expectedType) {
 		try {
+			Object compiled = this.getCompiledExpression(expression);
+			if (compiled != NOT_COMPILED) {
+				Object value = ((CompiledMessageExpression) compiled).getValue(message);
+				if (value != CompiledMessageExpression.UNSUPPORTED
+						&& (expectedType == null || expectedType.isInstance(value))) {
+					return (T) value;
+				}
+			}
 			return evaluateExpression(expression, (Object) message, expectedType);
 		}
 		catch (EvaluationException e) {
@@ -102,6 +121,30 @@ public abstract class AbstractExpressionEvaluator implements BeanFactoryAware {
 		}
 	}
 
+	/**
+	 * Return the fast path for a SpEL expression over a Message, compiling it on first use,
+	 * or {@link #NOT_COMPILED} if the expression must always be evaluated by SpEL. The fast
+	 * path is only safe while the context reads properties the default way, so it is
+	 * bypassed once a subclass registers its own property accessors.
+	 */
+	private Object getCompiledExpression(Expression expression) {
+		if (!(expression instanceof SpelExpression) || this.evaluationContext.getPropertyAccessors().size() != 2) {
+			return NOT_COMPILED;
+		}
+		Object compiled = this.compiledExpressions.get(expression);
+		if (compiled == null) {
+			if (this.compiledExpressions.size() >= MAX_COMPILED_EXPRESSIONS) {
+				return NOT_COMPILED;
+			}
+			compiled = CompiledMessageExpression.compile(expression.getExpressionString());
+			if (compiled == null) {
+				compiled = NOT_COMPILED;
+			}
+			this.compiledExpressions.putIfAbsent(expression, compiled);
+		}
+		return compiled;
+	}
+
 	protected Object evaluateExpression(String expression, Object input) {
 		return this.evaluateExpression(expression, input, (Class<?>) null);
 	}
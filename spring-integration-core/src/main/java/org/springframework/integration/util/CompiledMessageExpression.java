@@ -0,0 +1,405 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.integration.Message;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Evaluates the most common shapes of SpEL expressions against a {@link Message} root
+ * object without walking the SpEL AST: <code>payload</code> or <code>headers</code>,
+ * followed by any number of <code>.property</code> or <code>['key']</code> steps, and
+ * optionally compared with a String, integer, boolean or null literal using
+ * <code>==</code>, <code>!=</code>, <code>&lt;</code>, <code>&lt;=</code>,
+ * <code>&gt;</code> or <code>&gt;=</code>. Properties are read as by the
+ * {@link org.springframework.context.expression.MapAccessor} and the reflective accessor
+ * of a standard evaluation context, with the getter or field cached per target class.
+ * <p/>
+ * Whenever the outcome could differ from SpEL's (a null in the middle of a path, a
+ * property that cannot be found, a getter that throws, a comparison of other types),
+ * {@link #getValue(Message)} returns {@link #UNSUPPORTED} and the caller must evaluate
+ * the expression with SpEL instead.
+ *
+ * @since 2.1.1
+ */
+final class CompiledMessageExpression {
+
+	static final Object UNSUPPORTED = new Object();
+
+	private static final String[] OPERATORS = { "==", "!=", "<=", ">=", "<", ">" };
+
+
+	private final boolean headersRoot;
+
+	private final Step[] steps;
+
+	private final String operator;
+
+	private final Object literal;
+
+
+	private CompiledMessageExpression(boolean headersRoot, List<Step> steps, String operator, Object literal) {
+		this.headersRoot = headersRoot;
+		this.steps = steps.toArray(new Step[steps.size()]);
+		this.operator = operator;
+		this.literal = literal;
+	}
+
+
+	/**
+	 * Compile the given expression, or return null if it does not have a supported shape.
+	 */
+	static CompiledMessageExpression compile(String expressionString) {
+		Parser parser = new Parser(expressionString);
+		try {
+			return parser.parse();
+		}
+		catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	Object getValue(Message<?> message) {
+		Object value = this.headersRoot ? message.getHeaders() : message.getPayload();
+		for (Step step : this.steps) {
+			if (value == null) {
+				return UNSUPPORTED;
+			}
+			value = step.apply(value);
+			if (value == UNSUPPORTED) {
+				return UNSUPPORTED;
+			}
+		}
+		return (this.operator != null) ? this.compare(value) : value;
+	}
+
+	private Object compare(Object value) {
+		boolean equality = "==".equals(this.operator) || "!=".equals(this.operator);
+		Boolean equal;
+		if (this.literal == null || value == null) {
+			if (!equality) {
+				return UNSUPPORTED;
+			}
+			equal = (value == this.literal);
+		}
+		else if (this.literal instanceof Long) {
+			if (!isIntegral(value)) {
+				return UNSUPPORTED;
+			}
+			long left = ((Number) value).longValue();
+			long right = ((Long) this.literal).longValue();
+			if (!equality) {
+				if ("<".equals(this.operator)) {
+					return left < right;
+				}
+				if ("<=".equals(this.operator)) {
+					return left <= right;
+				}
+				if (">".equals(this.operator)) {
+					return left > right;
+				}
+				return left >= right;
+			}
+			equal = (left == right);
+		}
+		else {
+			if (!equality || value.getClass() != this.literal.getClass()) {
+				return UNSUPPORTED;
+			}
+			equal = value.equals(this.literal);
+		}
+		return "==".equals(this.operator) ? equal : !equal;
+	}
+
+	private static boolean isIntegral(Object value) {
+		return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+	}
+
+
+	private interface Step {
+
+		Object apply(Object target);
+	}
+
+
+	private static class IndexStep implements Step {
+
+		private final String key;
+
+		IndexStep(String key) {
+			this.key = key;
+		}
+
+		public Object apply(Object target) {
+			return (target instanceof Map) ? ((Map<?, ?>) target).get(this.key) : UNSUPPORTED;
+		}
+	}
+
+
+	private static class PropertyStep implements Step {
+
+		private static final Accessor NO_ACCESSOR = new Accessor(null, null);
+
+		private final String name;
+
+		private final ConcurrentMap<Class<?>, Accessor> accessors = new ConcurrentHashMap<Class<?>, Accessor>();
+
+		private volatile Accessor lastAccessor = NO_ACCESSOR;
+
+		PropertyStep(String name) {
+			this.name = name;
+		}
+
+		public Object apply(Object target) {
+			if (target instanceof Map && ((Map<?, ?>) target).containsKey(this.name)) {
+				return ((Map<?, ?>) target).get(this.name);
+			}
+			if (target instanceof Class) {
+				return UNSUPPORTED;
+			}
+			Class<?> type = target.getClass();
+			Accessor accessor = this.lastAccessor;
+			if (accessor.type != type) {
+				accessor = this.accessors.get(type);
+				if (accessor == null) {
+					accessor = this.findAccessor(type);
+					this.accessors.put(type, accessor);
+				}
+				this.lastAccessor = accessor;
+			}
+			return accessor.read(target);
+		}
+
+		private Accessor findAccessor(Class<?> type) {
+			String suffix = StringUtils.capitalize(this.name);
+			Method[] methods = type.getMethods();
+			for (Method method : methods) {
+				if (method.getName().equals("get" + suffix) && method.getParameterTypes().length == 0) {
+					return new Accessor(type, method);
+				}
+			}
+			for (Method method : methods) {
+				if (method.getName().equals("is" + suffix) && method.getParameterTypes().length == 0
+						&& boolean.class.equals(method.getReturnType())) {
+					return new Accessor(type, method);
+				}
+			}
+			for (Field field : type.getFields()) {
+				if (field.getName().equals(this.name)) {
+					return new Accessor(type, field);
+				}
+			}
+			return new Accessor(type, null);
+		}
+	}
+
+
+	/**
+	 * The getter or public field for a property of one class, or neither if the
+	 * property cannot be read reflectively.
+	 */
+	private static class Accessor {
+
+		private final Class<?> type;
+
+		private final Method method;
+
+		private final Field field;
+
+		Accessor(Class<?> type, Object member) {
+			this.type = type;
+			this.method = (member instanceof Method) ? (Method) member : null;
+			this.field = (member instanceof Field) ? (Field) member : null;
+			if (this.method != null) {
+				ReflectionUtils.makeAccessible(this.method);
+			}
+		}
+
+		Object read(Object target) {
+			try {
+				if (this.method != null) {
+					return this.method.invoke(target);
+				}
+				if (this.field != null) {
+					return this.field.get(target);
+				}
+			}
+			catch (Exception e) {
+				// let SpEL report the failure
+			}
+			return UNSUPPORTED;
+		}
+	}
+
+
+	private static class Parser {
+
+		private final String input;
+
+		private int position;
+
+		Parser(String input) {
+			this.input = input;
+		}
+
+		CompiledMessageExpression parse() {
+			this.skipWhitespace();
+			String root = this.identifier();
+			boolean headersRoot = "headers".equals(root);
+			if (!headersRoot && !"payload".equals(root)) {
+				throw new IllegalArgumentException();
+			}
+			List<Step> steps = new ArrayList<Step>();
+			while (this.position < this.input.length()) {
+				char c = this.input.charAt(this.position);
+				if (c == '.') {
+					this.position++;
+					steps.add(new PropertyStep(this.identifier()));
+				}
+				else if (c == '[') {
+					this.position++;
+					this.skipWhitespace();
+					String key = this.quotedString();
+					this.skipWhitespace();
+					this.expect(']');
+					steps.add(new IndexStep(key));
+				}
+				else {
+					break;
+				}
+			}
+			this.skipWhitespace();
+			String operator = null;
+			Object literal = null;
+			if (this.position < this.input.length()) {
+				operator = this.operator();
+				this.skipWhitespace();
+				literal = this.literal();
+				this.skipWhitespace();
+			}
+			if (this.position != this.input.length()) {
+				throw new IllegalArgumentException();
+			}
+			return new CompiledMessageExpression(headersRoot, steps, operator, literal);
+		}
+
+		private String identifier() {
+			int start = this.position;
+			while (this.position < this.input.length()
+					&& (this.position == start ? Character.isJavaIdentifierStart(this.input.charAt(this.position))
+							: Character.isJavaIdentifierPart(this.input.charAt(this.position)))) {
+				this.position++;
+			}
+			if (this.position == start) {
+				throw new IllegalArgumentException();
+			}
+			return this.input.substring(start, this.position);
+		}
+
+		private String operator() {
+			for (String operator : OPERATORS) {
+				if (this.input.startsWith(operator, this.position)) {
+					this.position += operator.length();
+					return operator;
+				}
+			}
+			throw new IllegalArgumentException();
+		}
+
+		private Object literal() {
+			if (this.position >= this.input.length()) {
+				throw new IllegalArgumentException();
+			}
+			char c = this.input.charAt(this.position);
+			if (c == '\'' || c == '"') {
+				return this.quotedString();
+			}
+			if (c == '-' || Character.isDigit(c)) {
+				int start = this.position++;
+				while (this.position < this.input.length() && Character.isDigit(this.input.charAt(this.position))) {
+					this.position++;
+				}
+				String digits = this.input.substring(start, this.position);
+				if (this.position < this.input.length() && (this.input.charAt(this.position) == 'L'
+						|| this.input.charAt(this.position) == 'l')) {
+					this.position++;
+					return Long.valueOf(digits);
+				}
+				// an int literal in SpEL; larger values are a parse error there
+				return Long.valueOf(Integer.parseInt(digits));
+			}
+			String word = this.identifier();
+			if ("true".equals(word)) {
+				return Boolean.TRUE;
+			}
+			if ("false".equals(word)) {
+				return Boolean.FALSE;
+			}
+			if ("null".equals(word)) {
+				return null;
+			}
+			throw new IllegalArgumentException();
+		}
+
+		private String quotedString() {
+			char quote = this.input.charAt(this.position);
+			if (quote != '\'' && quote != '"') {
+				throw new IllegalArgumentException();
+			}
+			StringBuilder value = new StringBuilder();
+			this.position++;
+			while (this.position < this.input.length()) {
+				char c = this.input.charAt(this.position++);
+				if (c == quote) {
+					// a doubled quote stands for the quote character itself
+					if (this.position < this.input.length() && this.input.charAt(this.position) == quote) {
+						this.position++;
+					}
+					else {
+						return value.toString();
+					}
+				}
+				value.append(c);
+			}
+			throw new IllegalArgumentException();
+		}
+
+		private void expect(char c) {
+			if (this.position >= this.input.length() || this.input.charAt(this.position) != c) {
+				throw new IllegalArgumentException();
+			}
+			this.position++;
+		}
+
+		private void skipWhitespace() {
+			while (this.position < this.input.length() && Character.isWhitespace(this.input.charAt(this.position))) {
+				this.position++;
+			}
+		}
+	}
+
+}
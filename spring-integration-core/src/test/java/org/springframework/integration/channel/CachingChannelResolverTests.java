@@ -0,0 +1,146 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.channel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.context.support.SimpleThreadScope;
+import org.springframework.integration.MessageChannel;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.integration.router.HeaderValueRouter;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.support.channel.CachingChannelResolver;
+import org.springframework.integration.support.channel.ChannelResolutionException;
+import org.springframework.integration.support.channel.ChannelResolver;
+import org.springframework.integration.test.util.TestUtils;
+
+/**
+ * @since 2.1.1
+ */
+public class CachingChannelResolverTests {
+
+	@Test
+	public void singletonChannelsCached() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		QueueChannel testChannel = new QueueChannel();
+		context.getBeanFactory().registerSingleton("testChannel", testChannel);
+		CachingChannelResolver resolver = new CachingChannelResolver(context);
+		assertSame(testChannel, resolver.resolveChannelName("testChannel"));
+		assertSame(testChannel, resolver.resolveChannelName("testChannel"));
+		assertEquals(1, resolver.getMissCount());
+		assertEquals(1, resolver.getHitCount());
+		assertEquals(1, resolver.getCacheSize());
+		resolver.clearCache();
+		assertEquals(0, resolver.getCacheSize());
+	}
+
+	@Test
+	public void scopedChannelsNotCached() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.getBeanFactory().registerScope("thread", new SimpleThreadScope());
+		RootBeanDefinition definition = new RootBeanDefinition(QueueChannel.class);
+		definition.setScope("thread");
+		context.registerBeanDefinition("threadChannel", definition);
+		RootBeanDefinition prototype = new RootBeanDefinition(QueueChannel.class);
+		prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		context.registerBeanDefinition("prototypeChannel", prototype);
+		context.refresh();
+		CachingChannelResolver resolver = new CachingChannelResolver(context);
+		assertSame(resolver.resolveChannelName("threadChannel"), resolver.resolveChannelName("threadChannel"));
+		assertNotSame(resolver.resolveChannelName("prototypeChannel"), resolver.resolveChannelName("prototypeChannel"));
+		assertEquals(0, resolver.getCacheSize());
+		assertEquals(0, resolver.getHitCount());
+	}
+
+	@Test
+	public void cacheBounded() {
+		final QueueChannel channel = new QueueChannel();
+		CachingChannelResolver resolver = new CachingChannelResolver(new ChannelResolver() {
+			public MessageChannel resolveChannelName(String channelName) {
+				return channel;
+			}
+		});
+		resolver.setMaxCacheSize(2);
+		for (int i = 0; i < 5; i++) {
+			resolver.resolveChannelName("channel" + i);
+		}
+		assertEquals(2, resolver.getCacheSize());
+		resolver.resolveChannelName("channel0");
+		resolver.resolveChannelName("channel4");
+		assertEquals(1, resolver.getHitCount());
+		assertEquals(6, resolver.getMissCount());
+	}
+
+	@Test
+	public void failuresNotCached() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		CachingChannelResolver resolver = new CachingChannelResolver(context);
+		try {
+			resolver.resolveChannelName("lateChannel");
+			fail("expected ChannelResolutionException");
+		}
+		catch (ChannelResolutionException e) {
+			// expected
+		}
+		QueueChannel lateChannel = new QueueChannel();
+		context.getBeanFactory().registerSingleton("lateChannel", lateChannel);
+		assertSame(lateChannel, resolver.resolveChannelName("lateChannel"));
+	}
+
+	@Test
+	public void routerResolvesChannelsLazily() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		RootBeanDefinition fooDefinition = new RootBeanDefinition(QueueChannel.class);
+		fooDefinition.setLazyInit(true);
+		context.registerBeanDefinition("fooChannel", fooDefinition);
+		QueueChannel barChannel = new QueueChannel();
+		context.getBeanFactory().registerSingleton("barChannel", barChannel);
+		HeaderValueRouter router = new HeaderValueRouter("type");
+		router.setChannelMappings(Collections.singletonMap("foo", "foo"));
+		router.setSuffix("Channel");
+		router.setBeanFactory(context);
+		router.afterPropertiesSet();
+		CachingChannelResolver resolver = TestUtils.getPropertyValue(router, "channelResolver",
+				CachingChannelResolver.class);
+		assertEquals(0, resolver.getCacheSize());
+		assertFalse(context.getBeanFactory().containsSingleton("fooChannel"));
+		for (String type : Arrays.asList("foo", "bar", "foo", "bar")) {
+			router.handleMessage(MessageBuilder.withPayload("test").setHeader("type", type).build());
+		}
+		QueueChannel fooChannel = context.getBeanFactory().getBean("fooChannel", QueueChannel.class);
+		assertEquals(2, fooChannel.getQueueSize());
+		assertEquals(2, barChannel.getQueueSize());
+		assertEquals(2, resolver.getMissCount());
+		assertEquals(2, resolver.getHitCount());
+		router.setChannelMapping("bar", "foo");
+		router.handleMessage(new GenericMessage<String>("test", Collections.<String, Object>singletonMap("type", "bar")));
+		assertEquals(3, fooChannel.getQueueSize());
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,7 +19,13 @@ package org.springframework.integration.core;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Properties;
 
 import org.junit.Test;
@@ -27,6 +33,7 @@ import org.junit.Test;
 import org.springframework.integration.Message;
 import org.springframework.integration.context.NamedComponent;
 import org.springframework.integration.history.MessageHistory;
+import org.springframework.integration.message.ErrorMessage;
 import org.springframework.integration.message.GenericMessage;
 import org.springframework.integration.support.MessageBuilder;
 
@@ -58,6 +65,60 @@ public class MessageHistoryTests {
 	}
 
 
+	@Test
+	public void entriesCreatedOnRead() {
+		Message<String> result1 = MessageHistory.write(new GenericMessage<String>("foo"), new TestComponent(1));
+		Message<String> result2 = MessageHistory.write(result1, new TestComponent(2));
+		assertEquals("foo", result2.getPayload());
+		MessageHistory history1 = MessageHistory.read(result1);
+		MessageHistory history2 = MessageHistory.read(result2);
+		assertEquals(1, history1.size());
+		assertEquals(2, history2.size());
+		Properties entry = history2.get(1);
+		assertEquals("testComponent-2", entry.getProperty(MessageHistory.NAME_PROPERTY));
+		assertEquals("type-2", entry.getProperty(MessageHistory.TYPE_PROPERTY));
+		assertNotNull(entry.getProperty(MessageHistory.TIMESTAMP_PROPERTY));
+		assertSame(history1.get(0), history2.get(0));
+	}
+
+	@Test
+	public void internalComponentsNotRecorded() {
+		Message<String> original = new GenericMessage<String>("foo");
+		Message<String> result = MessageHistory.write(original, new NamedComponent() {
+			public String getComponentName() {
+				return "org.springframework.integration.internal";
+			}
+			public String getComponentType() {
+				return "internal";
+			}
+		});
+		assertSame(original, result);
+	}
+
+	@Test
+	public void errorMessageType() {
+		Message<?> message = MessageHistory.write(new ErrorMessage(new RuntimeException("test")), new TestComponent(1));
+		assertTrue(message instanceof ErrorMessage);
+		assertEquals("testComponent-1", MessageHistory.read(message).toString());
+	}
+
+	@Test
+	public void serializeLongHistory() throws Exception {
+		Message<String> message = new GenericMessage<String>("foo");
+		for (int i = 0; i < 10000; i++) {
+			message = MessageHistory.write(message, new TestComponent(i));
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(MessageHistory.read(message));
+		out.close();
+		MessageHistory history = (MessageHistory) new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		assertEquals(10000, history.size());
+		assertEquals("testComponent-9999", history.get(9999).getProperty(MessageHistory.NAME_PROPERTY));
+		assertEquals(MessageHistory.read(message).toString(), history.toString());
+	}
+
 	private static class TestComponent implements NamedComponent {
 
 		private final int id;
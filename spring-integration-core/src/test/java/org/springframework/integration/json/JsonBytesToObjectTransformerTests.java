@@ -0,0 +1,79 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.json;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+/**
+ * @since 2.1.1
+ */
+public class JsonBytesToObjectTransformerTests {
+
+	private final JsonBytesToObjectTransformer<TestPerson> transformer =
+			new JsonBytesToObjectTransformer<TestPerson>(TestPerson.class);
+
+
+	@Test
+	public void byteArrayPayload() throws Exception {
+		byte[] json = "{\"firstName\":\"J\u00f6hn\",\"age\":42}".getBytes("UTF-8");
+		TestPerson person = this.transformer.transformPayload(json);
+		assertEquals("J\u00f6hn", person.getFirstName());
+		assertEquals(42, person.getAge());
+	}
+
+	@Test
+	public void inputStreamPayload() throws Exception {
+		InputStream json = new ByteArrayInputStream("{\"firstName\":\"John\",\"age\":42}".getBytes("UTF-8"));
+		assertEquals(42, this.transformer.transformPayload(json).getAge());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unsupportedPayload() throws Exception {
+		this.transformer.transformPayload(42);
+	}
+
+
+	@SuppressWarnings("unused")
+	private static class TestPerson {
+
+		private String firstName;
+
+		private int age;
+
+		public String getFirstName() {
+			return this.firstName;
+		}
+
+		public void setFirstName(String firstName) {
+			this.firstName = firstName;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+	}
+
+}
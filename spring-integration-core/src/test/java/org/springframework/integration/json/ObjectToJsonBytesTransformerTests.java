@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.json;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializationConfig;
+import org.junit.Test;
+
+/**
+ * @since 2.1.1
+ */
+public class ObjectToJsonBytesTransformerTests {
+
+	@Test
+	public void utf8Bytes() throws Exception {
+		ObjectToJsonBytesTransformer transformer = new ObjectToJsonBytesTransformer();
+		byte[] result = transformer.transformPayload(Collections.singletonMap("name", "J\u00f6hn"));
+		assertEquals("{\"name\":\"J\u00f6hn\"}", new String(result, "UTF-8"));
+	}
+
+	@Test
+	public void customMapper() throws Exception {
+		ObjectMapper customMapper = new ObjectMapper();
+		customMapper.configure(SerializationConfig.Feature.INDENT_OUTPUT, true);
+		ObjectToJsonBytesTransformer transformer = new ObjectToJsonBytesTransformer(customMapper);
+		byte[] result = transformer.transformPayload(Collections.singletonMap("name", "John"));
+		assertEquals(customMapper.writeValueAsString(Collections.singletonMap("name", "John")),
+				new String(result, "UTF-8"));
+	}
+
+}
@@ -50,6 +50,9 @@ public class ObjectToJsonTransformerParserTests {
 	@Autowired
 	private volatile MessageChannel customObjectMapperInput;
 
+	@Autowired
+	private volatile MessageChannel bytesResultInput;
+
 
 	@Test
 	public void defaultObjectMapper() {
@@ -80,6 +83,18 @@ public class ObjectToJsonTransformerParserTests {
 		assertTrue(addressResult.contains("\"street\":\"Main Street\""));
 	}
 
+	@Test
+	public void bytesResult() throws Exception {
+		TestPerson person = new TestPerson();
+		person.setFirstName("John");
+		QueueChannel replyChannel = new QueueChannel();
+		this.bytesResultInput.send(MessageBuilder.withPayload(person).setReplyChannel(replyChannel).build());
+		Message<?> reply = replyChannel.receive(0);
+		assertNotNull(reply);
+		assertEquals(byte[].class, reply.getPayload().getClass());
+		assertTrue(new String((byte[]) reply.getPayload(), "UTF-8").contains("\"firstName\":\"John\""));
+	}
+
 	@Test
 	public void customObjectMapper() {
 		TestAddress address = new TestAddress();
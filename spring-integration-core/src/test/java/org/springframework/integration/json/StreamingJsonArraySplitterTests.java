@@ -0,0 +1,181 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.integration.MessageHeaders;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.core.MessageHandler;
+import org.springframework.integration.message.GenericMessage;
+
+/**
+ * @since 2.1.1
+ */
+public class StreamingJsonArraySplitterTests {
+
+	private static final String ORDERS = "[{\"id\":1,\"items\":[\"a\",\"b\"]}, {\"id\":2}, null, 3, \"four\"]";
+
+	private final QueueChannel replyChannel = new QueueChannel();
+
+
+	@Before
+	public void purge() {
+		this.replyChannel.clear();
+	}
+
+
+	@Test
+	public void splitString() {
+		StreamingJsonArraySplitter splitter = this.createSplitter();
+		splitter.handleMessage(new GenericMessage<String>(ORDERS));
+		List<Message<?>> messages = this.replyChannel.clear();
+		assertEquals(5, messages.size());
+		assertEquals("{\"id\":1,\"items\":[\"a\",\"b\"]}", messages.get(0).getPayload());
+		assertEquals("{\"id\":2}", messages.get(1).getPayload());
+		assertEquals("null", messages.get(2).getPayload());
+		assertEquals("3", messages.get(3).getPayload());
+		assertEquals("\"four\"", messages.get(4).getPayload());
+		MessageHeaders headers = messages.get(4).getHeaders();
+		assertEquals(Integer.valueOf(5), headers.getSequenceNumber());
+		assertEquals(Integer.valueOf(0), headers.getSequenceSize());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void bindElements() {
+		StreamingJsonArraySplitter splitter = this.createSplitter();
+		splitter.setElementType(Map.class);
+		splitter.handleMessage(new GenericMessage<byte[]>("[{\"id\":1}, null, {\"id\":2}]".getBytes()));
+		List<Message<?>> messages = this.replyChannel.clear();
+		assertEquals(2, messages.size());
+		assertEquals(1, ((Map<String, Object>) messages.get(0).getPayload()).get("id"));
+		assertEquals(2, ((Map<String, Object>) messages.get(1).getPayload()).get("id"));
+	}
+
+	@Test
+	public void emptyArrayProducesNoMessages() {
+		this.createSplitter().handleMessage(new GenericMessage<String>(" [ ] "));
+		assertNull(this.replyChannel.receive(0));
+	}
+
+	@Test(expected = MessageHandlingException.class)
+	public void notAnArray() {
+		this.createSplitter().handleMessage(new GenericMessage<String>("{\"id\":1}"));
+	}
+
+	@Test
+	public void streamClosedAfterSplit() {
+		CloseTrackingInputStream stream = new CloseTrackingInputStream(ORDERS.getBytes());
+		this.createSplitter().handleMessage(new GenericMessage<InputStream>(stream));
+		assertEquals(5, this.replyChannel.clear().size());
+		assertTrue(stream.closed);
+	}
+
+	@Test
+	public void streamClosedOnTruncatedArray() {
+		CloseTrackingInputStream stream = new CloseTrackingInputStream("[1, 2, {\"id\":".getBytes());
+		try {
+			this.createSplitter().handleMessage(new GenericMessage<InputStream>(stream));
+			fail("Expected MessagingException");
+		}
+		catch (MessagingException e) {
+			// expected
+		}
+		assertTrue(stream.closed);
+	}
+
+	@Test
+	public void largeArray() {
+		final int count = 100000;
+		InputStream stream = new InputStream() {
+			private final byte[] element = "{\"id\":1,\"name\":\"element\"},".getBytes();
+			private int position = -1;
+			private int written;
+			public int read() throws IOException {
+				if (this.position < 0) {
+					this.position = 0;
+					return '[';
+				}
+				if (this.written == count) {
+					return (this.position++ == 0) ? ']' : -1;
+				}
+				int b = this.element[this.position++];
+				if (this.position == this.element.length) {
+					this.position = 0;
+					this.written++;
+					if (this.written == count) {
+						return ' ';
+					}
+				}
+				return b;
+			}
+		};
+		final AtomicInteger received = new AtomicInteger();
+		DirectChannel outputChannel = new DirectChannel();
+		outputChannel.subscribe(new MessageHandler() {
+			public void handleMessage(Message<?> message) {
+				received.incrementAndGet();
+			}
+		});
+		StreamingJsonArraySplitter splitter = new StreamingJsonArraySplitter();
+		splitter.setOutputChannel(outputChannel);
+		splitter.handleMessage(new GenericMessage<InputStream>(stream));
+		assertEquals(count, received.get());
+	}
+
+	private StreamingJsonArraySplitter createSplitter() {
+		StreamingJsonArraySplitter splitter = new StreamingJsonArraySplitter();
+		splitter.setOutputChannel(this.replyChannel);
+		return splitter;
+	}
+
+
+	private static class CloseTrackingInputStream extends ByteArrayInputStream {
+
+		private volatile boolean closed;
+
+		CloseTrackingInputStream(byte[] bytes) {
+			super(bytes);
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.closed = true;
+			super.close();
+		}
+	}
+
+}
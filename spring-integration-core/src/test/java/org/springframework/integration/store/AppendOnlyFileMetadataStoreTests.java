@@ -0,0 +1,166 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since 2.1.1
+ */
+public class AppendOnlyFileMetadataStoreTests {
+
+	private static final String BASE_DIRECTORY = "target/append-only-metadata-store";
+
+	private final File file = new File(BASE_DIRECTORY, "metadata-store.log");
+
+	private final File compactedFile = new File(BASE_DIRECTORY, "metadata-store.log.compacting");
+
+	private final File backupFile = new File(BASE_DIRECTORY, "metadata-store.log.backup");
+
+
+	@Before
+	@After
+	public void deleteLog() {
+		this.file.delete();
+		this.compactedFile.delete();
+		this.backupFile.delete();
+	}
+
+	@Test
+	public void entriesSurviveRestart() throws Exception {
+		AppendOnlyFileMetadataStore metadataStore = this.createStore();
+		metadataStore.put("foo", "bar");
+		metadataStore.put("foo", "baz");
+		metadataStore.put("été", "multi\nline");
+		metadataStore.destroy();
+		metadataStore = this.createStore();
+		assertEquals("baz", metadataStore.get("foo"));
+		assertEquals("multi\nline", metadataStore.get("été"));
+		assertNull(metadataStore.get("bar"));
+		metadataStore.destroy();
+	}
+
+	@Test
+	public void unchangedValueNotAppended() throws Exception {
+		AppendOnlyFileMetadataStore metadataStore = this.createStore();
+		metadataStore.put("foo", "bar");
+		long length = this.file.length();
+		metadataStore.put("foo", "bar");
+		assertEquals(length, this.file.length());
+		metadataStore.destroy();
+	}
+
+	@Test
+	public void logCompacted() throws Exception {
+		AppendOnlyFileMetadataStore metadataStore = this.createStore();
+		for (int i = 0; i < 5000; i++) {
+			metadataStore.put("key" + (i % 100), "value" + i);
+		}
+		// without compaction the log would hold 5000 records of up to 22 bytes
+		assertTrue(this.file.length() < 1000 * 22);
+		metadataStore.destroy();
+		metadataStore = this.createStore();
+		for (int i = 0; i < 100; i++) {
+			assertEquals("value" + (4900 + i), metadataStore.get("key" + i));
+		}
+		metadataStore.destroy();
+	}
+
+	@Test
+	public void incompleteRecordDiscarded() throws Exception {
+		AppendOnlyFileMetadataStore metadataStore = this.createStore();
+		metadataStore.put("foo", "bar");
+		metadataStore.destroy();
+		long length = this.file.length();
+		FileOutputStream out = new FileOutputStream(this.file, true);
+		out.write(new byte[] { 0, 0, 0, 3, 'b', 'a' });
+		out.close();
+		metadataStore = this.createStore();
+		assertEquals(length, this.file.length());
+		assertEquals("bar", metadataStore.get("foo"));
+		metadataStore.put("bar", "baz");
+		metadataStore.destroy();
+		metadataStore = this.createStore();
+		assertEquals("baz", metadataStore.get("bar"));
+		metadataStore.destroy();
+	}
+
+	@Test
+	public void logRecoveredFromCompactedFile() throws Exception {
+		AppendOnlyFileMetadataStore metadataStore = this.createStore();
+		metadataStore.put("foo", "bar");
+		metadataStore.destroy();
+		// crash after the live log was moved aside and deleted, before the rename
+		assertTrue(this.file.renameTo(this.compactedFile));
+		metadataStore = this.createStore();
+		assertEquals("bar", metadataStore.get("foo"));
+		assertTrue(this.file.exists());
+		assertFalse(this.compactedFile.exists());
+		metadataStore.destroy();
+	}
+
+	@Test
+	public void logRecoveredFromBackup() throws Exception {
+		AppendOnlyFileMetadataStore metadataStore = this.createStore();
+		metadataStore.put("foo", "bar");
+		metadataStore.destroy();
+		// crash after the live log was moved aside, while the compacted log was incomplete
+		assertTrue(this.file.renameTo(this.backupFile));
+		FileOutputStream out = new FileOutputStream(this.compactedFile);
+		out.write(new byte[] { 0, 0, 0, 3, 'f' });
+		out.close();
+		metadataStore = this.createStore();
+		assertEquals("bar", metadataStore.get("foo"));
+		assertFalse(this.backupFile.exists());
+		assertFalse(this.compactedFile.exists());
+		metadataStore.destroy();
+	}
+
+	@Test
+	public void leftoverCompactedFileIgnored() throws Exception {
+		AppendOnlyFileMetadataStore metadataStore = this.createStore();
+		metadataStore.put("foo", "bar");
+		metadataStore.destroy();
+		// crash while the compacted log was being written
+		FileOutputStream out = new FileOutputStream(this.compactedFile);
+		out.write(new byte[] { 0, 0, 0, 3, 'f', 'o', 'o', 0, 0, 0, 3, 'b', 'a', 'z' });
+		out.close();
+		metadataStore = this.createStore();
+		assertEquals("bar", metadataStore.get("foo"));
+		assertFalse(this.compactedFile.exists());
+		metadataStore.destroy();
+	}
+
+	private AppendOnlyFileMetadataStore createStore() throws Exception {
+		AppendOnlyFileMetadataStore metadataStore = new AppendOnlyFileMetadataStore();
+		metadataStore.setBaseDirectory(BASE_DIRECTORY);
+		metadataStore.afterPropertiesSet();
+		return metadataStore;
+	}
+
+}
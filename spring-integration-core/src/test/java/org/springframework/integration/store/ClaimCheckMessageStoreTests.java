@@ -0,0 +1,143 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.support.MessageBuilder;
+
+/**
+ * @since 2.1.1
+ */
+public class ClaimCheckMessageStoreTests {
+
+	private final ClaimCheckMessageStore store = new ClaimCheckMessageStore();
+
+
+	@After
+	public void destroy() {
+		this.store.destroy();
+	}
+
+	@Test
+	public void smallMessageKeptOnHeap() {
+		Message<String> message = MessageBuilder.withPayload("foo").build();
+		this.store.addMessage(message);
+		assertSame(message, this.store.getMessage(message.getHeaders().getId()));
+		assertEquals(0, this.store.getSegmentCount());
+	}
+
+	@Test
+	public void largeMessageStoredOffHeap() {
+		this.store.setSegmentSize(64 * 1024);
+		Message<byte[]> message = MessageBuilder.withPayload(new byte[10000]).setHeader("foo", "bar").build();
+		this.store.addMessage(message);
+		assertEquals(1, this.store.getSegmentCount());
+		Message<?> retrieved = this.store.getMessage(message.getHeaders().getId());
+		assertEquals(message.getHeaders(), retrieved.getHeaders());
+		assertArrayEquals(message.getPayload(), (byte[]) retrieved.getPayload());
+		assertEquals(message.getHeaders().getId(), this.store.removeMessage(message.getHeaders().getId()).getHeaders().getId());
+		assertNull(this.store.getMessage(message.getHeaders().getId()));
+		assertEquals(0, this.store.getMessageCount());
+	}
+
+	@Test
+	public void memoryMappedSegments() throws Exception {
+		File directory = File.createTempFile("claim-check", "");
+		directory.delete();
+		directory.mkdir();
+		directory.deleteOnExit();
+		this.store.setDirectory(directory);
+		this.store.setSegmentSize(64 * 1024);
+		this.store.setSpillThreshold(0);
+		Message<String> message = MessageBuilder.withPayload("foo").build();
+		this.store.addMessage(message);
+		assertEquals(1, directory.listFiles().length);
+		assertEquals(message, this.store.getMessage(message.getHeaders().getId()));
+		this.store.destroy();
+		assertEquals(0, directory.listFiles().length);
+	}
+
+	@Test
+	public void messageLargerThanSegment() {
+		this.store.setSegmentSize(1024);
+		this.store.setSpillThreshold(0);
+		Message<byte[]> message = MessageBuilder.withPayload(new byte[4096]).build();
+		this.store.addMessage(message);
+		assertEquals(4096, ((byte[]) this.store.getMessage(message.getHeaders().getId()).getPayload()).length);
+		this.store.removeMessage(message.getHeaders().getId());
+		assertEquals(0, this.store.getSegmentCount());
+	}
+
+	@Test
+	public void sparseSegmentsCompacted() {
+		this.store.setSegmentSize(16 * 1024);
+		this.store.setSpillThreshold(0);
+		List<Message<byte[]>> messages = new ArrayList<Message<byte[]>>();
+		for (int i = 0; i < 40; i++) {
+			Message<byte[]> message = MessageBuilder.withPayload(new byte[1000]).setHeader("index", i).build();
+			messages.add(message);
+			this.store.addMessage(message);
+		}
+		assertEquals(3, this.store.getSegmentCount());
+		List<Message<byte[]>> remaining = new ArrayList<Message<byte[]>>();
+		for (int i = 0; i < messages.size(); i++) {
+			if (i % 4 == 0) {
+				remaining.add(messages.get(i));
+			}
+			else {
+				this.store.removeMessage(messages.get(i).getHeaders().getId());
+			}
+		}
+		assertEquals(10, this.store.getMessageCount());
+		assertTrue(this.store.getSegmentCount() < 3);
+		for (Message<byte[]> message : remaining) {
+			Message<?> retrieved = this.store.getMessage(message.getHeaders().getId());
+			assertEquals(message.getHeaders(), retrieved.getHeaders());
+		}
+	}
+
+	@Test
+	public void expiredMessagesEvicted() throws Exception {
+		this.store.setTimeToLive(50);
+		this.store.setSpillThreshold(0);
+		this.store.setSegmentSize(1024);
+		Message<String> message = MessageBuilder.withPayload("foo").build();
+		this.store.addMessage(message);
+		this.store.addMessage(MessageBuilder.withPayload("bar").build());
+		assertEquals(message, this.store.getMessage(message.getHeaders().getId()));
+		Thread.sleep(100);
+		assertNull(this.store.getMessage(message.getHeaders().getId()));
+		assertEquals(1, this.store.expireMessages());
+		assertEquals(0, this.store.getMessageCount());
+		assertEquals(1, this.store.getSegmentCount());
+	}
+
+}
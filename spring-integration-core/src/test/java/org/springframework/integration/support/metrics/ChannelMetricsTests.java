@@ -0,0 +1,138 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.support.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.channel.interceptor.ChannelInterceptorAdapter;
+import org.springframework.integration.core.MessageHandler;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.integration.message.GenericMessage;
+
+/**
+ * @since 2.1.1
+ */
+public class ChannelMetricsTests {
+
+	@Test
+	public void sendsAndReceivesRecorded() {
+		QueueChannel channel = new QueueChannel(1);
+		ChannelMetrics metrics = new ChannelMetrics();
+		channel.setMetrics(metrics);
+		assertTrue(channel.send(new GenericMessage<String>("foo")));
+		assertFalse(channel.send(new GenericMessage<String>("bar"), 0));
+		assertNotNull(channel.receive(0));
+		assertNull(channel.receive(0));
+		assertEquals(2, metrics.getSendCount());
+		assertEquals(1, metrics.getSendErrorCount());
+		assertEquals(1, metrics.getReceiveCount());
+		assertEquals(0, metrics.getReceiveErrorCount());
+		assertEquals(1, metrics.getSendDuration().getCount());
+		assertTrue(metrics.getLastSendTime() > 0);
+		metrics.reset();
+		assertEquals(0, metrics.getSendCount());
+		assertEquals(0, metrics.getSendDuration().getCount());
+	}
+
+	@Test
+	public void failedAndInterceptedSendsCountedAsErrors() {
+		DirectChannel channel = new DirectChannel();
+		ChannelMetrics metrics = new ChannelMetrics();
+		channel.setMetrics(metrics);
+		try {
+			channel.send(new GenericMessage<String>("foo"));
+			fail("expected MessagingException");
+		}
+		catch (MessagingException e) {
+			// no subscribers
+		}
+		channel.addInterceptor(new ChannelInterceptorAdapter() {
+			@Override
+			public Message<?> preSend(Message<?> message, MessageChannel channel) {
+				return null;
+			}
+		});
+		assertFalse(channel.send(new GenericMessage<String>("bar")));
+		assertEquals(2, metrics.getSendCount());
+		assertEquals(2, metrics.getSendErrorCount());
+		assertEquals(0, metrics.getSendDuration().getCount());
+	}
+
+	@Test
+	public void sampledSendsAllCounted() {
+		DirectChannel channel = new DirectChannel();
+		channel.subscribe(new MessageHandler() {
+			public void handleMessage(Message<?> message) {
+			}
+		});
+		ChannelMetrics metrics = new ChannelMetrics();
+		metrics.setSampleInterval(10);
+		channel.setMetrics(metrics);
+		for (int i = 0; i < 100; i++) {
+			channel.send(new GenericMessage<Integer>(i));
+		}
+		assertEquals(100, metrics.getSendCount());
+		assertEquals(10, metrics.getSendDuration().getCount());
+	}
+
+	@Test
+	public void lastSendTimeUpdatedForUnsampledSends() {
+		ChannelMetrics metrics = new ChannelMetrics();
+		metrics.setSampleInterval(10);
+		metrics.afterSend(metrics.beforeSend(), true);
+		assertTrue(metrics.getLastSendTime() > 0);
+	}
+
+	@Test
+	public void handlerMetrics() {
+		AbstractMessageHandler handler = new AbstractMessageHandler() {
+			@Override
+			protected void handleMessageInternal(Message<?> message) throws Exception {
+				if ("fail".equals(message.getPayload())) {
+					throw new IllegalStateException("planned");
+				}
+			}
+		};
+		HandlerMetrics metrics = new HandlerMetrics();
+		handler.setMetrics(metrics);
+		handler.handleMessage(new GenericMessage<String>("foo"));
+		try {
+			handler.handleMessage(new GenericMessage<String>("fail"));
+			fail("expected MessagingException");
+		}
+		catch (MessagingException e) {
+			// expected
+		}
+		assertEquals(2, metrics.getHandleCount());
+		assertEquals(1, metrics.getErrorCount());
+		assertEquals(0, metrics.getActiveCount());
+		assertEquals(1, metrics.getDuration().getCount());
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.support.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @since 2.1.1
+ */
+public class LatencyHistogramTests {
+
+	@Test
+	public void emptyHistogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMin());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getMean(), 0);
+		assertEquals(0, histogram.getPercentile(99));
+	}
+
+	@Test
+	public void percentilesWithinBucketResolution() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long i = 1; i <= 100000; i++) {
+			histogram.record(i * 1000);
+		}
+		assertEquals(100000, histogram.getCount());
+		assertEquals(1000, histogram.getMin());
+		assertEquals(100000000, histogram.getMax());
+		assertEquals(50000500, histogram.getMean(), 1);
+		assertWithin(50000000, histogram.getPercentile(50));
+		assertWithin(99000000, histogram.getPercentile(99));
+		assertWithin(99900000, histogram.getPercentile(99.9));
+		assertEquals(100000000, histogram.getPercentile(100));
+		assertWithin(28867513, (long) histogram.getStandardDeviation());
+	}
+
+	@Test
+	public void smallAndOutOfRangeValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		histogram.record(3);
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(3, histogram.getCount());
+		assertEquals(0, histogram.getMin());
+		assertEquals(3, histogram.getPercentile(50));
+		assertTrue(histogram.getMax() > TimeUnit.SECONDS.toNanos(15 * 60));
+	}
+
+	@Test
+	public void merge() {
+		LatencyHistogram first = new LatencyHistogram();
+		LatencyHistogram second = new LatencyHistogram();
+		for (int i = 0; i < 99; i++) {
+			first.record(100);
+		}
+		second.record(1000000);
+		first.merge(second);
+		assertEquals(100, first.getCount());
+		assertEquals(100, first.getMin());
+		assertEquals(1000000, first.getMax());
+		assertWithin(100, first.getPercentile(99));
+		assertEquals(1000000, first.getPercentile(99.9));
+		first.reset();
+		assertEquals(0, first.getCount());
+		assertEquals(0, first.getMax());
+	}
+
+	@Test
+	public void concurrentRecording() throws Exception {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		final StripedCounter counter = new StripedCounter();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		final CountDownLatch latch = new CountDownLatch(8);
+		for (int t = 0; t < 8; t++) {
+			executor.execute(new Runnable() {
+				public void run() {
+					for (int i = 1; i <= 10000; i++) {
+						histogram.record(i);
+						counter.increment();
+					}
+					latch.countDown();
+				}
+			});
+		}
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		executor.shutdown();
+		assertEquals(80000, histogram.getCount());
+		assertEquals(80000, counter.get());
+		assertEquals(1, histogram.getMin());
+		assertEquals(10000, histogram.getMax());
+		assertEquals(5000.5, histogram.getMean(), 0.001);
+		counter.reset();
+		assertEquals(0, counter.get());
+	}
+
+	private static void assertWithin(long expected, long actual) {
+		assertTrue("expected " + actual + " within 7% of " + expected, Math.abs(actual - expected) <= expected * 0.07);
+	}
+
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.support.serializer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.Date;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.springframework.core.serializer.DefaultDeserializer;
+import org.springframework.core.serializer.DefaultSerializer;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHeaders;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.history.MessageHistory;
+import org.springframework.integration.message.ErrorMessage;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.StopWatch;
+
+/**
+ * @since 2.1.1
+ */
+public class MessageCodecTests {
+
+	private final MessageCodec codec = new MessageCodec();
+
+
+	@Test
+	public void messageRoundTrip() throws Exception {
+		Message<String> message = MessageBuilder.withPayload("foo")
+				.setCorrelationId(UUID.randomUUID())
+				.setSequenceNumber(3)
+				.setSequenceSize(-5)
+				.setExpirationDate(12345L)
+				.setReplyChannelName("replies")
+				.setHeader("flag", true)
+				.setHeader("ratio", 0.5d)
+				.setHeader("date", new Date(42))
+				.setHeader("nothing", null)
+				.build();
+		Message<?> result = (Message<?>) codec.decode(codec.encode(message));
+		assertEquals(message, result);
+		assertEquals(message.getHeaders().getId(), result.getHeaders().getId());
+		assertEquals(message.getHeaders().getTimestamp(), result.getHeaders().getTimestamp());
+		assertEquals(Integer.valueOf(-5), result.getHeaders().getSequenceSize());
+	}
+
+	@Test
+	public void bytesAndMessageHistoryRoundTrip() throws Exception {
+		QueueChannel channel = new QueueChannel();
+		channel.setBeanName("foo");
+		Message<?> message = MessageHistory.write(MessageBuilder.withPayload(new byte[] { 1, 2, 3 }).build(), channel);
+		Message<?> result = (Message<?>) codec.decode(codec.encode(message));
+		assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) result.getPayload());
+		assertEquals(1, MessageHistory.read(result).size());
+		assertEquals("foo", MessageHistory.read(result).get(0).get("name"));
+	}
+
+	@Test
+	public void errorMessageRoundTrip() throws Exception {
+		Message<?> message = new ErrorMessage(new IllegalStateException("bad"));
+		Message<?> result = (Message<?>) codec.decode(codec.encode(message));
+		assertTrue(result instanceof ErrorMessage);
+		assertEquals("bad", ((ErrorMessage) result).getPayload().getMessage());
+		assertEquals(message.getHeaders().getId(), result.getHeaders().getId());
+	}
+
+	@Test
+	public void nonSerializableHeaderIsDropped() throws Exception {
+		Message<?> message = MessageBuilder.withPayload(1L).setReplyChannel(new QueueChannel()).build();
+		Message<?> result = (Message<?>) codec.decode(codec.encode(message));
+		assertFalse(result.getHeaders().containsKey(MessageHeaders.REPLY_CHANNEL));
+		assertEquals(1L, result.getPayload());
+	}
+
+	@Test
+	public void registeredType() throws Exception {
+		codec.registerType(7, Point.class, new PointSerializer(), new PointDeserializer());
+		Message<?> message = MessageBuilder.withPayload(new Point(3, 4)).setHeader("origin", new Point(0, 0)).build();
+		byte[] bytes = codec.encode(message);
+		Message<?> result = (Message<?>) codec.decode(bytes);
+		assertEquals(new Point(3, 4), result.getPayload());
+		assertEquals(new Point(0, 0), result.getHeaders().get("origin"));
+		try {
+			new MessageCodec().decode(bytes);
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage().contains("No type registered for id 7"));
+			return;
+		}
+		throw new AssertionError("expected IOException");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void duplicateTypeId() {
+		codec.registerType(1, Point.class, new PointSerializer(), new PointDeserializer());
+		codec.registerType(1, Object.class, new DefaultSerializer(), new DefaultDeserializer());
+	}
+
+	@Test
+	public void valuesOnStream() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MessageCodecSerializer serializer = new MessageCodecSerializer(codec);
+		Message<String> message = MessageBuilder.withPayload("bar").build();
+		serializer.serialize(message, out);
+		serializer.serialize("baz", out);
+		serializer.serialize(null, out);
+		serializer.serialize(Integer.MIN_VALUE, out);
+		MessageCodecDeserializer deserializer = new MessageCodecDeserializer(codec);
+		InputStream in = new ByteArrayInputStream(out.toByteArray());
+		assertEquals(message, deserializer.deserialize(in));
+		assertEquals("baz", deserializer.deserialize(in));
+		assertNull(deserializer.deserialize(in));
+		assertEquals(Integer.MIN_VALUE, deserializer.deserialize(in));
+		try {
+			deserializer.deserialize(in);
+		}
+		catch (EOFException e) {
+			return;
+		}
+		throw new AssertionError("expected EOFException");
+	}
+
+	@Test
+	public void largeByteArrayRoundTrip() throws Exception {
+		byte[] payload = new byte[200000];
+		new Random(42).nextBytes(payload);
+		Message<?> result = (Message<?>) codec.decode(codec.encode(MessageBuilder.withPayload(payload).build()));
+		assertArrayEquals(payload, (byte[]) result.getPayload());
+	}
+
+	@Test(expected = EOFException.class)
+	public void lengthBeyondInputIsRejected() throws Exception {
+		// version, BYTES, a length of Integer.MAX_VALUE and only three bytes of data
+		codec.decode(new byte[] { 1, 2, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 1, 2, 3 });
+	}
+
+	@Test(expected = StreamCorruptedException.class)
+	public void negativeLengthIsRejected() throws Exception {
+		codec.decode(new byte[] { 1, 2, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F });
+	}
+
+	@Test
+	public void readsJavaSerializedMessages() throws Exception {
+		Message<String> message = MessageBuilder.withPayload("foo").setHeader("bar", "baz").build();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new DefaultSerializer().serialize(message, out);
+		assertEquals(message, new MessageCodecDeserializer().deserialize(new ByteArrayInputStream(out.toByteArray())));
+	}
+
+	@Test
+	public void smallerThanJavaSerialization() throws Exception {
+		Message<String> message = MessageBuilder.withPayload("foo").setCorrelationId(UUID.randomUUID())
+				.setSequenceNumber(1).setSequenceSize(2).setHeader("bar", "baz").build();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new DefaultSerializer().serialize(message, out);
+		int codecSize = codec.encode(message).length;
+		assertTrue("codec: " + codecSize + ", java: " + out.size(), codecSize * 5 < out.size());
+	}
+
+	@Test
+	@Ignore
+	public void performanceTest() throws Exception {
+		int times = 100000;
+		Message<String> message = MessageBuilder.withPayload("foo").setCorrelationId(UUID.randomUUID())
+				.setSequenceNumber(1).setSequenceSize(2).setHeader("bar", "baz").build();
+		DefaultSerializer javaSerializer = new DefaultSerializer();
+		DefaultDeserializer javaDeserializer = new DefaultDeserializer();
+		MessageCodecSerializer codecSerializer = new MessageCodecSerializer(codec);
+		MessageCodecDeserializer codecDeserializer = new MessageCodecDeserializer(codec);
+		for (int i = 0; i < 2; i++) {
+			System.out.println("java:  " + this.roundTrips(message, javaSerializer, javaDeserializer, times));
+			System.out.println("codec: " + this.roundTrips(message, codecSerializer, codecDeserializer, times));
+		}
+	}
+
+	private String roundTrips(Message<?> message, Serializer<Object> serializer, Deserializer<Object> deserializer,
+			int times) throws IOException {
+		StopWatch watch = new StopWatch();
+		watch.start();
+		int size = 0;
+		for (int i = 0; i < times; i++) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			serializer.serialize(message, out);
+			size = out.size();
+			deserializer.deserialize(new ByteArrayInputStream(out.toByteArray()));
+		}
+		watch.stop();
+		return size + " bytes, " + times + " round trips in " + watch.getTotalTimeMillis() + "ms";
+	}
+
+
+	@SuppressWarnings("serial")
+	private static class Point implements Serializable {
+
+		private final int x;
+
+		private final int y;
+
+		Point(int x, int y) {
+			this.x = x;
+			this.y = y;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Point && ((Point) obj).x == this.x && ((Point) obj).y == this.y;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.x * 31 + this.y;
+		}
+	}
+
+	private static class PointSerializer implements Serializer<Point> {
+
+		public void serialize(Point point, OutputStream outputStream) throws IOException {
+			outputStream.write(point.x);
+			outputStream.write(point.y);
+		}
+	}
+
+	private static class PointDeserializer implements Deserializer<Point> {
+
+		public Point deserialize(InputStream inputStream) throws IOException {
+			return new Point(inputStream.read(), inputStream.read());
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,6 +23,7 @@ import java.util.UUID;
 import org.junit.Test;
 
 import org.springframework.integration.Message;
+import org.springframework.integration.store.ClaimCheckMessageStore;
 import org.springframework.integration.store.MessageStore;
 import org.springframework.integration.store.SimpleMessageStore;
 import org.springframework.integration.support.MessageBuilder;
@@ -54,6 +55,20 @@ public class ClaimCheckTransformerTests {
 		assertEquals("test", output.getPayload());
 	}
 
+	@Test
+	public void roundTripOffHeap() {
+		ClaimCheckMessageStore store = new ClaimCheckMessageStore();
+		store.setSegmentSize(1024);
+		store.setSpillThreshold(0);
+		ClaimCheckInTransformer in = new ClaimCheckInTransformer(store);
+		ClaimCheckOutTransformer out = new ClaimCheckOutTransformer(store);
+		out.setRemoveMessage(true);
+		Message<?> output = out.transform(in.transform(MessageBuilder.withPayload("test").build()));
+		assertEquals("test", output.getPayload());
+		assertEquals(0, store.getMessageCount());
+		store.destroy();
+	}
+
 	@Test(expected = MessageTransformationException.class)
 	public void unknown() {
 		MessageStore store = new SimpleMessageStore(10);
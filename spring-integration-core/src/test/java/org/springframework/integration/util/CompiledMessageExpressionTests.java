@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.AccessException;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.integration.handler.ExpressionEvaluatingMessageProcessor;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.StopWatch;
+
+/**
+ * @since 2.1.1
+ */
+public class CompiledMessageExpressionTests {
+
+	private final SpelExpressionParser parser = new SpelExpressionParser();
+
+	private final StandardEvaluationContext context = new StandardEvaluationContext();
+
+	{
+		this.context.addPropertyAccessor(new MapAccessor());
+	}
+
+
+	@Test
+	public void supportedShapes() {
+		String[] expressions = { "payload", "headers", "headers['type']", "headers[\"type\"]", "headers.type",
+				"payload.customer.name", "payload.amount > 100", "payload.amount<=-5", "headers['type'] == 'order'",
+				"headers.flag == true", "payload.customer != null", "payload.amount == 5L", " payload.customer " };
+		for (String expression : expressions) {
+			assertNotNull(expression, CompiledMessageExpression.compile(expression));
+		}
+	}
+
+	@Test
+	public void unsupportedShapes() {
+		String[] expressions = { "payload.toUpperCase()", "headers.type == 'a' and payload.amount > 1", "#root",
+				"@bean", "payload[0]", "payload.customer?.name", "payload.amount > 1.5", "foo.bar", "payload.",
+				"headers['type'", "headers['type']]", "payload == 'a", "payload > 'a' + 'b'", "headers[type]",
+				"payload.amount > 99999999999", "payload == -", "T(java.lang.Math).PI", "payload + 1" };
+		for (String expression : expressions) {
+			assertNull(expression, CompiledMessageExpression.compile(expression));
+		}
+	}
+
+	@Test
+	public void matchesSpel() {
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("empty", "notEmpty");
+		map.put("nullValue", null);
+		Message<?> message = MessageBuilder.withPayload(new Order(new Customer("Fred", true), 150))
+				.setHeader("type", "order").setHeader("count", 3).setHeader("big", 3L).setHeader("flag", true)
+				.setHeader("map", map).build();
+		String[] expressions = { "payload", "headers", "headers['type']", "headers.type", "headers[\"type\"]",
+				"headers['missing']", "payload.customer.name", "payload.customer.vip", "payload.customer.nickname",
+				"payload.amount", "payload.amount > 100", "payload.amount < 100", "payload.amount >= 150",
+				"payload.amount <= 149", "payload.amount == 150", "payload.amount != 150L", "headers.count == 3",
+				"headers.big == 3", "headers.big > 2L", "headers['type'] == 'order'", "headers['type'] != \"order\"",
+				"headers['type'] == 'it''s'", "headers.flag == true", "headers.flag != false",
+				"payload.customer != null", "payload.customer.nickname == null", "headers['missing'] == 'x'",
+				"headers['missing'] != null", "headers.map.empty", "headers.map.nullValue", "headers.map['empty']",
+				"headers.timestamp", "payload.customer.name.bytes.length" };
+		for (String expression : expressions) {
+			CompiledMessageExpression compiled = CompiledMessageExpression.compile(expression);
+			assertNotNull(expression, compiled);
+			Object expected = this.parser.parseExpression(expression).getValue(this.context, message);
+			Object actual = compiled.getValue(message);
+			if (actual != CompiledMessageExpression.UNSUPPORTED) {
+				assertEquals(expression, expected, actual);
+			}
+		}
+	}
+
+	@Test
+	public void fallsBackWhenResultMightDiffer() {
+		Message<?> message = MessageBuilder.withPayload(new Order(null, 150)).setHeader("type", "order")
+				.setHeader("amount", 1.5d).build();
+		assertUnsupported("payload.customer.name", message);
+		assertUnsupported("payload.missing", message);
+		assertUnsupported("payload.failing", message);
+		assertUnsupported("headers.amount > 1", message);
+		assertUnsupported("headers.type == 1", message);
+		assertUnsupported("headers['type'] < 1", message);
+		assertUnsupported("headers['type'] == true", message);
+		assertUnsupported("payload.customer < 1", message);
+		assertUnsupported("payload.amount['x']", message);
+		assertUnsupported("payload.class.name", message);
+	}
+
+	@Test
+	public void evaluatorUsesFastPathAndKeepsSpelErrors() {
+		Message<?> message = MessageBuilder.withPayload(new Order(new Customer("Fred", false), 150))
+				.setHeader("type", "order").build();
+		assertEquals("order", new ExpressionEvaluatingMessageProcessor<Object>(
+				this.parser.parseExpression("headers['type']")).processMessage(message));
+		assertEquals(Boolean.TRUE, new ExpressionEvaluatingMessageProcessor<Object>(
+				this.parser.parseExpression("payload.amount > 100")).processMessage(message));
+		assertEquals("150", new ExpressionEvaluatingMessageProcessor<String>(
+				this.parser.parseExpression("payload.amount"), String.class).processMessage(message));
+		try {
+			new ExpressionEvaluatingMessageProcessor<Object>(this.parser.parseExpression("payload.failing"))
+					.processMessage(message);
+			fail("expected MessageHandlingException");
+		}
+		catch (MessageHandlingException e) {
+			assertSame(message, e.getFailedMessage());
+			assertTrue(e.getCause() instanceof AccessException);
+		}
+		try {
+			new ExpressionEvaluatingMessageProcessor<Object>(this.parser.parseExpression("payload.missing"))
+					.processMessage(message);
+			fail("expected MessageHandlingException");
+		}
+		catch (MessageHandlingException e) {
+			assertSame(message, e.getFailedMessage());
+		}
+	}
+
+	@Test
+	@Ignore
+	public void performance() {
+		Message<?> message = MessageBuilder.withPayload(new Order(new Customer("Fred", true), 150))
+				.setHeader("type", "order").build();
+		String[] expressions = { "headers['type']", "payload.customer.name", "payload.amount > 100" };
+		int count = 1000000;
+		for (String expressionString : expressions) {
+			Expression expression = this.parser.parseExpression(expressionString);
+			CompiledMessageExpression compiled = CompiledMessageExpression.compile(expressionString);
+			StopWatch watch = new StopWatch(expressionString);
+			watch.start("spel");
+			for (int i = 0; i < count; i++) {
+				expression.getValue(this.context, message);
+			}
+			watch.stop();
+			watch.start("compiled");
+			for (int i = 0; i < count; i++) {
+				compiled.getValue(message);
+			}
+			watch.stop();
+			System.out.println(watch.prettyPrint());
+		}
+	}
+
+
+	private static void assertUnsupported(String expression, Message<?> message) {
+		assertSame(expression, CompiledMessageExpression.UNSUPPORTED,
+				CompiledMessageExpression.compile(expression).getValue(message));
+	}
+
+
+	public static class Order {
+
+		private final Customer customer;
+
+		private final int amount;
+
+		public Order(Customer customer, int amount) {
+			this.customer = customer;
+			this.amount = amount;
+		}
+
+		public Customer getCustomer() {
+			return this.customer;
+		}
+
+		public int getAmount() {
+			return this.amount;
+		}
+
+		public String getFailing() {
+			throw new IllegalStateException("failing");
+		}
+	}
+
+
+	public static class Customer {
+
+		public final String name;
+
+		private final boolean vip;
+
+		public String nickname;
+
+		public Customer(String name, boolean vip) {
+			this.name = name;
+			this.vip = vip;
+		}
+
+		public boolean isVip() {
+			return this.vip;
+		}
+	}
+
+}
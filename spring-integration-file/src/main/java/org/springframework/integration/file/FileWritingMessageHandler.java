@@ -18,6 +18,7 @@ package org.springframework.integration.file;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageHandlingException;
 import org.springframework.integration.core.MessageHandler;
@@ -27,10 +28,17 @@ import org.springframework.util.Assert;
 import org.springframework.util.FileCopyUtils;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A {@link MessageHandler} implementation that writes the Message payload to a
@@ -49,13 +57,19 @@ import java.nio.charset.Charset;
  * Likewise, any Object can be converted to a String based on its
  * <code>toString()</code> method by the
  * {@link org.springframework.integration.transformer.ObjectToStringTransformer}.
+ * <p>
+ * If the 'append' flag is set to true, the payload is appended to the
+ * destination file instead of being written to a temporary file which is then
+ * renamed. In that case, the channels of the most recently written files are
+ * kept open (up to 'maxOpenFiles') so that high rate writes to the same files
+ * do not reopen a file per message. See {@link #setAppend(boolean)}.
  * 
  * @author Mark Fisher
  * @author Iwein Fuld
  * @author Alex Peters
  * @author Oleg Zhurakousky
  */
-public class FileWritingMessageHandler extends AbstractReplyProducingMessageHandler {
+public class FileWritingMessageHandler extends AbstractReplyProducingMessageHandler implements DisposableBean {
 
 	private volatile String temporaryFileSuffix =".writing";
 
@@ -71,6 +85,14 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 
 	private volatile Charset charset = Charset.defaultCharset();
 
+	private volatile boolean append;
+
+	private volatile int maxOpenFiles = 16;
+
+	private volatile int forceInterval;
+
+	private final Map<File, AppendingFile> openFiles = new LinkedHashMap<File, AppendingFile>(16, 0.75f, true);
+
 
 	public FileWritingMessageHandler(File destinationDirectory) {
 		Assert.notNull(destinationDirectory, "Destination directory must not be null.");
@@ -127,6 +149,38 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 		this.charset = Charset.forName(charset);
 	}
 
+	/**
+	 * Specify whether to append the payload to the destination file rather than
+	 * replacing it. When <em>true</em>, the temporary file suffix is not used and
+	 * the channel of the destination file is kept open for subsequent writes; the
+	 * least recently written file is closed once more than 'maxOpenFiles' files
+	 * are open. The default is <em>false</em>.
+	 */
+	public void setAppend(boolean append) {
+		this.append = append;
+	}
+
+	/**
+	 * Specify the maximum number of destination files whose channels are kept
+	 * open when in 'append' mode. The default is 16.
+	 */
+	public void setMaxOpenFiles(int maxOpenFiles) {
+		Assert.isTrue(maxOpenFiles > 0, "'maxOpenFiles' must be greater than 0");
+		this.maxOpenFiles = maxOpenFiles;
+	}
+
+	/**
+	 * Specify how often written content is forced to the storage device (fsync).
+	 * When in 'append' mode, the file is forced after every 'forceInterval' writes
+	 * to it; otherwise, any positive value causes each file to be forced before it
+	 * is renamed. The default is 0, which leaves it to the operating system (and,
+	 * in 'append' mode, to the closing of the file).
+	 */
+	public void setForceInterval(int forceInterval) {
+		Assert.isTrue(forceInterval >= 0, "'forceInterval' must not be negative");
+		this.forceInterval = forceInterval;
+	}
+
 	@Override
 	public final void onInit() {
 		if (!this.destinationDirectory.exists() && this.autoCreateDirectory) {
@@ -150,7 +204,10 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 		File tempFile = new File(this.destinationDirectory, generatedFileName + temporaryFileSuffix);
 		File resultFile = new File(this.destinationDirectory, generatedFileName);
 		try {
-			if (payload instanceof File) {
+			if (this.append) {
+				resultFile = this.handleAppendMessage(payload, originalFileFromHeader, resultFile);
+			}
+			else if (payload instanceof File) {
 				resultFile = this.handleFileMessage((File) payload, tempFile, resultFile);
 			}
 			else if (payload instanceof byte[]) {
@@ -204,7 +261,17 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 						sourceFile.getAbsolutePath()));
 			}
 		}
-		FileCopyUtils.copy(sourceFile, tempFile);
+		FileOutputStream outputStream = new FileOutputStream(tempFile);
+		try {
+			FileChannel channel = outputStream.getChannel();
+			this.transferFrom(sourceFile, channel);
+			if (this.forceInterval > 0) {
+				channel.force(false);
+			}
+		}
+		finally {
+			outputStream.close();
+		}
 		this.renameTo(tempFile, resultFile);
 		if (this.deleteSourceFiles) {
 			sourceFile.delete();
@@ -213,7 +280,19 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 	}
 
 	private File handleByteArrayMessage(byte[] bytes, File originalFile, File tempFile, File resultFile) throws IOException {
-		FileCopyUtils.copy(bytes, tempFile);
+		if (this.forceInterval > 0) {
+			FileOutputStream outputStream = new FileOutputStream(tempFile);
+			try {
+				this.write(ByteBuffer.wrap(bytes), outputStream.getChannel());
+				outputStream.getChannel().force(false);
+			}
+			finally {
+				outputStream.close();
+			}
+		}
+		else {
+			FileCopyUtils.copy(bytes, tempFile);
+		}
 		this.renameTo(tempFile, resultFile);
 		if (this.deleteSourceFiles && originalFile != null) {
 			originalFile.delete();
@@ -222,6 +301,9 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 	}
 
 	private File handleStringMessage(String content, File originalFile, File tempFile, File resultFile) throws IOException {
+		if (this.forceInterval > 0) {
+			return this.handleByteArrayMessage(content.getBytes(this.charset.name()), originalFile, tempFile, resultFile);
+		}
 		OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tempFile), this.charset);
 		FileCopyUtils.copy(content, writer);
 		this.renameTo(tempFile, resultFile);
@@ -231,6 +313,136 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 		return resultFile;
 	}
 	
+	private File handleAppendMessage(Object payload, File originalFile, File resultFile) throws IOException {
+		File sourceFile = null;
+		ByteBuffer buffer = null;
+		if (payload instanceof File) {
+			sourceFile = (File) payload;
+		}
+		else if (payload instanceof byte[]) {
+			buffer = ByteBuffer.wrap((byte[]) payload);
+		}
+		else if (payload instanceof String) {
+			buffer = this.charset.encode((String) payload);
+		}
+		else {
+			throw new IllegalArgumentException(
+					"unsupported Message payload type [" + payload.getClass().getName() + "]");
+		}
+		while (true) {
+			AppendingFile appendingFile = this.obtainAppendingFile(resultFile);
+			synchronized (appendingFile) {
+				if (appendingFile.closed) {
+					// evicted by another thread before we could write to it
+					continue;
+				}
+				if (sourceFile != null) {
+					this.transferFrom(sourceFile, appendingFile.channel);
+				}
+				else {
+					this.write(buffer, appendingFile.channel);
+				}
+				if (this.forceInterval > 0 && ++appendingFile.writesSinceForce >= this.forceInterval) {
+					appendingFile.channel.force(false);
+					appendingFile.writesSinceForce = 0;
+				}
+			}
+			break;
+		}
+		File fileToDelete = (sourceFile != null) ? sourceFile : originalFile;
+		if (this.deleteSourceFiles && fileToDelete != null) {
+			fileToDelete.delete();
+		}
+		return resultFile;
+	}
+
+	private AppendingFile obtainAppendingFile(File file) throws IOException {
+		List<AppendingFile> evicted = null;
+		AppendingFile appendingFile;
+		synchronized (this.openFiles) {
+			appendingFile = this.openFiles.get(file);
+			if (appendingFile == null) {
+				appendingFile = new AppendingFile(new FileOutputStream(file, true).getChannel());
+				this.openFiles.put(file, appendingFile);
+				while (this.openFiles.size() > this.maxOpenFiles) {
+					File eldest = this.openFiles.keySet().iterator().next();
+					if (evicted == null) {
+						evicted = new ArrayList<AppendingFile>();
+					}
+					evicted.add(this.openFiles.remove(eldest));
+				}
+			}
+		}
+		if (evicted != null) {
+			for (AppendingFile eldest : evicted) {
+				this.close(eldest);
+			}
+		}
+		return appendingFile;
+	}
+
+	/**
+	 * Closes the channels of all files that are kept open in 'append' mode,
+	 * forcing their content to the storage device first.
+	 */
+	public void closeOpenFiles() {
+		List<AppendingFile> toClose;
+		synchronized (this.openFiles) {
+			toClose = new ArrayList<AppendingFile>(this.openFiles.values());
+			this.openFiles.clear();
+		}
+		for (AppendingFile appendingFile : toClose) {
+			this.close(appendingFile);
+		}
+	}
+
+	public void destroy() {
+		this.closeOpenFiles();
+	}
+
+	private void close(AppendingFile appendingFile) {
+		synchronized (appendingFile) {
+			appendingFile.closed = true;
+			try {
+				if (this.forceInterval > 0 && appendingFile.writesSinceForce > 0) {
+					appendingFile.channel.force(false);
+				}
+				appendingFile.channel.close();
+			}
+			catch (IOException e) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("Failed to close file channel", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the source file to the target channel using
+	 * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+	 * which avoids copying the content through the Java heap.
+	 */
+	private void transferFrom(File sourceFile, FileChannel target) throws IOException {
+		FileInputStream inputStream = new FileInputStream(sourceFile);
+		try {
+			FileChannel source = inputStream.getChannel();
+			long size = source.size();
+			long position = 0;
+			while (position < size) {
+				position += source.transferTo(position, size - position, target);
+			}
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	private void write(ByteBuffer buffer, FileChannel channel) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
 	private void renameTo(File tempFile, File resultFile) throws IOException{
 		Assert.notNull(resultFile, "'resultFile' must not be null");
 		Assert.notNull(tempFile, "'tempFile' must not be null");
@@ -253,4 +465,19 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 		}
 	}
 
+
+
+	private static class AppendingFile {
+
+		private final FileChannel channel;
+
+		private int writesSinceForce;
+
+		private boolean closed;
+
+		AppendingFile(FileChannel channel) {
+			this.channel = channel;
+		}
+	}
+
 }
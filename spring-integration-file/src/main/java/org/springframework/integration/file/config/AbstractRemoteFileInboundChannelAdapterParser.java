@@ -54,6 +54,8 @@ public abstract class AbstractRemoteFileInboundChannelAdapterParser extends Abst
 		String remoteFileSeparator = element.getAttribute("remote-file-separator");
 		synchronizerBuilder.addPropertyValue("remoteFileSeparator", remoteFileSeparator);
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(synchronizerBuilder, element, "temporary-file-suffix");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(synchronizerBuilder, element, "concurrency");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(synchronizerBuilder, element, "max-attempts");
 		this.configureFilter(synchronizerBuilder, element, parserContext);
 
 		// build the MessageSource
@@ -65,6 +67,7 @@ public abstract class AbstractRemoteFileInboundChannelAdapterParser extends Abst
 		}
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(messageSourceBuilder, element, "local-directory");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(messageSourceBuilder, element, "auto-create-local-directory");
+		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(messageSourceBuilder, element, "task-executor");
 		String localFileGeneratorExpression = element.getAttribute("local-filename-generator-expression");
 		if (StringUtils.hasText(localFileGeneratorExpression)) {
 			BeanDefinitionBuilder localFileGeneratorExpressionBuilder = BeanDefinitionBuilder.genericBeanDefinition(ExpressionFactoryBean.class);
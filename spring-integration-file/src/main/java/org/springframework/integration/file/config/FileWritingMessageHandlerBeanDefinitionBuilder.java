@@ -52,6 +52,9 @@ abstract class FileWritingMessageHandlerBeanDefinitionBuilder {
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "delete-source-files");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "temporary-file-suffix");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "charset");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "append");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "max-open-files");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "force-interval");
 		String fileNameGenerator = element.getAttribute("filename-generator");
 		if (StringUtils.hasText(fileNameGenerator)) {
 			builder.addPropertyReference("fileNameGenerator", fileNameGenerator);
@@ -45,6 +45,12 @@ public class FileWritingMessageHandlerFactoryBean extends AbstractSimpleMessageH
 	private volatile Long sendTimeout;
 	
 	private volatile String temporaryFileSuffix;
+
+	private volatile Boolean append;
+
+	private volatile Integer maxOpenFiles;
+
+	private volatile Integer forceInterval;
 	
 	public void setDirectory(File directory) {
 		this.directory = directory;
@@ -77,6 +83,18 @@ public class FileWritingMessageHandlerFactoryBean extends AbstractSimpleMessageH
 	public void setTemporaryFileSuffix(String temporaryFileSuffix) {
 		this.temporaryFileSuffix = temporaryFileSuffix;
 	}
+
+	public void setAppend(Boolean append) {
+		this.append = append;
+	}
+
+	public void setMaxOpenFiles(Integer maxOpenFiles) {
+		this.maxOpenFiles = maxOpenFiles;
+	}
+
+	public void setForceInterval(Integer forceInterval) {
+		this.forceInterval = forceInterval;
+	}
 	
 	@Override
 	protected FileWritingMessageHandler createHandler() {
@@ -99,6 +117,15 @@ public class FileWritingMessageHandlerFactoryBean extends AbstractSimpleMessageH
 		if (this.sendTimeout != null) {
 			handler.setSendTimeout(this.sendTimeout);
 		}
+		if (this.append != null) {
+			handler.setAppend(this.append);
+		}
+		if (this.maxOpenFiles != null) {
+			handler.setMaxOpenFiles(this.maxOpenFiles);
+		}
+		if (this.forceInterval != null) {
+			handler.setForceInterval(this.forceInterval);
+		}
 		handler.setTemporaryFileSuffix(this.temporaryFileSuffix);
 		return handler;
 	}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.filters;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.integration.store.MetadataStore;
+import org.springframework.util.Assert;
+
+/**
+ * Base class for {@link FileListFilter}s that pass each file only once, keeping
+ * track of the files that have already been seen in a {@link MetadataStore}. The
+ * key is the configured prefix followed by the file's path and the value is the
+ * file's last modified time, so a file is passed again when it has been modified
+ * since it was last accepted.
+ * <p/>
+ * When the store is backed by a persistent medium (such as the
+ * {@link org.springframework.integration.store.PropertiesPersistingMetadataStore})
+ * the state survives application restarts. If the store implements
+ * {@link Flushable} and 'flushOnUpdate' is true, the store is flushed once after
+ * each listing that contained newly accepted files (rather than once per file, as
+ * stores such as the <code>PropertiesPersistingMetadataStore</code> rewrite all of
+ * their entries when flushed).
+ *
+ * @since 2.1.1
+ */
+public abstract class AbstractPersistentAcceptOnceFileListFilter<F> implements FileListFilter<F> {
+
+	protected final Log logger = LogFactory.getLog(this.getClass());
+
+	private final MetadataStore store;
+
+	private volatile String prefix;
+
+	private final Object monitor = new Object();
+
+	private volatile boolean flushOnUpdate;
+
+
+	public AbstractPersistentAcceptOnceFileListFilter(MetadataStore store, String prefix) {
+		Assert.notNull(store, "'store' cannot be null");
+		Assert.notNull(prefix, "'prefix' cannot be null");
+		this.store = store;
+		this.prefix = prefix;
+	}
+
+
+	/**
+	 * Specify the prefix of the keys under which files are tracked, so that several
+	 * filters can share a {@link MetadataStore}.
+	 */
+	public void setPrefix(String prefix) {
+		Assert.notNull(prefix, "'prefix' cannot be null");
+		this.prefix = prefix;
+	}
+
+	/**
+	 * Specify whether the {@link MetadataStore} should be flushed after each listing
+	 * (or single {@link #accept(Object) accept}) with newly accepted files (only
+	 * applies if the store implements {@link Flushable}). Default is false.
+	 */
+	public void setFlushOnUpdate(boolean flushOnUpdate) {
+		this.flushOnUpdate = flushOnUpdate;
+	}
+
+	public List<F> filterFiles(F[] files) {
+		List<F> accepted = new ArrayList<F>();
+		if (files != null) {
+			for (F file : files) {
+				if (this.doAccept(file)) {
+					accepted.add(file);
+				}
+			}
+		}
+		if (!accepted.isEmpty()) {
+			this.flushIfNeeded();
+		}
+		return accepted;
+	}
+
+	public boolean accept(F file) {
+		if (this.doAccept(file)) {
+			this.flushIfNeeded();
+			return true;
+		}
+		return false;
+	}
+
+	private boolean doAccept(F file) {
+		String key = this.prefix + this.fileName(file);
+		String newValue = Long.toString(this.modified(file));
+		synchronized (this.monitor) {
+			String oldValue = this.store.get(key);
+			if (newValue.equals(oldValue)) {
+				return false;
+			}
+			this.store.put(key, newValue);
+		}
+		return true;
+	}
+
+	private void flushIfNeeded() {
+		if (this.flushOnUpdate && this.store instanceof Flushable) {
+			try {
+				((Flushable) this.store).flush();
+			}
+			catch (IOException e) {
+				// not fatal for the functionality of the component
+				logger.warn("Failed to flush metadata store", e);
+			}
+		}
+	}
+
+	/**
+	 * Subclasses must implement this method to return the last modified time of the file.
+	 */
+	protected abstract long modified(F file);
+
+	/**
+	 * Subclasses must implement this method to return the path under which the file
+	 * is tracked; it must identify the file uniquely among those the filter may see.
+	 */
+	protected abstract String fileName(F file);
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,14 +16,21 @@
 
 package org.springframework.integration.file.filters;
 
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.util.Assert;
 
 /**
  * {@link FileListFilter} that passes files only one time. This can
  * conveniently be used to prevent duplication of files, as is done in
  * {@link org.springframework.integration.file.FileReadingMessageSource}.
  * <p/>
+ * Seen files are tracked in a hash index so that each lookup is constant time
+ * regardless of the number of files that have already been accepted. When a
+ * maximum capacity is provided, the least recently seen file is evicted once
+ * the capacity is exceeded.
+ * <p/>
  * This implementation is thread safe.
  *
  * @author Iwein Fuld
@@ -32,40 +39,61 @@ import java.util.concurrent.LinkedBlockingQueue;
  */
 public class AcceptOnceFileListFilter<F> extends AbstractFileListFilter<F> {
 
-	private final Queue<F> seen;
+	private final Map<F, Boolean> seen;
 
 	private final Object monitor = new Object();
 
 
 	/**
-	 * Creates an AcceptOnceFileListFilter that is based on a bounded queue. If the queue overflows,
-	 * files that fall out will be passed through this filter again if passed to the
-	 * {@link #filterFiles(Object[])}
+	 * Creates an AcceptOnceFileListFilter that is bounded to a maximum capacity. If the capacity
+	 * is exceeded, the least recently seen files fall out and will be passed through this filter
+	 * again if passed to the {@link #filterFiles(Object[])}
 	 *
-	 * @param maxCapacity the maximum number of Files to maintain in the 'seen' queue.
+	 * @param maxCapacity the maximum number of Files to maintain in the 'seen' index.
 	 */
 	public AcceptOnceFileListFilter(int maxCapacity) {
-		this.seen = new LinkedBlockingQueue<F>(maxCapacity);
+		Assert.isTrue(maxCapacity > 0, "'maxCapacity' must be greater than 0");
+		this.seen = new BoundedLinkedHashMap<F>(maxCapacity);
 	}
 
 	/**
-	 * Creates an AcceptOnceFileListFilter based on an unbounded queue.
+	 * Creates an AcceptOnceFileListFilter based on an unbounded index.
 	 */
 	public AcceptOnceFileListFilter() {
-		this.seen = new LinkedBlockingQueue<F>();
+		this.seen = new LinkedHashMap<F, Boolean>(16, 0.75f, true);
 	}
 
 
 	public boolean accept(F file) {
 		synchronized (this.monitor) {
-			if (this.seen.contains(file)) {
-				return false;
-			}
-			if (!this.seen.offer(file)) {
-				this.seen.poll();
-				this.seen.add(file);
-			}
-			return true;
+			return this.seen.put(file, Boolean.TRUE) == null;
+		}
+	}
+
+	/**
+	 * Removes the given file from the 'seen' index so that it will be
+	 * accepted again the next time it is passed to this filter.
+	 */
+	public void remove(F file) {
+		synchronized (this.monitor) {
+			this.seen.remove(file);
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	private static class BoundedLinkedHashMap<K> extends LinkedHashMap<K, Boolean> {
+
+		private final int maxCapacity;
+
+		BoundedLinkedHashMap(int maxCapacity) {
+			super(16, 0.75f, true);
+			this.maxCapacity = maxCapacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, Boolean> eldest) {
+			return this.size() > this.maxCapacity;
 		}
 	}
 
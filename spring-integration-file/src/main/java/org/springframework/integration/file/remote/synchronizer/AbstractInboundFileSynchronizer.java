@@ -23,11 +23,17 @@ import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.expression.Expression;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.integration.MessagingException;
@@ -44,6 +50,13 @@ import org.springframework.util.ObjectUtils;
  * The implementation should run through any configured
  * {@link org.springframework.integration.file.filters.FileListFilter}s to
  * ensure the file entry is acceptable.
+ * <p/>
+ * By default, the filtered files are downloaded one by one over the Session
+ * that was used to list the remote directory. If 'concurrency' is greater than
+ * 1, the files are downloaded in parallel, each download task using its own
+ * Session. In that case, the {@link SessionFactory} should be a
+ * {@link org.springframework.integration.file.remote.session.CachingSessionFactory}
+ * whose session cache size bounds the number of concurrent connections.
  * 
  * @author Josh Long
  * @author Mark Fisher
@@ -86,6 +99,18 @@ public abstract class AbstractInboundFileSynchronizer<F> implements InboundFileS
 	 */
 	private volatile boolean deleteRemoteFiles;
 
+	/**
+	 * The number of files to download in parallel.
+	 */
+	private volatile int concurrency = 1;
+
+	/**
+	 * The number of attempts made to download each file.
+	 */
+	private volatile int maxAttempts = 1;
+
+	private volatile TaskExecutor taskExecutor;
+
 
 	/**
 	 * Create a synchronizer with the {@link SessionFactory} used to acquire {@link Session} instances.
@@ -125,8 +150,42 @@ public abstract class AbstractInboundFileSynchronizer<F> implements InboundFileS
 		this.deleteRemoteFiles = deleteRemoteFiles;
 	}
 
+	/**
+	 * Specify the maximum number of files to download in parallel, each over its
+	 * own Session. The default is 1 (sequential downloads over a single Session).
+	 */
+	public void setConcurrency(int concurrency) {
+		Assert.isTrue(concurrency > 0, "'concurrency' must be greater than 0");
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Specify the number of attempts made to download each file. After a failed
+	 * attempt, the Session is closed and a new one is used for the next attempt.
+	 * The default is 1 (no retries).
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		Assert.isTrue(maxAttempts > 0, "'maxAttempts' must be greater than 0");
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Specify the {@link TaskExecutor} to run parallel downloads on when
+	 * 'concurrency' is greater than 1. By default, a {@link SimpleAsyncTaskExecutor}
+	 * is used.
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		Assert.notNull(taskExecutor, "'taskExecutor' must not be null");
+		this.taskExecutor = taskExecutor;
+	}
+
 	public final void afterPropertiesSet() {
 		Assert.notNull(this.remoteDirectory, "remoteDirectory must not be null");
+		if (this.concurrency > 1 && this.taskExecutor == null) {
+			SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(this.getClass().getSimpleName() + "-");
+			executor.setConcurrencyLimit(this.concurrency);
+			this.taskExecutor = executor;
+		}
 	}
 
 	protected final List<F> filterFiles(F[] files) {
@@ -145,25 +204,154 @@ public abstract class AbstractInboundFileSynchronizer<F> implements InboundFileS
 			F[] files = session.list(this.remoteDirectory);
 			if (!ObjectUtils.isEmpty(files)) {
 				Collection<F> filteredFiles = this.filterFiles(files);
+				Queue<F> pending = new ConcurrentLinkedQueue<F>();
 				for (F file : filteredFiles) {
 					if (file != null) {
-						this.copyFileToLocalDirectory(this.remoteDirectory, file, localDirectory, session);
+						pending.add(file);
 					}
 				}
+				int workers = Math.min(this.concurrency, pending.size());
+				// the Session is handed over and closed by the copy methods
+				Session<F> listingSession = session;
+				session = null;
+				if (workers > 1) {
+					this.copyFilesInParallel(pending, localDirectory, listingSession, workers);
+				}
+				else {
+					this.copyFiles(pending, localDirectory, listingSession, false);
+				}
 			}
 		}
 		catch (IOException e) {
 			throw new MessagingException("Problem occurred while synchronizing remote to local directory", e);
 		}
 		finally {
-			if (session != null) {
+			this.closeSession(session);
+		}
+	}
+
+	/**
+	 * Downloads the files with 'workers' tasks, one of which runs on the calling thread
+	 * (reusing the Session that listed the remote directory). Returns once all files have
+	 * been processed and all started tasks have completed, and rethrows the first failure,
+	 * if any. If the executor rejects a task, the files are downloaded by the tasks that
+	 * were started and the calling thread.
+	 */
+	private void copyFilesInParallel(final Queue<F> pending, final File localDirectory, Session<F> listingSession,
+			int workers) {
+		final CountDownLatch latch = new CountDownLatch(workers - 1);
+		final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+		try {
+			for (int i = 1; i < workers; i++) {
 				try {
-					session.close();
+					this.taskExecutor.execute(new Runnable() {
+						public void run() {
+							try {
+								copyFiles(pending, localDirectory, null, true);
+							}
+							catch (RuntimeException e) {
+								failure.compareAndSet(null, e);
+							}
+							finally {
+								latch.countDown();
+							}
+						}
+					});
 				}
-				catch (Exception ignored) {
-					if (logger.isDebugEnabled()) {
-						logger.debug("failed to close Session", ignored);
+				catch (RuntimeException e) {
+					// count down for this and the remaining tasks that will not run
+					for (int j = i; j < workers; j++) {
+						latch.countDown();
 					}
+					if (logger.isWarnEnabled()) {
+						logger.warn("failed to start download task " + i + " of " + (workers - 1)
+								+ ", continuing with fewer tasks", e);
+					}
+					break;
+				}
+			}
+		}
+		finally {
+			try {
+				this.copyFiles(pending, localDirectory, listingSession, true);
+			}
+			catch (RuntimeException e) {
+				failure.compareAndSet(null, e);
+			}
+		}
+		try {
+			latch.await();
+		}
+		catch (InterruptedException e) {
+			// stop the started tasks once their current download completes
+			pending.clear();
+			Thread.currentThread().interrupt();
+			throw new MessagingException("Interrupted while waiting for downloads to complete", e);
+		}
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+	}
+
+	/**
+	 * Downloads files from the queue until it is empty. The given Session is used if not
+	 * null, otherwise one is acquired; a failed Session is closed and replaced before the
+	 * next attempt, and the Session in use is closed on return. If a file cannot be
+	 * downloaded within 'maxAttempts', the failure is thrown immediately unless
+	 * 'continueOnFailure' is true, in which case the remaining files are processed first.
+	 */
+	private void copyFiles(Queue<F> pending, File localDirectory, Session<F> session, boolean continueOnFailure) {
+		RuntimeException failure = null;
+		F file;
+		try {
+			while (failure == null || continueOnFailure) {
+				file = pending.poll();
+				if (file == null) {
+					break;
+				}
+				for (int attempt = 1; ; attempt++) {
+					try {
+						if (session == null) {
+							session = this.sessionFactory.getSession();
+							Assert.state(session != null, "failed to acquire a Session");
+						}
+						this.copyFileToLocalDirectory(this.remoteDirectory, file, localDirectory, session);
+						break;
+					}
+					catch (Exception e) {
+						this.closeSession(session);
+						session = null;
+						if (attempt >= this.maxAttempts) {
+							if (failure == null) {
+								failure = (e instanceof RuntimeException) ? (RuntimeException) e
+										: new MessagingException("Problem occurred while synchronizing remote to local directory", e);
+							}
+							break;
+						}
+						if (logger.isDebugEnabled()) {
+							logger.debug("failed to download '" + this.getFilename(file) + "' (attempt " + attempt
+									+ " of " + this.maxAttempts + "), retrying", e);
+						}
+					}
+				}
+			}
+		}
+		finally {
+			this.closeSession(session);
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void closeSession(Session<F> session) {
+		if (session != null) {
+			try {
+				session.close();
+			}
+			catch (Exception ignored) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("failed to close Session", ignored);
 				}
 			}
 		}
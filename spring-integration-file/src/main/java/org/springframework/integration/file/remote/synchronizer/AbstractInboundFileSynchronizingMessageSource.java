@@ -20,8 +20,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 
+import org.springframework.core.task.TaskExecutor;
+
 import org.springframework.integration.Message;
 import org.springframework.integration.MessagingException;
 import org.springframework.integration.core.MessageSource;
@@ -50,6 +53,11 @@ import org.springframework.util.Assert;
  * {@link AbstractInboundFileSynchronizer}. The synchronizer must
  * handle the work of actually connecting to the remote file system and
  * delivering new {@link File}s.
+ * <p/>
+ * By default, the synchronization runs on the polling thread, so files are only
+ * returned once all of them have been downloaded. If a {@link TaskExecutor} is
+ * provided, the synchronization runs asynchronously and each file is returned
+ * by subsequent polls as soon as it has been downloaded.
  * 
  * @author Josh Long
  * @author Oleg Zhurakousky
@@ -77,6 +85,12 @@ public abstract class AbstractInboundFileSynchronizingMessageSource<F> extends M
 	 */
 	private final FileReadingMessageSource fileSource;
 
+	private volatile TaskExecutor taskExecutor;
+
+	private final AtomicBoolean synchronizing = new AtomicBoolean();
+
+	private volatile RuntimeException synchronizationFailure;
+
 
 	public AbstractInboundFileSynchronizingMessageSource(AbstractInboundFileSynchronizer<F> synchronizer) {
 		this(synchronizer, null);
@@ -102,6 +116,16 @@ public abstract class AbstractInboundFileSynchronizingMessageSource<F> extends M
 		this.localDirectory = localDirectory;
 	}
 
+	/**
+	 * Specify a {@link TaskExecutor} to run the synchronization on. When provided,
+	 * {@link #receive()} does not wait for the synchronization to complete; files
+	 * are returned as soon as they have been downloaded. A failed synchronization
+	 * is reported by the next call to {@link #receive()}.
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
 	@Override
 	protected void onInit() {
 		Assert.notNull(this.localDirectory, "localDirectory must not be null");
@@ -141,12 +165,46 @@ public abstract class AbstractInboundFileSynchronizingMessageSource<F> extends M
 		Assert.state(this.synchronizer != null, "synchronizer must not be null");
 		Message<File> message = this.fileSource.receive();
 		if (message == null) {
-			this.synchronizer.synchronizeToLocalDirectory(this.localDirectory);
+			if (this.taskExecutor != null) {
+				this.synchronizeAsynchronously();
+			}
+			else {
+				this.synchronizer.synchronizeToLocalDirectory(this.localDirectory);
+			}
 			message = this.fileSource.receive();
 		}
 		return message;
 	}
 
+	private void synchronizeAsynchronously() {
+		RuntimeException failure = this.synchronizationFailure;
+		if (failure != null) {
+			this.synchronizationFailure = null;
+			throw failure;
+		}
+		if (this.synchronizing.compareAndSet(false, true)) {
+			try {
+				this.taskExecutor.execute(new Runnable() {
+					public void run() {
+						try {
+							synchronizer.synchronizeToLocalDirectory(localDirectory);
+						}
+						catch (RuntimeException e) {
+							synchronizationFailure = e;
+						}
+						finally {
+							synchronizing.set(false);
+						}
+					}
+				});
+			}
+			catch (RuntimeException e) {
+				this.synchronizing.set(false);
+				throw e;
+			}
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	private FileListFilter<File> buildFilter() {
 		Pattern completePattern = Pattern.compile("^.*(?<!" + this.synchronizer.getTemporaryFileSuffix() + ")$");
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.splitter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.splitter.AbstractMessageSplitter;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.Assert;
+
+/**
+ * A splitter that reads the content of a File, InputStream or Reader payload
+ * incrementally and emits one message per line (as a String) or, if a record
+ * length has been specified, one message per fixed length record (as a byte
+ * array). Only a bounded buffer is held in memory, and each message is sent as
+ * soon as it has been read, so arbitrarily large files can be split.
+ * <p>
+ * Since the number of lines is not known in advance, the sequence size of the
+ * emitted messages is 0. The underlying stream is closed once the content has been
+ * read completely or the split fails. For File payloads, the
+ * {@link FileHeaders#ORIGINAL_FILE} and {@link FileHeaders#FILENAME} headers are set.
+ *
+ * @since 2.1.1
+ */
+public class FileSplitter extends AbstractMessageSplitter {
+
+	private volatile Charset charset = Charset.defaultCharset();
+
+	private volatile int bufferSize = 8192;
+
+	private volatile int recordLength;
+
+
+	/**
+	 * Set the charset name to use when reading lines. Ignored for fixed length records.
+	 */
+	public void setCharset(String charset) {
+		Assert.notNull(charset, "charset must not be null");
+		Assert.isTrue(Charset.isSupported(charset), "Charset '" + charset + "' is not supported.");
+		this.charset = Charset.forName(charset);
+	}
+
+	/**
+	 * Set the size of the read buffer. The default is 8192.
+	 */
+	public void setBufferSize(int bufferSize) {
+		Assert.isTrue(bufferSize > 0, "'bufferSize' must be greater than 0");
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Set the length (in bytes) of the records to emit. By default (0), the content
+	 * is split into lines. If the length of the content is not a multiple of the
+	 * record length, the last record is shorter.
+	 */
+	public void setRecordLength(int recordLength) {
+		Assert.isTrue(recordLength >= 0, "'recordLength' must not be negative");
+		this.recordLength = recordLength;
+	}
+
+	@Override
+	protected Object splitMessage(final Message<?> message) {
+		Object payload = message.getPayload();
+		File file = null;
+		try {
+			if (payload instanceof File) {
+				file = (File) payload;
+				if (this.recordLength > 0) {
+					return new RecordIterator(new FileInputStream(file), file);
+				}
+				return new LineIterator(new InputStreamReader(new FileInputStream(file), this.charset), file);
+			}
+			else if (payload instanceof InputStream) {
+				if (this.recordLength > 0) {
+					return new RecordIterator((InputStream) payload, null);
+				}
+				return new LineIterator(new InputStreamReader((InputStream) payload, this.charset), null);
+			}
+			else if (payload instanceof Reader) {
+				Assert.isTrue(this.recordLength == 0, "fixed length records are not supported for Reader payloads");
+				return new LineIterator((Reader) payload, null);
+			}
+		}
+		catch (IOException e) {
+			throw new MessagingException(message, "failed to open file for splitting", e);
+		}
+		throw new IllegalArgumentException("unsupported Message payload type [" + payload.getClass().getName()
+				+ "]; a File, InputStream or Reader is required");
+	}
+
+
+	private abstract class AbstractContentIterator<T> implements Iterator<Object>, Closeable {
+
+		private final Closeable source;
+
+		private final File file;
+
+		private T next;
+
+		private boolean done;
+
+		AbstractContentIterator(Closeable source, File file) {
+			this.source = source;
+			this.file = file;
+		}
+
+		public boolean hasNext() {
+			if (this.next == null && !this.done) {
+				try {
+					this.next = this.read();
+				}
+				catch (IOException e) {
+					throw new MessagingException("failed to read content for splitting", e);
+				}
+				if (this.next == null) {
+					this.done = true;
+					this.closeQuietly();
+				}
+			}
+			return this.next != null;
+		}
+
+		public Object next() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			T current = this.next;
+			this.next = null;
+			if (this.file == null) {
+				return current;
+			}
+			return MessageBuilder.withPayload(current)
+					.setHeader(FileHeaders.ORIGINAL_FILE, this.file)
+					.setHeader(FileHeaders.FILENAME, this.file.getName())
+					.build();
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		public void close() throws IOException {
+			this.done = true;
+			this.source.close();
+		}
+
+		private void closeQuietly() {
+			try {
+				this.source.close();
+			}
+			catch (IOException e) {
+				// ignore
+			}
+		}
+
+		/**
+		 * Read the next element, returning <code>null</code> at the end of the content.
+		 */
+		protected abstract T read() throws IOException;
+	}
+
+
+	private class LineIterator extends AbstractContentIterator<String> {
+
+		private final BufferedReader reader;
+
+		LineIterator(Reader reader, File file) {
+			this(new BufferedReader(reader, bufferSize), file);
+		}
+
+		private LineIterator(BufferedReader reader, File file) {
+			super(reader, file);
+			this.reader = reader;
+		}
+
+		@Override
+		protected String read() throws IOException {
+			return this.reader.readLine();
+		}
+	}
+
+
+	private class RecordIterator extends AbstractContentIterator<byte[]> {
+
+		private final DataInputStream stream;
+
+		private final int length = recordLength;
+
+		RecordIterator(InputStream stream, File file) {
+			this(new DataInputStream(new BufferedInputStream(stream, Math.max(bufferSize, recordLength))), file);
+		}
+
+		private RecordIterator(DataInputStream stream, File file) {
+			super(stream, file);
+			this.stream = stream;
+		}
+
+		@Override
+		protected byte[] read() throws IOException {
+			byte[] record = new byte[this.length];
+			int count = 0;
+			while (count < this.length) {
+				int read = this.stream.read(record, count, this.length - count);
+				if (read < 0) {
+					break;
+				}
+				count += read;
+			}
+			if (count == 0) {
+				return null;
+			}
+			if (count < this.length) {
+				byte[] last = new byte[count];
+				System.arraycopy(record, 0, last, 0, count);
+				return last;
+			}
+			return record;
+		}
+	}
+
+}
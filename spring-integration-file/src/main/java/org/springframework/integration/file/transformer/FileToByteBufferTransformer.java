@@ -0,0 +1,50 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.transformer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A payload transformer that maps a File's contents into memory as a read-only
+ * {@link ByteBuffer}. The content is not copied onto the heap; it is paged in by
+ * the operating system as the buffer is read, so large files can be passed
+ * downstream without exhausting memory.
+ * <p>
+ * Note that the mapping remains valid until the buffer is garbage collected.
+ * Some platforms (e.g. Windows) do not allow a mapped file to be deleted, so
+ * 'deleteFiles' may not have an effect there.
+ *
+ * @since 2.1.1
+ */
+public class FileToByteBufferTransformer extends AbstractFilePayloadTransformer<ByteBuffer> {
+
+	@Override
+	protected final ByteBuffer transformFile(File file) throws Exception {
+		FileInputStream inputStream = new FileInputStream(file);
+		try {
+			FileChannel channel = inputStream.getChannel();
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+}
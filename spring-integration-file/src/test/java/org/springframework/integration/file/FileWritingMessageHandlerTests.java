@@ -219,6 +219,55 @@ public class FileWritingMessageHandlerTests {
 		assertThat(result.getName(), is(anyFilename));
 	}
 
+	@Test
+	public void appendToSameFile() throws Exception {
+		QueueChannel output = new QueueChannel();
+		handler.setCharset(DEFAULT_ENCODING);
+		handler.setAppend(true);
+		handler.setForceInterval(2);
+		handler.setOutputChannel(output);
+		handler.setFileNameGenerator(new FileNameGenerator() {
+			public String generateFileName(Message<?> message) {
+				return "appended.log";
+			}
+		});
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		handler.handleMessage(MessageBuilder.withPayload("bar".getBytes(DEFAULT_ENCODING)).build());
+		handler.handleMessage(MessageBuilder.withPayload(sourceFile).build());
+		File result = (File) output.receive(0).getPayload();
+		assertEquals(result, output.receive(0).getPayload());
+		assertEquals(result, output.receive(0).getPayload());
+		handler.destroy();
+		assertThat(new String(FileCopyUtils.copyToByteArray(result), DEFAULT_ENCODING),
+				is("foobar" + SAMPLE_CONTENT));
+		assertTrue(sourceFile.exists());
+	}
+
+	@Test
+	public void appendEvictsLeastRecentlyWrittenFile() throws Exception {
+		QueueChannel output = new QueueChannel();
+		handler.setAppend(true);
+		handler.setMaxOpenFiles(1);
+		handler.setOutputChannel(output);
+		handler.handleMessage(MessageBuilder.withPayload("foo").setHeader(FileHeaders.FILENAME, "a.txt").build());
+		handler.handleMessage(MessageBuilder.withPayload("bar").setHeader(FileHeaders.FILENAME, "b.txt").build());
+		handler.handleMessage(MessageBuilder.withPayload("baz").setHeader(FileHeaders.FILENAME, "a.txt").build());
+		handler.destroy();
+		assertEquals("foobaz", new String(FileCopyUtils.copyToByteArray(new File(outputDirectory, "a.txt"))));
+		assertEquals("bar", new String(FileCopyUtils.copyToByteArray(new File(outputDirectory, "b.txt"))));
+	}
+
+	@Test
+	public void forcedFilePayloadCopiedToNewFile() throws Exception {
+		Message<?> message = MessageBuilder.withPayload(sourceFile).build();
+		QueueChannel output = new QueueChannel();
+		handler.setForceInterval(1);
+		handler.setOutputChannel(output);
+		handler.handleMessage(message);
+		Message<?> result = output.receive(0);
+		assertFileContentIsMatching(result);
+	}
+
 	void assertFileContentIsMatching(Message<?> result) throws IOException, UnsupportedEncodingException {
 		assertThat(result, is(notNullValue()));
 		assertThat(result.getPayload(), is(File.class));
@@ -61,6 +61,9 @@ public class FileOutboundChannelAdapterParserTests {
     @Autowired
     EventDrivenConsumer adapterWithCharset;
 
+    @Autowired
+    EventDrivenConsumer adapterWithAppend;
+
     @Test
     public void simpleAdapter() {
         DirectFieldAccessor adapterAccessor = new DirectFieldAccessor(simpleAdapter);
@@ -124,4 +127,15 @@ public class FileOutboundChannelAdapterParserTests {
         assertEquals(Charset.forName("UTF-8"), handlerAccessor.getPropertyValue("charset"));
     }
 
+    @Test
+    public void adapterWithAppend() {
+        DirectFieldAccessor adapterAccessor = new DirectFieldAccessor(adapterWithAppend);
+        FileWritingMessageHandler handler = (FileWritingMessageHandler)
+                adapterAccessor.getPropertyValue("handler");
+        DirectFieldAccessor handlerAccessor = new DirectFieldAccessor(handler);
+        assertEquals(Boolean.TRUE, handlerAccessor.getPropertyValue("append"));
+        assertEquals(4, handlerAccessor.getPropertyValue("maxOpenFiles"));
+        assertEquals(10, handlerAccessor.getPropertyValue("forceInterval"));
+    }
+
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.Flushable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.integration.store.SimpleMetadataStore;
+
+/**
+ * @since 2.1.1
+ */
+public class AcceptOnceFileListFilterTests {
+
+	@Test
+	public void acceptsEachFileOnce() {
+		AcceptOnceFileListFilter<String> filter = new AcceptOnceFileListFilter<String>();
+		assertEquals(2, filter.filterFiles(new String[] {"foo", "bar"}).size());
+		assertEquals(1, filter.filterFiles(new String[] {"foo", "bar", "baz"}).size());
+		filter.remove("foo");
+		assertTrue(filter.accept("foo"));
+	}
+
+	@Test
+	public void evictsLeastRecentlySeen() {
+		AcceptOnceFileListFilter<String> filter = new AcceptOnceFileListFilter<String>(2);
+		assertTrue(filter.accept("foo"));
+		assertTrue(filter.accept("bar"));
+		assertFalse(filter.accept("foo"));
+		assertTrue(filter.accept("baz"));
+		// 'bar' was the least recently seen, so it was evicted
+		assertTrue(filter.accept("bar"));
+		assertFalse(filter.accept("baz"));
+	}
+
+	@Test
+	public void persistentFilterTracksModifiedTime() throws Exception {
+		File file = File.createTempFile("foo", ".txt");
+		file.deleteOnExit();
+		SimpleMetadataStore store = new SimpleMetadataStore();
+		FileSystemPersistentAcceptOnceFileListFilter filter =
+				new FileSystemPersistentAcceptOnceFileListFilter(store, "test-");
+		assertTrue(filter.accept(file));
+		assertFalse(filter.accept(file));
+		assertEquals(Long.toString(file.lastModified()), store.get("test-" + file.getAbsolutePath()));
+		// a new filter on the same store remembers the file
+		assertFalse(new FileSystemPersistentAcceptOnceFileListFilter(store, "test-").accept(file));
+		file.setLastModified(file.lastModified() - 10000);
+		assertTrue(filter.accept(file));
+	}
+
+	@Test
+	public void persistentFilterFlushesOncePerListing() throws Exception {
+		File foo = File.createTempFile("foo", ".txt");
+		foo.deleteOnExit();
+		File bar = File.createTempFile("bar", ".txt");
+		bar.deleteOnExit();
+		final AtomicInteger flushes = new AtomicInteger();
+		class FlushableMetadataStore extends SimpleMetadataStore implements Flushable {
+			public void flush() {
+				flushes.incrementAndGet();
+			}
+		}
+		FileSystemPersistentAcceptOnceFileListFilter filter =
+				new FileSystemPersistentAcceptOnceFileListFilter(new FlushableMetadataStore(), "test-");
+		filter.setFlushOnUpdate(true);
+		assertEquals(2, filter.filterFiles(new File[] {foo, bar}).size());
+		assertEquals(1, flushes.get());
+		assertEquals(0, filter.filterFiles(new File[] {foo, bar}).size());
+		assertEquals(1, flushes.get());
+	}
+
+}
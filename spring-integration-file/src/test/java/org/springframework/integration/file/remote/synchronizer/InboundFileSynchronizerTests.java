@@ -0,0 +1,176 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.remote.synchronizer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+
+/**
+ * @since 2.1.1
+ */
+public class InboundFileSynchronizerTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private final String[] remoteFiles = new String[] {"a.txt", "b.txt", "c.txt", "d.txt", "e.txt"};
+
+	private final Set<String> threads = new CopyOnWriteArraySet<String>();
+
+	private final AtomicInteger failures = new AtomicInteger();
+
+	private final AtomicInteger openSessions = new AtomicInteger();
+
+
+	@Test
+	public void parallelDownloadsWithRetry() throws Exception {
+		SessionFactory<String> sessionFactory = this.mockSessionFactory(2);
+		TestSynchronizer synchronizer = new TestSynchronizer(sessionFactory);
+		synchronizer.setRemoteDirectory("remote");
+		synchronizer.setConcurrency(3);
+		synchronizer.setMaxAttempts(2);
+		synchronizer.afterPropertiesSet();
+		File localDirectory = temp.newFolder("local");
+		synchronizer.synchronizeToLocalDirectory(localDirectory);
+		assertEquals(remoteFiles.length, localDirectory.list().length);
+		for (String name : remoteFiles) {
+			assertEquals(name.length(), new File(localDirectory, name).length());
+		}
+		assertTrue("expected downloads on more than one thread", threads.size() > 1);
+	}
+
+	@Test
+	public void sequentialDownloadFailsWithoutRetry() throws Exception {
+		SessionFactory<String> sessionFactory = this.mockSessionFactory(1);
+		TestSynchronizer synchronizer = new TestSynchronizer(sessionFactory);
+		synchronizer.setRemoteDirectory("remote");
+		synchronizer.afterPropertiesSet();
+		File localDirectory = temp.newFolder("local");
+		try {
+			synchronizer.synchronizeToLocalDirectory(localDirectory);
+			fail("expected failure");
+		}
+		catch (RuntimeException e) {
+			assertEquals("simulated failure", e.getCause().getMessage());
+		}
+		assertEquals(1, failures.get());
+		synchronizer.synchronizeToLocalDirectory(localDirectory);
+		assertEquals(remoteFiles.length, localDirectory.list().length);
+	}
+
+	@Test
+	public void rejectedDownloadTaskDoesNotLeakSessions() throws Exception {
+		SessionFactory<String> sessionFactory = this.mockSessionFactory(1);
+		TestSynchronizer synchronizer = new TestSynchronizer(sessionFactory);
+		synchronizer.setRemoteDirectory("remote");
+		synchronizer.setConcurrency(3);
+		synchronizer.setMaxAttempts(2);
+		final AtomicInteger executions = new AtomicInteger();
+		synchronizer.setTaskExecutor(new TaskExecutor() {
+			public void execute(Runnable task) {
+				if (executions.incrementAndGet() > 1) {
+					throw new TaskRejectedException("simulated rejection");
+				}
+				new Thread(task).start();
+			}
+		});
+		synchronizer.afterPropertiesSet();
+		File localDirectory = temp.newFolder("local");
+		synchronizer.synchronizeToLocalDirectory(localDirectory);
+		assertEquals(remoteFiles.length, localDirectory.list().length);
+		assertEquals(2, executions.get());
+		assertEquals(0, openSessions.get());
+	}
+
+	/**
+	 * Creates a SessionFactory whose Sessions fail the first read of 'b.txt'.
+	 */
+	@SuppressWarnings("unchecked")
+	private SessionFactory<String> mockSessionFactory(final int readDelay) throws IOException {
+		SessionFactory<String> sessionFactory = mock(SessionFactory.class);
+		when(sessionFactory.getSession()).thenAnswer(new Answer<Session<String>>() {
+			public Session<String> answer(InvocationOnMock invocation) throws Throwable {
+				Session<String> session = mock(Session.class);
+				openSessions.incrementAndGet();
+				when(session.list("remote")).thenReturn(remoteFiles);
+				doAnswer(new Answer<Object>() {
+					public Object answer(InvocationOnMock invocation) throws Throwable {
+						openSessions.decrementAndGet();
+						return null;
+					}
+				}).when(session).close();
+				doAnswer(new Answer<Object>() {
+					public Object answer(InvocationOnMock invocation) throws Throwable {
+						String path = (String) invocation.getArguments()[0];
+						if (path.endsWith("b.txt") && failures.getAndIncrement() == 0) {
+							throw new IOException("simulated failure");
+						}
+						threads.add(Thread.currentThread().getName());
+						Thread.sleep(readDelay * 50);
+						((OutputStream) invocation.getArguments()[1]).write(path.substring(7).getBytes());
+						return null;
+					}
+				}).when(session).read(anyString(), any(OutputStream.class));
+				return session;
+			}
+		});
+		return sessionFactory;
+	}
+
+
+	private static class TestSynchronizer extends AbstractInboundFileSynchronizer<String> {
+
+		public TestSynchronizer(SessionFactory<String> sessionFactory) {
+			super(sessionFactory);
+		}
+
+		@Override
+		protected boolean isFile(String file) {
+			return true;
+		}
+
+		@Override
+		protected String getFilename(String file) {
+			return file;
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.splitter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * @since 2.1.1
+ */
+public class FileSplitterTests {
+
+	private static final String SAMPLE_CONTENT = "HelloWorld\näöüß\nlast";
+
+	private File file;
+
+	private final QueueChannel output = new QueueChannel();
+
+	private final FileSplitter splitter = new FileSplitter();
+
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("splitter", ".txt");
+		file.deleteOnExit();
+		FileCopyUtils.copy(SAMPLE_CONTENT.getBytes("UTF-8"), new FileOutputStream(file));
+		splitter.setOutputChannel(output);
+		splitter.setCharset("UTF-8");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void splitFileIntoLines() throws Exception {
+		splitter.setBufferSize(4);
+		splitter.handleMessage(new GenericMessage<File>(file));
+		String[] expected = SAMPLE_CONTENT.split("\n");
+		for (int i = 0; i < expected.length; i++) {
+			Message<?> line = output.receive(0);
+			assertEquals(expected[i], line.getPayload());
+			assertEquals(i + 1, line.getHeaders().getSequenceNumber().intValue());
+			assertEquals(file, line.getHeaders().get(FileHeaders.ORIGINAL_FILE));
+			assertEquals(file.getName(), line.getHeaders().get(FileHeaders.FILENAME));
+		}
+		assertNull(output.receive(0));
+		// the file has been closed, so it can be deleted
+		assertEquals(true, file.delete());
+	}
+
+	@Test
+	public void splitStreamIntoRecords() throws Exception {
+		splitter.setRecordLength(3);
+		splitter.handleMessage(new GenericMessage<ByteArrayInputStream>(
+				new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7})));
+		assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) output.receive(0).getPayload());
+		assertArrayEquals(new byte[] {4, 5, 6}, (byte[]) output.receive(0).getPayload());
+		assertArrayEquals(new byte[] {7}, (byte[]) output.receive(0).getPayload());
+		assertNull(output.receive(0));
+	}
+
+}
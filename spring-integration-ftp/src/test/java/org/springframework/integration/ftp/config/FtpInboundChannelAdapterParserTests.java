@@ -18,6 +18,7 @@ package org.springframework.integration.ftp.config;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
@@ -78,6 +79,9 @@ public class FtpInboundChannelAdapterParserTests {
 		assertNotNull(filter);
 		Object sessionFactory = TestUtils.getPropertyValue(fisync, "sessionFactory");
 		assertTrue(DefaultFtpSessionFactory.class.isAssignableFrom(sessionFactory.getClass()));
+		assertEquals(3, TestUtils.getPropertyValue(fisync, "concurrency"));
+		assertEquals(2, TestUtils.getPropertyValue(fisync, "maxAttempts"));
+		assertSame(ac.getBean("taskExecutor"), TestUtils.getPropertyValue(inbound, "taskExecutor"));
 	}
 
 	@Test
@@ -92,6 +96,9 @@ public class FtpInboundChannelAdapterParserTests {
 		String remoteFileSeparator = (String) TestUtils.getPropertyValue(fisync, "remoteFileSeparator");
 		assertNotNull(remoteFileSeparator);
 		assertEquals("/", remoteFileSeparator);
+		assertEquals(1, TestUtils.getPropertyValue(fisync, "concurrency"));
+		assertEquals(1, TestUtils.getPropertyValue(fisync, "maxAttempts"));
+		assertNull(TestUtils.getPropertyValue(adapter, "source.taskExecutor"));
 	}
 
 	@Test
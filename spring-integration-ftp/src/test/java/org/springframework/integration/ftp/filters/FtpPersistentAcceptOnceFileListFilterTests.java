@@ -0,0 +1,63 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ftp.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Calendar;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.junit.Test;
+
+import org.springframework.integration.store.SimpleMetadataStore;
+
+/**
+ * @since 2.1.1
+ */
+public class FtpPersistentAcceptOnceFileListFilterTests {
+
+	@Test
+	public void sameNameInDifferentDirectoriesTrackedSeparately() {
+		SimpleMetadataStore store = new SimpleMetadataStore();
+		FTPFile file = new FTPFile();
+		file.setName("foo.txt");
+		file.setTimestamp(Calendar.getInstance());
+		FtpPersistentAcceptOnceFileListFilter filter = new FtpPersistentAcceptOnceFileListFilter(store, "in");
+		assertTrue(filter.accept(file));
+		assertFalse(filter.accept(file));
+		assertTrue(new FtpPersistentAcceptOnceFileListFilter(store, "/other/").accept(file));
+		assertNotNull(store.get("ftp:in/foo.txt"));
+		assertNotNull(store.get("ftp:/other/foo.txt"));
+	}
+
+	@Test
+	public void prefixDistinguishesServers() {
+		SimpleMetadataStore store = new SimpleMetadataStore();
+		FTPFile file = new FTPFile();
+		file.setName("foo.txt");
+		file.setTimestamp(Calendar.getInstance());
+		assertTrue(new FtpPersistentAcceptOnceFileListFilter(store, "ftp1:", "in").accept(file));
+		FtpPersistentAcceptOnceFileListFilter filter = new FtpPersistentAcceptOnceFileListFilter(store, "in");
+		filter.setPrefix("ftp2:");
+		assertTrue(filter.accept(file));
+		assertEquals(store.get("ftp1:in/foo.txt"), store.get("ftp2:in/foo.txt"));
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,19 +17,34 @@
 package org.springframework.integration.groovy;
 
 import groovy.lang.GString;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyObject;
+import groovy.lang.Script;
 
+import java.io.IOException;
 import java.util.Map;
 
+import org.codehaus.groovy.control.CompilationFailedException;
+
 import org.springframework.integration.Message;
 import org.springframework.integration.scripting.AbstractScriptExecutingMessageProcessor;
 import org.springframework.integration.scripting.ScriptVariableGenerator;
+import org.springframework.scripting.ScriptCompilationException;
 import org.springframework.scripting.ScriptSource;
 import org.springframework.scripting.groovy.GroovyObjectCustomizer;
-import org.springframework.scripting.groovy.GroovyScriptFactory;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
 
 /**
+ * A {@link org.springframework.integration.handler.MessageProcessor} that executes a
+ * Groovy script. The script is compiled once (and again only when its
+ * {@link ScriptSource} reports that it has been modified); each execution runs a new
+ * instance of the compiled Script class with its own Binding, so concurrent executions
+ * neither share variables nor need to be serialized. As with a
+ * {@link org.springframework.scripting.groovy.GroovyScriptFactory}, a script that defines
+ * a class rather than a Script yields a new instance of that class.
+ *
  * @author Dave Syer
  * @author Mark Fisher
  * @author Oleg Zhurakousky
@@ -37,13 +52,16 @@ import org.springframework.util.CollectionUtils;
  */
 public class GroovyScriptExecutingMessageProcessor extends AbstractScriptExecutingMessageProcessor<Object> {
 
-	private final GroovyScriptFactory scriptFactory;
+	private final GroovyClassLoader groovyClassLoader = new GroovyClassLoader(ClassUtils.getDefaultClassLoader());
+
+	private final Object scriptClassMonitor = new Object();
 
-	private final VariableBindingGroovyObjectCustomizerDecorator
-			customizerDecorator = new VariableBindingGroovyObjectCustomizerDecorator();
+	private volatile GroovyObjectCustomizer customizer;
 
 	private volatile ScriptSource scriptSource;
 
+	private volatile CompiledScript compiledScript;
+
 
 	/**
 	 * Create a processor for the given {@link ScriptSource} that will use a
@@ -52,7 +70,6 @@ public class GroovyScriptExecutingMessageProcessor extends AbstractScriptExecuti
 	public GroovyScriptExecutingMessageProcessor(ScriptSource scriptSource) {
 		super();
 		this.scriptSource = scriptSource;
-		this.scriptFactory = new GroovyScriptFactory(this.getClass().getSimpleName(), this.customizerDecorator);
 	}
 
 	/**
@@ -62,7 +79,6 @@ public class GroovyScriptExecutingMessageProcessor extends AbstractScriptExecuti
 	public GroovyScriptExecutingMessageProcessor(ScriptSource scriptSource, ScriptVariableGenerator scriptVariableGenerator) {
 		super(scriptVariableGenerator);
 		this.scriptSource = scriptSource;
-		this.scriptFactory = new GroovyScriptFactory(this.getClass().getSimpleName(), this.customizerDecorator);
 	}
 
 
@@ -70,7 +86,7 @@ public class GroovyScriptExecutingMessageProcessor extends AbstractScriptExecuti
 	 * Sets a {@link GroovyObjectCustomizer} for this processor.
 	 */
 	public void setCustomizer(GroovyObjectCustomizer customizer) {
-		this.customizerDecorator.setCustomizer(customizer);
+		this.customizer = customizer;
 	}
 
 	@Override
@@ -81,12 +97,69 @@ public class GroovyScriptExecutingMessageProcessor extends AbstractScriptExecuti
 	@Override
 	protected Object executeScript(ScriptSource scriptSource, Map<String, Object> variables) throws Exception {
 		Assert.notNull(scriptSource, "scriptSource must not be null");
-		synchronized (this) {
-			if (!CollectionUtils.isEmpty(variables)) {
-				this.customizerDecorator.setVariables(variables);
+		Class<?> scriptClass = this.getScriptClass(scriptSource);
+		Object scriptObject = scriptClass.newInstance();
+		if (!(scriptObject instanceof Script)) {
+			if (this.customizer != null && scriptObject instanceof GroovyObject) {
+				this.customizer.customize((GroovyObject) scriptObject);
 			}
-			Object result = this.scriptFactory.getScriptedObject(scriptSource, null);
-			return (result instanceof GString) ? result.toString() : result;
+			return scriptObject;
+		}
+		Script script = (Script) scriptObject;
+		VariableBindingGroovyObjectCustomizerDecorator customizerDecorator = new VariableBindingGroovyObjectCustomizerDecorator();
+		if (this.customizer != null) {
+			customizerDecorator.setCustomizer(this.customizer);
+		}
+		if (!CollectionUtils.isEmpty(variables)) {
+			customizerDecorator.setVariables(variables);
+		}
+		customizerDecorator.customize(script);
+		Object result = script.run();
+		return (result instanceof GString) ? result.toString() : result;
+	}
+
+	/**
+	 * Return the compiled class for the source, compiling it if this is the first
+	 * execution, the source differs from the previous one, or it has been modified.
+	 * Threads that find the class out of date at the same time compile it only once.
+	 * Since {@link ScriptSource#isModified()} may reset the source's modified state, it
+	 * is not called again under the lock: a thread only compiles if no other thread has
+	 * replaced the class it found out of date in the meantime.
+	 */
+	private Class<?> getScriptClass(ScriptSource scriptSource) throws IOException {
+		CompiledScript compiledScript = this.compiledScript;
+		if (compiledScript == null || compiledScript.scriptSource != scriptSource || scriptSource.isModified()) {
+			synchronized (this.scriptClassMonitor) {
+				CompiledScript current = this.compiledScript;
+				if (current != compiledScript && current.scriptSource == scriptSource) {
+					compiledScript = current;
+				}
+				else {
+					try {
+						Class<?> scriptClass = this.groovyClassLoader.parseClass(
+								scriptSource.getScriptAsString(), scriptSource.suggestedClassName());
+						compiledScript = new CompiledScript(scriptSource, scriptClass);
+						this.compiledScript = compiledScript;
+					}
+					catch (CompilationFailedException e) {
+						throw new ScriptCompilationException(scriptSource, e);
+					}
+				}
+			}
+		}
+		return compiledScript.scriptClass;
+	}
+
+
+	private static class CompiledScript {
+
+		private final ScriptSource scriptSource;
+
+		private final Class<?> scriptClass;
+
+		CompiledScript(ScriptSource scriptSource, Class<?> scriptClass) {
+			this.scriptSource = scriptSource;
+			this.scriptClass = scriptClass;
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,14 +18,23 @@ package org.springframework.integration.groovy;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 import org.springframework.core.io.AbstractResource;
@@ -36,7 +45,9 @@ import org.springframework.integration.scripting.ScriptVariableGenerator;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.scripting.ScriptSource;
 import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.scripting.support.StaticScriptSource;
 import org.springframework.test.annotation.Repeat;
+import org.springframework.util.StopWatch;
 
 /**
  * @author Mark Fisher
@@ -175,6 +186,133 @@ public class GroovyScriptExecutingMessageProcessorTests {
 		assertEquals("payload is 'hello'", result.toString());
 	}
 
+	@Test
+	public void testConcurrentExecutionsUseTheirOwnBinding() throws Exception {
+		ScriptSource scriptSource = new StaticScriptSource("def result = \"payload is $payload\"; Thread.yield(); result", "concurrentTest");
+		final MessageProcessor<Object> processor = new GroovyScriptExecutingMessageProcessor(scriptSource);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Object>> results = new ArrayList<Future<Object>>();
+		for (int i = 0; i < 200; i++) {
+			final Message<?> message = MessageBuilder.withPayload(i).build();
+			results.add(executor.submit(new Callable<Object>() {
+				public Object call() throws Exception {
+					return processor.processMessage(message);
+				}
+			}));
+		}
+		for (int i = 0; i < 200; i++) {
+			assertEquals("payload is " + i, results.get(i).get());
+		}
+		executor.shutdown();
+	}
+
+	@Test
+	public void testExecutionsAreNotSerialized() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(2);
+		ScriptSource scriptSource = new StaticScriptSource(
+				"latch.countDown(); latch.await(10, java.util.concurrent.TimeUnit.SECONDS)", "latchTest");
+		final MessageProcessor<Object> processor = new GroovyScriptExecutingMessageProcessor(scriptSource,
+				new ScriptVariableGenerator() {
+					public Map<String, Object> generateScriptVariables(Message<?> message) {
+						Map<String, Object> variables = new HashMap<String, Object>();
+						variables.put("latch", latch);
+						return variables;
+					}
+				});
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		List<Future<Object>> results = new ArrayList<Future<Object>>();
+		for (int i = 0; i < 2; i++) {
+			results.add(executor.submit(new Callable<Object>() {
+				public Object call() throws Exception {
+					return processor.processMessage(MessageBuilder.withPayload("foo").build());
+				}
+			}));
+		}
+		// both executions can only complete if they run at the same time
+		assertTrue((Boolean) results.get(0).get());
+		assertTrue((Boolean) results.get(1).get());
+		executor.shutdown();
+	}
+
+	@Test
+	public void testConcurrentFirstExecutionsCompileOnce() throws Exception {
+		final AtomicInteger reads = new AtomicInteger();
+		final ScriptSource scriptSource = new StaticScriptSource("payload", "compileOnceTest") {
+			@Override
+			public String getScriptAsString() {
+				reads.incrementAndGet();
+				return super.getScriptAsString();
+			}
+		};
+		final MessageProcessor<Object> processor = new GroovyScriptExecutingMessageProcessor(scriptSource);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<Object>> results = new ArrayList<Future<Object>>();
+		for (int i = 0; i < 8; i++) {
+			results.add(executor.submit(new Callable<Object>() {
+				public Object call() throws Exception {
+					start.await();
+					return processor.processMessage(MessageBuilder.withPayload("foo").build());
+				}
+			}));
+		}
+		start.countDown();
+		for (Future<Object> result : results) {
+			assertEquals("foo", result.get());
+		}
+		assertEquals(1, reads.get());
+		executor.shutdown();
+	}
+
+	@Test
+	public void testClassDefiningScript() throws Exception {
+		ScriptSource scriptSource = new StaticScriptSource(
+				"class Greeter { String greet(String name) { \"hello $name\" } }", "Greeter");
+		MessageProcessor<Object> processor = new GroovyScriptExecutingMessageProcessor(scriptSource);
+		Object greeter = processor.processMessage(MessageBuilder.withPayload("foo").build());
+		assertEquals("Greeter", greeter.getClass().getName());
+		assertEquals("hello foo", greeter.getClass().getMethod("greet", String.class).invoke(greeter, "foo").toString());
+	}
+
+	/**
+	 * Measures the throughput of a transformer script on 1 to 2 x the number of
+	 * processors threads; it should grow with the thread count up to the number of cores.
+	 */
+	@Test
+	@Ignore
+	public void testMultiThreadedThroughput() throws Exception {
+		ScriptSource scriptSource = new StaticScriptSource(
+				"def total = 0; for (i in 1..100) { total += i * payload }; total", "throughputTest");
+		final MessageProcessor<Object> processor = new GroovyScriptExecutingMessageProcessor(scriptSource);
+		final Message<?> message = MessageBuilder.withPayload(3).build();
+		final int count = 200000;
+		int processors = Runtime.getRuntime().availableProcessors();
+		StopWatch watch = new StopWatch("groovy " + count + " executions per thread");
+		for (int threads = 1; threads <= 2 * processors; threads *= 2) {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+			for (int i = 0; i < threads; i++) {
+				tasks.add(new Callable<Object>() {
+					public Object call() throws Exception {
+						for (int j = 0; j < count; j++) {
+							processor.processMessage(message);
+						}
+						return null;
+					}
+				});
+			}
+			watch.start(threads + " threads");
+			for (Future<Object> result : executor.invokeAll(tasks)) {
+				result.get();
+			}
+			watch.stop();
+			executor.shutdown();
+			System.out.println(threads + " threads: "
+					+ (long) (threads * count / (watch.getLastTaskTimeMillis() / 1000.)) + " executions/s");
+		}
+		System.out.println(watch.prettyPrint());
+	}
+
 
 	private static class TestResource extends AbstractResource {
 
@@ -129,6 +129,7 @@ public class HttpInboundEndpointParser extends AbstractSingleBeanDefinitionParse
 			IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "extract-reply-payload");
 			IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "reply-key");
 			IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "convert-exceptions");
+			IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "async");
 		}
 		else {
 			IntegrationNamespaceUtils.setValueIfAttributeDefined(
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -73,6 +73,9 @@ public class HttpOutboundChannelAdapterParser extends AbstractOutboundChannelAda
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "extract-payload");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "expected-response-type");
 		HttpAdapterParsingUtils.configureUriVariableExpressions(builder, element);
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "max-connections");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "max-connections-per-host");
+		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, "task-executor");
 		return builder.getBeanDefinition();
 	}
 
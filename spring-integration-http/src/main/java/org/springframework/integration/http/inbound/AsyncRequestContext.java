@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.http.inbound;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Handle on a suspended HTTP request. The Servlet 3.0 asynchronous processing API
+ * (<code>startAsync()</code> and <code>AsyncContext</code>) is accessed reflectively
+ * so that this module can still be compiled against, and deployed to, Servlet 2.4
+ * containers; on such containers {@link #isAsyncSupported(HttpServletRequest)} simply
+ * returns <code>false</code>.
+ *
+ * @since 2.1.1
+ */
+final class AsyncRequestContext {
+
+	private static final Method NO_METHOD = ReflectionUtils.findMethod(Object.class, "toString");
+
+	private static final Map<String, Method> methodCache = new ConcurrentHashMap<String, Method>();
+
+
+	private final Object asyncContext;
+
+
+	private AsyncRequestContext(Object asyncContext) {
+		this.asyncContext = asyncContext;
+	}
+
+
+	/**
+	 * Complete the asynchronous operation, committing the response.
+	 */
+	public void complete() {
+		invoke(this.asyncContext, "complete");
+	}
+
+
+	/**
+	 * Return whether the given request may be put into asynchronous mode, i.e. it is
+	 * handled by a Servlet 3.0 container and all filters and the servlet in the chain
+	 * have been declared as <code>async-supported</code>.
+	 */
+	static boolean isAsyncSupported(HttpServletRequest request) {
+		Method method = findMethod(request.getClass(), "isAsyncSupported", 0);
+		return method != null && Boolean.TRUE.equals(ReflectionUtils.invokeMethod(method, request));
+	}
+
+	/**
+	 * Put the request into asynchronous mode. The <code>timeoutCallback</code> is invoked
+	 * if the container times out, or reports an error for, the asynchronous operation; a
+	 * negative timeout disables the container timeout.
+	 */
+	static AsyncRequestContext startAsync(HttpServletRequest request, HttpServletResponse response,
+			long timeout, Runnable timeoutCallback) {
+		Method startAsync = findMethod(request.getClass(), "startAsync", 2);
+		Assert.state(startAsync != null, "request does not support asynchronous processing");
+		Object asyncContext = ReflectionUtils.invokeMethod(startAsync, request, request, response);
+		invoke(asyncContext, "setTimeout", (timeout < 0) ? 0L : timeout);
+		Method addListener = findMethod(asyncContext.getClass(), "addListener", 1);
+		Assert.state(addListener != null, "AsyncContext does not support listeners");
+		Class<?> listenerType = addListener.getParameterTypes()[0];
+		Object listener = Proxy.newProxyInstance(listenerType.getClassLoader(),
+				new Class<?>[] { listenerType }, new TimeoutListenerInvocationHandler(timeoutCallback));
+		ReflectionUtils.invokeMethod(addListener, asyncContext, listener);
+		return new AsyncRequestContext(asyncContext);
+	}
+
+	private static Object invoke(Object target, String methodName, Object... args) {
+		Method method = findMethod(target.getClass(), methodName, args.length);
+		Assert.state(method != null, "no method '" + methodName + "' found on " + target.getClass());
+		return ReflectionUtils.invokeMethod(method, target, args);
+	}
+
+	/**
+	 * Locates a public method by name and parameter count. Misses are cached as well,
+	 * so that the lookup cost is paid once per request class.
+	 */
+	private static Method findMethod(Class<?> type, String methodName, int parameterCount) {
+		String key = type.getName() + "#" + methodName + "/" + parameterCount;
+		Method method = methodCache.get(key);
+		if (method == null) {
+			method = NO_METHOD;
+			for (Method candidate : type.getMethods()) {
+				if (candidate.getName().equals(methodName) && candidate.getParameterTypes().length == parameterCount) {
+					ReflectionUtils.makeAccessible(candidate);
+					method = candidate;
+					break;
+				}
+			}
+			methodCache.put(key, method);
+		}
+		return (method != NO_METHOD) ? method : null;
+	}
+
+
+	/**
+	 * Implements <code>javax.servlet.AsyncListener</code>, delegating timeout and error
+	 * notifications to a callback.
+	 */
+	private static class TimeoutListenerInvocationHandler implements InvocationHandler {
+
+		private final Runnable timeoutCallback;
+
+		TimeoutListenerInvocationHandler(Runnable timeoutCallback) {
+			this.timeoutCallback = timeoutCallback;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			String methodName = method.getName();
+			if (methodName.equals("onTimeout") || methodName.equals("onError")) {
+				this.timeoutCallback.run();
+			}
+			else if (methodName.equals("equals")) {
+				return (proxy == args[0]);
+			}
+			else if (methodName.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			}
+			else if (methodName.equals("toString")) {
+				return "AsyncListener for " + this.timeoutCallback;
+			}
+			return null;
+		}
+	}
+
+}
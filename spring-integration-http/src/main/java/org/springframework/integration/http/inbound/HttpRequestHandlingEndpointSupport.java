@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -301,92 +301,17 @@ abstract class HttpRequestHandlingEndpointSupport extends MessagingGatewaySuppor
 	 * Handles the HTTP request by generating a Message and sending it to the request channel. If this gateway's
 	 * 'expectReply' property is true, it will also generate a response from the reply Message once received.
 	 */
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	protected final Object doHandleRequest(HttpServletRequest servletRequest, HttpServletResponse servletResponse) throws IOException {
 		try {
-			ServletServerHttpRequest request = this.prepareRequest(servletRequest);
-			if (!this.supportedMethods.contains(request.getMethod())) {
-				servletResponse.setStatus(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+			Message<?> message = this.createRequestMessage(servletRequest, servletResponse);
+			if (message == null) {
 				return null;
 			}
-
-			Object requestBody = null;
-			if (this.isReadable(request)) {
-				requestBody = this.extractRequestBody(request);
-			}
-			HttpEntity httpEntity = new HttpEntity(requestBody, request.getHeaders());
-
-			StandardEvaluationContext evaluationContext = this.createEvaluationContext();
-			evaluationContext.setRootObject(httpEntity);
-
-			LinkedMultiValueMap<String, String> requestParams = this.convertParameterMap(servletRequest.getParameterMap());
-			evaluationContext.setVariable("requestParams", requestParams);
-
-			if (StringUtils.hasText(this.path)) {
-				String lookupPath = this.urlPathHelper.getLookupPathForRequest(servletRequest);
-				Map pathVariables = this.pathMatcher.extractUriTemplateVariables(this.path, lookupPath);
-				if (!pathVariables.isEmpty()) {
-					if (logger.isDebugEnabled()) {
-						logger.debug("Mapped path variables: " + pathVariables);
-					}
-					evaluationContext.setVariable("pathVariables", pathVariables);
-				}
-			}
-
-			Map<String, Object> headers = this.headerMapper.toHeaders(request.getHeaders());
-			Object payload = null;
-			if (this.payloadExpression != null) {
-				// create payload based on SpEL
-				payload = this.payloadExpression.getValue(evaluationContext);
-			}
-			if (!CollectionUtils.isEmpty(this.headerExpressions)) {
-				for (String headerName : this.headerExpressions.keySet()) {
-					Expression headerExpression = this.headerExpressions.get(headerName);
-					Object headerValue = headerExpression.getValue(evaluationContext);
-					if (headerValue != null) {
-						headers.put(headerName, headerValue);
-					}
-				}
-			}
-
-			if (payload == null) {
-				if (requestBody != null) {
-					payload = requestBody;		
-				}
-				else {
-					payload = requestParams;
-				}
-			}
-			
-			MessageBuilder<?> messageBuilder = null;
-
-			if (payload instanceof Message<?>){
-				messageBuilder = MessageBuilder.fromMessage((Message<?>) payload).copyHeadersIfAbsent(headers);
-			}
-			else {
-				messageBuilder = MessageBuilder.withPayload(payload).copyHeaders(headers);
-			}
-			
-			Message<?> message = messageBuilder
-					.setHeader(org.springframework.integration.http.HttpHeaders.REQUEST_URL, request.getURI().toString())
-					.setHeader(org.springframework.integration.http.HttpHeaders.REQUEST_METHOD, request.getMethod().toString())
-					.setHeader(org.springframework.integration.http.HttpHeaders.USER_PRINCIPAL, servletRequest.getUserPrincipal())
-					.build();
-			
 			Object reply = null;
 			if (this.expectReply) {
 				reply = this.sendAndReceiveMessage(message);
 				if (reply != null) {
-					ServletServerHttpResponse response = new ServletServerHttpResponse(servletResponse);
-					this.headerMapper.fromHeaders(((Message<?>) reply).getHeaders(), response.getHeaders());
-					HttpStatus httpStatus = this.resolveHttpStatusFromHeaders(((Message<?>) reply).getHeaders());
-					if (httpStatus != null) {
-						response.setStatusCode(httpStatus);
-					}	
-					response.close();
-					if (this.extractReplyPayload) {
-						reply = ((Message<?>) reply).getPayload();
-					}
+					reply = this.processReply((Message<?>) reply, servletResponse);
 				}
 			}
 			else {
@@ -399,6 +324,102 @@ abstract class HttpRequestHandlingEndpointSupport extends MessagingGatewaySuppor
 		}
 	}
 
+	/**
+	 * Generates the request Message for the given HTTP request. If the request method is not supported, the
+	 * response status is set to 405 and <code>null</code> is returned. The caller is responsible for invoking
+	 * {@link #postProcessRequest(HttpServletRequest)} once the request has been handled.
+	 * @since 2.1.1
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected final Message<?> createRequestMessage(HttpServletRequest servletRequest,
+			HttpServletResponse servletResponse) throws IOException {
+		ServletServerHttpRequest request = this.prepareRequest(servletRequest);
+		if (!this.supportedMethods.contains(request.getMethod())) {
+			servletResponse.setStatus(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+			return null;
+		}
+
+		Object requestBody = null;
+		if (this.isReadable(request)) {
+			requestBody = this.extractRequestBody(request);
+		}
+		HttpEntity httpEntity = new HttpEntity(requestBody, request.getHeaders());
+
+		StandardEvaluationContext evaluationContext = this.createEvaluationContext();
+		evaluationContext.setRootObject(httpEntity);
+
+		LinkedMultiValueMap<String, String> requestParams = this.convertParameterMap(servletRequest.getParameterMap());
+		evaluationContext.setVariable("requestParams", requestParams);
+
+		if (StringUtils.hasText(this.path)) {
+			String lookupPath = this.urlPathHelper.getLookupPathForRequest(servletRequest);
+			Map pathVariables = this.pathMatcher.extractUriTemplateVariables(this.path, lookupPath);
+			if (!pathVariables.isEmpty()) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Mapped path variables: " + pathVariables);
+				}
+				evaluationContext.setVariable("pathVariables", pathVariables);
+			}
+		}
+
+		Map<String, Object> headers = this.headerMapper.toHeaders(request.getHeaders());
+		Object payload = null;
+		if (this.payloadExpression != null) {
+			// create payload based on SpEL
+			payload = this.payloadExpression.getValue(evaluationContext);
+		}
+		if (!CollectionUtils.isEmpty(this.headerExpressions)) {
+			for (String headerName : this.headerExpressions.keySet()) {
+				Expression headerExpression = this.headerExpressions.get(headerName);
+				Object headerValue = headerExpression.getValue(evaluationContext);
+				if (headerValue != null) {
+					headers.put(headerName, headerValue);
+				}
+			}
+		}
+
+		if (payload == null) {
+			if (requestBody != null) {
+				payload = requestBody;		
+			}
+			else {
+				payload = requestParams;
+			}
+		}
+		
+		MessageBuilder<?> messageBuilder = null;
+
+		if (payload instanceof Message<?>){
+			messageBuilder = MessageBuilder.fromMessage((Message<?>) payload).copyHeadersIfAbsent(headers);
+		}
+		else {
+			messageBuilder = MessageBuilder.withPayload(payload).copyHeaders(headers);
+		}
+		
+		return messageBuilder
+				.setHeader(org.springframework.integration.http.HttpHeaders.REQUEST_URL, request.getURI().toString())
+				.setHeader(org.springframework.integration.http.HttpHeaders.REQUEST_METHOD, request.getMethod().toString())
+				.setHeader(org.springframework.integration.http.HttpHeaders.USER_PRINCIPAL, servletRequest.getUserPrincipal())
+				.build();
+	}
+
+	/**
+	 * Maps the reply Message's headers (including any status code header) onto the HTTP response and returns
+	 * the content to be written: the reply payload if {@link #setExtractReplyPayload(boolean) extractReplyPayload}
+	 * is true, otherwise the reply Message itself.
+	 * @since 2.1.1
+	 */
+	protected final Object processReply(Message<?> reply, HttpServletResponse servletResponse) {
+		ServletServerHttpResponse response = new ServletServerHttpResponse(servletResponse);
+		this.headerMapper.fromHeaders(reply.getHeaders(), response.getHeaders());
+		HttpStatus httpStatus = this.resolveHttpStatusFromHeaders(reply.getHeaders());
+		if (httpStatus != null) {
+			response.setStatusCode(httpStatus);
+		}
+		response.close();
+		return (this.extractReplyPayload) ? reply.getPayload() : reply;
+	}
+
 	/**
 	 * Prepares an instance of {@link ServletServerHttpRequest} from the raw {@link HttpServletRequest}. Also converts
 	 * the request into a multipart request to make multiparts available if necessary. If no multipart resolver is set,
@@ -433,7 +454,7 @@ abstract class HttpRequestHandlingEndpointSupport extends MessagingGatewaySuppor
 	 * @param request current HTTP request
 	 * @see MultipartResolver#cleanupMultipart
 	 */
-	private void postProcessRequest(HttpServletRequest request) {
+	protected final void postProcessRequest(HttpServletRequest request) {
 		if (this.multipartResolver != null && request instanceof MultipartHttpServletRequest) {
 			this.multipartResolver.cleanupMultipart((MultipartHttpServletRequest) request);
 		}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.integration.http.inbound;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -29,8 +30,12 @@ import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
 import org.springframework.integration.MessagingException;
 import org.springframework.integration.http.converter.MultipartAwareFormHttpMessageConverter;
+import org.springframework.integration.message.ErrorMessage;
+import org.springframework.integration.support.MessageBuilder;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.HttpRequestHandler;
@@ -53,6 +58,11 @@ import org.springframework.web.HttpRequestHandler;
  * <p/>
  * By default a number of {@link HttpMessageConverter}s are already configured. The list can be overridden by calling
  * the {@link #setMessageConverters(List)} method.
+ * <p/>
+ * When {@link #setAsync(boolean) async} is enabled and the request is handled by a Servlet 3.0 container with
+ * asynchronous support enabled for the servlet (and any filters), the container thread is released as soon as the
+ * request Message has been sent; the response is written and completed by whichever thread delivers the reply, or
+ * when the reply timeout expires.
  * 
  * @author Mark Fisher
  * @author Oleg Zhurakousky
@@ -62,6 +72,8 @@ public class HttpRequestHandlingMessagingGateway extends HttpRequestHandlingEndp
 
 	private volatile boolean convertExceptions;
 
+	private volatile boolean async;
+
 
 	public HttpRequestHandlingMessagingGateway() {
 		this(true);
@@ -83,6 +95,23 @@ public class HttpRequestHandlingMessagingGateway extends HttpRequestHandlingEndp
 		this.convertExceptions = convertExceptions;
 	}
 
+	/**
+	 * Specify whether a request-reply exchange should suspend the HTTP request (Servlet 3.0 asynchronous processing)
+	 * rather than block the container thread until the reply arrives (default false). The reply timeout is applied to
+	 * the suspended request; if it elapses the response is completed without content, as in the blocking case.
+	 * Requests that cannot be suspended (e.g. on a Servlet 2.x container, or when the servlet is not declared
+	 * <code>async-supported</code>) are handled synchronously.
+	 * <p/>
+	 * Errors raised by the downstream flow are written to the response according to the
+	 * {@link #setConvertExceptions(boolean) convertExceptions} flag or, if not converted, result in a 500 response.
+	 * An error-channel configured on this gateway only receives failures to send the request; its flow cannot
+	 * provide the response.
+	 * @since 2.1.1
+	 */
+	public void setAsync(boolean async) {
+		this.async = async;
+	}
+
 	/**
 	 * Handles the HTTP request by generating a Message and sending it to the request channel. If this gateway's
 	 * 'expectReply' property is true, it will also generate a response from the reply Message once received. That
@@ -90,6 +119,10 @@ public class HttpRequestHandlingMessagingGateway extends HttpRequestHandlingEndp
 	 */
 	public final void handleRequest(HttpServletRequest servletRequest, HttpServletResponse servletResponse)
 			throws ServletException, IOException {
+		if (this.async && isExpectReply() && AsyncRequestContext.isAsyncSupported(servletRequest)) {
+			this.handleRequestAsync(servletRequest, servletResponse);
+			return;
+		}
 		Object responseContent = null;
 		try {
 			responseContent = super.doHandleRequest(servletRequest, servletResponse);
@@ -97,6 +130,50 @@ public class HttpRequestHandlingMessagingGateway extends HttpRequestHandlingEndp
 		catch (Exception e) {
 			responseContent = handleExceptionInternal(e);
 		}
+		this.writeResponseContent(responseContent, servletRequest, servletResponse);
+	}
+
+	/**
+	 * Sends the request Message with a reply channel that writes the response, and suspends the request so that the
+	 * container thread is returned as soon as the send completes.
+	 */
+	private void handleRequestAsync(HttpServletRequest servletRequest, HttpServletResponse servletResponse)
+			throws IOException {
+		boolean suspended = false;
+		try {
+			Message<?> requestMessage = null;
+			try {
+				requestMessage = this.createRequestMessage(servletRequest, servletResponse);
+			}
+			catch (Exception e) {
+				this.writeResponseContent(handleExceptionInternal(e), servletRequest, servletResponse);
+				return;
+			}
+			if (requestMessage != null) {
+				AsyncReplyChannel replyChannel = new AsyncReplyChannel(servletRequest, servletResponse);
+				suspended = true;
+				Message<?> message = MessageBuilder.fromMessage(requestMessage)
+						.setReplyChannel(replyChannel)
+						.setErrorChannel(replyChannel)
+						.build();
+				try {
+					this.send(message);
+				}
+				catch (Exception e) {
+					replyChannel.send(new ErrorMessage(e));
+				}
+			}
+		}
+		finally {
+			// once suspended, the request is cleaned up when the reply channel completes it
+			if (!suspended) {
+				this.postProcessRequest(servletRequest);
+			}
+		}
+	}
+
+	private void writeResponseContent(Object responseContent, HttpServletRequest servletRequest,
+			HttpServletResponse servletResponse) throws IOException {
 		if (responseContent != null) {
 			ServletServerHttpRequest request = new ServletServerHttpRequest(servletRequest);
 			ServletServerHttpResponse response = new ServletServerHttpResponse(servletResponse);
@@ -143,4 +220,92 @@ public class HttpRequestHandlingMessagingGateway extends HttpRequestHandlingEndp
 				+ content.getClass().getName() + "] and accept types [" + acceptTypes + "]");
 	}
 
+
+	/**
+	 * Reply (and error) channel for a suspended request. The first of a reply, an error or a timeout wins: it writes
+	 * the response and completes the request, while anything arriving later is rejected.
+	 */
+	private class AsyncReplyChannel implements MessageChannel, Runnable {
+
+		private final HttpServletRequest servletRequest;
+
+		private final HttpServletResponse servletResponse;
+
+		private final AtomicBoolean completed = new AtomicBoolean();
+
+		private final AsyncRequestContext asyncRequestContext;
+
+		AsyncReplyChannel(HttpServletRequest servletRequest, HttpServletResponse servletResponse) {
+			this.servletRequest = servletRequest;
+			this.servletResponse = servletResponse;
+			this.asyncRequestContext = AsyncRequestContext.startAsync(servletRequest, servletResponse,
+					getReplyTimeout(), this);
+		}
+
+		public boolean send(Message<?> message) {
+			return this.send(message, -1);
+		}
+
+		public boolean send(Message<?> message, long timeout) {
+			if (!this.completed.compareAndSet(false, true)) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("Reply received after the HTTP response was completed, discarding: " + message);
+				}
+				return false;
+			}
+			try {
+				Object responseContent = null;
+				if (message instanceof ErrorMessage) {
+					Throwable error = ((ErrorMessage) message).getPayload();
+					responseContent = handleExceptionInternal((error instanceof Exception) ? (Exception) error
+							: new MessagingException(message, error));
+				}
+				else {
+					responseContent = processReply(message, this.servletResponse);
+				}
+				writeResponseContent(responseContent, this.servletRequest, this.servletResponse);
+			}
+			catch (Exception e) {
+				logger.error("Failed to write HTTP response", e);
+				try {
+					if (!this.servletResponse.isCommitted()) {
+						this.servletResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+					}
+				}
+				catch (IOException ioe) {
+					logger.debug("Failed to send error response", ioe);
+				}
+			}
+			finally {
+				this.complete();
+			}
+			return true;
+		}
+
+		/**
+		 * Invoked by the container when the reply timeout expires.
+		 */
+		public void run() {
+			if (this.completed.compareAndSet(false, true)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("No reply received within timeout for request " + this.servletRequest.getRequestURI());
+				}
+				this.complete();
+			}
+		}
+
+		/**
+		 * Release the request's resources, such as multipart files, which may be read until the reply has been
+		 * written, and complete the request.
+		 */
+		private void complete() {
+			try {
+				postProcessRequest(this.servletRequest);
+			}
+			finally {
+				this.asyncRequestContext.complete();
+			}
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,9 @@
 
 package org.springframework.integration.http.outbound;
 
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -24,10 +26,15 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import javax.xml.transform.Source;
 
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+
 import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.expression.BeanFactoryResolver;
 import org.springframework.context.expression.MapAccessor;
 import org.springframework.core.convert.ConversionService;
@@ -41,22 +48,27 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.CommonsClientHttpRequestFactory;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageHandlingException;
 import org.springframework.integration.MessagingException;
+import org.springframework.integration.channel.MessagePublishingErrorHandler;
 import org.springframework.integration.core.MessageHandler;
 import org.springframework.integration.handler.AbstractReplyProducingMessageHandler;
 import org.springframework.integration.http.converter.SerializingHttpMessageConverter;
 import org.springframework.integration.http.support.DefaultHttpHeaderMapper;
 import org.springframework.integration.mapping.HeaderMapper;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriTemplate;
+import org.springframework.web.util.UriUtils;
 
 /**
  * A {@link MessageHandler} implementation that executes HTTP requests by delegating
@@ -67,16 +79,27 @@ import org.springframework.web.client.RestTemplate;
  * When there is a response body, the {@link HttpStatus} enum instance will instead be
  * copied to the MessageHeaders of the reply. In both cases, the response headers will
  * be mapped to the reply Message's headers by this handler's {@link HeaderMapper} instance.
+ * <p>
+ * The URI template is parsed once, when the handler is created. When a 'taskExecutor' is
+ * provided, requests are executed on that Executor and the reply is sent to the output channel
+ * (or 'replyChannel' header) when the response arrives, instead of blocking the calling thread.
+ * Setting 'maxConnections' configures a pooled, keep-alive Commons HttpClient request factory.
  * 
  * @author Mark Fisher
  * @author Oleg Zhurakousky
  * @author Gary Russell
  * @since 2.0
  */
-public class HttpRequestExecutingMessageHandler extends AbstractReplyProducingMessageHandler {
+public class HttpRequestExecutingMessageHandler extends AbstractReplyProducingMessageHandler implements DisposableBean {
 
 	private final String uri;
 
+	private final UriTemplate uriTemplate;
+
+	private volatile Expression[] uriVariableExpressionsByPosition = new Expression[0];
+
+	private volatile URI expandedUri;
+
 	private volatile HttpMethod httpMethod = HttpMethod.POST;
 
 	private volatile boolean expectReply = true;
@@ -97,6 +120,20 @@ public class HttpRequestExecutingMessageHandler extends AbstractReplyProducingMe
 
 	private final RestTemplate restTemplate;
 
+	private final boolean restTemplateExplicitlySet;
+
+	private volatile boolean requestFactoryExplicitlySet;
+
+	private volatile int maxConnections;
+
+	private volatile int maxConnectionsPerHost;
+
+	private volatile CommonsClientHttpRequestFactory pooledRequestFactory;
+
+	private volatile Executor taskExecutor;
+
+	private volatile MessagePublishingErrorHandler asyncErrorHandler;
+
 	private final StandardEvaluationContext evaluationContext;
 
 	/**
@@ -121,8 +158,10 @@ public class HttpRequestExecutingMessageHandler extends AbstractReplyProducingMe
 	public HttpRequestExecutingMessageHandler(String uri, RestTemplate restTemplate) {
 		Assert.hasText(uri, "URI is required");
 		this.restTemplate = (restTemplate == null ? new RestTemplate() : restTemplate);
+		this.restTemplateExplicitlySet = (restTemplate != null);
 		this.restTemplate.getMessageConverters().add(0, new SerializingHttpMessageConverter());
 		this.uri = uri;
+		this.uriTemplate = new HttpUrlTemplate(uri);
 		StandardEvaluationContext sec = new StandardEvaluationContext();
 		sec.addPropertyAccessor(new MapAccessor());
 		this.evaluationContext = sec;
@@ -204,8 +243,41 @@ public class HttpRequestExecutingMessageHandler extends AbstractReplyProducingMe
 	 */
 	public void setRequestFactory(ClientHttpRequestFactory requestFactory) {
 		this.restTemplate.setRequestFactory(requestFactory);
+		this.requestFactoryExplicitlySet = true;
 	}
-	
+
+	/**
+	 * Set the maximum number of pooled connections. When greater than 0, the underlying
+	 * {@link RestTemplate} uses a {@link CommonsClientHttpRequestFactory} backed by a
+	 * {@link MultiThreadedHttpConnectionManager}, so connections are kept alive and reused.
+	 * Requires Commons HttpClient 3.x, and cannot be combined with a provided RestTemplate
+	 * or ClientHttpRequestFactory. The default is 0 (a non-pooled request factory).
+	 * @since 2.1.1
+	 */
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	/**
+	 * Set the maximum number of pooled connections to a single host. Defaults to
+	 * 'maxConnections'. Only applies when 'maxConnections' is greater than 0.
+	 * @since 2.1.1
+	 */
+	public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+	}
+
+	/**
+	 * Set an Executor on which requests are executed. When provided, the calling thread
+	 * is released as soon as the request has been submitted; the reply is sent to the
+	 * output channel (or 'replyChannel' header) when the response arrives, and failures
+	 * are sent to the 'errorChannel' header or the default error channel.
+	 * @since 2.1.1
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
 	/**
 	 * Set the Map of URI variable expressions to evaluate against the outbound message
 	 * when replacing the variable placeholders in a URI template.
@@ -214,6 +286,12 @@ public class HttpRequestExecutingMessageHandler extends AbstractReplyProducingMe
 		synchronized (this.uriVariableExpressions) {
 			this.uriVariableExpressions.clear();
 			this.uriVariableExpressions.putAll(uriVariableExpressions);
+			List<String> variableNames = this.uriTemplate.getVariableNames();
+			Expression[] expressionsByPosition = new Expression[variableNames.size()];
+			for (int i = 0; i < expressionsByPosition.length; i++) {
+				expressionsByPosition[i] = this.uriVariableExpressions.get(variableNames.get(i));
+			}
+			this.uriVariableExpressionsByPosition = expressionsByPosition;
 		}
 	}
 
@@ -244,18 +322,62 @@ public class HttpRequestExecutingMessageHandler extends AbstractReplyProducingMe
 			           this.httpMethod + "', and no request body will be sent for that method.");
 			}
 		}
+		if (this.maxConnections > 0 && this.pooledRequestFactory == null) {
+			Assert.state(!this.restTemplateExplicitlySet && !this.requestFactoryExplicitlySet,
+					"'maxConnections' cannot be combined with a provided RestTemplate or ClientHttpRequestFactory");
+			MultiThreadedHttpConnectionManager connectionManager = new MultiThreadedHttpConnectionManager();
+			connectionManager.getParams().setMaxTotalConnections(this.maxConnections);
+			connectionManager.getParams().setDefaultMaxConnectionsPerHost(
+					(this.maxConnectionsPerHost > 0) ? this.maxConnectionsPerHost : this.maxConnections);
+			this.pooledRequestFactory = new CommonsClientHttpRequestFactory(new HttpClient(connectionManager));
+			this.restTemplate.setRequestFactory(this.pooledRequestFactory);
+		}
+		if (this.taskExecutor != null) {
+			this.asyncErrorHandler = (beanFactory != null) ?
+					new MessagePublishingErrorHandler(new BeanFactoryChannelResolver(beanFactory)) :
+					new MessagePublishingErrorHandler();
+		}
+	}
+
+	/**
+	 * Release the pooled connections, if any.
+	 */
+	public void destroy() {
+		if (this.pooledRequestFactory != null) {
+			this.pooledRequestFactory.destroy();
+		}
 	}
 
 	@Override
-	protected Object handleRequestMessage(Message<?> requestMessage) {
-		try {
-			Map<String, Object> uriVariables = new HashMap<String, Object>();
-			for (Map.Entry<String, Expression> entry : this.uriVariableExpressions.entrySet()) {
-				Object value = entry.getValue().getValue(this.evaluationContext, requestMessage, String.class);
-				uriVariables.put(entry.getKey(), value);
+	protected Object handleRequestMessage(final Message<?> requestMessage) {
+		if (this.taskExecutor == null) {
+			return this.exchange(requestMessage);
+		}
+		this.taskExecutor.execute(new Runnable() {
+			public void run() {
+				try {
+					Object reply = exchange(requestMessage);
+					if (reply != null) {
+						handleResult(reply, requestMessage.getHeaders());
+					}
+				}
+				catch (MessagingException e) {
+					asyncErrorHandler.handleError(e);
+				}
+				catch (Exception e) {
+					asyncErrorHandler.handleError(new MessageHandlingException(requestMessage,
+							"failed to handle the HTTP response for URI [" + uri + "]", e));
+				}
 			}
+		});
+		return null;
+	}
+
+	private Object exchange(Message<?> requestMessage) {
+		try {
+			URI expandedUri = this.expandUri(requestMessage);
 			HttpEntity<?> httpRequest = this.generateHttpRequest(requestMessage);
-			ResponseEntity<?> httpResponse = this.restTemplate.exchange(this.uri, this.httpMethod, httpRequest, this.expectedResponseType, uriVariables);
+			ResponseEntity<?> httpResponse = this.restTemplate.exchange(expandedUri, this.httpMethod, httpRequest, this.expectedResponseType);
 			if (this.expectReply) {
 				HttpHeaders httpHeaders = httpResponse.getHeaders();
 				Map<String, Object> headers = this.headerMapper.toHeaders(httpHeaders);
@@ -285,6 +407,32 @@ public class HttpRequestExecutingMessageHandler extends AbstractReplyProducingMe
 		}
 	}
 
+	/**
+	 * Expand the pre-parsed URI template with the values of the URI variable expressions
+	 * evaluated against the request message. A template without variables is expanded once.
+	 */
+	private URI expandUri(Message<?> requestMessage) {
+		Expression[] expressions = this.uriVariableExpressionsByPosition;
+		List<String> variableNames = this.uriTemplate.getVariableNames();
+		if (variableNames.isEmpty()) {
+			URI expanded = this.expandedUri;
+			if (expanded == null) {
+				expanded = this.uriTemplate.expand();
+				this.expandedUri = expanded;
+			}
+			return expanded;
+		}
+		Object[] uriVariables = new Object[variableNames.size()];
+		for (int i = 0; i < uriVariables.length; i++) {
+			Expression expression = (i < expressions.length) ? expressions[i] : null;
+			if (expression == null) {
+				throw new IllegalArgumentException("Map has no value for '" + variableNames.get(i) + "'");
+			}
+			uriVariables[i] = expression.getValue(this.evaluationContext, requestMessage, String.class);
+		}
+		return this.uriTemplate.expand(uriVariables);
+	}
+
 	/**
 	 * Convert Set-Cookie to Cookie
 	 */
@@ -444,4 +592,31 @@ public class HttpRequestExecutingMessageHandler extends AbstractReplyProducingMe
 		return true;
 	}
 
+
+
+	/**
+	 * Encodes the expanded URI the same way the {@link RestTemplate} does for String URI templates.
+	 */
+	@SuppressWarnings("serial")
+	private static class HttpUrlTemplate extends UriTemplate {
+
+		public HttpUrlTemplate(String uriTemplate) {
+			super(uriTemplate);
+		}
+
+		@Override
+		protected URI encodeUri(String uri) {
+			try {
+				String encoded = UriUtils.encodeHttpUrl(uri, "UTF-8");
+				return new URI(encoded);
+			}
+			catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+			catch (URISyntaxException e) {
+				throw new IllegalArgumentException("Could not create HTTP URL from [" + uri + "]: " + e, e);
+			}
+		}
+	}
+
 }
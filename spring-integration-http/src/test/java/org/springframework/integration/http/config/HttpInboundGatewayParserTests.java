@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -88,6 +88,7 @@ public class HttpInboundGatewayParserTests {
 		assertNotNull(gateway);
 		assertThat((Boolean) getPropertyValue(gateway, "expectReply"), is(true));
 		assertThat((Boolean) getPropertyValue(gateway, "convertExceptions"), is(true));
+		assertThat((Boolean) getPropertyValue(gateway, "async"), is(true));
 		assertThat((PollableChannel) getPropertyValue(gateway, "replyChannel"), is(responses));
 		assertNotNull(TestUtils.getPropertyValue(gateway, "errorChannel"));
 	}
@@ -34,6 +34,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.expression.Expression;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.CommonsClientHttpRequestFactory;
 import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.integration.MessageChannel;
@@ -57,6 +58,9 @@ public class HttpOutboundGatewayParserTests {
 	@Autowired @Qualifier("fullConfig")
 	private AbstractEndpoint fullConfigEndpoint;
 
+	@Autowired @Qualifier("pooledAsyncConfig")
+	private AbstractEndpoint pooledAsyncConfigEndpoint;
+
 	@Autowired
 	private ApplicationContext applicationContext;
 
@@ -129,6 +133,18 @@ public class HttpOutboundGatewayParserTests {
 		assertEquals(true, handlerAccessor.getPropertyValue("transferCookies"));
 	}
 
+	@Test
+	public void pooledAsyncConfig() {
+		HttpRequestExecutingMessageHandler handler = (HttpRequestExecutingMessageHandler) new DirectFieldAccessor(
+				this.pooledAsyncConfigEndpoint).getPropertyValue("handler");
+		DirectFieldAccessor handlerAccessor = new DirectFieldAccessor(handler);
+		assertEquals(100, handlerAccessor.getPropertyValue("maxConnections"));
+		assertEquals(20, handlerAccessor.getPropertyValue("maxConnectionsPerHost"));
+		assertEquals(this.applicationContext.getBean("testExecutor"), handlerAccessor.getPropertyValue("taskExecutor"));
+		DirectFieldAccessor templateAccessor = new DirectFieldAccessor(handlerAccessor.getPropertyValue("restTemplate"));
+		assertTrue(templateAccessor.getPropertyValue("requestFactory") instanceof CommonsClientHttpRequestFactory);
+	}
+
 
 	public static class StubErrorHandler implements ResponseErrorHandler {
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,7 +17,12 @@
 package org.springframework.integration.http.inbound;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -25,6 +30,9 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
 
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
 import org.junit.Test;
 
 import org.springframework.http.HttpInputMessage;
@@ -35,14 +43,21 @@ import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.handler.AbstractReplyProducingMessageHandler;
 import org.springframework.integration.http.MockHttpServletRequest;
 import org.springframework.integration.http.inbound.HttpRequestHandlingMessagingGateway;
+import org.springframework.integration.message.ErrorMessage;
+import org.springframework.integration.support.MessageBuilder;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.mock.web.MockMultipartHttpServletRequest;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.SerializationUtils;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.multipart.MultipartResolver;
 
 /**
  * @author Mark Fisher
@@ -201,6 +216,114 @@ public class HttpRequestHandlingMessagingGatewayTests {
 	}
 
 
+	@Test
+	public void asyncRequestCompletedByReply() throws Exception {
+		QueueChannel requestChannel = new QueueChannel();
+		HttpRequestHandlingMessagingGateway gateway = new HttpRequestHandlingMessagingGateway(true);
+		gateway.setRequestPayloadType(String.class);
+		gateway.setRequestChannel(requestChannel);
+		gateway.setReplyTimeout(10000);
+		gateway.setAsync(true);
+		AsyncMockHttpServletRequest request = new AsyncMockHttpServletRequest();
+		request.setMethod("POST");
+		request.setContentType("text/plain");
+		request.setContent("hello".getBytes());
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		gateway.handleRequest(request, response);
+		MockAsyncContext asyncContext = request.asyncContext;
+		assertNotNull(asyncContext);
+		assertEquals(10000, asyncContext.timeout);
+		assertFalse(asyncContext.completed);
+		Message<?> requestMessage = requestChannel.receive(0);
+		assertNotNull(requestMessage);
+		MessageChannel replyChannel = (MessageChannel) requestMessage.getHeaders().getReplyChannel();
+		assertTrue(replyChannel.send(MessageBuilder.withPayload("HELLO").build()));
+		assertTrue(asyncContext.completed);
+		assertEquals("HELLO", response.getContentAsString());
+		assertFalse(replyChannel.send(MessageBuilder.withPayload("late").build()));
+	}
+
+	@Test
+	public void asyncRequestTimesOut() throws Exception {
+		QueueChannel requestChannel = new QueueChannel();
+		HttpRequestHandlingMessagingGateway gateway = new HttpRequestHandlingMessagingGateway(true);
+		gateway.setRequestChannel(requestChannel);
+		gateway.setAsync(true);
+		AsyncMockHttpServletRequest request = new AsyncMockHttpServletRequest();
+		request.setMethod("GET");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		gateway.handleRequest(request, response);
+		MockAsyncContext asyncContext = request.asyncContext;
+		asyncContext.listener.onTimeout(null);
+		assertTrue(asyncContext.completed);
+		assertEquals("", response.getContentAsString());
+		Message<?> requestMessage = requestChannel.receive(0);
+		MessageChannel replyChannel = (MessageChannel) requestMessage.getHeaders().getReplyChannel();
+		assertFalse(replyChannel.send(MessageBuilder.withPayload("late").build()));
+	}
+
+	@Test
+	public void asyncRequestCompletedByError() throws Exception {
+		QueueChannel requestChannel = new QueueChannel();
+		HttpRequestHandlingMessagingGateway gateway = new HttpRequestHandlingMessagingGateway(true);
+		gateway.setRequestChannel(requestChannel);
+		gateway.setAsync(true);
+		AsyncMockHttpServletRequest request = new AsyncMockHttpServletRequest();
+		request.setMethod("GET");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		gateway.handleRequest(request, response);
+		Message<?> requestMessage = requestChannel.receive(0);
+		MessageChannel errorChannel = (MessageChannel) requestMessage.getHeaders().getErrorChannel();
+		assertTrue(errorChannel.send(new ErrorMessage(new RuntimeException("Planned"))));
+		assertTrue(request.asyncContext.completed);
+		assertEquals(500, response.getStatus());
+	}
+
+	@Test
+	public void asyncMultipartRequestCleanedUpOnCompletion() throws Exception {
+		QueueChannel requestChannel = new QueueChannel();
+		HttpRequestHandlingMessagingGateway gateway = new HttpRequestHandlingMessagingGateway(true);
+		gateway.setRequestChannel(requestChannel);
+		gateway.setAsync(true);
+		MultipartResolver multipartResolver = mock(MultipartResolver.class);
+		gateway.setMultipartResolver(multipartResolver);
+		AsyncMockMultipartHttpServletRequest request = new AsyncMockMultipartHttpServletRequest();
+		request.setMethod("POST");
+		request.addFile(new MockMultipartFile("file", "hello".getBytes()));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		gateway.handleRequest(request, response);
+		// the reply may still need the uploaded files
+		verify(multipartResolver, never()).cleanupMultipart(request);
+		Message<?> requestMessage = requestChannel.receive(0);
+		assertNotNull(requestMessage);
+		MessageChannel replyChannel = (MessageChannel) requestMessage.getHeaders().getReplyChannel();
+		assertTrue(replyChannel.send(MessageBuilder.withPayload("done").build()));
+		assertTrue(request.asyncContext.completed);
+		verify(multipartResolver).cleanupMultipart((MultipartHttpServletRequest) request);
+	}
+
+	@Test
+	public void asyncFallsBackToBlockingWhenNotSupported() throws Exception {
+		DirectChannel requestChannel = new DirectChannel();
+		requestChannel.subscribe(new AbstractReplyProducingMessageHandler() {
+			protected Object handleRequestMessage(Message<?> requestMessage) {
+				return requestMessage.getPayload().toString().toUpperCase();
+			}
+		});
+		HttpRequestHandlingMessagingGateway gateway = new HttpRequestHandlingMessagingGateway(true);
+		gateway.setRequestPayloadType(String.class);
+		gateway.setRequestChannel(requestChannel);
+		gateway.setAsync(true);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setMethod("POST");
+		request.setContentType("text/plain");
+		request.setContent("hello".getBytes());
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		gateway.handleRequest(request, response);
+		assertEquals("HELLO", response.getContentAsString());
+	}
+
+
 	private static class TestHttpMessageConverter extends AbstractHttpMessageConverter<Exception> {
 		
 		public TestHttpMessageConverter() {
@@ -242,4 +365,70 @@ public class HttpRequestHandlingMessagingGatewayTests {
 		}
 	}
 
+	/**
+	 * Mimics the Servlet 3.0 asynchronous processing methods, which the gateway invokes reflectively.
+	 */
+	public static class AsyncMockHttpServletRequest extends MockHttpServletRequest {
+
+		private volatile MockAsyncContext asyncContext;
+
+		public boolean isAsyncSupported() {
+			return true;
+		}
+
+		public MockAsyncContext startAsync(ServletRequest request, ServletResponse response) {
+			this.asyncContext = new MockAsyncContext();
+			return this.asyncContext;
+		}
+	}
+
+
+	public static class AsyncMockMultipartHttpServletRequest extends MockMultipartHttpServletRequest {
+
+		private volatile MockAsyncContext asyncContext;
+
+		public boolean isAsyncSupported() {
+			return true;
+		}
+
+		public MockAsyncContext startAsync(ServletRequest request, ServletResponse response) {
+			this.asyncContext = new MockAsyncContext();
+			return this.asyncContext;
+		}
+	}
+
+
+	public static class MockAsyncContext {
+
+		private volatile long timeout;
+
+		private volatile MockAsyncListener listener;
+
+		private volatile boolean completed;
+
+		public void setTimeout(long timeout) {
+			this.timeout = timeout;
+		}
+
+		public void addListener(MockAsyncListener listener) {
+			this.listener = listener;
+		}
+
+		public void complete() {
+			this.completed = true;
+		}
+	}
+
+
+	public static interface MockAsyncListener {
+
+		void onComplete(Object event);
+
+		void onTimeout(Object event);
+
+		void onError(Object event);
+
+		void onStartAsync(Object event);
+	}
+
 }
@@ -20,23 +20,42 @@ import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.xml.transform.Source;
 
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.CommonsClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.integration.Message;
+import org.springframework.integration.MessagingException;
 import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.http.outbound.HttpRequestExecutingMessageHandler;
 import org.springframework.integration.support.MessageBuilder;
@@ -640,6 +659,81 @@ public class HttpRequestExecutingMessageHandlerTests {
 		*/
 	}
 	
+	@Test
+	public void asyncReplyIsSentToOutputChannel() throws Exception {
+		HttpRequestExecutingMessageHandler handler = new HttpRequestExecutingMessageHandler("http://www.springsource.org/spring-integration");
+		final CountDownLatch requestLatch = new CountDownLatch(1);
+		final ClientHttpResponse response = mock(ClientHttpResponse.class);
+		when(response.getStatusCode()).thenReturn(HttpStatus.OK);
+		when(response.getHeaders()).thenReturn(new HttpHeaders());
+		final ClientHttpRequest request = mock(ClientHttpRequest.class);
+		when(request.getHeaders()).thenReturn(new HttpHeaders());
+		when(request.getBody()).thenReturn(new ByteArrayOutputStream());
+		when(request.execute()).thenAnswer(new Answer<ClientHttpResponse>() {
+			public ClientHttpResponse answer(InvocationOnMock invocation) throws Throwable {
+				requestLatch.await(10, TimeUnit.SECONDS);
+				return response;
+			}
+		});
+		handler.setRequestFactory(new ClientHttpRequestFactory() {
+			public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+				return request;
+			}
+		});
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		handler.setTaskExecutor(executor);
+		QueueChannel replyChannel = new QueueChannel();
+		handler.setOutputChannel(replyChannel);
+		handler.afterPropertiesSet();
+		// the calling thread returns before the response arrives
+		handler.handleMessage(MessageBuilder.withPayload("foo").setHeader("bar", "baz").build());
+		assertNull(replyChannel.receive(0));
+		requestLatch.countDown();
+		Message<?> reply = replyChannel.receive(10000);
+		assertNotNull(reply);
+		assertEquals(HttpStatus.OK, reply.getPayload());
+		assertEquals("baz", reply.getHeaders().get("bar"));
+		executor.shutdown();
+	}
+
+	@Test
+	public void asyncFailureIsSentToErrorChannel() throws Exception {
+		HttpRequestExecutingMessageHandler handler = new HttpRequestExecutingMessageHandler("http://www.springsource.org/spring-integration");
+		new DirectFieldAccessor(handler).setPropertyValue("restTemplate", new MockRestTemplate());
+		handler.setTaskExecutor(new SyncTaskExecutor());
+		handler.afterPropertiesSet();
+		QueueChannel errorChannel = new QueueChannel();
+		Message<?> message = MessageBuilder.withPayload("foo").setErrorChannel(errorChannel).build();
+		handler.handleMessage(message);
+		Message<?> error = errorChannel.receive(0);
+		assertNotNull(error);
+		MessagingException exception = (MessagingException) error.getPayload();
+		assertEquals(message, exception.getFailedMessage());
+		assertEquals("intentional", exception.getCause().getMessage());
+	}
+
+	@Test
+	public void pooledRequestFactory() throws Exception {
+		HttpRequestExecutingMessageHandler handler = new HttpRequestExecutingMessageHandler("http://www.springsource.org/spring-integration");
+		handler.setMaxConnections(50);
+		handler.setMaxConnectionsPerHost(10);
+		handler.afterPropertiesSet();
+		DirectFieldAccessor accessor = new DirectFieldAccessor(new DirectFieldAccessor(handler).getPropertyValue("restTemplate"));
+		CommonsClientHttpRequestFactory requestFactory = (CommonsClientHttpRequestFactory) accessor.getPropertyValue("requestFactory");
+		HttpConnectionManagerParams params = requestFactory.getHttpClient().getHttpConnectionManager().getParams();
+		assertEquals(50, params.getMaxTotalConnections());
+		assertEquals(10, params.getDefaultMaxConnectionsPerHost());
+		handler.destroy();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void pooledRequestFactoryNotAllowedWithRequestFactory() throws Exception {
+		HttpRequestExecutingMessageHandler handler = new HttpRequestExecutingMessageHandler("http://www.springsource.org/spring-integration");
+		handler.setRequestFactory(new SimpleClientHttpRequestFactory());
+		handler.setMaxConnections(50);
+		handler.afterPropertiesSet();
+	}
+
 	public static class City{
 		private String name;
 		public City(String name){
@@ -655,8 +749,8 @@ public class HttpRequestExecutingMessageHandlerTests {
 		private final AtomicReference<HttpEntity<?>> lastRequestEntity = new AtomicReference<HttpEntity<?>>();
 
 		@Override
-		public <T> ResponseEntity<T> exchange(String url, HttpMethod method, HttpEntity<?> requestEntity,
-				Class<T> responseType, Map<String, ?> uriVariables) throws RestClientException {
+		public <T> ResponseEntity<T> exchange(URI url, HttpMethod method, HttpEntity<?> requestEntity,
+				Class<T> responseType) throws RestClientException {
 			this.lastRequestEntity.set(requestEntity);
 			throw new RuntimeException("intentional");
 		}
@@ -21,10 +21,13 @@ import static org.junit.Assert.assertEquals;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
+import org.springframework.expression.Expression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.client.ClientHttpRequest;
@@ -32,6 +35,7 @@ import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.integration.Message;
 import org.springframework.integration.http.outbound.HttpRequestExecutingMessageHandler;
 import org.springframework.integration.message.GenericMessage;
+import org.springframework.integration.support.MessageBuilder;
 
 /**
  * @author Dave Syer
@@ -64,4 +68,44 @@ public class UriVariableExpressionTests {
 		assertEquals("http://test/bar", uriHolder.get().toString());
 	}
 
+	@Test
+	public void testRepeatedAndEncodedVariables() throws Exception {
+		final AtomicReference<URI> uriHolder = new AtomicReference<URI>();
+		HttpRequestExecutingMessageHandler handler = new HttpRequestExecutingMessageHandler("http://test/{foo}/{foo}?q={bar}");
+		SpelExpressionParser parser = new SpelExpressionParser();
+		Map<String, Expression> expressions = new HashMap<String, Expression>();
+		expressions.put("foo", parser.parseExpression("payload"));
+		expressions.put("bar", parser.parseExpression("headers.bar"));
+		handler.setUriVariableExpressions(expressions);
+		handler.setRequestFactory(new SimpleClientHttpRequestFactory() {
+			public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+				uriHolder.set(uri);
+				throw new RuntimeException("intentional");
+			}
+		});
+		Message<?> message = MessageBuilder.withPayload("a b").setHeader("bar", "c d").build();
+		try {
+			handler.handleMessage(message);
+		}
+		catch (Exception e) {
+			// expected
+		}
+		assertEquals("http://test/a%20b/a%20b?q=c%20d", uriHolder.get().toString());
+	}
+
+	@Test
+	public void testMissingVariableExpression() throws Exception {
+		HttpRequestExecutingMessageHandler handler = new HttpRequestExecutingMessageHandler("http://test/{foo}/{bar}");
+		SpelExpressionParser parser = new SpelExpressionParser();
+		handler.setUriVariableExpressions(Collections.singletonMap("foo", parser.parseExpression("payload")));
+		Exception exception = null;
+		try {
+			handler.handleMessage(new GenericMessage<Object>("bar"));
+		}
+		catch (Exception e) {
+			exception = e;
+		}
+		assertEquals("Map has no value for 'bar'", exception.getCause().getMessage());
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,6 +32,10 @@ import org.springframework.integration.support.MessageBuilder;
  * Inbound messages include headers representing the remote end of the 
  * connection as well as a connection id that can be used by a {@link TcpSender}
  * to correlate which connection to send a reply.
+ * If extractPayload is false, entire Messages rather than their payloads are
+ * written to the connection, and Messages read from it keep their headers; this
+ * requires a (de)serializer that handles Messages, such as a
+ * {@link org.springframework.integration.ip.tcp.serializer.MessageCodecTcpSerializer}.
  * @author Gary Russell
  * @since 2.0
  *
@@ -46,14 +50,18 @@ public class TcpMessageMapper implements
 
 	private volatile boolean applySequence = false;
 
-	@SuppressWarnings("deprecation")
+	private volatile boolean extractPayload = true;
+
+	@SuppressWarnings({ "deprecation", "unchecked" })
 	public Message<Object> toMessage(TcpConnection connection) throws Exception {
 		Message<Object> message = null;
 		Object payload = connection.getPayload();
 		if (payload != null) {
 			String connectionId = connection.getConnectionId();
+			MessageBuilder<Object> builder = (!this.extractPayload && payload instanceof Message<?>) ?
+					MessageBuilder.fromMessage((Message<Object>) payload) : MessageBuilder.withPayload(payload);
 			if (this.applySequence) {
-				message = MessageBuilder.withPayload(payload)
+				message = builder
 						.setHeader(IpHeaders.HOSTNAME, connection.getHostName())
 						.setHeader(IpHeaders.IP_ADDRESS, connection.getHostAddress())
 						.setHeader(IpHeaders.REMOTE_PORT, connection.getPort())
@@ -62,7 +70,7 @@ public class TcpMessageMapper implements
 						.setSequenceNumber((int) connection.incrementAndGetConnectionSequence())
 						.build();
 			} else {
-				message = MessageBuilder.withPayload(payload)
+				message = builder
 						.setHeader(IpHeaders.HOSTNAME, connection.getHostName())
 						.setHeader(IpHeaders.IP_ADDRESS, connection.getHostAddress())
 						.setHeader(IpHeaders.REMOTE_PORT, connection.getPort())
@@ -76,6 +84,9 @@ public class TcpMessageMapper implements
 	}
 
 	public Object fromMessage(Message<?> message) throws Exception {
+		if (!this.extractPayload) {
+			return message;
+		}
 		if (this.stringToBytes) {
 			return getPayloadAsBytes(message);
 		}
@@ -127,6 +138,16 @@ public class TcpMessageMapper implements
 		this.stringToBytes = stringToBytes;
 	}
 
+	/**
+	 * Sets whether only the payload (default) or the entire Message is
+	 * written to, and expected from, the connection.
+	 * @param extractPayload
+	 * @since 2.1.1
+	 */
+	public void setExtractPayload(boolean extractPayload) {
+		this.extractPayload = extractPayload;
+	}
+
 	/**
 	 * @param applySequence the applySequence to set
 	 */
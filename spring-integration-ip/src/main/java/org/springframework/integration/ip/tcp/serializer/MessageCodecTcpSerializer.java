@@ -0,0 +1,68 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.ip.tcp.serializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+import org.springframework.integration.support.serializer.MessageCodec;
+import org.springframework.util.Assert;
+
+/**
+ * Writes and reads values, typically entire Messages (see
+ * {@link org.springframework.integration.ip.tcp.connection.TcpMessageMapper#setExtractPayload(boolean)}),
+ * in the compact binary format of a {@link MessageCodec}. The format is self-delimiting, so no
+ * further framing is needed. Throws a {@link SoftEndOfStreamException} if the stream is closed
+ * between values.
+ *
+ * @since 2.1.1
+ */
+public class MessageCodecTcpSerializer implements Serializer<Object>, Deserializer<Object> {
+
+	private final MessageCodec codec;
+
+
+	public MessageCodecTcpSerializer() {
+		this(new MessageCodec());
+	}
+
+	public MessageCodecTcpSerializer(MessageCodec codec) {
+		Assert.notNull(codec, "'codec' must not be null");
+		this.codec = codec;
+	}
+
+
+	public void serialize(Object object, OutputStream outputStream) throws IOException {
+		this.codec.encode(object, outputStream);
+	}
+
+	public Object deserialize(InputStream inputStream) throws IOException {
+		PushbackInputStream pushbackStream = new PushbackInputStream(inputStream, 1);
+		int first = pushbackStream.read();
+		if (first < 0) {
+			throw new SoftEndOfStreamException("Stream closed between payloads");
+		}
+		pushbackStream.unread(first);
+		return this.codec.decode(pushbackStream);
+	}
+
+}
@@ -17,9 +17,13 @@ package org.springframework.integration.ip.tcp.connection;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.net.Socket;
 
 import javax.net.SocketFactory;
@@ -27,6 +31,8 @@ import javax.net.SocketFactory;
 import org.junit.Test;
 import org.springframework.integration.Message;
 import org.springframework.integration.ip.IpHeaders;
+import org.springframework.integration.ip.tcp.serializer.MessageCodecTcpSerializer;
+import org.springframework.integration.ip.tcp.serializer.SoftEndOfStreamException;
 import org.springframework.integration.support.MessageBuilder;
 
 /**
@@ -59,6 +65,30 @@ public class TcpMessageMapperTests {
 				.getHeaders().get(IpHeaders.REMOTE_PORT));
 	}
 
+	@Test
+	public void testEntireMessageRoundTrip() throws Exception {
+		TcpMessageMapper mapper = new TcpMessageMapper();
+		mapper.setExtractPayload(false);
+		MessageCodecTcpSerializer serializer = new MessageCodecTcpSerializer();
+		Message<String> outbound = MessageBuilder.withPayload(TEST_PAYLOAD).setHeader("foo", "bar").build();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		serializer.serialize(mapper.fromMessage(outbound), out);
+		InputStream in = new ByteArrayInputStream(out.toByteArray());
+		TcpConnection connection = mock(TcpConnection.class);
+		when(connection.getPayload()).thenReturn(serializer.deserialize(in));
+		when(connection.getHostName()).thenReturn("MyHost");
+		Message<Object> message = mapper.toMessage(connection);
+		assertEquals(TEST_PAYLOAD, message.getPayload());
+		assertEquals("bar", message.getHeaders().get("foo"));
+		assertEquals("MyHost", message.getHeaders().get(IpHeaders.HOSTNAME));
+		try {
+			serializer.deserialize(in);
+			fail("Expected SoftEndOfStreamException");
+		}
+		catch (SoftEndOfStreamException e) {
+		}
+	}
+
 	@SuppressWarnings("deprecation")
 	@Test
 	public void testToMessageSequence() throws Exception {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  * 
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -220,7 +220,9 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 	}
 
 	/**
-	 * A converter for serializing messages to byte arrays for storage.
+	 * A converter for serializing messages to byte arrays for storage. A
+	 * {@link org.springframework.integration.support.serializer.MessageCodecSerializer} produces
+	 * a much more compact form than the default Java serialization.
 	 * 
 	 * @param serializer the serializer to set
 	 */
@@ -230,12 +232,14 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 	}
 
 	/**
-	 * A converter for deserializing byte arrays to messages.
+	 * A converter for deserializing byte arrays to messages. The deserializer must return
+	 * Messages; a {@link org.springframework.integration.support.serializer.MessageCodecDeserializer}
+	 * also reads messages stored with the default Java serialization.
 	 * 
 	 * @param deserializer the deserializer to set
 	 */
 	@SuppressWarnings({ "unchecked", "rawtypes" })
-	public void setDeserializer(Deserializer<? extends Message<?>> deserializer) {
+	public void setDeserializer(Deserializer<?> deserializer) {
 		this.deserializer = new DeserializingConverter((Deserializer) deserializer);
 	}
 
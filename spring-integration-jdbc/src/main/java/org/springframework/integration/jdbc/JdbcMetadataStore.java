@@ -0,0 +1,203 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.jdbc;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.integration.store.MetadataStore;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Implementation of {@link MetadataStore} using a relational database via JDBC. Each entry
+ * is a row keyed by the metadata key and the region, so that reads and updates are
+ * single-row statements. The table is created by the same
+ * <code>org/springframework/integration/jdbc/schema-*.sql</code> scripts as the
+ * {@link JdbcMessageStore} tables. The key column holds 150 characters and the region
+ * column 40, so that the primary key fits in the 767 bytes InnoDB allows for an index on
+ * MySQL, even with a 4-byte character set. Region names must fit in the column; a key
+ * whose UTF-8 encoding is longer than 150 bytes (such as a long file path) is stored as
+ * <code>{SHA-1}</code> followed by the hex digest of the key, so keys of any length can
+ * be used. Keys that themselves start with <code>{SHA-1}</code> are digested too, so
+ * that a short key can never be mistaken for the digest of a long one.
+ * <p>
+ * {@link #put(String, String)} updates the row first and only inserts it if there was
+ * none, so a failed insert (which aborts the surrounding transaction on some databases,
+ * such as PostgreSQL) can only happen when another store inserts the same key
+ * concurrently.
+ *
+ * @since 2.1.1
+ */
+public class JdbcMetadataStore implements MetadataStore, InitializingBean {
+
+	/**
+	 * Default value for the table prefix property.
+	 */
+	public static final String DEFAULT_TABLE_PREFIX = "INT_";
+
+	private static final String GET_VALUE = "SELECT METADATA_VALUE from %PREFIX%METADATA_STORE where METADATA_KEY=? and REGION=?";
+
+	private static final String UPDATE_VALUE = "UPDATE %PREFIX%METADATA_STORE set METADATA_VALUE=? where METADATA_KEY=? and REGION=?";
+
+	private static final String CREATE_VALUE = "INSERT into %PREFIX%METADATA_STORE(METADATA_KEY, METADATA_VALUE, REGION) values (?, ?, ?)";
+
+	private static final int MAX_KEY_BYTES = 150;
+
+	private static final String DIGEST_PREFIX = "{SHA-1}";
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+
+	private volatile String region = "DEFAULT";
+
+	private volatile String tablePrefix = DEFAULT_TABLE_PREFIX;
+
+	private volatile JdbcOperations jdbcTemplate;
+
+
+	/**
+	 * Convenient constructor for configuration use.
+	 */
+	public JdbcMetadataStore() {
+	}
+
+	/**
+	 * Create a {@link MetadataStore} with all mandatory properties.
+	 *
+	 * @param dataSource a {@link DataSource}
+	 */
+	public JdbcMetadataStore(DataSource dataSource) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+	}
+
+
+	/**
+	 * Public setter for the table prefix property. This will be prefixed to the table name before queries are
+	 * executed. Defaults to {@link #DEFAULT_TABLE_PREFIX}.
+	 *
+	 * @param tablePrefix the tablePrefix to set
+	 */
+	public void setTablePrefix(String tablePrefix) {
+		this.tablePrefix = tablePrefix;
+	}
+
+	/**
+	 * A unique grouping identifier for all entries persisted with this store. Using multiple regions allows
+	 * several stores to share the table. Defaults to <code>DEFAULT</code>.
+	 *
+	 * @param region the region name to set
+	 */
+	public void setRegion(String region) {
+		Assert.hasText(region, "'region' must not be empty");
+		this.region = region;
+	}
+
+	/**
+	 * The JDBC {@link DataSource} to use when interacting with the database. Either this property can be set or the
+	 * {@link #setJdbcTemplate(JdbcOperations) jdbcTemplate}.
+	 *
+	 * @param dataSource a {@link DataSource}
+	 */
+	public void setDataSource(DataSource dataSource) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+	}
+
+	/**
+	 * The {@link JdbcOperations} to use when interacting with the database. Either this property can be set or the
+	 * {@link #setDataSource(DataSource) dataSource}.
+	 *
+	 * @param jdbcTemplate a {@link JdbcOperations}
+	 */
+	public void setJdbcTemplate(JdbcOperations jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	public void afterPropertiesSet() throws Exception {
+		Assert.state(this.jdbcTemplate != null, "A DataSource or JdbcTemplate must be provided");
+	}
+
+	public void put(String key, String value) {
+		Assert.notNull(key, "'key' must not be null");
+		String storedKey = toStoredKey(key);
+		if (this.jdbcTemplate.update(getQuery(UPDATE_VALUE), value, storedKey, this.region) > 0) {
+			return;
+		}
+		try {
+			this.jdbcTemplate.update(getQuery(CREATE_VALUE), storedKey, value, this.region);
+		}
+		catch (DuplicateKeyException e) {
+			// inserted concurrently; outside a transaction (or where a failed statement does
+			// not abort it) the row can now be updated
+			this.jdbcTemplate.update(getQuery(UPDATE_VALUE), value, storedKey, this.region);
+		}
+	}
+
+	public String get(String key) {
+		Assert.notNull(key, "'key' must not be null");
+		List<String> values = this.jdbcTemplate.query(getQuery(GET_VALUE), new Object[] { toStoredKey(key), this.region },
+				new SingleColumnRowMapper<String>(String.class));
+		return values.isEmpty() ? null : values.get(0);
+	}
+
+	/**
+	 * Replace patterns in the input to produce a valid SQL query. This implementation replaces the table prefix.
+	 *
+	 * @param base the SQL query to be transformed
+	 * @return a transformed query with replacements
+	 */
+	protected String getQuery(String base) {
+		return StringUtils.replace(base, "%PREFIX%", this.tablePrefix);
+	}
+
+	/**
+	 * Return the value of the key column for the given key: the key itself if it fits,
+	 * otherwise its digest.
+	 */
+	static String toStoredKey(String key) {
+		try {
+			byte[] bytes = key.getBytes("UTF-8");
+			if (bytes.length <= MAX_KEY_BYTES && !key.startsWith(DIGEST_PREFIX)) {
+				return key;
+			}
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+			StringBuilder storedKey = new StringBuilder(DIGEST_PREFIX.length() + digest.length * 2);
+			storedKey.append(DIGEST_PREFIX);
+			for (byte b : digest) {
+				storedKey.append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
+			}
+			return storedKey.toString();
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
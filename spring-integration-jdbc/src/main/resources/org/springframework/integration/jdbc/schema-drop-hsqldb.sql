@@ -2,3 +2,4 @@
 
 DROP TABLE  INT_MESSAGE IF EXISTS;
 DROP TABLE  INT_MESSAGE_GROUP IF EXISTS;
+DROP TABLE  INT_METADATA_STORE IF EXISTS;
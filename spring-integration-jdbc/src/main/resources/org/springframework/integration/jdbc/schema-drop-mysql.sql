@@ -2,3 +2,4 @@
 
 DROP TABLE IF EXISTS INT_MESSAGE ;
 DROP TABLE IF EXISTS INT_MESSAGE_GROUP ;
+DROP TABLE IF EXISTS INT_METADATA_STORE ;
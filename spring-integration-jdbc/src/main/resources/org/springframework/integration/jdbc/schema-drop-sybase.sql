@@ -2,3 +2,4 @@
 
 DROP TABLE  INT_MESSAGE ;
 DROP TABLE  INT_MESSAGE_GROUP ;
+DROP TABLE  INT_METADATA_STORE ;
@@ -19,3 +19,10 @@ CREATE TABLE INT_MESSAGE_GROUP  (
 	MESSAGE_BYTES BLOB,
 	constraint MESSAGE_GROUP_PK primary key (MESSAGE_ID, GROUP_KEY)
 );
+
+CREATE TABLE INT_METADATA_STORE  (
+	METADATA_KEY VARCHAR2(150) NOT NULL,
+	METADATA_VALUE VARCHAR2(1000),
+	REGION VARCHAR2(40) NOT NULL,
+	constraint METADATA_STORE_PK primary key (METADATA_KEY, REGION)
+);
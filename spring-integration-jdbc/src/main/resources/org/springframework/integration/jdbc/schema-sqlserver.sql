@@ -19,3 +19,10 @@ CREATE TABLE INT_MESSAGE_GROUP  (
 	MESSAGE_BYTES IMAGE,
 	constraint MESSAGE_GROUP_PK primary key (MESSAGE_ID, GROUP_KEY)
 );
+
+CREATE TABLE INT_METADATA_STORE  (
+	METADATA_KEY VARCHAR(150) NOT NULL,
+	METADATA_VALUE VARCHAR(1000),
+	REGION VARCHAR(40) NOT NULL,
+	constraint METADATA_STORE_PK primary key (METADATA_KEY, REGION)
+);
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * @since 2.1.1
+ */
+@ContextConfiguration
+@RunWith(SpringJUnit4ClassRunner.class)
+public class JdbcMetadataStoreTests {
+
+	@Autowired
+	private DataSource dataSource;
+
+	private JdbcMetadataStore metadataStore;
+
+	@Before
+	public void init() throws Exception {
+		this.metadataStore = new JdbcMetadataStore(this.dataSource);
+		this.metadataStore.afterPropertiesSet();
+	}
+
+	@Test
+	@Transactional
+	public void testGetNonExistent() {
+		assertNull(this.metadataStore.get("foo"));
+	}
+
+	@Test
+	@Transactional
+	public void testPutAndUpdate() {
+		this.metadataStore.put("foo", "bar");
+		assertEquals("bar", this.metadataStore.get("foo"));
+		this.metadataStore.put("foo", "baz");
+		assertEquals("baz", this.metadataStore.get("foo"));
+	}
+
+	@Test
+	@Transactional
+	public void testRegionsAreSeparate() throws Exception {
+		JdbcMetadataStore other = new JdbcMetadataStore(this.dataSource);
+		other.setRegion("OTHER");
+		other.afterPropertiesSet();
+		this.metadataStore.put("foo", "bar");
+		other.put("foo", "baz");
+		assertEquals("bar", this.metadataStore.get("foo"));
+		assertEquals("baz", other.get("foo"));
+	}
+
+	@Test
+	@Transactional
+	public void testLongKeys() {
+		StringBuilder path = new StringBuilder("persistentFilter/");
+		for (int i = 0; i < 30; i++) {
+			path.append("directory").append(i).append('/');
+		}
+		String key1 = path + "file1.txt";
+		String key2 = path + "file2.txt";
+		this.metadataStore.put(key1, "1");
+		this.metadataStore.put(key2, "2");
+		assertEquals("1", this.metadataStore.get(key1));
+		assertEquals("2", this.metadataStore.get(key2));
+		assertTrue(JdbcMetadataStore.toStoredKey(key1).length() <= 150);
+		String storedKey = JdbcMetadataStore.toStoredKey(key1);
+		assertNull(this.metadataStore.get(storedKey));
+		this.metadataStore.put(storedKey, "digest");
+		assertEquals("1", this.metadataStore.get(key1));
+		assertEquals("digest", this.metadataStore.get(storedKey));
+	}
+
+}
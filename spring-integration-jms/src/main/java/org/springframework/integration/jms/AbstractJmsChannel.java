@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,11 @@
 
 package org.springframework.integration.jms;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.integration.Message;
 import org.springframework.integration.channel.AbstractMessageChannel;
+import org.springframework.integration.channel.MessagePublishingErrorHandler;
+import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.util.Assert;
 
@@ -25,10 +28,16 @@ import org.springframework.util.Assert;
  * @author Mark Fisher
  * @since 2.0
  */
-public class AbstractJmsChannel extends AbstractMessageChannel {
+public class AbstractJmsChannel extends AbstractMessageChannel implements DisposableBean {
 
 	private final JmsTemplate jmsTemplate;
 
+	private volatile int batchSize;
+
+	private volatile long batchTimeout = 100;
+
+	private volatile JmsBatchPublisher batchPublisher;
+
 
 	public AbstractJmsChannel(JmsTemplate jmsTemplate) {
 		Assert.notNull(jmsTemplate, "jmsTemplate must not be null");
@@ -36,14 +45,70 @@ public class AbstractJmsChannel extends AbstractMessageChannel {
 	}
 
 
+	/**
+	 * Specify the maximum number of messages to publish in a single transacted
+	 * JMS Session with one commit. When greater than 1, publishing is asynchronous:
+	 * {@link #send(Message) send} returns <code>true</code> as soon as the message
+	 * has been added to the current batch, which is published once it is full or
+	 * the 'batchTimeout' has elapsed. A <code>true</code> return therefore does not
+	 * mean the message has reached the broker; a message that fails to be published
+	 * is sent as an ErrorMessage to its 'errorChannel' header or the 'errorChannel'
+	 * bean, and is never thrown to the sender. The default (0) sends each message
+	 * immediately through the JmsTemplate, throwing any failure to the sender.
+	 * @since 2.1.1
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Specify the maximum time in milliseconds a message may wait for its batch
+	 * to be published. The default is 100 milliseconds.
+	 * @since 2.1.1
+	 */
+	public void setBatchTimeout(long batchTimeout) {
+		Assert.isTrue(batchTimeout > 0, "'batchTimeout' must be greater than 0");
+		this.batchTimeout = batchTimeout;
+	}
+
 	JmsTemplate getJmsTemplate() {
 		return this.jmsTemplate;
 	}
 
+	@Override
+	protected void onInit() throws Exception {
+		super.onInit();
+		if (this.batchSize > 1 && this.batchPublisher == null) {
+			MessagePublishingErrorHandler errorHandler = (getBeanFactory() != null) ?
+					new MessagePublishingErrorHandler(new BeanFactoryChannelResolver(getBeanFactory())) :
+					new MessagePublishingErrorHandler();
+			this.batchPublisher = new JmsBatchPublisher(this.jmsTemplate, this.batchSize, this.batchTimeout, errorHandler);
+			this.batchPublisher.start(getTaskScheduler());
+		}
+	}
+
 	@Override
 	protected boolean doSend(Message<?> message, long timeout) {
-		this.jmsTemplate.convertAndSend(message);
+		JmsBatchPublisher publisher = this.batchPublisher;
+		if (publisher != null) {
+			// accepted for the batch: failures are reported to the error channel, see setBatchSize()
+			publisher.add(message, null, message, null, null);
+		}
+		else {
+			this.jmsTemplate.convertAndSend(message);
+		}
 		return true;
 	}
 
+	/**
+	 * Publish any messages remaining in the current batch.
+	 */
+	public void destroy() throws Exception {
+		JmsBatchPublisher publisher = this.batchPublisher;
+		if (publisher != null) {
+			this.batchPublisher = null;
+			publisher.stop();
+		}
+	}
+
 }
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.jms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageDeliveryException;
+import org.springframework.jms.connection.ConnectionFactoryUtils;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessagePostProcessor;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
+import org.springframework.util.ErrorHandler;
+
+/**
+ * Accumulates outbound messages and publishes them in batches on a single
+ * transacted JMS Session with one commit per batch. A batch is published
+ * once it reaches 'batchSize' messages or, at the latest, 'batchTimeout'
+ * milliseconds later. Messages that fail to convert or send, or whose batch
+ * fails to commit, are reported individually to the {@link ErrorHandler}
+ * wrapped in a {@link MessageDeliveryException}.
+ * <p>
+ * Batches are published one at a time, in the order their messages were
+ * added, so messages added by a single thread are sent in order even when a
+ * full batch and a timed flush are published concurrently.
+ * <p>
+ * The connection factory, message converter, destination resolver and QoS
+ * settings are taken from the provided {@link JmsTemplate}.
+ *
+ * @since 2.1.1
+ */
+class JmsBatchPublisher {
+
+	private final Log logger = LogFactory.getLog(this.getClass());
+
+	private final JmsTemplate jmsTemplate;
+
+	private final int batchSize;
+
+	private final long batchTimeout;
+
+	private final ErrorHandler errorHandler;
+
+	private final Object monitor = new Object();
+
+	private final Object publishMonitor = new Object();
+
+	private List<PendingMessage> batch;
+
+	private volatile ScheduledFuture<?> flushTask;
+
+	private volatile ThreadPoolTaskScheduler ownTaskScheduler;
+
+
+	JmsBatchPublisher(JmsTemplate jmsTemplate, int batchSize, long batchTimeout, ErrorHandler errorHandler) {
+		Assert.notNull(jmsTemplate, "jmsTemplate must not be null");
+		Assert.notNull(jmsTemplate.getConnectionFactory(), "jmsTemplate must have a ConnectionFactory");
+		Assert.isTrue(batchSize > 1, "batchSize must be greater than 1");
+		Assert.isTrue(batchTimeout > 0, "batchTimeout must be greater than 0");
+		Assert.notNull(errorHandler, "errorHandler must not be null");
+		this.jmsTemplate = jmsTemplate;
+		this.batchSize = batchSize;
+		this.batchTimeout = batchTimeout;
+		this.errorHandler = errorHandler;
+		this.batch = new ArrayList<PendingMessage>(batchSize);
+	}
+
+
+	/**
+	 * Start the periodic flush on the given scheduler, or on a private
+	 * single-threaded scheduler if none is provided.
+	 */
+	void start(TaskScheduler taskScheduler) {
+		if (taskScheduler == null) {
+			ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+			scheduler.setThreadNamePrefix("jms-batch-");
+			scheduler.afterPropertiesSet();
+			this.ownTaskScheduler = scheduler;
+			taskScheduler = scheduler;
+		}
+		this.flushTask = taskScheduler.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				flush();
+			}
+		}, this.batchTimeout);
+	}
+
+	/**
+	 * Cancel the periodic flush and publish any remaining messages.
+	 */
+	void stop() {
+		if (this.flushTask != null) {
+			this.flushTask.cancel(false);
+			this.flushTask = null;
+		}
+		this.flush();
+		if (this.ownTaskScheduler != null) {
+			this.ownTaskScheduler.shutdown();
+			this.ownTaskScheduler = null;
+		}
+	}
+
+	/**
+	 * Add a message to the current batch, publishing the batch on the
+	 * calling thread if it is full.
+	 * @param message the integration Message (used for error reporting)
+	 * @param destination a Destination, a destination name, or null for the template's default
+	 * @param objectToSend the object to convert to a JMS Message
+	 * @param postProcessor an optional post processor for the converted JMS Message
+	 * @param priority the priority to use if explicit QoS is enabled, null for the template's
+	 */
+	void add(Message<?> message, Object destination, Object objectToSend,
+			MessagePostProcessor postProcessor, Integer priority) {
+		boolean full;
+		synchronized (this.monitor) {
+			this.batch.add(new PendingMessage(message, destination, objectToSend, postProcessor, priority));
+			full = this.batch.size() >= this.batchSize;
+		}
+		if (full) {
+			this.publishBatch(true);
+		}
+	}
+
+	void flush() {
+		this.publishBatch(false);
+	}
+
+	/**
+	 * Take the current batch and publish it while holding the publish monitor,
+	 * so that a later batch can never be committed before an earlier one.
+	 * Messages added meanwhile only wait for the (short) batch monitor.
+	 */
+	private void publishBatch(boolean onlyIfFull) {
+		synchronized (this.publishMonitor) {
+			List<PendingMessage> toSend = null;
+			synchronized (this.monitor) {
+				if (onlyIfFull ? this.batch.size() >= this.batchSize : !this.batch.isEmpty()) {
+					toSend = this.batch;
+					this.batch = new ArrayList<PendingMessage>(this.batchSize);
+				}
+			}
+			if (toSend != null) {
+				this.publish(toSend);
+			}
+		}
+	}
+
+	private void publish(List<PendingMessage> messages) {
+		ConnectionFactory connectionFactory = this.jmsTemplate.getConnectionFactory();
+		List<PendingMessage> sent = new ArrayList<PendingMessage>(messages.size());
+		Connection connection = null;
+		Session session = null;
+		Map<Destination, MessageProducer> producers = new HashMap<Destination, MessageProducer>();
+		try {
+			connection = connectionFactory.createConnection();
+			session = connection.createSession(true, Session.SESSION_TRANSACTED);
+			for (PendingMessage pending : messages) {
+				try {
+					this.send(session, producers, pending);
+					sent.add(pending);
+				}
+				catch (Exception e) {
+					this.handleFailure(pending, e);
+				}
+			}
+			if (!sent.isEmpty()) {
+				session.commit();
+				if (logger.isDebugEnabled()) {
+					logger.debug("committed batch of " + sent.size() + " JMS Messages");
+				}
+			}
+		}
+		catch (Exception e) {
+			if (session == null) {
+				// nothing could be sent at all
+				sent = messages;
+			}
+			else {
+				try {
+					JmsUtils.rollbackIfNecessary(session);
+				}
+				catch (JMSException rollbackFailure) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("failed to roll back JMS batch", rollbackFailure);
+					}
+				}
+			}
+			for (PendingMessage pending : sent) {
+				this.handleFailure(pending, e);
+			}
+		}
+		finally {
+			for (MessageProducer producer : producers.values()) {
+				JmsUtils.closeMessageProducer(producer);
+			}
+			JmsUtils.closeSession(session);
+			ConnectionFactoryUtils.releaseConnection(connection, connectionFactory, false);
+		}
+	}
+
+	private void send(Session session, Map<Destination, MessageProducer> producers, PendingMessage pending)
+			throws JMSException {
+		Destination destination = this.resolveDestination(session, pending.destination);
+		MessageProducer producer = producers.get(destination);
+		if (producer == null) {
+			producer = session.createProducer(destination);
+			if (!this.jmsTemplate.isMessageIdEnabled()) {
+				producer.setDisableMessageID(true);
+			}
+			if (!this.jmsTemplate.isMessageTimestampEnabled()) {
+				producer.setDisableMessageTimestamp(true);
+			}
+			producers.put(destination, producer);
+		}
+		javax.jms.Message jmsMessage = this.jmsTemplate.getMessageConverter().toMessage(pending.objectToSend, session);
+		if (pending.postProcessor != null) {
+			jmsMessage = pending.postProcessor.postProcessMessage(jmsMessage);
+		}
+		if (this.jmsTemplate.isExplicitQosEnabled()) {
+			int priority = (pending.priority != null) ? pending.priority : this.jmsTemplate.getPriority();
+			producer.send(jmsMessage, this.jmsTemplate.getDeliveryMode(), priority, this.jmsTemplate.getTimeToLive());
+		}
+		else {
+			producer.send(jmsMessage);
+		}
+	}
+
+	private Destination resolveDestination(Session session, Object destination) throws JMSException {
+		if (destination == null) {
+			destination = this.jmsTemplate.getDefaultDestination();
+			if (destination == null) {
+				destination = this.jmsTemplate.getDefaultDestinationName();
+			}
+			Assert.state(destination != null, "No destination provided and no default destination configured on the JmsTemplate");
+		}
+		if (destination instanceof Destination) {
+			return (Destination) destination;
+		}
+		return this.jmsTemplate.getDestinationResolver().resolveDestinationName(
+				session, (String) destination, this.jmsTemplate.isPubSubDomain());
+	}
+
+	private void handleFailure(PendingMessage pending, Exception e) {
+		try {
+			this.errorHandler.handleError(new MessageDeliveryException(pending.message,
+					"failed to publish JMS Message in batch", e));
+		}
+		catch (Exception errorHandlingFailure) {
+			if (logger.isErrorEnabled()) {
+				logger.error("failed to publish JMS Message in batch: " + pending.message, e);
+			}
+		}
+	}
+
+
+	private static class PendingMessage {
+
+		private final Message<?> message;
+
+		private final Object destination;
+
+		private final Object objectToSend;
+
+		private final MessagePostProcessor postProcessor;
+
+		private final Integer priority;
+
+		private PendingMessage(Message<?> message, Object destination, Object objectToSend,
+				MessagePostProcessor postProcessor, Integer priority) {
+			this.message = message;
+			this.destination = destination;
+			this.objectToSend = objectToSend;
+			this.postProcessor = postProcessor;
+			this.priority = priority;
+		}
+	}
+
+}
@@ -16,8 +16,14 @@
 
 package org.springframework.integration.jms;
 
+import java.util.Iterator;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
@@ -25,12 +31,14 @@ import javax.jms.DeliveryMode;
 import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
 import javax.jms.MessageProducer;
 import javax.jms.Session;
 import javax.jms.TemporaryQueue;
 import javax.jms.TemporaryTopic;
 import javax.jms.Topic;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.expression.Expression;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
@@ -41,6 +49,7 @@ import org.springframework.integration.handler.AbstractReplyProducingMessageHand
 import org.springframework.integration.handler.ExpressionEvaluatingMessageProcessor;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.jms.connection.ConnectionFactoryUtils;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
 import org.springframework.jms.support.JmsUtils;
 import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.jms.support.converter.SimpleMessageConverter;
@@ -56,7 +65,7 @@ import org.springframework.util.Assert;
  * @author Juergen Hoeller
  * @author Oleg Zhurakousky
  */
-public class JmsOutboundGateway extends AbstractReplyProducingMessageHandler {
+public class JmsOutboundGateway extends AbstractReplyProducingMessageHandler implements DisposableBean {
 
 	private volatile Destination requestDestination;
 
@@ -96,6 +105,18 @@ public class JmsOutboundGateway extends AbstractReplyProducingMessageHandler {
 
 	private volatile boolean extractReplyPayload = true;
 
+	private volatile boolean useReplyListener;
+
+	private volatile int replyListenerConcurrency = 1;
+
+	private volatile DefaultMessageListenerContainer replyListenerContainer;
+
+	private final ConcurrentMap<String, PendingReply> pendingReplies = new ConcurrentHashMap<String, PendingReply>();
+
+	private final String correlationIdPrefix = UUID.randomUUID().toString() + ".";
+
+	private final AtomicLong correlationSequence = new AtomicLong();
+
 	private volatile boolean initialized;
 
 	private final Object initializationMonitor = new Object();
@@ -304,6 +325,32 @@ public class JmsOutboundGateway extends AbstractReplyProducingMessageHandler {
 		this.extractReplyPayload = extractReplyPayload;
 	}
 
+	/**
+	 * Specify whether replies should be received by a single long-lived listener
+	 * container on the fixed 'replyDestination' (or 'replyDestinationName') rather
+	 * than by a consumer created for each request. Replies are dispatched to the
+	 * waiting requests through an in-memory correlation table, so the JMS Session
+	 * is released as soon as the request has been sent and many requests can be
+	 * in flight concurrently. When a 'correlationKey' is provided, the listener
+	 * only selects replies to requests sent by this gateway, which allows several
+	 * gateways to share the reply destination; otherwise replies are correlated on
+	 * the request's JMSMessageID and the reply destination must not be shared.
+	 * <p>
+	 * The default is 'false'.
+	 */
+	public void setUseReplyListener(boolean useReplyListener) {
+		this.useReplyListener = useReplyListener;
+	}
+
+	/**
+	 * Specify the number of concurrent consumers of the reply listener container.
+	 * Only applies when 'useReplyListener' is true. The default is 1.
+	 */
+	public void setReplyListenerConcurrency(int replyListenerConcurrency) {
+		Assert.isTrue(replyListenerConcurrency > 0, "'replyListenerConcurrency' must be greater than 0");
+		this.replyListenerConcurrency = replyListenerConcurrency;
+	}
+
 	/**
 	 * Specify the Spring Integration reply channel. If this property is not
 	 * set the gateway will check for a 'replyChannel' header on the request.
@@ -373,10 +420,46 @@ public class JmsOutboundGateway extends AbstractReplyProducingMessageHandler {
 				this.requestDestinationExpressionProcessor.setBeanFactory(getBeanFactory());
 				this.requestDestinationExpressionProcessor.setConversionService(getConversionService());
 			}
+			if (this.useReplyListener) {
+				this.startReplyListenerContainer();
+			}
 			this.initialized = true;
 		}
 	}
 
+	private void startReplyListenerContainer() {
+		Assert.isTrue(this.replyDestination != null ^ this.replyDestinationName != null,
+				"Exactly one of 'replyDestination' or 'replyDestinationName' is required when 'useReplyListener' is true.");
+		DefaultMessageListenerContainer container = new DefaultMessageListenerContainer();
+		container.setConnectionFactory(this.connectionFactory);
+		if (this.replyDestination != null) {
+			container.setDestination(this.replyDestination);
+		}
+		else {
+			container.setDestinationName(this.replyDestinationName);
+		}
+		container.setDestinationResolver(this.destinationResolver);
+		container.setPubSubDomain(this.replyPubSubDomain);
+		container.setConcurrentConsumers(this.replyListenerConcurrency);
+		container.setMaxConcurrentConsumers(this.replyListenerConcurrency);
+		if (this.correlationKey != null) {
+			container.setMessageSelector(this.correlationKey + " LIKE '" + this.correlationIdPrefix + "%'");
+		}
+		container.setMessageListener(new ReplyListener());
+		container.setBeanName(this.getComponentName() + ".replyListener");
+		container.afterPropertiesSet();
+		container.start();
+		this.replyListenerContainer = container;
+	}
+
+	public void destroy() {
+		DefaultMessageListenerContainer container = this.replyListenerContainer;
+		if (container != null) {
+			container.destroy();
+			this.replyListenerContainer = null;
+		}
+	}
+
 	@Override
 	protected Object handleRequestMessage(final Message<?> message) {
 		if (!this.initialized) {
@@ -384,7 +467,8 @@ public class JmsOutboundGateway extends AbstractReplyProducingMessageHandler {
 		}
 		final Message<?> requestMessage = MessageBuilder.fromMessage(message).build();
 		try {
-			javax.jms.Message jmsReply = this.sendAndReceive(requestMessage);
+			javax.jms.Message jmsReply = (this.useReplyListener) ?
+					this.sendAndReceiveWithReplyListener(requestMessage) : this.sendAndReceive(requestMessage);
 			if (jmsReply == null) {
 				throw new MessageTimeoutException(message,
 						"failed to receive JMS response within timeout of: " + this.receiveTimeout + "ms");
@@ -417,26 +501,14 @@ public class JmsOutboundGateway extends AbstractReplyProducingMessageHandler {
 		Destination replyTo = null;
 		try {
 			session = this.createSession(connection);
-
-			// convert to JMS Message
-			Object objectToSend = requestMessage;
-			if (this.extractRequestPayload) {
-				objectToSend = requestMessage.getPayload();
-			}
-			javax.jms.Message jmsRequest = this.messageConverter.toMessage(objectToSend, session);
-
-			// map headers
-			headerMapper.fromHeaders(requestMessage.getHeaders(), jmsRequest);
+			javax.jms.Message jmsRequest = this.createJmsRequest(requestMessage, session);
 
 			// TODO: support a JmsReplyTo header in the SI Message?
 			replyTo = this.getReplyDestination(session);
 			jmsRequest.setJMSReplyTo(replyTo);
 			connection.start();
 
-			Integer priority = requestMessage.getHeaders().getPriority();
-			if (priority == null) {
-				priority = this.priority;
-			}
+			int priority = this.getPriority(requestMessage);
 			javax.jms.Message replyMessage = null;
 			Destination requestDestination = this.getRequestDestination(requestMessage, session);
 			if (this.correlationKey != null) {
@@ -457,6 +529,84 @@ public class JmsOutboundGateway extends AbstractReplyProducingMessageHandler {
 		}
 	}
 
+	/**
+	 * Sends the request and waits for the reply to be dispatched by the shared reply listener.
+	 * The JMS Session is released before waiting.
+	 */
+	private javax.jms.Message sendAndReceiveWithReplyListener(Message<?> requestMessage) throws JMSException {
+		String correlationId = null;
+		try {
+			PendingReply pendingReply = null;
+			Connection connection = this.createConnection();
+			Session session = null;
+			MessageProducer messageProducer = null;
+			try {
+				session = this.createSession(connection);
+				javax.jms.Message jmsRequest = this.createJmsRequest(requestMessage, session);
+				jmsRequest.setJMSReplyTo(this.getReplyDestination(session));
+				messageProducer = session.createProducer(this.getRequestDestination(requestMessage, session));
+				int priority = this.getPriority(requestMessage);
+				if (this.correlationKey != null) {
+					correlationId = this.correlationIdPrefix + this.correlationSequence.incrementAndGet();
+					if (this.correlationKey.equals("JMSCorrelationID")) {
+						jmsRequest.setJMSCorrelationID(correlationId);
+					}
+					else {
+						jmsRequest.setStringProperty(this.correlationKey, correlationId);
+					}
+					pendingReply = new PendingReply();
+					this.pendingReplies.put(correlationId, pendingReply);
+					this.sendRequestMessage(jmsRequest, messageProducer, priority);
+				}
+				else {
+					this.sendRequestMessage(jmsRequest, messageProducer, priority);
+					correlationId = jmsRequest.getJMSMessageID();
+					// the reply may already have arrived
+					pendingReply = this.obtainPendingReply(correlationId);
+				}
+			}
+			finally {
+				JmsUtils.closeMessageProducer(messageProducer);
+				JmsUtils.closeSession(session);
+				ConnectionFactoryUtils.releaseConnection(connection, this.connectionFactory, false);
+			}
+			return pendingReply.await(this.receiveTimeout);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		finally {
+			if (correlationId != null) {
+				this.pendingReplies.remove(correlationId);
+			}
+		}
+	}
+
+	private PendingReply obtainPendingReply(String correlationId) {
+		PendingReply pendingReply = new PendingReply();
+		PendingReply existing = this.pendingReplies.putIfAbsent(correlationId, pendingReply);
+		return (existing != null) ? existing : pendingReply;
+	}
+
+	private javax.jms.Message createJmsRequest(Message<?> requestMessage, Session session) throws JMSException {
+		// convert to JMS Message
+		Object objectToSend = requestMessage;
+		if (this.extractRequestPayload) {
+			objectToSend = requestMessage.getPayload();
+		}
+		javax.jms.Message jmsRequest = this.messageConverter.toMessage(objectToSend, session);
+
+		// map headers
+		headerMapper.fromHeaders(requestMessage.getHeaders(), jmsRequest);
+		return jmsRequest;
+	}
+
+	private int getPriority(Message<?> requestMessage) {
+		Integer priority = requestMessage.getHeaders().getPriority();
+		return (priority != null) ? priority : this.priority;
+	}
+
 	/**
 	 * Creates the MessageConsumer before sending the request Message since we are generating our own correlationId value for the MessageSelector.
 	 */
@@ -580,4 +730,94 @@ public class JmsOutboundGateway extends AbstractReplyProducingMessageHandler {
 		return connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
 	}
 
+
+
+	/**
+	 * A request waiting for its reply from the shared reply listener.
+	 */
+	private static class PendingReply {
+
+		private final long created = System.currentTimeMillis();
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+
+		private volatile javax.jms.Message reply;
+
+		void reply(javax.jms.Message reply) {
+			this.reply = reply;
+			this.latch.countDown();
+		}
+
+		javax.jms.Message await(long timeout) throws InterruptedException {
+			if (timeout < 0) {
+				this.latch.await();
+			}
+			else {
+				this.latch.await(timeout, TimeUnit.MILLISECONDS);
+			}
+			return this.reply;
+		}
+	}
+
+
+	/**
+	 * Dispatches replies received by the reply listener container to the waiting requests.
+	 */
+	private class ReplyListener implements MessageListener {
+
+		public void onMessage(javax.jms.Message message) {
+			try {
+				String correlationId = (correlationKey == null || correlationKey.equals("JMSCorrelationID")) ?
+						message.getJMSCorrelationID() : message.getStringProperty(correlationKey);
+				if (correlationId == null) {
+					if (logger.isWarnEnabled()) {
+						logger.warn("Discarding reply without correlation: " + message);
+					}
+					return;
+				}
+				if (correlationKey != null) {
+					PendingReply pendingReply = pendingReplies.get(correlationId);
+					if (pendingReply != null) {
+						pendingReply.reply(message);
+					}
+					else if (logger.isWarnEnabled()) {
+						logger.warn("Discarding late reply for correlation id '" + correlationId + "'");
+					}
+				}
+				else {
+					PendingReply pendingReply = pendingReplies.get(correlationId);
+					if (pendingReply != null) {
+						pendingReply.reply(message);
+					}
+					else {
+						obtainPendingReply(correlationId).reply(message);
+						this.removeStaleReplies();
+					}
+				}
+			}
+			catch (JMSException e) {
+				throw JmsUtils.convertJmsAccessException(e);
+			}
+		}
+
+		/**
+		 * With JMSMessageID correlation a reply may arrive before its request has been
+		 * registered, so unmatched replies are kept; those whose request has gone away
+		 * (e.g. timed out) are purged here.
+		 */
+		private void removeStaleReplies() {
+			if (receiveTimeout < 0) {
+				return;
+			}
+			long expiry = System.currentTimeMillis() - receiveTimeout;
+			Iterator<PendingReply> iterator = pendingReplies.values().iterator();
+			while (iterator.hasNext()) {
+				PendingReply pendingReply = iterator.next();
+				if (pendingReply.reply != null && pendingReply.created < expiry) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,11 +19,15 @@ package org.springframework.integration.jms;
 import javax.jms.Destination;
 import javax.jms.JMSException;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.expression.Expression;
 import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
 import org.springframework.integration.MessageDeliveryException;
+import org.springframework.integration.channel.MessagePublishingErrorHandler;
 import org.springframework.integration.handler.AbstractMessageHandler;
 import org.springframework.integration.handler.ExpressionEvaluatingMessageProcessor;
+import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.jms.core.MessagePostProcessor;
 import org.springframework.util.Assert;
@@ -34,7 +38,7 @@ import org.springframework.util.Assert;
  * @author Mark Fisher
  * @author Oleg Zhurakousky
  */
-public class JmsSendingMessageHandler extends AbstractMessageHandler {
+public class JmsSendingMessageHandler extends AbstractMessageHandler implements DisposableBean {
 
 	private final JmsTemplate jmsTemplate;
 
@@ -48,6 +52,14 @@ public class JmsSendingMessageHandler extends AbstractMessageHandler {
 
 	private volatile ExpressionEvaluatingMessageProcessor<?> destinationExpressionProcessor;
 
+	private volatile int batchSize;
+
+	private volatile long batchTimeout = 100;
+
+	private volatile MessageChannel errorChannel;
+
+	private volatile JmsBatchPublisher batchPublisher;
+
 
 	public JmsSendingMessageHandler(JmsTemplate jmsTemplate) {
 		this.jmsTemplate = jmsTemplate;
@@ -86,6 +98,36 @@ public class JmsSendingMessageHandler extends AbstractMessageHandler {
 		this.extractPayload = extractPayload;
 	}
 
+	/**
+	 * Specify the maximum number of messages to publish in a single transacted
+	 * JMS Session with one commit. When greater than 1, messages are sent
+	 * asynchronously once the batch is full or the 'batchTimeout' has elapsed,
+	 * and any failure is reported per message to the error channel rather than
+	 * thrown to the caller. The default (0) sends each message immediately
+	 * through the JmsTemplate.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Specify the maximum time in milliseconds a message may wait for its batch
+	 * to be published. Only applies when 'batchSize' is greater than 1. The
+	 * default is 100 milliseconds.
+	 */
+	public void setBatchTimeout(long batchTimeout) {
+		Assert.isTrue(batchTimeout > 0, "'batchTimeout' must be greater than 0");
+		this.batchTimeout = batchTimeout;
+	}
+
+	/**
+	 * Specify the channel to which batch publishing failures are sent when the
+	 * failed Message has no 'errorChannel' header. Defaults to the 'errorChannel' bean.
+	 */
+	public void setErrorChannel(MessageChannel errorChannel) {
+		this.errorChannel = errorChannel;
+	}
+
 	@Override
 	public String getComponentType() {
 		return "jms:outbound-channel-adapter";
@@ -97,6 +139,25 @@ public class JmsSendingMessageHandler extends AbstractMessageHandler {
 			this.destinationExpressionProcessor.setBeanFactory(getBeanFactory());
 			this.destinationExpressionProcessor.setConversionService(getConversionService());
 		}
+		if (this.batchSize > 1) {
+			MessagePublishingErrorHandler errorHandler = (getBeanFactory() != null) ?
+					new MessagePublishingErrorHandler(new BeanFactoryChannelResolver(getBeanFactory())) :
+					new MessagePublishingErrorHandler();
+			errorHandler.setDefaultErrorChannel(this.errorChannel);
+			this.batchPublisher = new JmsBatchPublisher(this.jmsTemplate, this.batchSize, this.batchTimeout, errorHandler);
+			this.batchPublisher.start(getTaskScheduler());
+		}
+	}
+
+	/**
+	 * Publish any messages remaining in the current batch.
+	 */
+	public void destroy() {
+		JmsBatchPublisher publisher = this.batchPublisher;
+		if (publisher != null) {
+			this.batchPublisher = null;
+			publisher.stop();
+		}
 	}
 
 	@Override
@@ -107,6 +168,11 @@ public class JmsSendingMessageHandler extends AbstractMessageHandler {
 		Object destination = this.determineDestination(message);
 		Object objectToSend = (this.extractPayload) ? message.getPayload() : message;
 		MessagePostProcessor messagePostProcessor = new HeaderMappingMessagePostProcessor(message, this.headerMapper);
+		JmsBatchPublisher publisher = this.batchPublisher;
+		if (publisher != null) {
+			publisher.add(message, destination, objectToSend, messagePostProcessor, message.getHeaders().getPriority());
+			return;
+		}
 		try {
 			DynamicJmsTemplateProperties.setPriority(message.getHeaders().getPriority());
 			this.send(destination, objectToSend, messagePostProcessor);
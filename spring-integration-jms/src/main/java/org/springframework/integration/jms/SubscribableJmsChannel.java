@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -160,7 +160,9 @@ public class SubscribableJmsChannel extends AbstractJmsChannel implements Subscr
 		}
 	}
 
+	@Override
 	public void destroy() throws Exception {
+		super.destroy();
 		if (this.container != null) {
 			this.container.destroy();
 		}
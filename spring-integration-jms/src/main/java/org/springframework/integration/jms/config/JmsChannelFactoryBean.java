@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -132,6 +132,10 @@ public class JmsChannelFactoryBean extends AbstractFactoryBean<AbstractJmsChanne
 
 	private volatile Integer transactionTimeout;
 
+	private volatile Integer batchSize;
+
+	private volatile Long batchTimeout;
+
 
 	public JmsChannelFactoryBean() {
 		this(true);
@@ -142,6 +146,14 @@ public class JmsChannelFactoryBean extends AbstractFactoryBean<AbstractJmsChanne
 	}
 
 
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public void setBatchTimeout(long batchTimeout) {
+		this.batchTimeout = batchTimeout;
+	}
+
 	public void setInterceptors(List<ChannelInterceptor> interceptors) {
 		this.interceptors = interceptors;
 	}
@@ -337,6 +349,15 @@ public class JmsChannelFactoryBean extends AbstractFactoryBean<AbstractJmsChanne
 		if (!CollectionUtils.isEmpty(this.interceptors)) {
 			this.channel.setInterceptors(this.interceptors);
 		}
+		if (this.batchSize != null) {
+			this.channel.setBatchSize(this.batchSize);
+		}
+		if (this.batchTimeout != null) {
+			this.channel.setBatchTimeout(this.batchTimeout);
+		}
+		if (this.getBeanFactory() != null) {
+			this.channel.setBeanFactory(this.getBeanFactory());
+		}
 		this.channel.afterPropertiesSet();
 		this.channel.setBeanName(this.beanName);
 		return this.channel;
@@ -485,8 +506,6 @@ public class JmsChannelFactoryBean extends AbstractFactoryBean<AbstractJmsChanne
 	}
 
 	protected void destroyInstance(AbstractJmsChannel instance) throws Exception {
-		if (instance instanceof SubscribableJmsChannel) {
-			((SubscribableJmsChannel) this.channel).destroy();
-		}
+		instance.destroy();
 	}
 }
@@ -80,6 +80,8 @@ public class JmsOutboundGatewayParser extends AbstractConsumerEndpointParser {
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "time-to-live");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "priority");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "explicit-qos-enabled");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "use-reply-listener");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "reply-listener-concurrency");
 
 		String deliveryMode = element.getAttribute("delivery-mode");
 		String deliveryPersistent = element.getAttribute("delivery-persistent");
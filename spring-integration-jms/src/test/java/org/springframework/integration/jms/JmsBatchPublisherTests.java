@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.junit.Test;
+
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.util.ErrorHandler;
+
+/**
+ * @since 2.1.1
+ */
+public class JmsBatchPublisherTests {
+
+	@Test
+	public void batchesArePublishedInOrderWhileFlushing() throws Exception {
+		final List<String> sent = Collections.synchronizedList(new ArrayList<String>());
+		final MessageProducer producer = new StubProducer(null) {
+			@Override
+			public void send(javax.jms.Message message) throws JMSException {
+				sent.add(((TextMessage) message).getText());
+				// widen the window in which another batch could overtake this one
+				Thread.yield();
+			}
+		};
+		Session session = new StubSession(null) {
+			@Override
+			public MessageProducer createProducer(Destination destination) throws JMSException {
+				return producer;
+			}
+		};
+		ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+		Connection connection = mock(Connection.class);
+		when(connectionFactory.createConnection()).thenReturn(connection);
+		when(connection.createSession(true, Session.SESSION_TRANSACTED)).thenReturn(session);
+		Destination destination = new StubQueue();
+		JmsTemplate jmsTemplate = new JmsTemplate(connectionFactory);
+		jmsTemplate.setDefaultDestination(destination);
+		final JmsBatchPublisher publisher = new JmsBatchPublisher(jmsTemplate, 10, 60000, mock(ErrorHandler.class));
+
+		final AtomicBoolean adding = new AtomicBoolean(true);
+		Thread flusher = new Thread(new Runnable() {
+			public void run() {
+				while (adding.get()) {
+					publisher.flush();
+				}
+			}
+		});
+		flusher.start();
+		int count = 2000;
+		for (int i = 0; i < count; i++) {
+			String text = Integer.toString(i);
+			publisher.add(new GenericMessage<String>(text), null, text, null, null);
+		}
+		adding.set(false);
+		flusher.join(10000);
+		publisher.flush();
+
+		assertEquals(count, sent.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(Integer.toString(i), sent.get(i));
+		}
+	}
+
+}
@@ -17,8 +17,11 @@
 package org.springframework.integration.jms.config;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.jms.Destination;
 import javax.jms.JMSException;
@@ -32,11 +35,13 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
 import org.springframework.integration.channel.ChannelInterceptor;
 import org.springframework.integration.channel.interceptor.ChannelInterceptorAdapter;
 import org.springframework.integration.jms.PollableJmsChannel;
 import org.springframework.integration.jms.SubscribableJmsChannel;
+import org.springframework.integration.support.MessageBuilder;
 import org.springframework.integration.test.util.TestUtils;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.jms.listener.AbstractMessageListenerContainer;
@@ -93,6 +98,9 @@ public class JmsChannelParserTests {
 	@Autowired
 	private MessageChannel pollableQueueNameChannel;
 
+	@Autowired
+	private MessageChannel batchingChannel;
+
 	@Autowired
 	private Topic topic;
 
@@ -117,6 +125,27 @@ public class JmsChannelParserTests {
 		this.context.close();
 	}
 
+	@Test
+	public void batchingChannel() {
+		assertEquals(PollableJmsChannel.class, batchingChannel.getClass());
+		PollableJmsChannel channel = (PollableJmsChannel) batchingChannel;
+		DirectFieldAccessor accessor = new DirectFieldAccessor(channel);
+		assertEquals(5, accessor.getPropertyValue("batchSize"));
+		assertEquals(50L, accessor.getPropertyValue("batchTimeout"));
+		assertNotNull(accessor.getPropertyValue("batchPublisher"));
+		// two full batches and one published by the timeout
+		for (int i = 0; i < 12; i++) {
+			channel.send(MessageBuilder.withPayload("batch" + i).build());
+		}
+		Set<Object> received = new HashSet<Object>();
+		for (int i = 0; i < 12; i++) {
+			Message<?> message = channel.receive();
+			assertNotNull(message);
+			received.add(message.getPayload());
+		}
+		assertEquals(12, received.size());
+	}
+
 	@Test
 	public void queueReferenceChannel() {
 		assertEquals(SubscribableJmsChannel.class, queueReferenceChannel.getClass());
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,8 +18,12 @@ package org.springframework.integration.jms.config;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import javax.jms.DeliveryMode;
 
 import org.junit.Test;
@@ -27,8 +31,15 @@ import org.junit.Test;
 import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
+import org.springframework.integration.MessageDeliveryException;
+import org.springframework.integration.core.PollableChannel;
 import org.springframework.integration.endpoint.EventDrivenConsumer;
 import org.springframework.integration.jms.JmsHeaderMapper;
+import org.springframework.integration.message.ErrorMessage;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.jms.connection.CachingConnectionFactory;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.jms.support.converter.MessageConverter;
 
@@ -67,6 +78,43 @@ public class JmsOutboundChannelAdapterParserTests {
 		assertNotNull(accessor.getPropertyValue("jmsTemplate"));
 	}
 
+	@Test
+	public void adapterWithBatching() {
+		ActiveMqTestUtils.prepare();
+		ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext(
+				"jmsOutboundWithBatching.xml", this.getClass());
+		EventDrivenConsumer endpoint = (EventDrivenConsumer) context.getBean("adapter");
+		DirectFieldAccessor accessor = new DirectFieldAccessor(
+				new DirectFieldAccessor(endpoint).getPropertyValue("handler"));
+		assertEquals(10, accessor.getPropertyValue("batchSize"));
+		assertEquals(100L, accessor.getPropertyValue("batchTimeout"));
+		MessageChannel input = context.getBean("input", MessageChannel.class);
+		for (int i = 0; i < 25; i++) {
+			input.send(MessageBuilder.withPayload("batch" + i).build());
+		}
+		// not convertible by the SimpleMessageConverter; must not affect the rest of its batch
+		Message<?> bad = MessageBuilder.withPayload(new Object()).build();
+		input.send(bad);
+
+		JmsTemplate template = new JmsTemplate(context.getBean(CachingConnectionFactory.class));
+		template.setReceiveTimeout(5000);
+		Set<Object> received = new HashSet<Object>();
+		for (int i = 0; i < 25; i++) {
+			Object payload = template.receiveAndConvert("batch.adapter.queue");
+			assertNotNull(payload);
+			received.add(payload);
+		}
+		assertEquals(25, received.size());
+		Message<?> error = context.getBean("errors", PollableChannel.class).receive(5000);
+		assertTrue(error instanceof ErrorMessage);
+		assertTrue(error.getPayload() instanceof MessageDeliveryException);
+		assertEquals(bad, ((MessageDeliveryException) error.getPayload()).getFailedMessage());
+
+		template.setReceiveTimeout(100);
+		assertNull(template.receive("batch.adapter.queue"));
+		context.close();
+	}
+
 	@Test
 	public void adapterWithOrder() {
 		ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext(
@@ -19,12 +19,20 @@ package org.springframework.integration.jms.config;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.jms.DeliveryMode;
 
@@ -135,6 +143,43 @@ public class JmsOutboundGatewayParserTests {
 		assertTrue((Boolean) accessor.getPropertyValue("replyPubSubDomain"));
 	}
 
+	@Test
+	public void gatewayWithReplyListener() throws Exception {
+		ActiveMqTestUtils.prepare();
+		ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext(
+				"gatewayWithReplyListener.xml", this.getClass());
+		EventDrivenConsumer endpoint = (EventDrivenConsumer) context.getBean("correlationKeyOutbound");
+		DirectFieldAccessor accessor = new DirectFieldAccessor(
+				new DirectFieldAccessor(endpoint).getPropertyValue("handler"));
+		assertTrue((Boolean) accessor.getPropertyValue("useReplyListener"));
+		assertEquals(2, accessor.getPropertyValue("replyListenerConcurrency"));
+		assertNotNull(accessor.getPropertyValue("replyListenerContainer"));
+
+		ExecutorService executor = Executors.newFixedThreadPool(10);
+		try {
+			for (String gatewayName : new String[] {"correlationKeyGateway", "messageIdGateway"}) {
+				final SampleGateway gateway = context.getBean(gatewayName, SampleGateway.class);
+				List<Future<String>> results = new ArrayList<Future<String>>();
+				for (int i = 0; i < 50; i++) {
+					final String request = gatewayName + i;
+					results.add(executor.submit(new Callable<String>() {
+						public String call() {
+							return gateway.echo(request);
+						}
+					}));
+				}
+				for (int i = 0; i < 50; i++) {
+					assertEquals((gatewayName + i).toUpperCase(), results.get(i).get());
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertEquals(0, ((Map<?, ?>) accessor.getPropertyValue("pendingReplies")).size());
+		context.close();
+		assertNull(accessor.getPropertyValue("replyListenerContainer"));
+	}
 
 	public static interface SampleGateway{
 		public String echo(String value);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2009-2010 the original author or authors.
+ * Copyright 2009-2012 the original author or authors.
  * 
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -13,20 +13,27 @@
 
 package org.springframework.integration.monitor;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
+import org.springframework.integration.support.metrics.ChannelMetrics;
+import org.springframework.integration.support.metrics.LatencyHistogram;
 import org.springframework.jmx.export.annotation.ManagedResource;
-import org.springframework.util.StopWatch;
 
 /**
  * Registers all message channels, and accumulates statistics about their performance. The statistics are then published
  * locally for other components to consume and publish remotely.
+ * <p>
+ * The statistics are held in a {@link ChannelMetrics} instance. An
+ * {@link org.springframework.integration.channel.AbstractMessageChannel} records into it directly (see
+ * {@link #getChannelMetrics()}); other channels are monitored by applying this object as advice to a proxy. Sending
+ * only updates those lock-free counters. Send durations, rates and the error ratio are exponential moving averages
+ * that are brought up to date, when read, with the sends counted since the previous read (each read is one
+ * measurement); the lifetime attributes are computed, when read, from the counts and the duration histogram since
+ * startup (or the last {@link #reset()}).
  * 
  * @author Dave Syer
  * @author Helena Edelson
@@ -43,8 +50,10 @@ public class DirectChannelMetrics implements MethodInterceptor, MessageChannelMe
 
 	public static final int DEFAULT_MOVING_AVERAGE_WINDOW = 10;
 
+	private static final double NANOS_PER_MILLI = 1000000;
+
 
-	private ExponentialMovingAverage sendDuration = new ExponentialMovingAverage(
+	private final ExponentialMovingAverage sendDuration = new ExponentialMovingAverage(
 			DEFAULT_MOVING_AVERAGE_WINDOW);
 
 	private final ExponentialMovingAverageRate sendErrorRate = new ExponentialMovingAverageRate(
@@ -56,9 +65,16 @@ public class DirectChannelMetrics implements MethodInterceptor, MessageChannelMe
 	private final ExponentialMovingAverageRate sendRate = new ExponentialMovingAverageRate(
 			ONE_SECOND_SECONDS, ONE_MINUTE_SECONDS, DEFAULT_MOVING_AVERAGE_WINDOW);
 
-	private final AtomicInteger sendCount = new AtomicInteger();
+	private final ChannelMetrics metrics = new ChannelMetrics();
+
+	// the counts already applied to the moving averages, guarded by this
+	private long averagedSendCount;
+
+	private long averagedErrorCount;
 
-	private final AtomicInteger sendErrorCount = new AtomicInteger();
+	private long averagedDurationCount;
+
+	private long averagedDurationSum;
 
 	private final String name;
 
@@ -73,7 +89,7 @@ public class DirectChannelMetrics implements MethodInterceptor, MessageChannelMe
 
 	public void destroy() {
 		if (logger.isDebugEnabled()) {
-			logger.debug(sendDuration);
+			logger.debug(metrics);
 		}
 	}
 
@@ -85,6 +101,14 @@ public class DirectChannelMetrics implements MethodInterceptor, MessageChannelMe
 		return name;
 	}
 
+	/**
+	 * @return the statistics recorded for the channel
+	 * @since 2.1.1
+	 */
+	public ChannelMetrics getChannelMetrics() {
+		return metrics;
+	}
+
 	public Object invoke(MethodInvocation invocation) throws Throwable {
 		String method = invocation.getMethod().getName();
 		MessageChannel channel = (MessageChannel) invocation.getThis();
@@ -103,104 +127,158 @@ public class DirectChannelMetrics implements MethodInterceptor, MessageChannelMe
 		if (logger.isTraceEnabled()) {
 			logger.trace("Recording send on channel(" + channel + ") : message(" + message + ")");
 		}
-		final StopWatch timer = new StopWatch(channel + ".send:execution");
+		long start = metrics.beforeSend();
+		boolean sent = false;
 		try {
-			timer.start();
-
-			sendCount.incrementAndGet();
-			sendRate.increment();
-
 			Object result = invocation.proceed();
-
-			timer.stop();
-			if ((Boolean)result) {
-				sendSuccessRatio.success();
-				sendDuration.append(timer.getTotalTimeMillis());
-			}
-			else {
-				sendSuccessRatio.failure();
-				sendErrorCount.incrementAndGet();
-				sendErrorRate.increment();
-			}
+			sent = (Boolean) result;
 			return result;
 		}
-		catch (Throwable e) {
-			sendSuccessRatio.failure();
-			sendErrorCount.incrementAndGet();
-			sendErrorRate.increment();
-			throw e;
-		}
 		finally {
-			if (logger.isTraceEnabled()) {
-				logger.trace(timer);
-			}
+			metrics.afterSend(start, sent);
 		}
 	}
 	
 	public synchronized void reset() {
+		metrics.reset();
 		sendDuration.reset();
 		sendErrorRate.reset();
 		sendSuccessRatio.reset();
 		sendRate.reset();
-		sendCount.set(0);
-		sendErrorCount.set(0);
+		averagedSendCount = 0;
+		averagedErrorCount = 0;
+		averagedDurationCount = 0;
+		averagedDurationSum = 0;
+	}
+
+	/**
+	 * Apply the sends counted since the last call to the moving averages.
+	 */
+	private synchronized void updateAverages() {
+		// errors are counted after their send, so read them first
+		long errorCount = metrics.getSendErrorCount();
+		long sendCount = metrics.getSendCount();
+		LatencyHistogram duration = metrics.getSendDuration();
+		long durationSum = duration.getSum();
+		long durationCount = duration.getCount();
+		long sends = sendCount - averagedSendCount;
+		long errors = Math.min(errorCount - averagedErrorCount, sends);
+		if (sends > 0) {
+			sendRate.increment(sends);
+			sendSuccessRatio.append(sends - errors, errors);
+			sendErrorRate.increment(errors);
+			averagedSendCount = sendCount;
+			averagedErrorCount += errors;
+		}
+		if (durationCount > averagedDurationCount) {
+			sendDuration.append((durationSum - averagedDurationSum) / (double) (durationCount - averagedDurationCount)
+					/ NANOS_PER_MILLI);
+			averagedDurationCount = durationCount;
+			averagedDurationSum = durationSum;
+		}
 	}
 
 	public int getSendCount() {
-		return sendCount.get();
+		return (int) metrics.getSendCount();
 	}
 
 	public int getSendErrorCount() {
-		return sendErrorCount.get();
+		return (int) metrics.getSendErrorCount();
 	}
 
 	public double getTimeSinceLastSend() {
-		return sendRate.getTimeSinceLastMeasurement();
+		long lastSendTime = metrics.getLastSendTime();
+		long since = System.currentTimeMillis() - ((lastSendTime > 0) ? lastSendTime : metrics.getResetTime());
+		return since / 1000.;
 	}
 
 	public double getMeanSendRate() {
+		updateAverages();
 		return sendRate.getMean();
 	}
 
 	public double getMeanErrorRate() {
+		updateAverages();
 		return sendErrorRate.getMean();
 	}
 
 	public double getMeanErrorRatio() {
+		updateAverages();
 		return 1 - sendSuccessRatio.getMean();
 	}
 
+	public double getLifetimeSendRate() {
+		return perSecond(metrics.getSendCount());
+	}
+
+	public double getLifetimeErrorRate() {
+		return perSecond(metrics.getSendErrorCount());
+	}
+
+	public double getLifetimeErrorRatio() {
+		long sendCount = metrics.getSendCount();
+		return (sendCount > 0) ? (double) metrics.getSendErrorCount() / sendCount : 0;
+	}
+
 	public double getMeanSendDuration() {
+		updateAverages();
 		return sendDuration.getMean();
 	}
 
 	public double getMinSendDuration() {
+		updateAverages();
 		return sendDuration.getMin();
 	}
 
 	public double getMaxSendDuration() {
+		updateAverages();
 		return sendDuration.getMax();
 	}
 
 	public double getStandardDeviationSendDuration() {
+		updateAverages();
 		return sendDuration.getStandardDeviation();
 	}
+
+	public double getLifetimeMeanSendDuration() {
+		return metrics.getSendDuration().getMean() / NANOS_PER_MILLI;
+	}
+
+	public double getSendDurationP50() {
+		return metrics.getSendDuration().getPercentile(50) / NANOS_PER_MILLI;
+	}
+
+	public double getSendDurationP99() {
+		return metrics.getSendDuration().getPercentile(99) / NANOS_PER_MILLI;
+	}
+
+	public double getSendDurationP999() {
+		return metrics.getSendDuration().getPercentile(99.9) / NANOS_PER_MILLI;
+	}
 	
 	public Statistics getSendDuration() {
+		updateAverages();
 		return sendDuration.getStatistics();
 	}
 	
 	public Statistics getSendRate() {
+		updateAverages();
 		return sendRate.getStatistics();
 	}
 
 	public Statistics getErrorRate() {
+		updateAverages();
 		return sendErrorRate.getStatistics();
 	}
 
 	@Override
 	public String toString() {
-		return String.format("MessageChannelMonitor: [name=%s, sends=%d]", name, sendCount.get());
+		return String.format("MessageChannelMonitor: [name=%s, sends=%d]", name, metrics.getSendCount());
+	}
+
+	private double perSecond(long count) {
+		long elapsed = System.currentTimeMillis() - metrics.getResetTime();
+		return (elapsed > 0) ? count * 1000. / elapsed : 0;
 	}
 
 }
@@ -43,6 +43,8 @@ public class ExponentialMovingAverageRate {
 
 	private volatile long t0 = System.currentTimeMillis();
 
+	private volatile long events;
+
 	private final double lapse;
 
 	private final double period;
@@ -66,15 +68,31 @@ public class ExponentialMovingAverageRate {
 		weight = 0;
 		sum = 0;
 		t0 = System.currentTimeMillis();
+		events = 0;
 		rates.reset();
 	}
 
 	/**
 	 * Add a new event to the series.
 	 */
-	public synchronized void increment() {
+	public void increment() {
+		increment(1);
+	}
+
+	/**
+	 * Add the given number of events to the series, as if they had occurred at even
+	 * intervals since the last measurement. This is a single measurement, but all the
+	 * events are included in the count of the {@link #getStatistics() statistics}.
+	 * @param events the number of events
+	 * @since 2.1.1
+	 */
+	public synchronized void increment(long events) {
+		if (events <= 0) {
+			return;
+		}
 		long t = System.currentTimeMillis();
-		double value = t > t0 ? (t - t0) / period : 0;
+		double elapsed = t > t0 ? (t - t0) / period : 0;
+		double value = elapsed / events;
 		if (value > max || getCount() == 0) {
 			max = value;
 		}
@@ -83,8 +101,9 @@ public class ExponentialMovingAverageRate {
 		}
 		double alpha = Math.exp((t0 - t) * lapse);
 		t0 = t;
-		sum = alpha * sum + value;
-		weight = alpha * weight + 1;
+		this.events += events;
+		sum = alpha * sum + elapsed;
+		weight = alpha * weight + events;
 		rates.append(sum > 0 ? weight / sum : 0);
 	}
 
@@ -137,10 +156,10 @@ public class ExponentialMovingAverageRate {
 	}
 
 	/**
-	 * @return summary statistics (count, mean, standard deviation etc.)
+	 * @return summary statistics (count of events, mean, standard deviation etc.)
 	 */
 	public Statistics getStatistics() {
-		return new Statistics(getCount(), min, max, getMean(), getStandardDeviation());
+		return new Statistics((int) events, min, max, getMean(), getStandardDeviation());
 	}
 
 	@Override
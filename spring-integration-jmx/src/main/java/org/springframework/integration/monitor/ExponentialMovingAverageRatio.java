@@ -71,15 +71,28 @@ public class ExponentialMovingAverageRatio {
 		cumulative.reset();
 	}
 
-	private synchronized void append(int value) {
+	/**
+	 * Add the given numbers of successful and failed events as a single measurement.
+	 * @param successes the number of events with successful outcome
+	 * @param failures the number of events with failed outcome
+	 * @since 2.1.1
+	 */
+	public synchronized void append(long successes, long failures) {
+		if (successes + failures <= 0) {
+			return;
+		}
 		long t = System.currentTimeMillis();
 		double alpha = Math.exp((t0 - t) * lapse);
 		t0 = t;
-		sum = alpha * sum + value;
-		weight = alpha * weight + 1;
+		sum = alpha * sum + successes;
+		weight = alpha * weight + successes + failures;
 		cumulative.append(sum / weight);
 	}
 
+	private void append(int value) {
+		append(value, 1 - value);
+	}
+
 	/**
 	 * @return the number of measurements recorded
 	 */
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  * 
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -47,11 +47,13 @@ import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.Lifecycle;
 import org.springframework.context.SmartLifecycle;
 import org.springframework.integration.MessageChannel;
+import org.springframework.integration.channel.AbstractMessageChannel;
 import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.core.MessageHandler;
 import org.springframework.integration.core.MessageSource;
 import org.springframework.integration.core.PollableChannel;
 import org.springframework.integration.endpoint.AbstractEndpoint;
+import org.springframework.integration.handler.AbstractMessageHandler;
 import org.springframework.jmx.export.MBeanExporter;
 import org.springframework.jmx.export.UnableToRegisterMBeanException;
 import org.springframework.jmx.export.annotation.AnnotationJmxAttributeSource;
@@ -146,6 +148,8 @@ public class IntegrationMBeanExporter extends MBeanExporter implements BeanPostP
 
 	private String[] componentNamePatterns = { "*" };
 
+	private volatile int sampleInterval = 1;
+
 	public IntegrationMBeanExporter() {
 		super();
 		// Shouldn't be necessary, but to be on the safe side...
@@ -185,6 +189,16 @@ public class IntegrationMBeanExporter extends MBeanExporter implements BeanPostP
 		this.componentNamePatterns = componentNamePatterns;
 	}
 
+	/**
+	 * Specify that only one in every <code>sampleInterval</code> sends and handler invocations should be timed, to
+	 * reduce the overhead of monitoring very busy components. All of them are counted regardless. Default 1.
+	 * @since 2.1.1
+	 */
+	public void setSampleInterval(int sampleInterval) {
+		Assert.isTrue(sampleInterval > 0, "sampleInterval must be greater than zero");
+		this.sampleInterval = sampleInterval;
+	}
+
 	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
 		super.setBeanFactory(beanFactory);
 		Assert.isTrue(beanFactory instanceof ListableBeanFactory, "A ListableBeanFactory is required.");
@@ -204,14 +218,27 @@ public class IntegrationMBeanExporter extends MBeanExporter implements BeanPostP
 			}
 		}
 
+		Object target = extractTarget(bean);
+		if ((target instanceof AbstractMessageChannel && ((AbstractMessageChannel) target).getMetrics() != null)
+				|| (target instanceof AbstractMessageHandler && ((AbstractMessageHandler) target).getMetrics() != null)) {
+			// Already recording metrics - so probably a factory bean product
+			return bean;
+		}
+
 		boolean foundMetrics = false;
 
 		if (bean instanceof MessageHandler) {
 			SimpleMessageHandlerMetrics monitor = new SimpleMessageHandlerMetrics((MessageHandler) bean);
-			Object advised = applyHandlerInterceptor(bean, monitor, beanClassLoader);
+			monitor.getHandlerMetrics().setSampleInterval(sampleInterval);
+			if (target instanceof AbstractMessageHandler) {
+				// The handler records its own metrics, so there is no need for a proxy
+				((AbstractMessageHandler) target).setMetrics(monitor.getHandlerMetrics());
+			}
+			else {
+				bean = applyHandlerInterceptor(bean, monitor, beanClassLoader);
+			}
 			handlers.add(monitor);
 			foundMetrics = true;
-			bean = advised;
 		}
 
 		if (bean instanceof MessageSource<?>) {
@@ -224,22 +251,28 @@ public class IntegrationMBeanExporter extends MBeanExporter implements BeanPostP
 
 		if (bean instanceof MessageChannel) {
 			DirectChannelMetrics monitor;
-			MessageChannel target = (MessageChannel) extractTarget(bean);
+			MessageChannel channel = (MessageChannel) target;
 			if (bean instanceof PollableChannel) {
-				if (target instanceof QueueChannel) {
-					monitor = new QueueChannelMetrics((QueueChannel) target, beanName);
+				if (channel instanceof QueueChannel) {
+					monitor = new QueueChannelMetrics((QueueChannel) channel, beanName);
 				}
 				else {
-					monitor = new PollableChannelMetrics(target, beanName);
+					monitor = new PollableChannelMetrics(channel, beanName);
 				}
 			}
 			else {
-				monitor = new DirectChannelMetrics(target, beanName);
+				monitor = new DirectChannelMetrics(channel, beanName);
+			}
+			monitor.getChannelMetrics().setSampleInterval(sampleInterval);
+			if (channel instanceof AbstractMessageChannel) {
+				// The channel records its own metrics, so there is no need for a proxy
+				((AbstractMessageChannel) channel).setMetrics(monitor.getChannelMetrics());
+			}
+			else {
+				bean = applyChannelInterceptor(bean, monitor, beanClassLoader);
 			}
-			Object advised = applyChannelInterceptor(bean, monitor, beanClassLoader);
 			channels.add(monitor);
 			foundMetrics = true;
-			bean = advised;
 		}
 
 		if (foundMetrics) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -85,6 +85,22 @@ public class LifecycleMessageHandlerMetrics implements MessageHandlerMetrics, Li
 		return this.delegate.getStandardDeviationDuration();
 	}
 
+	public double getLifetimeMeanDuration() {
+		return this.delegate.getLifetimeMeanDuration();
+	}
+
+	public double getDurationP50() {
+		return this.delegate.getDurationP50();
+	}
+
+	public double getDurationP99() {
+		return this.delegate.getDurationP99();
+	}
+
+	public double getDurationP999() {
+		return this.delegate.getDurationP999();
+	}
+
 	public Statistics getDuration() {
 		return this.delegate.getDuration();
 	}
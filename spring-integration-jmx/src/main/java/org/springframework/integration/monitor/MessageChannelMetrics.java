@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,7 +33,7 @@ public interface MessageChannelMetrics {
 	void reset();
 
 	/**
-	 * @return the number of successful sends
+	 * @return the number of sends, including failed ones
 	 */
 	@ManagedMetric(metricType = MetricType.COUNTER, displayName = "MessageChannel Send Count")
 	int getSendCount();
@@ -68,6 +68,27 @@ public interface MessageChannelMetrics {
 	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Mean Channel Error Ratio per Minute")
 	double getMeanErrorRatio();
 
+	/**
+	 * @return the number of sends per second since startup or the last reset
+	 * @since 2.1.1
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Channel Lifetime Send Rate per Second")
+	double getLifetimeSendRate();
+
+	/**
+	 * @return the number of failed sends per second since startup or the last reset
+	 * @since 2.1.1
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Channel Lifetime Error Rate per Second")
+	double getLifetimeErrorRate();
+
+	/**
+	 * @return the ratio of failed sends to all sends since startup or the last reset
+	 * @since 2.1.1
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Channel Lifetime Error Ratio")
+	double getLifetimeErrorRatio();
+
 	/**
 	 * @return the mean send duration (milliseconds)
 	 */
@@ -92,6 +113,34 @@ public interface MessageChannelMetrics {
 	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Channel Send Standard Deviation Duration in Milliseconds")
 	double getStandardDeviationSendDuration();
 
+	/**
+	 * @return the mean duration (milliseconds) of the sends timed since startup or the last reset
+	 * @since 2.1.1
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Channel Send Lifetime Mean Duration in Milliseconds")
+	double getLifetimeMeanSendDuration();
+
+	/**
+	 * @return the median send duration (milliseconds)
+	 * @since 2.1.1
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Channel Send 50th Percentile Duration in Milliseconds")
+	double getSendDurationP50();
+
+	/**
+	 * @return the 99th percentile send duration (milliseconds)
+	 * @since 2.1.1
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Channel Send 99th Percentile Duration in Milliseconds")
+	double getSendDurationP99();
+
+	/**
+	 * @return the 99.9th percentile send duration (milliseconds)
+	 * @since 2.1.1
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Channel Send 99.9th Percentile Duration in Milliseconds")
+	double getSendDurationP999();
+
 	/**
 	 * @return summary statistics about the send duration (milliseconds)
 	 */
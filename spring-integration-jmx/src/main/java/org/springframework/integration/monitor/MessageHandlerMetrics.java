@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,7 +30,7 @@ public interface MessageHandlerMetrics {
 	void reset();
 
 	/**
-	 * @return the number of successful handler calls
+	 * @return the number of handler calls
 	 */
 	@ManagedMetric(metricType = MetricType.COUNTER, displayName = "Handler Execution Count")
 	int getHandleCount();
@@ -64,6 +64,34 @@ public interface MessageHandlerMetrics {
 	 */
 	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Handler Standard Deviation Duration in Milliseconds")
 	double getStandardDeviationDuration();
+
+	/**
+	 * @return the mean duration (milliseconds) of the handler calls timed since startup or the last reset
+	 * @since 2.1.1
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Handler Lifetime Mean Duration in Milliseconds")
+	double getLifetimeMeanDuration();
+
+	/**
+	 * @return the median handler duration (milliseconds)
+	 * @since 2.1.1
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Handler 50th Percentile Duration in Milliseconds")
+	double getDurationP50();
+
+	/**
+	 * @return the 99th percentile handler duration (milliseconds)
+	 * @since 2.1.1
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Handler 99th Percentile Duration in Milliseconds")
+	double getDurationP99();
+
+	/**
+	 * @return the 99.9th percentile handler duration (milliseconds)
+	 * @since 2.1.1
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Handler 99.9th Percentile Duration in Milliseconds")
+	double getDurationP999();
 	
 	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Handler Active Execution Count")
 	int getActiveCount();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,6 @@
 
 package org.springframework.integration.monitor;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 import org.aopalliance.intercept.MethodInvocation;
 import org.springframework.integration.MessageChannel;
 import org.springframework.jmx.export.annotation.ManagedMetric;
@@ -30,11 +28,6 @@ import org.springframework.jmx.support.MetricType;
  */
 public class PollableChannelMetrics extends DirectChannelMetrics {
 
-	private final AtomicInteger receiveCount = new AtomicInteger();
-
-	private final AtomicInteger receiveErrorCount = new AtomicInteger();
-
-
 	public PollableChannelMetrics(MessageChannel messageChannel, String name) {
 		super(messageChannel, name);
 	}
@@ -53,38 +46,34 @@ public class PollableChannelMetrics extends DirectChannelMetrics {
 		}
 		try {
 			Object object = invocation.proceed();
-			if (object != null) {
-				this.receiveCount.incrementAndGet();
-			}
+			getChannelMetrics().afterReceive(object != null);
 			return object;
 		}
 		catch (Throwable e) {
-			this.receiveErrorCount.incrementAndGet();
+			getChannelMetrics().afterReceiveError();
 			throw e;
 		}
 	}
 
 	@ManagedOperation
-	public synchronized void reset() {
+	public void reset() {
 		super.reset();
-		this.receiveErrorCount.set(0);
-		this.receiveCount.set(0);
 	}
 
 	@ManagedMetric(metricType = MetricType.COUNTER, displayName = "MessageChannel Receive Count")
 	public int getReceiveCount() {
-		return this.receiveCount.get();
+		return (int) getChannelMetrics().getReceiveCount();
 	}
 
 	@ManagedMetric(metricType = MetricType.COUNTER, displayName = "MessageChannel Receive Error Count")
 	public int getReceiveErrorCount() {
-		return this.receiveErrorCount.get();
+		return (int) getChannelMetrics().getReceiveErrorCount();
 	}
 
 	@Override
 	public String toString() {
 		return String.format("MessageChannelMonitor: [name=%s, sends=%d, receives=%d]",
-				getName(), getSendCount(), this.receiveCount.get());
+				getName(), getSendCount(), getReceiveCount());
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,18 +16,23 @@
 
 package org.springframework.integration.monitor;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.integration.Message;
 import org.springframework.integration.core.MessageHandler;
+import org.springframework.integration.support.metrics.HandlerMetrics;
+import org.springframework.integration.support.metrics.LatencyHistogram;
 import org.springframework.jmx.export.annotation.ManagedResource;
-import org.springframework.util.StopWatch;
 
 /**
+ * Statistics about a message handler, held in a {@link HandlerMetrics} instance. An
+ * {@link org.springframework.integration.handler.AbstractMessageHandler} records into it directly (see
+ * {@link #getHandlerMetrics()}); other handlers are monitored by applying this object as advice to a proxy.
+ * Handling only updates those lock-free counters; the moving average of the duration is brought up to date, when
+ * read, with the mean of the durations recorded since the previous read (each read is one measurement).
+ * 
  * @author Dave Syer
  * @since 2.0
  */
@@ -38,16 +43,19 @@ public class SimpleMessageHandlerMetrics implements MethodInterceptor, MessageHa
 
 	private static final int DEFAULT_MOVING_AVERAGE_WINDOW = 10;
 
+	private static final double NANOS_PER_MILLI = 1000000;
+
 
 	private final MessageHandler handler;
 
-	private final AtomicInteger activeCount = new AtomicInteger();
+	private final ExponentialMovingAverage duration = new ExponentialMovingAverage(DEFAULT_MOVING_AVERAGE_WINDOW);
 
-	private final AtomicInteger handleCount = new AtomicInteger();
+	private final HandlerMetrics metrics = new HandlerMetrics();
 
-	private final AtomicInteger errorCount = new AtomicInteger();
+	// the durations already applied to the moving average, guarded by this
+	private long averagedDurationCount;
 
-	private final ExponentialMovingAverage duration = new ExponentialMovingAverage(DEFAULT_MOVING_AVERAGE_WINDOW);
+	private long averagedDurationSum;
 
 	private volatile String name;
 
@@ -79,6 +87,14 @@ public class SimpleMessageHandlerMetrics implements MethodInterceptor, MessageHa
 		return this.handler;
 	}
 
+	/**
+	 * @return the statistics recorded for the handler
+	 * @since 2.1.1
+	 */
+	public HandlerMetrics getHandlerMetrics() {
+		return this.metrics;
+	}
+
 	public Object invoke(MethodInvocation invocation) throws Throwable {
 		String method = invocation.getMethod().getName();
 		if ("handleMessage".equals(method)) {
@@ -93,68 +109,92 @@ public class SimpleMessageHandlerMetrics implements MethodInterceptor, MessageHa
 		if (logger.isTraceEnabled()) {
 			logger.trace("messageHandler(" + this.handler + ") message(" + message + ") :");
 		}
-		String name = this.name;
-		if (name == null) {
-			name = this.handler.toString();
-		}
-		StopWatch timer = new StopWatch(name + ".handle:execution");
+		long start = this.metrics.beforeHandle();
+		boolean success = false;
 		try {
-			timer.start();
-			this.handleCount.incrementAndGet();
-			this.activeCount.incrementAndGet();
-
 			invocation.proceed();
-
-			timer.stop();
-			this.duration.append(timer.getTotalTimeMillis());
-		}
-		catch (Throwable e) {
-			this.errorCount.incrementAndGet();
-			throw e;
+			success = true;
 		}
 		finally {
-			this.activeCount.decrementAndGet();
+			this.metrics.afterHandle(start, success);
 		}
 	}
 
 	public synchronized void reset() {
+		this.metrics.reset();
 		this.duration.reset();
-		this.errorCount.set(0);
-		this.handleCount.set(0);
+		this.averagedDurationCount = 0;
+		this.averagedDurationSum = 0;
+	}
+
+	/**
+	 * Apply the durations recorded since the last call to the moving average.
+	 */
+	private synchronized void updateAverage() {
+		LatencyHistogram histogram = this.metrics.getDuration();
+		long sum = histogram.getSum();
+		long count = histogram.getCount();
+		if (count > this.averagedDurationCount) {
+			this.duration.append((sum - this.averagedDurationSum) / (double) (count - this.averagedDurationCount)
+					/ NANOS_PER_MILLI);
+			this.averagedDurationCount = count;
+			this.averagedDurationSum = sum;
+		}
 	}
 
 	public int getHandleCount() {
 		if (logger.isTraceEnabled()) {
 			logger.trace("Getting Handle Count:" + this);
 		}
-		return this.handleCount.get();
+		return (int) this.metrics.getHandleCount();
 	}
 
 	public int getErrorCount() {
-		return this.errorCount.get();
+		return (int) this.metrics.getErrorCount();
 	}
 
 	public double getMeanDuration() {
+		this.updateAverage();
 		return this.duration.getMean();
 	}
 
 	public double getMinDuration() {
+		this.updateAverage();
 		return this.duration.getMin();
 	}
 
 	public double getMaxDuration() {
+		this.updateAverage();
 		return this.duration.getMax();
 	}
 
 	public double getStandardDeviationDuration() {
+		this.updateAverage();
 		return this.duration.getStandardDeviation();
 	}
 
+	public double getLifetimeMeanDuration() {
+		return this.metrics.getDuration().getMean() / NANOS_PER_MILLI;
+	}
+
+	public double getDurationP50() {
+		return this.metrics.getDuration().getPercentile(50) / NANOS_PER_MILLI;
+	}
+
+	public double getDurationP99() {
+		return this.metrics.getDuration().getPercentile(99) / NANOS_PER_MILLI;
+	}
+
+	public double getDurationP999() {
+		return this.metrics.getDuration().getPercentile(99.9) / NANOS_PER_MILLI;
+	}
+
 	public int getActiveCount() {
-		return this.activeCount.get();
+		return (int) this.metrics.getActiveCount();
 	}
 
 	public Statistics getDuration() {
+		this.updateAverage();
 		return this.duration.getStatistics();
 	}
 
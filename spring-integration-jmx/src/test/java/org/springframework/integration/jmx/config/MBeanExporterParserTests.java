@@ -56,6 +56,7 @@ public class MBeanExporterParserTests {
 		assertTrue(properties.containsKey("foo"));
 		assertTrue(properties.containsKey("bar"));
 		assertEquals(server, exporter.getServer());
+		assertEquals(10, TestUtils.getPropertyValue(exporter, "sampleInterval"));
 		exporter.destroy();
 	}
 
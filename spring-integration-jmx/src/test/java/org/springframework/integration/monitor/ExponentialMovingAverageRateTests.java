@@ -62,6 +62,17 @@ public class ExponentialMovingAverageRateTests {
 		assertTrue(history.getMean() < before);
 	}
 
+	@Test
+	public void testIncrementSeveral() throws Exception {
+		Thread.sleep(100L);
+		history.increment(10);
+		assertEquals(1, history.getCount());
+		// ten events in about 100ms
+		assertTrue("Mean should be about 100: " + history, history.getMean() > 50 && history.getMean() < 110);
+		history.increment(0);
+		assertEquals(1, history.getCount());
+	}
+
 	@Test
 	@Ignore
 	public void testGetStandardDeviation() throws Exception {
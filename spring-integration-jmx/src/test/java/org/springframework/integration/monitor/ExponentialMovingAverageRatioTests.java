@@ -98,6 +98,15 @@ public class ExponentialMovingAverageRatioTests {
 		assertEquals(average(0, 0, 0.33), history.getMean(), 0.1);
 	}
 
+	@Test
+	public void testAppendSeveral() throws Exception {
+		history.append(3, 1);
+		assertEquals(1, history.getCount());
+		assertEquals(0.75, history.getMean(), 0.01);
+		history.append(0, 0);
+		assertEquals(1, history.getCount());
+	}
+
 	@Test
 	public void testGetStandardDeviation() throws Exception {
 		assertEquals(0, history.getStandardDeviation(), 0.01);
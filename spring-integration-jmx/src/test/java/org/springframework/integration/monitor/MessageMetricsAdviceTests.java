@@ -2,6 +2,8 @@ package org.springframework.integration.monitor;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 import org.aopalliance.intercept.MethodInterceptor;
@@ -16,7 +18,9 @@ import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
 import org.springframework.integration.MessagingException;
 import org.springframework.integration.channel.NullChannel;
+import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.core.MessageHandler;
+import org.springframework.integration.handler.AbstractMessageHandler;
 import org.springframework.integration.monitor.IntegrationMBeanExporter;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.util.ClassUtils;
@@ -100,6 +104,35 @@ public class MessageMetricsAdviceTests {
 		exported.send(MessageBuilder.withPayload("test").build());
 	}
 
+	@Test
+	public void abstractChannelRecordsMetricsWithoutProxy() throws Exception {
+		QueueChannel queueChannel = new QueueChannel();
+		Object exported = mBeanExporter.postProcessAfterInitialization(queueChannel, "queueChannel");
+		assertThat(exported, sameInstance((Object) queueChannel));
+		assertThat(queueChannel.getMetrics(), notNullValue());
+
+		queueChannel.send(MessageBuilder.withPayload("test").build());
+		queueChannel.receive(0);
+		assertThat(queueChannel.getMetrics().getSendCount(), equalTo(1L));
+		assertThat(queueChannel.getMetrics().getReceiveCount(), equalTo(1L));
+	}
+
+	@Test
+	public void abstractHandlerRecordsMetricsWithoutProxy() throws Exception {
+		AbstractMessageHandler abstractHandler = new AbstractMessageHandler() {
+			@Override
+			protected void handleMessageInternal(Message<?> message) throws Exception {
+			}
+		};
+		Object exported = mBeanExporter.postProcessAfterInitialization(abstractHandler, "abstractHandler");
+		assertThat(exported, sameInstance((Object) abstractHandler));
+		assertThat(abstractHandler.getMetrics(), notNullValue());
+
+		abstractHandler.handleMessage(MessageBuilder.withPayload("test").build());
+		assertThat(abstractHandler.getMetrics().getHandleCount(), equalTo(1L));
+		assertThat(abstractHandler.getMetrics().getDuration().getCount(), equalTo(1L));
+	}
+
 	private static class DummyHandler implements MessageHandler {
 
 		@SuppressWarnings("unused")
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.redis.channel;
+
+import java.util.List;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.integration.Message;
+import org.springframework.integration.channel.AbstractPollableChannel;
+import org.springframework.util.Assert;
+
+/**
+ * A point-to-point, pollable Message Channel backed by a Redis list. Messages (including
+ * their headers) are serialized and pushed with LPUSH and received with (B)RPOP, so the
+ * channel survives restarts and may be shared by any number of producers and consumers on
+ * different nodes, each Message being received by only one consumer.
+ * <p/>
+ * Redis blocking operations have a resolution of one second, so receive timeouts are
+ * rounded up to whole seconds.
+ *
+ * @since 2.1.1
+ */
+public class PollableRedisChannel extends AbstractPollableChannel {
+
+	private final RedisTemplate<?, ?> template;
+
+	private final byte[] queueKey;
+
+	private volatile RedisSerializer<?> serializer = new JdkSerializationRedisSerializer();
+
+
+	public PollableRedisChannel(RedisConnectionFactory connectionFactory, String queueName) {
+		Assert.notNull(connectionFactory, "'connectionFactory' must not be null");
+		Assert.hasText(queueName, "'queueName' must not be empty");
+		this.queueKey = new StringRedisSerializer().serialize(queueName);
+		RedisTemplate<?, ?> template = new RedisTemplate<Object, Object>();
+		template.setConnectionFactory(connectionFactory);
+		template.afterPropertiesSet();
+		this.template = template;
+	}
+
+
+	/**
+	 * Specify the serializer for the Messages. The default is a
+	 * {@link JdkSerializationRedisSerializer}, which requires all payloads and header
+	 * values to be Serializable.
+	 */
+	public void setSerializer(RedisSerializer<?> serializer) {
+		Assert.notNull(serializer, "'serializer' must not be null");
+		this.serializer = serializer;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected boolean doSend(Message<?> message, long timeout) {
+		final byte[] value = ((RedisSerializer<Object>) this.serializer).serialize(message);
+		this.template.execute(new RedisCallback<Object>() {
+			public Object doInRedis(RedisConnection connection) throws DataAccessException {
+				return connection.lPush(queueKey, value);
+			}
+		});
+		return true;
+	}
+
+	@Override
+	protected Message<?> doReceive(long timeout) {
+		final boolean block = (timeout != 0);
+		final int seconds = (timeout < 0) ? 0 : (int) ((timeout + 999) / 1000);
+		byte[] value = this.template.execute(new RedisCallback<byte[]>() {
+			public byte[] doInRedis(RedisConnection connection) throws DataAccessException {
+				if (!block) {
+					return connection.rPop(queueKey);
+				}
+				List<byte[]> result = connection.bRPop(seconds, queueKey);
+				return (result != null && result.size() > 1) ? result.get(1) : null;
+			}
+		});
+		return (value != null) ? (Message<?>) this.serializer.deserialize(value) : null;
+	}
+
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2002-2012 the original author or authors
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package org.springframework.integration.redis.inbound;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.integration.Message;
+import org.springframework.integration.endpoint.MessageProducerSupport;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Message-driven Channel Adapter that consumes a Redis list used as a work queue, such as
+ * one populated by a {@link org.springframework.integration.redis.outbound.RedisQueuePushingMessageHandler}.
+ * Any number of adapters (on any number of nodes) may consume the same list; each entry is
+ * received by only one of them.
+ * <p/>
+ * Entries are removed with a blocking pop (BRPOP) from a dedicated thread. If an
+ * {@link #setInFlightQueueName(String) in-flight queue} is configured, BRPOPLPUSH is used
+ * instead so that the entry atomically moves to that list and is only removed from it once
+ * the Message has been sent successfully; if sending fails, the entry is returned to the
+ * far end of the queue (behind any backlog) and the adapter waits for the
+ * {@link #setRedeliveryDelay(long) redelivery delay} before receiving again. If
+ * {@link #setMaxRedeliveries(int) maxRedeliveries} is set, failures are counted per entry in a
+ * Redis hash shared by all consumers of the queue, and an entry that keeps failing is moved to
+ * the {@link #setDeadLetterQueueName(String) dead letter queue} (or discarded if there is none).
+ * Entries left in the in-flight list (e.g. after a crash) are returned to the queue when
+ * the adapter starts, so each consumer must use its own in-flight list.
+ * <p/>
+ * When the queue has a backlog, up to {@link #setPrefetchCount(int) prefetchCount} entries are
+ * taken per round trip: after the blocking pop returns, the remaining pops are pipelined.
+ *
+ * @since 2.1.1
+ */
+public class RedisQueueInboundChannelAdapter extends MessageProducerSupport {
+
+	public static final long DEFAULT_RECEIVE_TIMEOUT = 1000;
+
+	public static final long DEFAULT_RECOVERY_INTERVAL = 5000;
+
+	public static final long DEFAULT_REDELIVERY_DELAY = 1000;
+
+
+	private final RedisTemplate<?, ?> template;
+
+	private final byte[] queueKey;
+
+	private final byte[] redeliveriesKey;
+
+	private volatile byte[] inFlightQueueKey;
+
+	private volatile byte[] deadLetterQueueKey;
+
+	private volatile int maxRedeliveries = -1;
+
+	private volatile long redeliveryDelay = DEFAULT_REDELIVERY_DELAY;
+
+	private volatile RedisSerializer<?> serializer = new JdkSerializationRedisSerializer();
+
+	private volatile boolean expectMessage;
+
+	private volatile int prefetchCount = 1;
+
+	private volatile long receiveTimeout = DEFAULT_RECEIVE_TIMEOUT;
+
+	private volatile long recoveryInterval = DEFAULT_RECOVERY_INTERVAL;
+
+	private volatile Executor taskExecutor;
+
+	private volatile boolean active;
+
+
+	public RedisQueueInboundChannelAdapter(String queueName, RedisConnectionFactory connectionFactory) {
+		Assert.hasText(queueName, "queueName must not be empty");
+		Assert.notNull(connectionFactory, "connectionFactory must not be null");
+		this.queueKey = new StringRedisSerializer().serialize(queueName);
+		this.redeliveriesKey = new StringRedisSerializer().serialize(queueName + ".redeliveries");
+		RedisTemplate<?, ?> template = new RedisTemplate<Object, Object>();
+		template.setConnectionFactory(connectionFactory);
+		template.afterPropertiesSet();
+		this.template = template;
+	}
+
+
+	/**
+	 * Specify the name of a list that holds entries while their Messages are being sent.
+	 * Must be unique to this adapter. If not set, entries are simply popped from the queue
+	 * and are lost if sending fails.
+	 */
+	public void setInFlightQueueName(String inFlightQueueName) {
+		this.inFlightQueueKey = StringUtils.hasText(inFlightQueueName) ?
+				new StringRedisSerializer().serialize(inFlightQueueName) : null;
+	}
+
+	/**
+	 * Specify how many times an entry whose Message could not be sent is returned to the
+	 * queue before it is moved to the dead letter queue. Only applies when an in-flight queue
+	 * is configured. Failures are counted in a hash named after the queue with a
+	 * ".redeliveries" suffix. Default -1, meaning the entry is always returned to the queue.
+	 */
+	public void setMaxRedeliveries(int maxRedeliveries) {
+		this.maxRedeliveries = maxRedeliveries;
+	}
+
+	/**
+	 * Specify the name of a list to which entries are moved once they have failed more than
+	 * {@link #setMaxRedeliveries(int) maxRedeliveries} times. If not set, such entries are
+	 * discarded (and logged).
+	 */
+	public void setDeadLetterQueueName(String deadLetterQueueName) {
+		this.deadLetterQueueKey = StringUtils.hasText(deadLetterQueueName) ?
+				new StringRedisSerializer().serialize(deadLetterQueueName) : null;
+	}
+
+	/**
+	 * Specify the time (in milliseconds) to wait before receiving again after an entry has
+	 * been returned to the queue because its Message could not be sent. Default 1000.
+	 */
+	public void setRedeliveryDelay(long redeliveryDelay) {
+		this.redeliveryDelay = redeliveryDelay;
+	}
+
+	/**
+	 * Specify the serializer for the list entries. The default is a
+	 * {@link JdkSerializationRedisSerializer}.
+	 */
+	public void setSerializer(RedisSerializer<?> serializer) {
+		Assert.notNull(serializer, "serializer must not be null");
+		this.serializer = serializer;
+	}
+
+	/**
+	 * Specify whether the list entries are entire Messages (pushed with 'extractPayload'
+	 * false) rather than payloads. Default false.
+	 */
+	public void setExpectMessage(boolean expectMessage) {
+		this.expectMessage = expectMessage;
+	}
+
+	/**
+	 * Specify the maximum number of entries to take from the queue per round trip.
+	 * Default 1.
+	 */
+	public void setPrefetchCount(int prefetchCount) {
+		Assert.isTrue(prefetchCount > 0, "prefetchCount must be greater than zero");
+		this.prefetchCount = prefetchCount;
+	}
+
+	/**
+	 * Specify how long (in milliseconds) each blocking pop waits for an entry before
+	 * checking whether the adapter has been stopped. Redis blocking operations have a
+	 * resolution of one second, so the value is rounded up to whole seconds. Default 1000.
+	 */
+	public void setReceiveTimeout(long receiveTimeout) {
+		Assert.isTrue(receiveTimeout > 0, "receiveTimeout must be greater than zero");
+		this.receiveTimeout = receiveTimeout;
+	}
+
+	/**
+	 * Specify the time (in milliseconds) to wait before polling again after a
+	 * connection failure. Default 5000.
+	 */
+	public void setRecoveryInterval(long recoveryInterval) {
+		this.recoveryInterval = recoveryInterval;
+	}
+
+	/**
+	 * Specify the Executor providing the consuming thread. The default is a
+	 * {@link SimpleAsyncTaskExecutor}.
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		Assert.notNull(taskExecutor, "taskExecutor must not be null");
+		this.taskExecutor = taskExecutor;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "redis:queue-inbound-channel-adapter";
+	}
+
+	@Override
+	protected void onInit() {
+		super.onInit();
+		if (this.taskExecutor == null) {
+			String beanName = this.getComponentName();
+			this.taskExecutor = new SimpleAsyncTaskExecutor((beanName == null ? "" : beanName + "-")
+					+ this.getComponentType());
+		}
+	}
+
+	@Override
+	protected void doStart() {
+		super.doStart();
+		this.active = true;
+		this.taskExecutor.execute(new ListenerTask());
+	}
+
+	@Override
+	protected void doStop() {
+		super.doStop();
+		this.active = false;
+	}
+
+	/**
+	 * Return entries that were left in the in-flight list to the queue.
+	 */
+	private void recoverInFlightEntries() {
+		final byte[] inFlightQueueKey = this.inFlightQueueKey;
+		if (inFlightQueueKey == null) {
+			return;
+		}
+		Long recovered = this.template.execute(new RedisCallback<Long>() {
+			public Long doInRedis(RedisConnection connection) throws DataAccessException {
+				long count = 0;
+				while (connection.rPopLPush(inFlightQueueKey, queueKey) != null) {
+					count++;
+				}
+				return count;
+			}
+		});
+		if (recovered > 0 && logger.isInfoEnabled()) {
+			logger.info("Returned " + recovered + " in-flight entries to the queue");
+		}
+	}
+
+	private List<byte[]> receive() {
+		final byte[] inFlightQueueKey = this.inFlightQueueKey;
+		final int timeout = (int) Math.max(1, (this.receiveTimeout + 999) / 1000);
+		final int prefetchCount = this.prefetchCount;
+		return this.template.execute(new RedisCallback<List<byte[]>>() {
+			public List<byte[]> doInRedis(RedisConnection connection) throws DataAccessException {
+				byte[] first = null;
+				if (inFlightQueueKey != null) {
+					first = connection.bRPopLPush(timeout, queueKey, inFlightQueueKey);
+				}
+				else {
+					List<byte[]> result = connection.bRPop(timeout, queueKey);
+					first = (result != null && result.size() > 1) ? result.get(1) : null;
+				}
+				if (first == null) {
+					return Collections.emptyList();
+				}
+				List<byte[]> entries = new ArrayList<byte[]>(prefetchCount);
+				entries.add(first);
+				if (prefetchCount > 1) {
+					connection.openPipeline();
+					for (int i = 1; i < prefetchCount; i++) {
+						if (inFlightQueueKey != null) {
+							connection.rPopLPush(queueKey, inFlightQueueKey);
+						}
+						else {
+							connection.rPop(queueKey);
+						}
+					}
+					for (Object entry : connection.closePipeline()) {
+						if (entry instanceof byte[]) {
+							entries.add((byte[]) entry);
+						}
+					}
+				}
+				return entries;
+			}
+		});
+	}
+
+	/**
+	 * Send the Message for the given entry.
+	 * @return true if the entry was returned to the queue because sending failed
+	 */
+	private boolean process(final byte[] entry) {
+		final byte[] inFlightQueueKey = this.inFlightQueueKey;
+		Message<?> message = null;
+		try {
+			Object value = this.serializer.deserialize(entry);
+			message = this.expectMessage ? (Message<?>) value : MessageBuilder.withPayload(value).build();
+		}
+		catch (Exception e) {
+			logger.error("Failed to deserialize queue entry, discarding it", e);
+		}
+		try {
+			if (message != null) {
+				this.sendMessage(message);
+			}
+		}
+		catch (RuntimeException e) {
+			if (inFlightQueueKey != null) {
+				return this.redeliver(entry, e);
+			}
+			logger.error("Failed to send Message, discarding it", e);
+		}
+		if (inFlightQueueKey != null) {
+			final boolean counted = this.maxRedeliveries >= 0;
+			this.template.execute(new RedisCallback<Object>() {
+				public Object doInRedis(RedisConnection connection) throws DataAccessException {
+					connection.lRem(inFlightQueueKey, -1, entry);
+					if (counted) {
+						connection.hDel(redeliveriesKey, entry);
+					}
+					return null;
+				}
+			}, false, true);
+		}
+		return false;
+	}
+
+	/**
+	 * Return a failed entry to the far end of the queue, or move it to the dead letter queue
+	 * once it has failed too often.
+	 * @return true if the entry was returned to the queue
+	 */
+	private boolean redeliver(final byte[] entry, RuntimeException failure) {
+		final byte[] inFlightQueueKey = this.inFlightQueueKey;
+		final byte[] deadLetterQueueKey = this.deadLetterQueueKey;
+		int maxRedeliveries = this.maxRedeliveries;
+		long failures = 0;
+		if (maxRedeliveries >= 0) {
+			failures = this.template.execute(new RedisCallback<Long>() {
+				public Long doInRedis(RedisConnection connection) throws DataAccessException {
+					return connection.hIncrBy(redeliveriesKey, entry, 1);
+				}
+			});
+		}
+		final boolean exhausted = maxRedeliveries >= 0 && failures > maxRedeliveries;
+		if (!exhausted) {
+			logger.error("Failed to send Message, returning it to the queue", failure);
+		}
+		else if (deadLetterQueueKey != null) {
+			logger.error("Failed to send Message " + failures + " times, moving it to the dead letter queue", failure);
+		}
+		else {
+			logger.error("Failed to send Message " + failures + " times, discarding it", failure);
+		}
+		this.template.execute(new RedisCallback<Object>() {
+			public Object doInRedis(RedisConnection connection) throws DataAccessException {
+				if (!exhausted) {
+					connection.lPush(queueKey, entry);
+				}
+				else {
+					if (deadLetterQueueKey != null) {
+						connection.lPush(deadLetterQueueKey, entry);
+					}
+					connection.hDel(redeliveriesKey, entry);
+				}
+				connection.lRem(inFlightQueueKey, -1, entry);
+				return null;
+			}
+		}, false, true);
+		return !exhausted;
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.active = false;
+		}
+	}
+
+
+	private class ListenerTask implements Runnable {
+
+		public void run() {
+			boolean recovered = false;
+			while (active) {
+				try {
+					if (!recovered) {
+						recoverInFlightEntries();
+						recovered = true;
+					}
+					boolean redelivered = false;
+					for (byte[] entry : receive()) {
+						redelivered |= process(entry);
+					}
+					if (redelivered && active && redeliveryDelay > 0) {
+						sleep(redeliveryDelay);
+					}
+				}
+				catch (Exception e) {
+					if (active) {
+						logger.error("Failed to receive from Redis queue, retrying in " + recoveryInterval + "ms", e);
+						sleep(recoveryInterval);
+					}
+				}
+			}
+		}
+	}
+
+}
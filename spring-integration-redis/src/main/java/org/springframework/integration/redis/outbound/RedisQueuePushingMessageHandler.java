@@ -0,0 +1,135 @@
+/*
+ * Copyright 2002-2012 the original author or authors
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package org.springframework.integration.redis.outbound;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.integration.Message;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.util.Assert;
+
+/**
+ * Pushes Messages onto a Redis list (LPUSH) so that they can be consumed in order by a
+ * {@link org.springframework.integration.redis.inbound.RedisQueueInboundChannelAdapter};
+ * each entry is received by only one of any number of competing consumers.
+ * <p/>
+ * By default only the payload is serialized. Set {@link #setExtractPayload(boolean) extractPayload}
+ * to false to push the whole Message (including its headers) instead. If
+ * {@link #setExtractPayloadElements(boolean) extractPayloadElements} is true, each element of a
+ * Collection payload is pushed as a separate list entry, with all pushes sent in a single
+ * pipelined round trip.
+ *
+ * @since 2.1.1
+ */
+public class RedisQueuePushingMessageHandler extends AbstractMessageHandler {
+
+	private final byte[] queueKey;
+
+	private final RedisTemplate<?, ?> template;
+
+	private volatile RedisSerializer<?> serializer = new JdkSerializationRedisSerializer();
+
+	private volatile boolean extractPayload = true;
+
+	private volatile boolean extractPayloadElements;
+
+
+	public RedisQueuePushingMessageHandler(String queueName, RedisConnectionFactory connectionFactory) {
+		Assert.hasText(queueName, "queueName must not be empty");
+		Assert.notNull(connectionFactory, "connectionFactory must not be null");
+		this.queueKey = new StringRedisSerializer().serialize(queueName);
+		RedisTemplate<?, ?> template = new RedisTemplate<Object, Object>();
+		template.setConnectionFactory(connectionFactory);
+		template.afterPropertiesSet();
+		this.template = template;
+	}
+
+
+	/**
+	 * Specify the serializer for the pushed values. The default is a
+	 * {@link JdkSerializationRedisSerializer}.
+	 */
+	public void setSerializer(RedisSerializer<?> serializer) {
+		Assert.notNull(serializer, "serializer must not be null");
+		this.serializer = serializer;
+	}
+
+	/**
+	 * Specify whether only the payload (default) or the entire Message should be pushed.
+	 */
+	public void setExtractPayload(boolean extractPayload) {
+		this.extractPayload = extractPayload;
+	}
+
+	/**
+	 * Specify whether the elements of a Collection payload should be pushed as individual
+	 * list entries (pipelined), rather than the Collection as a single entry. Only applies
+	 * when {@link #setExtractPayload(boolean) extractPayload} is true. Default false.
+	 */
+	public void setExtractPayloadElements(boolean extractPayloadElements) {
+		this.extractPayloadElements = extractPayloadElements;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "redis:queue-outbound-channel-adapter";
+	}
+
+	@Override
+	protected void handleMessageInternal(Message<?> message) throws Exception {
+		final byte[] key = this.queueKey;
+		Object value = this.extractPayload ? message.getPayload() : message;
+		if (this.extractPayload && this.extractPayloadElements && value instanceof Collection<?>) {
+			final List<byte[]> values = new ArrayList<byte[]>();
+			for (Object element : (Collection<?>) value) {
+				values.add(this.serialize(element));
+			}
+			this.template.execute(new RedisCallback<Object>() {
+				public Object doInRedis(RedisConnection connection) throws DataAccessException {
+					for (byte[] element : values) {
+						connection.lPush(key, element);
+					}
+					return null;
+				}
+			}, false, true);
+		}
+		else {
+			final byte[] element = this.serialize(value);
+			this.template.execute(new RedisCallback<Object>() {
+				public Object doInRedis(RedisConnection connection) throws DataAccessException {
+					return connection.lPush(key, element);
+				}
+			});
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private byte[] serialize(Object value) {
+		return ((RedisSerializer<Object>) this.serializer).serialize(value);
+	}
+
+}
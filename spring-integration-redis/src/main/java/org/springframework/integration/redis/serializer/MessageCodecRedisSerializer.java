@@ -0,0 +1,74 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.redis.serializer;
+
+import java.io.IOException;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.integration.support.serializer.MessageCodec;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link RedisSerializer} backed by a {@link MessageCodec}, as a compact replacement for the
+ * {@link org.springframework.data.redis.serializer.JdkSerializationRedisSerializer} used by default
+ * by the {@link org.springframework.integration.redis.store.RedisMessageStore} and the Redis
+ * channels and queue adapters. Values written by Java serialization can still be read.
+ *
+ * @since 2.1.1
+ */
+public class MessageCodecRedisSerializer implements RedisSerializer<Object> {
+
+	private final MessageCodec codec;
+
+
+	public MessageCodecRedisSerializer() {
+		this(new MessageCodec());
+	}
+
+	public MessageCodecRedisSerializer(MessageCodec codec) {
+		Assert.notNull(codec, "'codec' must not be null");
+		this.codec = codec;
+	}
+
+
+	public byte[] serialize(Object object) throws SerializationException {
+		if (object == null) {
+			return new byte[0];
+		}
+		try {
+			return this.codec.encode(object);
+		}
+		catch (IOException e) {
+			throw new SerializationException("Cannot serialize", e);
+		}
+	}
+
+	public Object deserialize(byte[] bytes) throws SerializationException {
+		if (bytes == null || bytes.length == 0) {
+			return null;
+		}
+		try {
+			return this.codec.decode(bytes);
+		}
+		catch (IOException e) {
+			throw new SerializationException("Cannot deserialize", e);
+		}
+	}
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Provides Redis serializers for Messages.
+ */
+package org.springframework.integration.redis.serializer;
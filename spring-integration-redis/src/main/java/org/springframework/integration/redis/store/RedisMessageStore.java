@@ -1,5 +1,5 @@
 /*
- * Copyright 2007-2011 the original author or authors
+ * Copyright 2007-2012 the original author or authors
  *
  *     Licensed under the Apache License, Version 2.0 (the "License");
  *     you may not use this file except in compliance with the License.
@@ -48,6 +48,12 @@ public class RedisMessageStore extends AbstractKeyValueMessageStore {
 		this.redisTemplate.setValueSerializer(new JdkSerializationRedisSerializer());
 	}
 
+	/**
+	 * Specify the serializer for the stored Messages and group metadata. The default is a
+	 * {@link JdkSerializationRedisSerializer}; a
+	 * {@link org.springframework.integration.redis.serializer.MessageCodecRedisSerializer}
+	 * writes Messages in a more compact form and can still read Java-serialized values.
+	 */
 	public void setValueSerializer(RedisSerializer<?> valueSerializer) {
 		Assert.notNull(valueSerializer, "'valueSerializer' must not be null");
 		this.redisTemplate.setValueSerializer(valueSerializer);
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.redis.store;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.BoundHashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.integration.store.MetadataStore;
+import org.springframework.util.Assert;
+
+/**
+ * Redis implementation of {@link MetadataStore}. All entries are fields of a single
+ * Redis hash, so that each read and update is one O(1) command. Stores with different
+ * hash keys are independent of each other.
+ *
+ * @since 2.1.1
+ */
+public class RedisMetadataStore implements MetadataStore {
+
+	public static final String DEFAULT_KEY = "MetaData";
+
+
+	private final BoundHashOperations<String, String, String> hashOperations;
+
+
+	/**
+	 * Create a store that keeps its entries in the hash {@value #DEFAULT_KEY}.
+	 */
+	public RedisMetadataStore(RedisConnectionFactory connectionFactory) {
+		this(connectionFactory, DEFAULT_KEY);
+	}
+
+	/**
+	 * Create a store that keeps its entries in the hash with the given key.
+	 */
+	public RedisMetadataStore(RedisConnectionFactory connectionFactory, String key) {
+		Assert.notNull(connectionFactory, "'connectionFactory' must not be null");
+		Assert.hasText(key, "'key' must not be empty");
+		StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+		this.hashOperations = redisTemplate.boundHashOps(key);
+	}
+
+
+	public void put(String key, String value) {
+		Assert.notNull(key, "'key' must not be null");
+		Assert.notNull(value, "'value' must not be null");
+		this.hashOperations.put(key, value);
+	}
+
+	public String get(String key) {
+		Assert.notNull(key, "'key' must not be null");
+		return this.hashOperations.get(key);
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.redis.channel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.integration.Message;
+import org.springframework.integration.redis.rules.RedisAvailable;
+import org.springframework.integration.redis.rules.RedisAvailableTests;
+import org.springframework.integration.support.MessageBuilder;
+
+/**
+ * @since 2.1.1
+ */
+public class PollableRedisChannelTests extends RedisAvailableTests {
+
+	@Test
+	@RedisAvailable
+	public void sendAndReceive() throws Exception {
+		JedisConnectionFactory connectionFactory = this.getConnectionFactoryForTest();
+		PollableRedisChannel channel = new PollableRedisChannel(connectionFactory, "si.test.queue");
+		channel.afterPropertiesSet();
+		channel.send(MessageBuilder.withPayload("1").setHeader("foo", "bar").build());
+		channel.send(MessageBuilder.withPayload("2").build());
+		Message<?> message = channel.receive(0);
+		assertEquals("1", message.getPayload());
+		assertEquals("bar", message.getHeaders().get("foo"));
+		assertEquals("2", channel.receive(1000).getPayload());
+		assertNull(channel.receive(0));
+		assertNull(channel.receive(1000));
+	}
+
+}
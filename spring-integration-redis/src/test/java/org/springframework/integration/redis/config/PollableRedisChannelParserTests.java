@@ -0,0 +1,69 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.integration.Message;
+import org.springframework.integration.core.PollableChannel;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.integration.redis.channel.PollableRedisChannel;
+import org.springframework.integration.redis.rules.RedisAvailable;
+import org.springframework.integration.redis.rules.RedisAvailableTests;
+import org.springframework.integration.test.util.TestUtils;
+
+/**
+ * @since 2.1.1
+ */
+public class PollableRedisChannelParserTests extends RedisAvailableTests {
+
+	@Test
+	public void testChannelConfig() {
+		ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext(
+				"PollableRedisChannelParserTests-context.xml", this.getClass());
+		PollableRedisChannel channel = context.getBean("redisQueueChannel", PollableRedisChannel.class);
+		assertSame(context.getBean("redisSerializer"), TestUtils.getPropertyValue(channel, "serializer"));
+		assertSame(context.getBean("redisConnectionFactory"),
+				TestUtils.getPropertyValue(channel, "template.connectionFactory"));
+		assertEquals("si.test.queue", new String(TestUtils.getPropertyValue(channel, "queueKey", byte[].class)));
+		assertEquals(1, TestUtils.getPropertyValue(channel, "interceptors.interceptors", List.class).size());
+		context.close();
+	}
+
+	@Test
+	@RedisAvailable
+	public void testChannelUsage() {
+		this.getConnectionFactoryForTest();
+		ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext(
+				"PollableRedisChannelParserTests-context.xml", this.getClass());
+		PollableChannel channel = context.getBean("redisQueueChannel", PollableChannel.class);
+		channel.send(new GenericMessage<String>("Hello Redis"));
+		Message<?> message = channel.receive(1000);
+		assertNotNull(message);
+		assertEquals("Hello Redis", message.getPayload());
+		assertNotNull(context.getBean("tap", PollableChannel.class).receive(0));
+		context.close();
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.endpoint.EventDrivenConsumer;
+import org.springframework.integration.redis.inbound.RedisQueueInboundChannelAdapter;
+import org.springframework.integration.redis.outbound.RedisQueuePushingMessageHandler;
+import org.springframework.integration.redis.rules.RedisAvailable;
+import org.springframework.integration.redis.rules.RedisAvailableTests;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.test.util.TestUtils;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * @since 2.1.1
+ */
+@ContextConfiguration
+@RunWith(SpringJUnit4ClassRunner.class)
+public class RedisQueueChannelAdapterParserTests extends RedisAvailableTests {
+
+	@Autowired
+	private ApplicationContext context;
+
+	@Autowired
+	private RedisQueueInboundChannelAdapter inboundAdapter;
+
+	@Autowired
+	private EventDrivenConsumer outboundAdapter;
+
+	@Autowired
+	private MessageChannel sendChannel;
+
+	@Autowired
+	private QueueChannel receiveChannel;
+
+	@Test
+	public void inboundAdapterConfig() {
+		assertEquals("redis:queue-inbound-channel-adapter", inboundAdapter.getComponentType());
+		assertFalse(inboundAdapter.isAutoStartup());
+		assertSame(receiveChannel, TestUtils.getPropertyValue(inboundAdapter, "outputChannel"));
+		assertSame(context.getBean("errorChannel"), TestUtils.getPropertyValue(inboundAdapter, "errorChannel"));
+		assertSame(context.getBean("serializer"), TestUtils.getPropertyValue(inboundAdapter, "serializer"));
+		assertSame(context.getBean("executor"), TestUtils.getPropertyValue(inboundAdapter, "taskExecutor"));
+		assertTrue(Arrays.equals("si.test.queue".getBytes(),
+				TestUtils.getPropertyValue(inboundAdapter, "queueKey", byte[].class)));
+		assertTrue(Arrays.equals("si.test.queue.inflight".getBytes(),
+				TestUtils.getPropertyValue(inboundAdapter, "inFlightQueueKey", byte[].class)));
+		assertTrue(Arrays.equals("si.test.queue.dlq".getBytes(),
+				TestUtils.getPropertyValue(inboundAdapter, "deadLetterQueueKey", byte[].class)));
+		assertEquals(3, TestUtils.getPropertyValue(inboundAdapter, "maxRedeliveries"));
+		assertEquals(100L, TestUtils.getPropertyValue(inboundAdapter, "redeliveryDelay"));
+		assertEquals(Boolean.TRUE, TestUtils.getPropertyValue(inboundAdapter, "expectMessage"));
+		assertEquals(10, TestUtils.getPropertyValue(inboundAdapter, "prefetchCount"));
+		assertEquals(2000L, TestUtils.getPropertyValue(inboundAdapter, "receiveTimeout"));
+		assertEquals(3000L, TestUtils.getPropertyValue(inboundAdapter, "recoveryInterval"));
+		assertEquals(500L, TestUtils.getPropertyValue(inboundAdapter, "messagingTemplate.sendTimeout"));
+	}
+
+	@Test
+	public void outboundAdapterConfig() {
+		RedisQueuePushingMessageHandler handler =
+				TestUtils.getPropertyValue(outboundAdapter, "handler", RedisQueuePushingMessageHandler.class);
+		assertEquals("outboundAdapter", handler.getComponentName());
+		assertEquals("redis:queue-outbound-channel-adapter", handler.getComponentType());
+		assertSame(context.getBean("serializer"), TestUtils.getPropertyValue(handler, "serializer"));
+		assertTrue(Arrays.equals("si.test.queue".getBytes(),
+				TestUtils.getPropertyValue(handler, "queueKey", byte[].class)));
+		assertEquals(Boolean.FALSE, TestUtils.getPropertyValue(handler, "extractPayload"));
+		assertEquals(Boolean.TRUE, TestUtils.getPropertyValue(handler, "extractPayloadElements"));
+	}
+
+	@Test
+	@RedisAvailable
+	public void roundTrip() {
+		this.getConnectionFactoryForTest();
+		sendChannel.send(MessageBuilder.withPayload("foo").setHeader("bar", "baz").build());
+		inboundAdapter.start();
+		Message<?> message = receiveChannel.receive(5000);
+		inboundAdapter.stop();
+		assertNotNull(message);
+		assertEquals("foo", message.getPayload());
+		assertEquals("baz", message.getHeaders().get("bar"));
+	}
+
+}
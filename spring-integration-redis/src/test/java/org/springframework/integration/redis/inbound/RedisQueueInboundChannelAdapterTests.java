@@ -0,0 +1,258 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.redis.inbound;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.redis.outbound.RedisQueuePushingMessageHandler;
+import org.springframework.integration.redis.rules.RedisAvailable;
+import org.springframework.integration.redis.rules.RedisAvailableTests;
+import org.springframework.integration.support.MessageBuilder;
+
+/**
+ * @since 2.1.1
+ */
+public class RedisQueueInboundChannelAdapterTests extends RedisAvailableTests {
+
+	private static final List<String> KEYS = Arrays.asList("si.test.queue", "si.test.queue.inflight",
+			"si.test.queue.redeliveries", "si.test.queue.dlq");
+
+	private volatile JedisConnectionFactory connectionFactory;
+
+
+	@After
+	public void deleteKeys() throws Exception {
+		if (this.connectionFactory != null) {
+			this.createTemplate(this.connectionFactory).delete(KEYS);
+			this.connectionFactory.destroy();
+		}
+	}
+
+	@Test
+	@RedisAvailable
+	public void pushedPayloadsReceivedInOrder() throws Exception {
+		JedisConnectionFactory connectionFactory = this.connectionFactory();
+		RedisQueuePushingMessageHandler handler = new RedisQueuePushingMessageHandler("si.test.queue", connectionFactory);
+		handler.setExtractPayloadElements(true);
+		List<String> payload = new ArrayList<String>();
+		for (int i = 0; i < 10; i++) {
+			payload.add("test-" + i);
+		}
+		handler.handleMessage(MessageBuilder.withPayload(payload).build());
+
+		QueueChannel channel = new QueueChannel();
+		RedisQueueInboundChannelAdapter adapter = new RedisQueueInboundChannelAdapter("si.test.queue", connectionFactory);
+		adapter.setOutputChannel(channel);
+		adapter.setPrefetchCount(4);
+		adapter.afterPropertiesSet();
+		adapter.start();
+		for (int i = 0; i < 10; i++) {
+			Message<?> message = channel.receive(5000);
+			assertNotNull(message);
+			assertEquals("test-" + i, message.getPayload());
+		}
+		adapter.stop();
+	}
+
+	@Test
+	@RedisAvailable
+	public void wholeMessagesWithInFlightQueue() throws Exception {
+		JedisConnectionFactory connectionFactory = this.connectionFactory();
+		RedisQueuePushingMessageHandler handler = new RedisQueuePushingMessageHandler("si.test.queue", connectionFactory);
+		handler.setExtractPayload(false);
+		handler.handleMessage(MessageBuilder.withPayload("foo").setHeader("bar", "baz").build());
+
+		QueueChannel channel = new QueueChannel();
+		RedisQueueInboundChannelAdapter adapter = new RedisQueueInboundChannelAdapter("si.test.queue", connectionFactory);
+		adapter.setOutputChannel(channel);
+		adapter.setExpectMessage(true);
+		adapter.setInFlightQueueName("si.test.queue.inflight");
+		adapter.afterPropertiesSet();
+		adapter.start();
+		Message<?> message = channel.receive(5000);
+		assertNotNull(message);
+		assertEquals("foo", message.getPayload());
+		assertEquals("baz", message.getHeaders().get("bar"));
+		adapter.stop();
+		RedisTemplate<String, Object> template = this.createTemplate(connectionFactory);
+		assertEquals(Long.valueOf(0), template.boundListOps("si.test.queue.inflight").size());
+	}
+
+	@Test
+	@RedisAvailable
+	public void failedSendReturnedToQueue() throws Exception {
+		JedisConnectionFactory connectionFactory = this.connectionFactory();
+		RedisQueuePushingMessageHandler handler = new RedisQueuePushingMessageHandler("si.test.queue", connectionFactory);
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+
+		final QueueChannel channel = new QueueChannel();
+		MessageChannel failOnceChannel = new MessageChannel() {
+			private volatile boolean failed;
+			public boolean send(Message<?> message) {
+				return this.send(message, -1);
+			}
+			public boolean send(Message<?> message, long timeout) {
+				if (!this.failed) {
+					this.failed = true;
+					throw new RuntimeException("Planned");
+				}
+				return channel.send(message, timeout);
+			}
+		};
+		RedisQueueInboundChannelAdapter adapter = new RedisQueueInboundChannelAdapter("si.test.queue", connectionFactory);
+		adapter.setOutputChannel(failOnceChannel);
+		adapter.setInFlightQueueName("si.test.queue.inflight");
+		adapter.setRedeliveryDelay(10);
+		adapter.afterPropertiesSet();
+		adapter.start();
+		Message<?> message = channel.receive(5000);
+		assertNotNull(message);
+		assertEquals("foo", message.getPayload());
+		adapter.stop();
+		assertNull(channel.receive(0));
+	}
+
+	@Test
+	@RedisAvailable
+	public void inFlightEntriesRecoveredOnStart() throws Exception {
+		JedisConnectionFactory connectionFactory = this.connectionFactory();
+		RedisTemplate<String, Object> template = this.createTemplate(connectionFactory);
+		template.boundListOps("si.test.queue.inflight").leftPush("foo");
+
+		QueueChannel channel = new QueueChannel();
+		RedisQueueInboundChannelAdapter adapter = new RedisQueueInboundChannelAdapter("si.test.queue", connectionFactory);
+		adapter.setOutputChannel(channel);
+		adapter.setInFlightQueueName("si.test.queue.inflight");
+		adapter.afterPropertiesSet();
+		adapter.start();
+		Message<?> message = channel.receive(5000);
+		assertNotNull(message);
+		assertEquals("foo", message.getPayload());
+		adapter.stop();
+		assertEquals(Long.valueOf(0), template.boundListOps("si.test.queue.inflight").size());
+	}
+
+	@Test
+	@RedisAvailable
+	public void failedEntryReturnedBehindBacklog() throws Exception {
+		JedisConnectionFactory connectionFactory = this.connectionFactory();
+		RedisQueuePushingMessageHandler handler = new RedisQueuePushingMessageHandler("si.test.queue", connectionFactory);
+		handler.setExtractPayloadElements(true);
+		handler.handleMessage(MessageBuilder.withPayload(Arrays.asList("poison", "good")).build());
+
+		QueueChannel channel = new QueueChannel();
+		RedisQueueInboundChannelAdapter adapter = new RedisQueueInboundChannelAdapter("si.test.queue", connectionFactory);
+		adapter.setOutputChannel(new RejectingChannel("poison", channel));
+		adapter.setInFlightQueueName("si.test.queue.inflight");
+		adapter.setRedeliveryDelay(10);
+		adapter.afterPropertiesSet();
+		adapter.start();
+		Message<?> message = channel.receive(5000);
+		adapter.stop();
+		assertNotNull(message);
+		assertEquals("good", message.getPayload());
+	}
+
+	@Test
+	@RedisAvailable
+	public void poisonEntryMovedToDeadLetterQueue() throws Exception {
+		JedisConnectionFactory connectionFactory = this.connectionFactory();
+		RedisQueuePushingMessageHandler handler = new RedisQueuePushingMessageHandler("si.test.queue", connectionFactory);
+		handler.setExtractPayloadElements(true);
+		handler.handleMessage(MessageBuilder.withPayload(Arrays.asList("poison", "good")).build());
+
+		QueueChannel channel = new QueueChannel();
+		RejectingChannel rejectingChannel = new RejectingChannel("poison", channel);
+		RedisQueueInboundChannelAdapter adapter = new RedisQueueInboundChannelAdapter("si.test.queue", connectionFactory);
+		adapter.setOutputChannel(rejectingChannel);
+		adapter.setInFlightQueueName("si.test.queue.inflight");
+		adapter.setMaxRedeliveries(2);
+		adapter.setDeadLetterQueueName("si.test.queue.dlq");
+		adapter.setRedeliveryDelay(10);
+		adapter.afterPropertiesSet();
+		adapter.start();
+		assertNotNull(channel.receive(5000));
+		RedisTemplate<String, Object> template = this.createTemplate(connectionFactory);
+		for (int i = 0; i < 50 && template.boundListOps("si.test.queue.dlq").size() == 0; i++) {
+			Thread.sleep(100);
+		}
+		adapter.stop();
+		assertEquals(Arrays.<Object>asList("poison"), template.boundListOps("si.test.queue.dlq").range(0, -1));
+		assertEquals(3, rejectingChannel.rejected);
+		assertEquals(Long.valueOf(0), template.boundListOps("si.test.queue").size());
+		assertEquals(Long.valueOf(0), template.boundListOps("si.test.queue.inflight").size());
+		assertEquals(Long.valueOf(0), template.boundHashOps("si.test.queue.redeliveries").size());
+	}
+
+	private JedisConnectionFactory connectionFactory() {
+		this.connectionFactory = this.getConnectionFactoryForTest();
+		return this.connectionFactory;
+	}
+
+	private RedisTemplate<String, Object> createTemplate(JedisConnectionFactory connectionFactory) {
+		RedisTemplate<String, Object> template = new RedisTemplate<String, Object>();
+		template.setConnectionFactory(connectionFactory);
+		template.setKeySerializer(new StringRedisSerializer());
+		template.setValueSerializer(new JdkSerializationRedisSerializer());
+		template.afterPropertiesSet();
+		return template;
+	}
+
+
+	private static class RejectingChannel implements MessageChannel {
+
+		private final Object rejectedPayload;
+
+		private final MessageChannel delegate;
+
+		private volatile int rejected;
+
+		RejectingChannel(Object rejectedPayload, MessageChannel delegate) {
+			this.rejectedPayload = rejectedPayload;
+			this.delegate = delegate;
+		}
+
+		public boolean send(Message<?> message) {
+			return this.send(message, -1);
+		}
+
+		public boolean send(Message<?> message, long timeout) {
+			if (this.rejectedPayload.equals(message.getPayload())) {
+				this.rejected++;
+				throw new RuntimeException("Planned");
+			}
+			return this.delegate.send(message, timeout);
+		}
+	}
+
+}
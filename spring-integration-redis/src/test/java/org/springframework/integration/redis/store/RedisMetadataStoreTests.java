@@ -0,0 +1,65 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.redis.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.integration.redis.rules.RedisAvailable;
+import org.springframework.integration.redis.rules.RedisAvailableTests;
+
+/**
+ * @since 2.1.1
+ */
+public class RedisMetadataStoreTests extends RedisAvailableTests {
+
+	@Test
+	@RedisAvailable
+	public void testGetNonExistent() {
+		JedisConnectionFactory jcf = this.getConnectionFactoryForTest();
+		RedisMetadataStore store = new RedisMetadataStore(jcf);
+		assertNull(store.get("foo"));
+	}
+
+	@Test
+	@RedisAvailable
+	public void testPutAndUpdate() {
+		JedisConnectionFactory jcf = this.getConnectionFactoryForTest();
+		RedisMetadataStore store = new RedisMetadataStore(jcf);
+		store.put("foo", "bar");
+		assertEquals("bar", store.get("foo"));
+		store.put("foo", "baz");
+		assertEquals("baz", new RedisMetadataStore(jcf).get("foo"));
+	}
+
+	@Test
+	@RedisAvailable
+	public void testSeparateKeys() {
+		JedisConnectionFactory jcf = this.getConnectionFactoryForTest();
+		RedisMetadataStore store = new RedisMetadataStore(jcf);
+		RedisMetadataStore other = new RedisMetadataStore(jcf, "OtherMetaData");
+		store.put("foo", "bar");
+		other.put("foo", "baz");
+		assertEquals("bar", store.get("foo"));
+		assertEquals("baz", other.get("foo"));
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  * 
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -12,12 +12,20 @@
  */
 package org.springframework.integration.scripting.jsr223;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -28,6 +36,14 @@ import org.springframework.util.Assert;
 
 /**
  * Base Class for {@link ScriptExecutor}
+ * <p>
+ * Script engines are created once and reused: engines that declare themselves
+ * <code>THREAD-ISOLATED</code> or <code>STATELESS</code> are shared by all threads, any
+ * other engine is used by one thread at a time, taken from a pool that grows to the
+ * number of concurrent executions. Each engine keeps the compiled form of every script
+ * it has run (if it implements {@link Compilable}), so a script is only parsed again when
+ * its {@link ScriptSource} reports that it has been modified. Variables are passed in
+ * a new {@link Bindings} instance for each execution.
  * 
  * @author David Turanski
  * @author Mark Fisher
@@ -41,6 +57,13 @@ abstract class AbstractScriptExecutor implements ScriptExecutor {
 
 	protected final String language;
 
+	private final Map<ScriptSource, String> scripts =
+			Collections.synchronizedMap(new WeakHashMap<ScriptSource, String>());
+
+	private final Queue<EngineHolder> pooledEngines = new ConcurrentLinkedQueue<EngineHolder>();
+
+	private volatile EngineHolder sharedEngine;
+
 	public AbstractScriptExecutor(String language) {
 		Assert.hasText(language, "language must not be empty");
 		this.language = language;
@@ -61,27 +84,29 @@ abstract class AbstractScriptExecutor implements ScriptExecutor {
 
 	public Object executeScript(ScriptSource scriptSource, Map<String, Object> variables) {
 		Object result = null;
-		ScriptEngine scriptEngine = this.scriptEngineManager.getEngineByName(this.language);
-
-		if (scriptEngine == null) {
-			throw new ScriptingException(invlalidLanguageMessage(this.language));
-		}
+		EngineHolder engineHolder = this.obtainEngine();
+		ScriptEngine scriptEngine = engineHolder.scriptEngine;
 
 		try {
+			Bindings bindings = scriptEngine.createBindings();
 			if (variables != null) {
-				for (Entry<String, Object> entry : variables.entrySet()) {
-					scriptEngine.put(entry.getKey(), entry.getValue());
-				}
+				bindings.putAll(variables);
 			}
-			String script = scriptSource.getScriptAsString();
+			String script = this.getScript(scriptSource);
 			Date start = new Date();
 			if (logger.isDebugEnabled()) {
 				logger.debug("executing script: " + script);
 			}
 
-			result = scriptEngine.eval(script);
+			CompiledScript compiledScript = engineHolder.getCompiledScript(scriptSource, script);
+			if (compiledScript != null) {
+				result = compiledScript.eval(bindings);
+			}
+			else {
+				result = scriptEngine.eval(script, bindings);
+			}
 
-			result = postProcess(result, scriptEngine, script);
+			result = postProcess(result, scriptEngine, script, bindings);
 
 			if (logger.isDebugEnabled()) {
 				logger.debug("script executed in " + (new Date().getTime() - start.getTime()) + " ms");
@@ -91,6 +116,9 @@ abstract class AbstractScriptExecutor implements ScriptExecutor {
 		catch (Exception e) {
 			throw new ScriptingException(e.getMessage(), e);
 		}
+		finally {
+			this.releaseEngine(engineHolder);
+		}
 
 		return result;
 	}
@@ -100,9 +128,47 @@ abstract class AbstractScriptExecutor implements ScriptExecutor {
 	 * @param result
 	 * @param scriptEngine
 	 * @param script
+	 * @param bindings the variables (and any values assigned by the script) of this execution
 	 * @return modified result
 	 */
-	protected abstract Object postProcess(Object result, ScriptEngine scriptEngine, String script);
+	protected abstract Object postProcess(Object result, ScriptEngine scriptEngine, String script, Bindings bindings);
+
+	/**
+	 * Return the script text, reading it from the source only if it has not been read
+	 * before or the source reports that it has been modified since.
+	 */
+	private String getScript(ScriptSource scriptSource) throws IOException {
+		String script = this.scripts.get(scriptSource);
+		if (script == null || scriptSource.isModified()) {
+			script = scriptSource.getScriptAsString();
+			this.scripts.put(scriptSource, script);
+		}
+		return script;
+	}
+
+	private EngineHolder obtainEngine() {
+		EngineHolder engineHolder = this.sharedEngine;
+		if (engineHolder == null) {
+			engineHolder = this.pooledEngines.poll();
+		}
+		if (engineHolder == null) {
+			ScriptEngine scriptEngine = this.scriptEngineManager.getEngineByName(this.language);
+			if (scriptEngine == null) {
+				throw new ScriptingException(invlalidLanguageMessage(this.language));
+			}
+			engineHolder = new EngineHolder(scriptEngine);
+			if (engineHolder.shared) {
+				this.sharedEngine = engineHolder;
+			}
+		}
+		return engineHolder;
+	}
+
+	private void releaseEngine(EngineHolder engineHolder) {
+		if (!engineHolder.shared) {
+			this.pooledEngines.offer(engineHolder);
+		}
+	}
 
 	private static String invlalidLanguageMessage(String language) {
 		return new StringBuilder().append(ScriptEngineManager.class.getName())
@@ -110,4 +176,54 @@ abstract class AbstractScriptExecutor implements ScriptExecutor {
 				.append("This may be due to a missing language implementation or an invalid language name.").toString();
 	}
 
+
+	/**
+	 * A {@link ScriptEngine} and the scripts it has compiled.
+	 */
+	private static class EngineHolder {
+
+		private final ScriptEngine scriptEngine;
+
+		private final boolean shared;
+
+		private final Map<ScriptSource, CompiledScriptHolder> compiledScripts =
+				Collections.synchronizedMap(new WeakHashMap<ScriptSource, CompiledScriptHolder>());
+
+		EngineHolder(ScriptEngine scriptEngine) {
+			this.scriptEngine = scriptEngine;
+			Object threading = scriptEngine.getFactory().getParameter("THREADING");
+			this.shared = "THREAD-ISOLATED".equals(threading) || "STATELESS".equals(threading);
+		}
+
+		/**
+		 * Return the compiled form of the script, compiling it if this is the first
+		 * execution of the source on this engine or the script text has changed, or
+		 * <code>null</code> if the engine does not support compilation.
+		 */
+		CompiledScript getCompiledScript(ScriptSource scriptSource, String script) throws ScriptException {
+			if (!(this.scriptEngine instanceof Compilable)) {
+				return null;
+			}
+			CompiledScriptHolder holder = this.compiledScripts.get(scriptSource);
+			if (holder == null || holder.script != script) {
+				holder = new CompiledScriptHolder(script, ((Compilable) this.scriptEngine).compile(script));
+				this.compiledScripts.put(scriptSource, holder);
+			}
+			return holder.compiledScript;
+		}
+	}
+
+
+	private static class CompiledScriptHolder {
+
+		private final String script;
+
+		private final CompiledScript compiledScript;
+
+		CompiledScriptHolder(String script, CompiledScript compiledScript) {
+			this.script = script;
+			this.compiledScript = compiledScript;
+		}
+	}
+
 }
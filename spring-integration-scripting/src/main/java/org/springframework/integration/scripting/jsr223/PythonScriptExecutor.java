@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  * 
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -12,6 +12,7 @@
  */
 package org.springframework.integration.scripting.jsr223;
 
+import javax.script.Bindings;
 import javax.script.ScriptEngine;
 
 import org.springframework.integration.scripting.ScriptExecutor;
@@ -20,7 +21,7 @@ import org.springframework.integration.scripting.ScriptExecutor;
  * A {@link ScriptExecutor} that implements special handling required for Python to emulate behavior similar to other JSR223 scripting languages.
  * <p>
  * Script evaluation using the Jython implementation results in a <code>null</code> return value for normal variable expressions such as 
- * <code>x=2</code>. As a work around, it is necessary to get the value of 'x' explicitly following the script evaluation. This class performs
+ * <code>x=2</code>. As a work around, it is necessary to get the value of 'x' explicitly (from the execution's bindings) following the script evaluation. This class performs
  * simple parsing on the last line of the script to obtain the variable name, if any, and return its value.  
  *    
  * @author David Turanski
@@ -36,14 +37,14 @@ import org.springframework.integration.scripting.ScriptExecutor;
 	}
 	
 	/* (non-Javadoc)
-	 * @see org.springframework.integration.scripting.jsr223.AbstractScriptExecutor#postProcess(java.lang.Object, javax.script.ScriptEngine, java.lang.String)
+	 * @see org.springframework.integration.scripting.jsr223.AbstractScriptExecutor#postProcess(java.lang.Object, javax.script.ScriptEngine, java.lang.String, javax.script.Bindings)
 	 */
 	@Override
-	protected Object postProcess(Object result, ScriptEngine scriptEngine, String script) {
+	protected Object postProcess(Object result, ScriptEngine scriptEngine, String script, Bindings bindings) {
 		Object newResult= result;
 		if (newResult == null) {
 			String returnVariableName = PythonVariableParser.parseReturnVariable(script);
-			newResult = scriptEngine.get(returnVariableName);
+			newResult = bindings.get(returnVariableName);
 		}
 		return newResult;
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  * 
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -15,8 +15,15 @@ package org.springframework.integration.scripting.jsr223;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 import org.springframework.core.io.ClassPathResource;
@@ -60,6 +67,36 @@ public class Jsr223ScriptExecutorTests {
 		assertEquals("js",obj.toString());
 	}
 	
+	@Test
+	public void testJsScriptRecompiledWhenModified() {
+		ScriptExecutor executor = ScriptExecutorFactory.getScriptExecutor("js");
+		StaticScriptSource scriptSource = new StaticScriptSource("'foo' + x");
+		assertEquals("foo1", executor.executeScript(scriptSource, Collections.<String, Object>singletonMap("x", 1)).toString());
+		assertEquals("foo2", executor.executeScript(scriptSource, Collections.<String, Object>singletonMap("x", 2)).toString());
+		scriptSource.setScript("'bar' + x");
+		assertEquals("bar3", executor.executeScript(scriptSource, Collections.<String, Object>singletonMap("x", 3)).toString());
+	}
+
+	@Test
+	public void testJsConcurrentExecutionsUseTheirOwnVariables() throws Exception {
+		final ScriptExecutor executor = ScriptExecutorFactory.getScriptExecutor("js");
+		final StaticScriptSource scriptSource = new StaticScriptSource("var y = x; 'result-' + y");
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		List<Future<String>> results = new ArrayList<Future<String>>();
+		for (int i = 0; i < 100; i++) {
+			final int x = i;
+			results.add(threads.submit(new Callable<String>() {
+				public String call() throws Exception {
+					return executor.executeScript(scriptSource, Collections.<String, Object>singletonMap("x", x)).toString();
+				}
+			}));
+		}
+		for (int i = 0; i < 100; i++) {
+			assertEquals("result-" + i, results.get(i).get());
+		}
+		threads.shutdown();
+	}
+
 	@Test 
 	public void testPython() {
 		ScriptExecutor executor = ScriptExecutorFactory.getScriptExecutor("python");
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.sftp.filters;
+
+import org.springframework.integration.file.filters.AbstractPersistentAcceptOnceFileListFilter;
+import org.springframework.integration.store.MetadataStore;
+import org.springframework.util.Assert;
+
+import com.jcraft.jsch.ChannelSftp.LsEntry;
+
+/**
+ * Implementation of {@link AbstractPersistentAcceptOnceFileListFilter} for SFTP. Files
+ * are tracked by their path in the remote directory, which should be the same as that
+ * of the synchronizer the filter is used with, so that files with the same name in
+ * different directories (or, with different prefixes, on different servers) are
+ * distinguished.
+ *
+ * @since 2.1.1
+ */
+public class SftpPersistentAcceptOnceFileListFilter extends AbstractPersistentAcceptOnceFileListFilter<LsEntry> {
+
+	/**
+	 * Default prefix of the keys under which files are tracked.
+	 */
+	public static final String DEFAULT_PREFIX = "sftp:";
+
+
+	private final String remoteDirectory;
+
+
+	/**
+	 * Create a filter tracking the files of the given remote directory under keys
+	 * starting with {@link #DEFAULT_PREFIX}.
+	 */
+	public SftpPersistentAcceptOnceFileListFilter(MetadataStore store, String remoteDirectory) {
+		this(store, DEFAULT_PREFIX, remoteDirectory);
+	}
+
+	public SftpPersistentAcceptOnceFileListFilter(MetadataStore store, String prefix, String remoteDirectory) {
+		super(store, prefix);
+		Assert.notNull(remoteDirectory, "'remoteDirectory' cannot be null");
+		this.remoteDirectory = remoteDirectory.endsWith("/") ? remoteDirectory : remoteDirectory + "/";
+	}
+
+
+	@Override
+	protected long modified(LsEntry entry) {
+		return ((long) entry.getAttrs().getMTime()) * 1000;
+	}
+
+	@Override
+	protected String fileName(LsEntry entry) {
+		return this.remoteDirectory + entry.getFilename();
+	}
+
+}
@@ -16,9 +16,16 @@
 
 package org.springframework.integration.sftp.session;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.core.io.Resource;
 import org.springframework.integration.file.remote.session.Session;
 import org.springframework.integration.file.remote.session.SessionFactory;
@@ -33,14 +40,23 @@ import com.jcraft.jsch.UserInfo;
 
 /**
  * Factory for creating {@link SftpSession} instances.
+ * <p>
+ * By default every {@link SftpSession} has its own SSH connection. When
+ * {@link #setMaxSharedSessions(int) maxSharedSessions} is set, up to that many
+ * authenticated SSH connections are kept and each returned {@link SftpSession}
+ * opens its own {@link com.jcraft.jsch.ChannelSftp} on the least loaded one,
+ * so scaling out (e.g. from a {@code CachingSessionFactory}) only costs a
+ * channel open rather than a full handshake and authentication.
  *
  * @author Josh Long
  * @author Mario Gray
  * @author Oleg Zhurakousky
  * @since 2.0
  */
-public class DefaultSftpSessionFactory implements SessionFactory<LsEntry> {
-	
+public class DefaultSftpSessionFactory implements SessionFactory<LsEntry>, DisposableBean {
+
+	private final Log logger = LogFactory.getLog(this.getClass());
+
 	private volatile String host;
 
 	private volatile int port = 22; // the default
@@ -72,10 +88,18 @@ public class DefaultSftpSessionFactory implements SessionFactory<LsEntry> {
 	private volatile Integer serverAliveCountMax;
 	
 	private volatile Boolean enableDaemonThread;
-	
+
+	private volatile int maxSharedSessions;
+
+	private volatile int maxChannelsPerSession = 10;
+
+	private volatile long healthCheckInterval = 30000;
+
 
 	private final JSch jsch = new JSch();
 
+	private final List<JSchSessionWrapper> sharedSessions = new ArrayList<JSchSessionWrapper>();
+
 
 	public void setHost(String host) {	
 		this.host = host;
@@ -140,8 +164,44 @@ public class DefaultSftpSessionFactory implements SessionFactory<LsEntry> {
     public void setEnableDaemonThread(Boolean enableDaemonThread){
     	this.enableDaemonThread = enableDaemonThread;
     }
-    
-    
+
+	/**
+	 * Set the maximum number of SSH connections that are shared between
+	 * sessions, each session using its own SFTP channel. The default (0)
+	 * opens a dedicated SSH connection per session.
+	 * @since 2.1.1
+	 */
+	public void setMaxSharedSessions(int maxSharedSessions) {
+		Assert.isTrue(maxSharedSessions >= 0, "'maxSharedSessions' must not be negative");
+		this.maxSharedSessions = maxSharedSessions;
+	}
+
+	/**
+	 * Set the maximum number of SFTP channels opened concurrently on a single
+	 * shared SSH connection (default 10, matching the OpenSSH 'MaxSessions'
+	 * default). When all shared connections are at this limit a dedicated
+	 * connection is opened for the new session.
+	 * @since 2.1.1
+	 */
+	public void setMaxChannelsPerSession(int maxChannelsPerSession) {
+		Assert.isTrue(maxChannelsPerSession > 0, "'maxChannelsPerSession' must be greater than 0");
+		this.maxChannelsPerSession = maxChannelsPerSession;
+	}
+
+	/**
+	 * Set the minimum time in milliseconds between keep-alive probes of a
+	 * shared SSH connection before a new channel is opened on it (default 30
+	 * seconds). A connection failing the probe (because it has been closed or
+	 * reset) is discarded and replaced; a half-open connection passes the probe
+	 * and is replaced when opening the channel fails. 0 probes every time; a
+	 * negative value only checks the connected flag.
+	 * @since 2.1.1
+	 */
+	public void setHealthCheckInterval(long healthCheckInterval) {
+		this.healthCheckInterval = healthCheckInterval;
+	}
+
+
 	public Session<LsEntry> getSession() {
 		Assert.hasText(this.host, "host must not be empty");
 		Assert.hasText(this.user, "user must not be empty");
@@ -149,6 +209,9 @@ public class DefaultSftpSessionFactory implements SessionFactory<LsEntry> {
 		Assert.isTrue(StringUtils.hasText(this.password) || this.privateKey != null,
 				"either a password or a private key is required");
 		try {
+			if (this.maxSharedSessions > 0) {
+				return this.getSharedSession();
+			}
 			com.jcraft.jsch.Session jschSession = this.initJschSession();
 			SftpSession sftpSession = new SftpSession(jschSession);
 			sftpSession.connect();
@@ -159,6 +222,136 @@ public class DefaultSftpSessionFactory implements SessionFactory<LsEntry> {
 		}
 	}
 
+	/**
+	 * Disconnect the shared SSH connections once the sessions using them are closed.
+	 */
+	public void destroy() {
+		synchronized (this.sharedSessions) {
+			for (JSchSessionWrapper wrapper : this.sharedSessions) {
+				wrapper.release();
+			}
+			this.sharedSessions.clear();
+		}
+	}
+
+	private SftpSession getSharedSession() throws Exception {
+		JSchSessionWrapper wrapper = this.obtainSharedWrapper();
+		SftpSession sftpSession = new SftpSession(wrapper);
+		try {
+			sftpSession.connect();
+			return sftpSession;
+		}
+		catch (IllegalStateException e) {
+			// the channel could not be opened; assume the connection is broken and retry once on another
+			sftpSession.close();
+			this.evict(wrapper);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Failed to open SFTP channel on shared session, reconnecting", e);
+			}
+			sftpSession = new SftpSession(this.obtainSharedWrapper());
+			sftpSession.connect();
+			return sftpSession;
+		}
+	}
+
+	/**
+	 * Return a shared connection with one reference retained on behalf of the
+	 * caller, creating one if needed. Falls back to a dedicated connection when
+	 * all shared ones are at their channel limit.
+	 */
+	private JSchSessionWrapper obtainSharedWrapper() throws Exception {
+		JSchSessionWrapper shared;
+		while ((shared = this.retainLeastLoadedSharedWrapper()) != null) {
+			// connecting and the keep-alive are network I/O, so they happen without holding the lock
+			if (this.awaitConnected(shared) && shared.isHealthy(this.healthCheckInterval)) {
+				return shared;
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Discarding broken shared SSH session to " + this.host);
+			}
+			shared.release();
+			this.evict(shared);
+		}
+		JSchSessionWrapper wrapper = null;
+		synchronized (this.sharedSessions) {
+			if (this.sharedSessions.size() < this.maxSharedSessions) {
+				// reserve the slot; the session is connected once the lock has been released
+				wrapper = new JSchSessionWrapper(this.initJschSession());
+				wrapper.retain();
+				this.sharedSessions.add(wrapper);
+			}
+		}
+		if (wrapper != null) {
+			try {
+				wrapper.connect();
+			}
+			catch (Exception e) {
+				wrapper.release();
+				this.evict(wrapper);
+				throw e;
+			}
+			return wrapper;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("All shared SSH sessions are at the channel limit, opening a dedicated session");
+		}
+		return new JSchSessionWrapper(this.initJschSession());
+	}
+
+	/**
+	 * Wait for a shared connection that may still be connecting; returns false
+	 * if it could not be connected.
+	 */
+	private boolean awaitConnected(JSchSessionWrapper wrapper) {
+		try {
+			wrapper.connect();
+			return true;
+		}
+		catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Retain and return the least loaded shared connection, or null if a new
+	 * connection should be opened instead. Connections that are no longer
+	 * connected are discarded, unless they are still being connected.
+	 */
+	private JSchSessionWrapper retainLeastLoadedSharedWrapper() {
+		synchronized (this.sharedSessions) {
+			JSchSessionWrapper leastLoaded = null;
+			Iterator<JSchSessionWrapper> iterator = this.sharedSessions.iterator();
+			while (iterator.hasNext()) {
+				JSchSessionWrapper candidate = iterator.next();
+				if (!candidate.isConnected() && !candidate.isConnectPending()) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Discarding disconnected shared SSH session to " + this.host);
+					}
+					iterator.remove();
+					candidate.release();
+				}
+				else if (leastLoaded == null || candidate.getReferenceCount() < leastLoaded.getReferenceCount()) {
+					leastLoaded = candidate;
+				}
+			}
+			// the factory's own reference is included in the count
+			if (leastLoaded != null && leastLoaded.getReferenceCount() - 1 < this.maxChannelsPerSession
+					&& (leastLoaded.getReferenceCount() == 1 || this.sharedSessions.size() >= this.maxSharedSessions)
+					&& leastLoaded.retain()) {
+				return leastLoaded;
+			}
+			return null;
+		}
+	}
+
+	private void evict(JSchSessionWrapper wrapper) {
+		synchronized (this.sharedSessions) {
+			if (this.sharedSessions.remove(wrapper)) {
+				wrapper.release();
+			}
+		}
+	}
+
 	private com.jcraft.jsch.Session initJschSession() throws Exception { 
 		JSch.setLogger(new JschLogger());
 		
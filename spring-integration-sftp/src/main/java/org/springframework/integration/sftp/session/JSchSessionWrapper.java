@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.sftp.session;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.Assert;
+
+import com.jcraft.jsch.JSchException;
+
+/**
+ * Reference counting wrapper around a JSch {@link com.jcraft.jsch.Session}
+ * so that it can be shared by several {@link SftpSession}s, each using
+ * its own {@link com.jcraft.jsch.ChannelSftp}. The underlying SSH
+ * connection is disconnected when the last reference is released.
+ *
+ * @since 2.1.1
+ */
+class JSchSessionWrapper {
+
+	private final com.jcraft.jsch.Session session;
+
+	private final AtomicInteger references = new AtomicInteger(1);
+
+	private final AtomicLong lastHealthCheck = new AtomicLong(System.currentTimeMillis());
+
+	private volatile boolean connectAttempted;
+
+	private volatile boolean connectFailed;
+
+
+	/**
+	 * Create a wrapper holding a single reference on behalf of the caller.
+	 */
+	JSchSessionWrapper(com.jcraft.jsch.Session session) {
+		Assert.notNull(session, "session must not be null");
+		this.session = session;
+	}
+
+
+	com.jcraft.jsch.Session getSession() {
+		return this.session;
+	}
+
+	/**
+	 * Connect the underlying SSH session if it is not already connected. A
+	 * concurrent caller waits for the connection attempt in progress; once an
+	 * attempt has failed, the wrapper can not be connected any more.
+	 */
+	synchronized void connect() throws JSchException {
+		if (this.connectFailed) {
+			throw new JSchException("a previous attempt to connect the session failed");
+		}
+		if (!this.session.isConnected()) {
+			boolean connected = false;
+			try {
+				this.session.connect();
+				connected = true;
+			}
+			finally {
+				this.connectFailed = !connected;
+				this.connectAttempted = true;
+			}
+		}
+		this.connectAttempted = true;
+	}
+
+	boolean isConnected() {
+		return this.session.isConnected();
+	}
+
+	/**
+	 * Return whether the session has not been connected yet, and no attempt to
+	 * connect it has completed.
+	 */
+	boolean isConnectPending() {
+		return !this.connectAttempted;
+	}
+
+	/**
+	 * Acquire an additional reference; returns false if the wrapper has
+	 * already been fully released and must not be used any more.
+	 */
+	boolean retain() {
+		for (;;) {
+			int current = this.references.get();
+			if (current <= 0) {
+				return false;
+			}
+			if (this.references.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Release a reference, disconnecting the SSH session when none remain.
+	 */
+	void release() {
+		if (this.references.decrementAndGet() == 0 && this.session.isConnected()) {
+			this.session.disconnect();
+		}
+	}
+
+	int getReferenceCount() {
+		return this.references.get();
+	}
+
+	/**
+	 * Verify the connection is still usable. If the last check is older than
+	 * the given interval, a keep-alive message is sent to the server; this
+	 * fails on a connection that has been closed or reset, but not on a
+	 * half-open one (the message is merely buffered), which is only detected
+	 * when opening a channel on it fails. Only one thread sends the keep-alive
+	 * for each interval; the others assume the connection is healthy. This
+	 * performs network I/O, so it must not be called while holding a lock.
+	 */
+	boolean isHealthy(long healthCheckInterval) {
+		if (!this.session.isConnected()) {
+			return false;
+		}
+		long last = this.lastHealthCheck.get();
+		long now = System.currentTimeMillis();
+		if (healthCheckInterval >= 0 && now - last >= healthCheckInterval
+				&& this.lastHealthCheck.compareAndSet(last, now)) {
+			try {
+				this.session.sendKeepAliveMsg();
+			}
+			catch (Exception e) {
+				return false;
+			}
+		}
+		return this.session.isConnected();
+	}
+
+}
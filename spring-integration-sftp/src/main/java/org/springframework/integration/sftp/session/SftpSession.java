@@ -47,14 +47,26 @@ class SftpSession implements Session<LsEntry> {
 
 	private final Log logger = LogFactory.getLog(this.getClass());
 
-	private final com.jcraft.jsch.Session jschSession;
+	private final JSchSessionWrapper wrapper;
 
 	private volatile ChannelSftp channel;
 
+	private volatile boolean closed;
+
 
 	public SftpSession(com.jcraft.jsch.Session jschSession) {
-		Assert.notNull(jschSession, "jschSession must not be null");
-		this.jschSession = jschSession;
+		this(new JSchSessionWrapper(jschSession));
+	}
+
+	/**
+	 * Create a session that opens its own {@link ChannelSftp} on a
+	 * (possibly shared) SSH connection. The caller's reference on the
+	 * wrapper is handed over to this session and released on {@link #close()}.
+	 * @since 2.1.1
+	 */
+	SftpSession(JSchSessionWrapper wrapper) {
+		Assert.notNull(wrapper, "wrapper must not be null");
+		this.wrapper = wrapper;
 	}
 
 
@@ -111,13 +123,19 @@ class SftpSession implements Session<LsEntry> {
 	}
 
 	public void close() {
-		if (this.jschSession.isConnected()) {
-			this.jschSession.disconnect();
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		if (this.channel != null && this.channel.isConnected()) {
+			this.channel.disconnect();
 		}
+		this.wrapper.release();
 	}
 
 	public boolean isOpen() {
-		return this.jschSession.isConnected();
+		return !this.closed && this.wrapper.isConnected()
+				&& (this.channel == null || !this.channel.isClosed());
 	}
 
 	public void rename(String pathFrom, String pathTo) throws IOException {
@@ -174,9 +192,9 @@ class SftpSession implements Session<LsEntry> {
 	
 	void connect() {
 		try {
-			if (!this.jschSession.isConnected()) {
-				this.jschSession.connect();
-				this.channel = (ChannelSftp) this.jschSession.openChannel("sftp");
+			this.wrapper.connect();
+			if (this.channel == null) {
+				this.channel = (ChannelSftp) this.wrapper.getSession().openChannel("sftp");
 			}
 			if (this.channel != null && !this.channel.isConnected()) {
 				this.channel.connect();
@@ -85,6 +85,20 @@ public class InboundChannelAdapterParserTests {
 		assertNotNull(requestChannel.receive(2000));
 	}
 
+	@Test
+	public void testParallelDownloadAttributes() {
+		ApplicationContext context =
+			new ClassPathXmlApplicationContext("InboundChannelAdapterParserTests-context.xml", this.getClass());
+		Object adapter = context.getBean("sftpAdapter");
+		Object synchronizer = TestUtils.getPropertyValue(adapter, "source.synchronizer");
+		assertEquals(3, TestUtils.getPropertyValue(synchronizer, "concurrency"));
+		assertEquals(2, TestUtils.getPropertyValue(synchronizer, "maxAttempts"));
+		assertSame(context.getBean("taskExecutor"), TestUtils.getPropertyValue(adapter, "source.taskExecutor"));
+		synchronizer = TestUtils.getPropertyValue(context.getBean("sftpAdapterAutoCreate"), "source.synchronizer");
+		assertEquals(1, TestUtils.getPropertyValue(synchronizer, "concurrency"));
+		assertEquals(1, TestUtils.getPropertyValue(synchronizer, "maxAttempts"));
+	}
+
 	@Test
 	public void testAutoChannel() {
 		ApplicationContext context =
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.integration.sftp.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.integration.file.remote.session.Session;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.ChannelSftp.LsEntry;
+import com.jcraft.jsch.JSch;
+
+/**
+ * @since 2.1.1
+ */
+public class SftpSessionTests {
+
+	@Test
+	public void channelsShareOneConnection() throws Exception {
+		com.jcraft.jsch.Session jschSession = mock(com.jcraft.jsch.Session.class);
+		ChannelSftp channel1 = mock(ChannelSftp.class);
+		ChannelSftp channel2 = mock(ChannelSftp.class);
+		when(jschSession.openChannel("sftp")).thenReturn(channel1, channel2);
+
+		JSchSessionWrapper wrapper = new JSchSessionWrapper(jschSession);
+		wrapper.connect();
+		when(jschSession.isConnected()).thenReturn(true);
+
+		assertTrue(wrapper.retain());
+		SftpSession session1 = new SftpSession(wrapper);
+		session1.connect();
+		assertTrue(wrapper.retain());
+		SftpSession session2 = new SftpSession(wrapper);
+		session2.connect();
+
+		verify(jschSession, times(1)).connect();
+		verify(channel1).connect();
+		verify(channel2).connect();
+		assertEquals(3, wrapper.getReferenceCount());
+
+		when(channel1.isConnected()).thenReturn(true);
+		session1.close();
+		session1.close();
+		assertFalse(session1.isOpen());
+		assertTrue(session2.isOpen());
+		verify(channel1).disconnect();
+		verify(jschSession, never()).disconnect();
+
+		session2.close();
+		assertEquals(1, wrapper.getReferenceCount());
+		verify(jschSession, never()).disconnect();
+
+		// the factory releases its own reference last
+		wrapper.release();
+		verify(jschSession).disconnect();
+		assertFalse(wrapper.retain());
+	}
+
+	@Test
+	public void dedicatedSessionDisconnectsOnClose() throws Exception {
+		com.jcraft.jsch.Session jschSession = mock(com.jcraft.jsch.Session.class);
+		when(jschSession.openChannel("sftp")).thenReturn(mock(ChannelSftp.class));
+		SftpSession session = new SftpSession(jschSession);
+		session.connect();
+		when(jschSession.isConnected()).thenReturn(true);
+		assertTrue(session.isOpen());
+		session.close();
+		verify(jschSession).disconnect();
+	}
+
+	@Test
+	public void healthCheckDetectsBrokenConnection() throws Exception {
+		com.jcraft.jsch.Session jschSession = mock(com.jcraft.jsch.Session.class);
+		when(jschSession.isConnected()).thenReturn(true);
+		JSchSessionWrapper wrapper = new JSchSessionWrapper(jschSession);
+		assertTrue(wrapper.isHealthy(-1));
+		verify(jschSession, never()).sendKeepAliveMsg();
+		assertTrue(wrapper.isHealthy(0));
+		doThrow(new RuntimeException("broken pipe")).when(jschSession).sendKeepAliveMsg();
+		assertFalse(wrapper.isHealthy(0));
+		verify(jschSession, times(2)).sendKeepAliveMsg();
+	}
+
+	@Test
+	public void healthCheckDoesNotBlockOtherSessions() throws Exception {
+		final DefaultSftpSessionFactory factory = new DefaultSftpSessionFactory();
+		factory.setHost("localhost");
+		factory.setUser("foo");
+		factory.setPassword("bar");
+		factory.setMaxSharedSessions(1);
+		JSch jsch = mock(JSch.class);
+		new DirectFieldAccessor(factory).setPropertyValue("jsch", jsch);
+		com.jcraft.jsch.Session jschSession = mock(com.jcraft.jsch.Session.class);
+		when(jsch.getSession("foo", "localhost", 22)).thenReturn(jschSession);
+		when(jschSession.isConnected()).thenReturn(true);
+		when(jschSession.openChannel("sftp")).thenReturn(mock(ChannelSftp.class));
+		final CountDownLatch probing = new CountDownLatch(1);
+		final CountDownLatch proceed = new CountDownLatch(1);
+		doAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				probing.countDown();
+				proceed.await(10, TimeUnit.SECONDS);
+				return null;
+			}
+		}).when(jschSession).sendKeepAliveMsg();
+
+		Session<LsEntry> first = factory.getSession();
+		factory.setHealthCheckInterval(0);
+		ExecutorService executor = Executors.newCachedThreadPool();
+		Callable<Session<LsEntry>> getSession = new Callable<Session<LsEntry>>() {
+			public Session<LsEntry> call() throws Exception {
+				return factory.getSession();
+			}
+		};
+		Future<Session<LsEntry>> probed = executor.submit(getSession);
+		assertTrue(probing.await(10, TimeUnit.SECONDS));
+		// another session can be obtained while the keep-alive is outstanding
+		factory.setHealthCheckInterval(60000);
+		Session<LsEntry> third;
+		try {
+			third = executor.submit(getSession).get(5, TimeUnit.SECONDS);
+		}
+		finally {
+			proceed.countDown();
+		}
+		assertTrue(third.isOpen());
+		Session<LsEntry> second = probed.get(10, TimeUnit.SECONDS);
+		assertNotNull(second);
+		verify(jsch, times(1)).getSession("foo", "localhost", 22);
+		verify(jschSession, times(1)).sendKeepAliveMsg();
+		first.close();
+		second.close();
+		third.close();
+		factory.destroy();
+		verify(jschSession).disconnect();
+		executor.shutdown();
+	}
+
+	@Test
+	public void connectDoesNotBlockOtherSessions() throws Exception {
+		final DefaultSftpSessionFactory factory = new DefaultSftpSessionFactory();
+		factory.setHost("localhost");
+		factory.setUser("foo");
+		factory.setPassword("bar");
+		factory.setMaxSharedSessions(2);
+		JSch jsch = mock(JSch.class);
+		new DirectFieldAccessor(factory).setPropertyValue("jsch", jsch);
+		com.jcraft.jsch.Session slowSession = mock(com.jcraft.jsch.Session.class);
+		com.jcraft.jsch.Session fastSession = mock(com.jcraft.jsch.Session.class);
+		when(jsch.getSession("foo", "localhost", 22)).thenReturn(slowSession, fastSession);
+		when(slowSession.openChannel("sftp")).thenReturn(mock(ChannelSftp.class));
+		when(fastSession.openChannel("sftp")).thenReturn(mock(ChannelSftp.class));
+		when(fastSession.isConnected()).thenReturn(true);
+		final CountDownLatch connecting = new CountDownLatch(1);
+		final CountDownLatch proceed = new CountDownLatch(1);
+		doAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				connecting.countDown();
+				proceed.await(10, TimeUnit.SECONDS);
+				return null;
+			}
+		}).when(slowSession).connect();
+
+		ExecutorService executor = Executors.newCachedThreadPool();
+		Callable<Session<LsEntry>> getSession = new Callable<Session<LsEntry>>() {
+			public Session<LsEntry> call() throws Exception {
+				return factory.getSession();
+			}
+		};
+		Future<Session<LsEntry>> slow = executor.submit(getSession);
+		assertTrue(connecting.await(10, TimeUnit.SECONDS));
+		// another connection can be opened while the first one is still connecting
+		Session<LsEntry> fast;
+		try {
+			fast = executor.submit(getSession).get(5, TimeUnit.SECONDS);
+		}
+		finally {
+			when(slowSession.isConnected()).thenReturn(true);
+			proceed.countDown();
+		}
+		assertTrue(fast.isOpen());
+		assertNotNull(slow.get(10, TimeUnit.SECONDS));
+		verify(jsch, times(2)).getSession("foo", "localhost", 22);
+		slow.get().close();
+		fast.close();
+		factory.destroy();
+		verify(slowSession).disconnect();
+		verify(fastSession).disconnect();
+		executor.shutdown();
+	}
+
+}
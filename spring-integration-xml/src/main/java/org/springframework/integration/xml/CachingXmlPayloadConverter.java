@@ -0,0 +1,116 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.xml;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link XmlPayloadConverter} that remembers the Documents it has recently parsed from
+ * String payloads, so that when one instance is shared by several XPath components
+ * (e.g. an &lt;xpath-filter&gt;, an &lt;xpath-header-enricher&gt; and an &lt;xpath-router&gt;
+ * in the same flow) each payload is parsed only once. Payloads are matched by identity,
+ * which holds while a Message, or one derived from it by a header enricher, passes
+ * downstream; Strings are immutable, so a cached Document can never be stale.
+ * <p/>
+ * DOM implementations are not thread-safe even for reads (Xerces, for example, updates
+ * internal caches while nodes are traversed), so a cached Document is only returned to the
+ * thread that parsed it. A flow on direct channels therefore parses each payload once; when
+ * the same payload reaches components on other threads (e.g. through a publish-subscribe or
+ * executor channel) each of those threads parses its own copy.
+ * <p/>
+ * The cache is a fixed number of slots: a payload may evict another whose identity hash
+ * maps to the same slot, and a Document is retained until its slot is reused. Cached
+ * Documents are reused by later components and must not be modified.
+ *
+ * @since 2.1.1
+ */
+public class CachingXmlPayloadConverter extends DefaultXmlPayloadConverter {
+
+	public static final int DEFAULT_CACHE_SIZE = 16;
+
+
+	private final AtomicReferenceArray<CachedDocument> cache;
+
+	private final int mask;
+
+
+	public CachingXmlPayloadConverter() {
+		this(DEFAULT_CACHE_SIZE);
+	}
+
+	public CachingXmlPayloadConverter(int cacheSize) {
+		this(createDocumentBuilderFactory(), cacheSize);
+	}
+
+	public CachingXmlPayloadConverter(DocumentBuilderFactory documentBuilderFactory, int cacheSize) {
+		super(documentBuilderFactory);
+		Assert.isTrue(cacheSize > 0, "cacheSize must be greater than zero");
+		int slots = 1;
+		while (slots < cacheSize) {
+			slots <<= 1;
+		}
+		this.cache = new AtomicReferenceArray<CachedDocument>(slots);
+		this.mask = slots - 1;
+	}
+
+
+	@Override
+	public Document convertToDocument(Object object) {
+		if (!(object instanceof String)) {
+			return super.convertToDocument(object);
+		}
+		int index = System.identityHashCode(object) & this.mask;
+		CachedDocument cached = this.cache.get(index);
+		long threadId = Thread.currentThread().getId();
+		if (cached != null && cached.threadId == threadId && cached.payload.get() == object) {
+			return cached.document;
+		}
+		Document document = super.convertToDocument(object);
+		this.cache.set(index, new CachedDocument(object, threadId, document));
+		return document;
+	}
+
+	private static DocumentBuilderFactory createDocumentBuilderFactory() {
+		DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+		documentBuilderFactory.setNamespaceAware(true);
+		return documentBuilderFactory;
+	}
+
+
+	private static class CachedDocument {
+
+		private final WeakReference<Object> payload;
+
+		private final long threadId;
+
+		private final Document document;
+
+		CachedDocument(Object payload, long threadId, Document document) {
+			this.payload = new WeakReference<Object>(payload);
+			this.threadId = threadId;
+			this.document = document;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,8 @@ package org.springframework.integration.xml;
 
 import java.io.File;
 import java.io.StringReader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -30,18 +32,34 @@ import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
 
 import org.springframework.integration.MessagingException;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.xml.transform.StringSource;
 
 /**
  * Default implementation of {@link XmlPayloadConverter}. Supports
  * {@link Document}, {@link File} and {@link String} payloads.
+ * <p/>
+ * DocumentBuilders are reset and pooled after use, so that concurrent conversions
+ * neither create a new DocumentBuilder each time nor contend for a lock. Since a reset
+ * would discard any EntityResolver or ErrorHandler set on the DocumentBuilder, nothing
+ * is pooled when a subclass overrides {@link #getDocumentBuilder()}; a new
+ * DocumentBuilder is obtained from it for every conversion instead.
  * 
  * @author Jonas Partner
  */
 public class DefaultXmlPayloadConverter implements XmlPayloadConverter {
 
+	private static final int MAX_POOLED_DOCUMENT_BUILDERS = 16;
+
+
 	private DocumentBuilderFactory documentBuilderFactory;
 
+	private final BlockingQueue<DocumentBuilder> documentBuilders =
+			new ArrayBlockingQueue<DocumentBuilder>(MAX_POOLED_DOCUMENT_BUILDERS);
+
+	private final boolean poolDocumentBuilders = ReflectionUtils.findMethod(this.getClass(),
+			"getDocumentBuilder").getDeclaringClass() == DefaultXmlPayloadConverter.class;
+
 
 	public DefaultXmlPayloadConverter() {
 		this.documentBuilderFactory = DocumentBuilderFactory.newInstance();
@@ -59,7 +77,7 @@ public class DefaultXmlPayloadConverter implements XmlPayloadConverter {
 		}
 		if (object instanceof File) {
 			try {
-				return getDocumentBuilder().parse((File) object);
+				return this.parse(object);
 			}
 			catch (Exception e) {
 				throw new MessagingException("failed to parse File payload '" + object + "'", e);
@@ -67,7 +85,7 @@ public class DefaultXmlPayloadConverter implements XmlPayloadConverter {
 		}
 		if (object instanceof String) {
 			try {
-				return getDocumentBuilder().parse(new InputSource(new StringReader((String) object)));
+				return this.parse(object);
 			}
 			catch (Exception e) {
 				throw new MessagingException("failed to parse String payload '" + object + "'", e);
@@ -107,6 +125,36 @@ public class DefaultXmlPayloadConverter implements XmlPayloadConverter {
 		return source;
 	}
 
+	private Document parse(Object payload) throws Exception {
+		DocumentBuilder documentBuilder = this.documentBuilders.poll();
+		if (documentBuilder == null) {
+			documentBuilder = this.getDocumentBuilder();
+		}
+		try {
+			if (payload instanceof File) {
+				return documentBuilder.parse((File) payload);
+			}
+			return documentBuilder.parse(new InputSource(new StringReader((String) payload)));
+		}
+		finally {
+			this.release(documentBuilder);
+		}
+	}
+
+	private void release(DocumentBuilder documentBuilder) {
+		if (!this.poolDocumentBuilders) {
+			return;
+		}
+		try {
+			documentBuilder.reset();
+		}
+		catch (UnsupportedOperationException e) {
+			// cannot be reused
+			return;
+		}
+		this.documentBuilders.offer(documentBuilder);
+	}
+
 	protected synchronized DocumentBuilder getDocumentBuilder() {
 		try {
 			return this.documentBuilderFactory.newDocumentBuilder();
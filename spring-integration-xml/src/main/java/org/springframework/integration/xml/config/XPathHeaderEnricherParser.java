@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -54,6 +54,7 @@ public class XPathHeaderEnricherParser extends AbstractTransformerParser {
 
 	protected void processHeaders(Element element, ManagedMap<String, Object> headers, ParserContext parserContext) {
 		Object source = parserContext.extractSource(element);
+		String converter = element.getAttribute("converter");
 		NodeList childNodes = element.getChildNodes();
 		for (int i = 0; i < childNodes.getLength(); i++) {
 			Node node = childNodes.item(i);
@@ -79,6 +80,9 @@ public class XPathHeaderEnricherParser extends AbstractTransformerParser {
 					}
 					IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, headerElement, "evaluation-type");
 					IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, headerElement, "overwrite");
+					if (StringUtils.hasText(converter)) {
+						builder.addPropertyReference("converter", converter);
+					}
 					String headerName = headerElement.getAttribute("name");
 					headers.put(headerName, builder.getBeanDefinition());
 				}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -52,6 +52,8 @@ public class XsltPayloadTransformerParser extends AbstractTransformerParser {
 		String resultFactory = element.getAttribute("result-factory");
 		String resultType = element.getAttribute("result-type");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "xslt-param-headers");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "transformer-pool-size");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "refresh-check-delay");
 		Assert.isTrue(StringUtils.hasText(xslResource) ^ StringUtils.hasText(xslTemplates),
 				"Exactly one of 'xsl-resource' or 'xsl-templates' is required.");
 		if (StringUtils.hasText(xslResource)) {
@@ -0,0 +1,440 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.xml.splitter;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.transform.Source;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.w3c.dom.Document;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.splitter.AbstractMessageSplitter;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.util.xml.StaxUtils;
+
+/**
+ * Message Splitter that reads an XML payload with StAX and emits each element matching
+ * a simple path as soon as it has been parsed, so that only one fragment at a time is
+ * held in memory, however large the document. Accepts {@link File}, {@link InputStream},
+ * {@link Reader}, {@link String}, <code>byte[]</code>, {@link StreamSource} and StAX
+ * {@link Source} payloads (a JAXP 1.4 <code>StAXSource</code>, or one created with Spring's
+ * {@link StaxUtils}); the stream that is read is closed once the document has been read
+ * completely or the split fails.
+ * <p>
+ * The path is a subset of XPath: an absolute location path made of element names
+ * (e.g. <code>/orders/order</code>), or a relative one preceded by <code>//</code> to
+ * match at any depth (e.g. <code>//order</code>). A step may be <code>*</code>, and names
+ * may be qualified with a prefix that is mapped to a namespace URI in the provided
+ * namespaces; unprefixed names match elements in no namespace. Elements nested within
+ * a matching element are emitted as part of it, never on their own.
+ * <p>
+ * Each fragment is emitted as a String, or as a {@link Document} if 'createDocuments' is
+ * <code>true</code>; namespace declarations in scope on the matching element are copied
+ * onto the fragment's root. Since the number of matches is not known in advance, the
+ * sequence size of the emitted messages is 0, and a document with no matching
+ * elements produces no messages.
+ * <p>
+ * This splitter requires a StAX (JSR-173) implementation. One is included in Java 6;
+ * on Java 5, an implementation such as Woodstox must be on the classpath.
+ *
+ * @since 2.1.1
+ */
+public class StreamingXPathMessageSplitter extends AbstractMessageSplitter {
+
+	private final QName[] steps;
+
+	private final boolean anyDepth;
+
+	private final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+	private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+	private final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+
+	private volatile boolean createDocuments;
+
+	private volatile DocumentBuilderFactory documentBuilderFactory;
+
+
+	public StreamingXPathMessageSplitter(String path) {
+		this(path, new HashMap<String, String>());
+	}
+
+	public StreamingXPathMessageSplitter(String path, Map<String, String> namespaces) {
+		Assert.hasText(path, "path must not be empty");
+		Assert.notNull(namespaces, "namespaces must not be null");
+		this.anyDepth = path.startsWith("//");
+		Assert.isTrue(this.anyDepth || path.startsWith("/"), "path must start with '/' or '//': " + path);
+		String[] names = StringUtils.delimitedListToStringArray(path.substring(this.anyDepth ? 2 : 1), "/");
+		this.steps = new QName[names.length];
+		for (int i = 0; i < names.length; i++) {
+			this.steps[i] = parseStep(names[i], namespaces, path);
+		}
+		this.inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		this.documentBuilderFactory = DocumentBuilderFactory.newInstance();
+		this.documentBuilderFactory.setNamespaceAware(true);
+	}
+
+
+	/**
+	 * Specify whether each fragment should be emitted as a {@link Document} rather than
+	 * a String. Default false.
+	 */
+	public void setCreateDocuments(boolean createDocuments) {
+		this.createDocuments = createDocuments;
+	}
+
+	public void setDocumentBuilder(DocumentBuilderFactory documentBuilderFactory) {
+		Assert.notNull(documentBuilderFactory, "DocumentBuilderFactory must not be null");
+		this.documentBuilderFactory = documentBuilderFactory;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "xml:streaming-xpath-splitter";
+	}
+
+	@Override
+	protected Object splitMessage(Message<?> message) {
+		Object payload = message.getPayload();
+		Closeable stream = null;
+		try {
+			XMLEventReader eventReader = null;
+			if (payload instanceof File) {
+				InputStream inputStream = new FileInputStream((File) payload);
+				stream = inputStream;
+				eventReader = this.createEventReader(new StreamSource(inputStream, ((File) payload).toURI().toString()));
+			}
+			else if (payload instanceof InputStream) {
+				stream = (InputStream) payload;
+				eventReader = this.createEventReader(new StreamSource((InputStream) payload));
+			}
+			else if (payload instanceof Reader) {
+				stream = (Reader) payload;
+				eventReader = this.createEventReader(new StreamSource((Reader) payload));
+			}
+			else if (payload instanceof String) {
+				eventReader = this.createEventReader(new StreamSource(new StringReader((String) payload)));
+			}
+			else if (payload instanceof byte[]) {
+				eventReader = this.createEventReader(new StreamSource(new ByteArrayInputStream((byte[]) payload)));
+			}
+			else if (payload instanceof Source && StaxUtils.isStaxSource((Source) payload)) {
+				eventReader = StaxUtils.getXMLEventReader((Source) payload);
+				if (eventReader == null) {
+					synchronized (this.inputFactory) {
+						eventReader = this.inputFactory.createXMLEventReader(StaxUtils.getXMLStreamReader((Source) payload));
+					}
+				}
+			}
+			else if (payload instanceof StreamSource) {
+				StreamSource streamSource = (StreamSource) payload;
+				stream = (streamSource.getInputStream() != null) ? streamSource.getInputStream() : streamSource.getReader();
+				if (stream == null) {
+					Assert.hasText(streamSource.getSystemId(), "StreamSource has no InputStream, Reader or system id");
+					InputStream inputStream = new URL(streamSource.getSystemId()).openStream();
+					stream = inputStream;
+					streamSource = new StreamSource(inputStream, streamSource.getSystemId());
+				}
+				eventReader = this.createEventReader(streamSource);
+			}
+			else {
+				throw new IllegalArgumentException("unsupported Message payload type [" + payload.getClass().getName()
+						+ "]; a File, InputStream, Reader, String, byte[], StreamSource or StAX Source is required");
+			}
+			return new FragmentIterator(eventReader, stream);
+		}
+		catch (IllegalArgumentException e) {
+			closeQuietly(stream);
+			throw e;
+		}
+		catch (Exception e) {
+			closeQuietly(stream);
+			throw new MessagingException(message, "failed to open XML payload for splitting", e);
+		}
+	}
+
+	private XMLEventReader createEventReader(StreamSource source) throws XMLStreamException {
+		synchronized (this.inputFactory) {
+			return this.inputFactory.createXMLEventReader(source);
+		}
+	}
+
+	private XMLEventWriter createEventWriter(Object result) throws XMLStreamException {
+		synchronized (this.outputFactory) {
+			if (result instanceof DOMResult) {
+				return this.outputFactory.createXMLEventWriter((DOMResult) result);
+			}
+			return this.outputFactory.createXMLEventWriter((StringWriter) result);
+		}
+	}
+
+	private DocumentBuilder getNewDocumentBuilder() throws ParserConfigurationException {
+		synchronized (this.documentBuilderFactory) {
+			return this.documentBuilderFactory.newDocumentBuilder();
+		}
+	}
+
+	/**
+	 * Return whether the path matches the open elements, the last of which has just
+	 * been started.
+	 */
+	private boolean matches(List<QName> elements) {
+		int offset = elements.size() - this.steps.length;
+		if (offset < 0 || (offset > 0 && !this.anyDepth)) {
+			return false;
+		}
+		for (int i = 0; i < this.steps.length; i++) {
+			QName step = this.steps[i];
+			QName element = elements.get(offset + i);
+			if (!"*".equals(step.getLocalPart()) && !(step.getLocalPart().equals(element.getLocalPart())
+					&& step.getNamespaceURI().equals(element.getNamespaceURI()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static QName parseStep(String step, Map<String, String> namespaces, String path) {
+		Assert.hasText(step, "path must not contain empty steps: " + path);
+		int colon = step.indexOf(':');
+		if (colon < 0) {
+			return new QName(XMLConstants.NULL_NS_URI, step);
+		}
+		String prefix = step.substring(0, colon);
+		String namespaceUri = namespaces.get(prefix);
+		Assert.notNull(namespaceUri, "no namespace URI provided for prefix '" + prefix + "' in path: " + path);
+		return new QName(namespaceUri, step.substring(colon + 1), prefix);
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			}
+			catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+
+	private class FragmentIterator implements Iterator<Object>, Closeable {
+
+		private final XMLEventReader eventReader;
+
+		private final Closeable stream;
+
+		private final List<QName> elements = new ArrayList<QName>();
+
+		private final List<List<Namespace>> namespaces = new ArrayList<List<Namespace>>();
+
+		private Object next;
+
+		private boolean done;
+
+		FragmentIterator(XMLEventReader eventReader, Closeable stream) {
+			this.eventReader = eventReader;
+			this.stream = stream;
+		}
+
+		public boolean hasNext() {
+			if (this.next == null && !this.done) {
+				try {
+					this.next = this.readFragment();
+				}
+				catch (Exception e) {
+					this.closeQuietly();
+					throw new MessagingException("failed to read XML content for splitting", e);
+				}
+				if (this.next == null) {
+					this.closeQuietly();
+				}
+			}
+			return this.next != null;
+		}
+
+		public Object next() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Object current = this.next;
+			this.next = null;
+			return current;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		public void close() throws IOException {
+			this.done = true;
+			try {
+				this.eventReader.close();
+			}
+			catch (XMLStreamException e) {
+				// ignore
+			}
+			finally {
+				if (this.stream != null) {
+					this.stream.close();
+				}
+			}
+		}
+
+		private void closeQuietly() {
+			try {
+				this.close();
+			}
+			catch (IOException e) {
+				// ignore
+			}
+		}
+
+		/**
+		 * Advance to the next matching element and read it completely, returning
+		 * <code>null</code> at the end of the document.
+		 */
+		private Object readFragment() throws Exception {
+			while (this.eventReader.hasNext()) {
+				XMLEvent event = this.eventReader.nextEvent();
+				if (event.isStartElement()) {
+					StartElement startElement = event.asStartElement();
+					this.elements.add(startElement.getName());
+					if (matches(this.elements)) {
+						Object fragment = this.readElement(startElement);
+						this.elements.remove(this.elements.size() - 1);
+						return fragment;
+					}
+					this.namespaces.add(this.declaredNamespaces(startElement));
+				}
+				else if (event.isEndElement()) {
+					this.elements.remove(this.elements.size() - 1);
+					this.namespaces.remove(this.namespaces.size() - 1);
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Copy the element that has just been started, up to and including its end
+		 * element, to a String or Document.
+		 */
+		private Object readElement(StartElement startElement) throws Exception {
+			Document document = null;
+			StringWriter stringWriter = null;
+			XMLEventWriter eventWriter = null;
+			if (createDocuments) {
+				document = getNewDocumentBuilder().newDocument();
+				eventWriter = createEventWriter(new DOMResult(document));
+			}
+			else {
+				stringWriter = new StringWriter();
+				eventWriter = createEventWriter(stringWriter);
+			}
+			eventWriter.add(this.withNamespacesInScope(startElement));
+			int depth = 1;
+			while (depth > 0) {
+				XMLEvent event = this.eventReader.nextEvent();
+				if (event.isStartElement()) {
+					depth++;
+				}
+				else if (event.isEndElement()) {
+					depth--;
+				}
+				eventWriter.add(event);
+			}
+			eventWriter.flush();
+			eventWriter.close();
+			return (document != null) ? document : stringWriter.toString();
+		}
+
+		@SuppressWarnings("unchecked")
+		private List<Namespace> declaredNamespaces(StartElement startElement) {
+			Iterator<Namespace> iterator = startElement.getNamespaces();
+			if (!iterator.hasNext()) {
+				return Collections.emptyList();
+			}
+			List<Namespace> declared = new ArrayList<Namespace>();
+			while (iterator.hasNext()) {
+				declared.add(iterator.next());
+			}
+			return declared;
+		}
+
+		/**
+		 * Add the namespace declarations of the enclosing elements to the root of a
+		 * fragment, so that the fragment is well-formed on its own.
+		 */
+		private StartElement withNamespacesInScope(StartElement startElement) {
+			Map<String, Namespace> inScope = new LinkedHashMap<String, Namespace>();
+			for (List<Namespace> declared : this.namespaces) {
+				for (Namespace namespace : declared) {
+					inScope.put(namespace.getPrefix(), namespace);
+				}
+			}
+			if (inScope.isEmpty()) {
+				return startElement;
+			}
+			for (Namespace namespace : this.declaredNamespaces(startElement)) {
+				inScope.put(namespace.getPrefix(), namespace);
+			}
+			QName name = startElement.getName();
+			synchronized (eventFactory) {
+				return eventFactory.createStartElement(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(),
+						startElement.getAttributes(), inScope.values().iterator(), startElement.getNamespaceContext());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.xml.transformer;
+
+import java.io.IOException;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+/**
+ * The compiled XSLT {@link Templates} of the stylesheet {@link Resource} of a single
+ * {@link XsltPayloadTransformer}. The stylesheet is compiled when it is first requested,
+ * and compiled again when its Resource reports a later last-modified timestamp. Only the
+ * latest Templates are held, and nothing is shared between transformers, so a compiled
+ * stylesheet (and any classes generated for it) is released with its transformer.
+ *
+ * @since 2.1.1
+ */
+final class TemplatesCache {
+
+	private final Resource xslResource;
+
+	private volatile CachedTemplates cached;
+
+
+	TemplatesCache(Resource xslResource) {
+		Assert.notNull(xslResource, "xslResource must not be null");
+		this.xslResource = xslResource;
+	}
+
+
+	/**
+	 * Return the Templates for the stylesheet.
+	 * @param refreshCheckDelay the minimum number of milliseconds between checks of the
+	 * stylesheet's last-modified timestamp; 0 checks on every call, and a negative value
+	 * never checks a stylesheet that has already been compiled
+	 */
+	Templates getTemplates(long refreshCheckDelay) throws IOException, TransformerException {
+		CachedTemplates cached = this.cached;
+		if (cached != null && !cached.isCheckDue(refreshCheckDelay)) {
+			return cached.templates;
+		}
+		synchronized (this) {
+			cached = this.cached;
+			if (cached != null && !cached.isCheckDue(refreshCheckDelay)) {
+				return cached.templates;
+			}
+			long lastModified = getLastModified(this.xslResource);
+			if (cached != null && cached.lastModified == lastModified) {
+				cached.lastChecked = System.currentTimeMillis();
+				return cached.templates;
+			}
+			Templates templates = compile(this.xslResource);
+			this.cached = new CachedTemplates(templates, lastModified);
+			return templates;
+		}
+	}
+
+	private static Templates compile(Resource xslResource) throws IOException, TransformerException {
+		StreamSource source = createStreamSourceOnResource(xslResource);
+		try {
+			// compiling is rare, so the factory is not kept
+			return TransformerFactory.newInstance().newTemplates(source);
+		}
+		finally {
+			source.getInputStream().close();
+		}
+	}
+
+	private static long getLastModified(Resource xslResource) {
+		try {
+			return xslResource.lastModified();
+		}
+		catch (IOException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Compensate for the fact that a Resource <i>may</i> not be a File or even
+	 * addressable through a URI. If it is, we want the created StreamSource to
+	 * read other resources relative to the provided one. If it isn't, it loads
+	 * from the default path.
+	 */
+	private static StreamSource createStreamSourceOnResource(Resource xslResource) throws IOException {
+		try {
+			String systemId = xslResource.getURI().toString();
+			return new StreamSource(xslResource.getInputStream(), systemId);
+		}
+		catch (IOException e) {
+			return new StreamSource(xslResource.getInputStream());
+		}
+	}
+
+
+	private static class CachedTemplates {
+
+		private final Templates templates;
+
+		private final long lastModified;
+
+		private volatile long lastChecked = System.currentTimeMillis();
+
+		CachedTemplates(Templates templates, long lastModified) {
+			this.templates = templates;
+			this.lastModified = lastModified;
+		}
+
+		boolean isCheckDue(long refreshCheckDelay) {
+			return refreshCheckDelay >= 0 && System.currentTimeMillis() - this.lastChecked >= refreshCheckDelay;
+		}
+	}
+
+}
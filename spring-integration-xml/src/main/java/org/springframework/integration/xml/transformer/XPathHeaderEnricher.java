@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -70,6 +70,14 @@ public class XPathHeaderEnricher extends HeaderEnricher {
 			this.expression = expression;
 		}
 
+		/**
+		 * Specify the {@link XmlPayloadConverter} to use when converting a Message payload prior to XPath evaluation.
+		 */
+		public void setConverter(XmlPayloadConverter converter) {
+			Assert.notNull(converter, "converter must not be null");
+			this.converter = converter;
+		}
+
 		public void setEvaluationType(XPathEvaluationType evaluationType) {
 			this.evaluationType = evaluationType;
 		}
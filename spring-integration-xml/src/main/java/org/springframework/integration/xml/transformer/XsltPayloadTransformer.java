@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,13 @@
 
 package org.springframework.integration.xml.transformer;
 
-import java.io.IOException;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Result;
@@ -25,7 +30,6 @@ import javax.xml.transform.Source;
 import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamSource;
@@ -45,6 +49,7 @@ import org.springframework.integration.MessagingException;
 import org.springframework.integration.transformer.AbstractTransformer;
 import org.springframework.integration.xml.result.DomResultFactory;
 import org.springframework.integration.xml.result.ResultFactory;
+import org.springframework.integration.xml.result.StringResultFactory;
 import org.springframework.integration.xml.source.DomSourceFactory;
 import org.springframework.integration.xml.source.SourceFactory;
 import org.springframework.util.Assert;
@@ -72,6 +77,16 @@ import org.springframework.xml.transform.StringSource;
  * payload and the {@link Result} to pass into the transformer. An instance of
  * {@link ResultTransformer} can also be provided to convert the Result prior to
  * returning.
+ * <p/>
+ * {@link File} and {@link InputStream} payloads are read through a {@link StreamSource}
+ * rather than being parsed into a DOM first; an InputStream is not closed. Combine
+ * them with a streaming {@link ResultFactory} such as {@link StringResultFactory} to
+ * avoid building a DOM for the output as well.
+ * <p/>
+ * The {@link Transformer}s created from the Templates are pooled and reset between
+ * uses. A stylesheet provided as a {@link Resource} is compiled once by each instance;
+ * when a refresh check delay is set, it is compiled again after its Resource has been
+ * modified.
  * 
  * @author Jonas Partner
  * @author Mark Fisher
@@ -79,9 +94,18 @@ import org.springframework.xml.transform.StringSource;
  */
 public class XsltPayloadTransformer extends AbstractTransformer {
 
+	public static final int DEFAULT_TRANSFORMER_POOL_SIZE = 16;
+
+
 	private final Log logger = LogFactory.getLog(this.getClass());
 
-	private final Templates templates;
+	private final TemplatesCache templatesCache;
+
+	private volatile TransformerPool transformerPool;
+
+	private volatile int transformerPoolSize = DEFAULT_TRANSFORMER_POOL_SIZE;
+
+	private volatile long refreshCheckDelay = -1;
 
 	private final StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
 
@@ -99,23 +123,33 @@ public class XsltPayloadTransformer extends AbstractTransformer {
 
 	private volatile String[] xsltParamHeaders;
 
+	private volatile String[] xsltParamHeaderPatterns;
+
 
 	public XsltPayloadTransformer(Templates templates) throws ParserConfigurationException {
 		this(templates, null);
 	}
 
 	public XsltPayloadTransformer(Resource xslResource) throws Exception {
-		this(TransformerFactory.newInstance().newTemplates(
-				createStreamSourceOnResource(xslResource)), null);
+		this(xslResource, null);
 	}
 
 	public XsltPayloadTransformer(Resource xslResource, ResultTransformer resultTransformer) throws Exception {
-		this(TransformerFactory.newInstance().newTemplates(
-				createStreamSourceOnResource(xslResource)), resultTransformer);
+		this(new TemplatesCache(xslResource), resultTransformer);
 	}
 
 	public XsltPayloadTransformer(Templates templates, ResultTransformer resultTransformer) throws ParserConfigurationException {
-		this.templates = templates;
+		this(templates, null, resultTransformer);
+	}
+
+	private XsltPayloadTransformer(TemplatesCache templatesCache, ResultTransformer resultTransformer) throws Exception {
+		this(templatesCache.getTemplates(0), templatesCache, resultTransformer);
+	}
+
+	private XsltPayloadTransformer(Templates templates, TemplatesCache templatesCache, ResultTransformer resultTransformer) {
+		Assert.notNull(templates, "Templates must not be null");
+		this.transformerPool = new TransformerPool(templates, this.transformerPoolSize);
+		this.templatesCache = templatesCache;
 		this.resultTransformer = resultTransformer;
 		this.evaluationContext.addPropertyAccessor(new MapAccessor());
 	}
@@ -156,7 +190,40 @@ public class XsltPayloadTransformer extends AbstractTransformer {
 	}
 
 	public void setXsltParamHeaders(String[] xsltParamHeaders) {
-		this.xsltParamHeaders = xsltParamHeaders;
+		List<String> names = new ArrayList<String>();
+		List<String> patterns = new ArrayList<String>();
+		if (xsltParamHeaders != null) {
+			for (String xsltParamHeader : xsltParamHeaders) {
+				if (xsltParamHeader.indexOf('*') != -1) {
+					patterns.add(xsltParamHeader);
+				}
+				else {
+					names.add(xsltParamHeader);
+				}
+			}
+		}
+		this.xsltParamHeaders = names.toArray(new String[names.size()]);
+		this.xsltParamHeaderPatterns = patterns.toArray(new String[patterns.size()]);
+	}
+
+	/**
+	 * Specify the maximum number of idle {@link Transformer}s to keep for reuse.
+	 * Defaults to {@value #DEFAULT_TRANSFORMER_POOL_SIZE}.
+	 */
+	public void setTransformerPoolSize(int transformerPoolSize) {
+		Assert.isTrue(transformerPoolSize > 0, "transformerPoolSize must be greater than zero");
+		this.transformerPoolSize = transformerPoolSize;
+		this.transformerPool = new TransformerPool(this.transformerPool.templates, transformerPoolSize);
+	}
+
+	/**
+	 * Specify the minimum number of milliseconds between checks of whether the stylesheet
+	 * {@link Resource} has been modified. A modified stylesheet is compiled again and used
+	 * for subsequent Messages. A value of 0 checks before every Message. The default (-1)
+	 * never checks. Has no effect when this transformer was created with {@link Templates}.
+	 */
+	public void setRefreshCheckDelay(long refreshCheckDelay) {
+		this.refreshCheckDelay = refreshCheckDelay;
 	}
 
 	public String getComponentType() {
@@ -165,7 +232,16 @@ public class XsltPayloadTransformer extends AbstractTransformer {
 
 	@Override
 	protected Object doTransform(Message<?> message) throws Exception {
-		Transformer transformer = buildTransformer(message);
+		TransformerPool pool = this.getTransformerPool();
+		Transformer transformer = pool.acquire();
+		this.setParameters(transformer, message);
+		Object transformedPayload = this.transform(message, transformer);
+		// a Transformer that failed is not returned to the pool
+		pool.release(transformer);
+		return transformedPayload;
+	}
+
+	private Object transform(Message<?> message, Transformer transformer) throws Exception {
 		Object payload;
 		if (this.alwaysUseSourceFactory) {
 			payload = sourceFactory.createSource(message.getPayload());
@@ -207,6 +283,12 @@ public class XsltPayloadTransformer extends AbstractTransformer {
 		else if (payload instanceof Source) {
 			source = (Source) payload;
 		}
+		else if (payload instanceof File) {
+			source = new StreamSource((File) payload);
+		}
+		else if (payload instanceof InputStream) {
+			source = new StreamSource((InputStream) payload);
+		}
 		else {
 			source = this.sourceFactory.createSource(payload);
 		}
@@ -253,12 +335,24 @@ public class XsltPayloadTransformer extends AbstractTransformer {
 		return (Document) domResult.getNode();
 	}
 
-	private Transformer buildTransformer(Message<?> message) throws TransformerException {
+	private TransformerPool getTransformerPool() throws Exception {
+		TransformerPool pool = this.transformerPool;
+		if (this.templatesCache != null && this.refreshCheckDelay >= 0) {
+			Templates templates = this.templatesCache.getTemplates(this.refreshCheckDelay);
+			if (templates != pool.templates) {
+				pool = new TransformerPool(templates, this.transformerPoolSize);
+				this.transformerPool = pool;
+			}
+		}
+		return pool;
+	}
+
+	private void setParameters(Transformer transformer, Message<?> message) {
 		// process individual mappings
-		Transformer transformer = this.templates.newTransformer();
 		if (this.xslParameterMappings != null) {
-			for (String parameterName : this.xslParameterMappings.keySet()) {
-				Expression expression = this.xslParameterMappings.get(parameterName);
+			for (Map.Entry<String, Expression> entry : this.xslParameterMappings.entrySet()) {
+				String parameterName = entry.getKey();
+				Expression expression = entry.getValue();
 				try {
 					Object value = expression.getValue(this.evaluationContext, message);
 					transformer.setParameter(parameterName, value);
@@ -276,29 +370,55 @@ public class XsltPayloadTransformer extends AbstractTransformer {
 		// process xslt-parameter-headers
 		MessageHeaders headers = message.getHeaders();
 		if (!ObjectUtils.isEmpty(this.xsltParamHeaders)) {
+			for (String headerName : this.xsltParamHeaders) {
+				Object value = headers.get(headerName);
+				if (value != null) {
+					transformer.setParameter(headerName, value);
+				}
+			}
+		}
+		if (!ObjectUtils.isEmpty(this.xsltParamHeaderPatterns)) {
 			for (String headerName : headers.keySet()) {
-				if (PatternMatchUtils.simpleMatch(this.xsltParamHeaders, headerName)) {
+				if (PatternMatchUtils.simpleMatch(this.xsltParamHeaderPatterns, headerName)) {
 					transformer.setParameter(headerName, headers.get(headerName));
 				}
 			}
 		}
-		return transformer;
 	}
 
 
 	/**
-	 * Compensate for the fact that a Resource <i>may</i> not be a File or even
-	 * addressable through a URI. If it is, we want the created StreamSource to
-	 * read other resources relative to the provided one. If it isn't, it loads
-	 * from the default path.
+	 * The Transformers created from one Templates instance. A pool is replaced, not
+	 * cleared, when the stylesheet is reloaded; Transformers in use at that time are
+	 * released to the old pool and discarded along with it.
 	 */
-	private static StreamSource createStreamSourceOnResource(Resource xslResource) throws IOException {
-		try {
-			String systemId = xslResource.getURI().toString();
-			return new StreamSource(xslResource.getInputStream(), systemId);
+	private static class TransformerPool {
+
+		private final Templates templates;
+
+		private final BlockingQueue<Transformer> transformers;
+
+		TransformerPool(Templates templates, int size) {
+			this.templates = templates;
+			this.transformers = new ArrayBlockingQueue<Transformer>(size);
 		}
-		catch (IOException e) {
-			return new StreamSource(xslResource.getInputStream());
+
+		Transformer acquire() throws TransformerException {
+			Transformer transformer = this.transformers.poll();
+			return (transformer != null) ? transformer : this.templates.newTransformer();
+		}
+
+		void release(Transformer transformer) {
+			// not every implementation clears parameters on reset()
+			transformer.clearParameters();
+			try {
+				transformer.reset();
+			}
+			catch (UnsupportedOperationException e) {
+				// cannot be restored to its original state, so do not reuse it
+				return;
+			}
+			this.transformers.offer(transformer);
 		}
 	}
 
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * @since 2.1.1
+ */
+public class CachingXmlPayloadConverterTests {
+
+	private final CachingXmlPayloadConverter converter = new CachingXmlPayloadConverter();
+
+	@Test
+	public void sameStringParsedOnce() {
+		String payload = "<test>hello</test>";
+		Document document = this.converter.convertToDocument(payload);
+		assertEquals("hello", document.getDocumentElement().getTextContent());
+		assertSame(document, this.converter.convertToDocument(payload));
+	}
+
+	@Test
+	public void equalStringParsedAgain() {
+		Document document = this.converter.convertToDocument("<test>hello</test>");
+		assertNotSame(document, this.converter.convertToDocument(new String("<test>hello</test>")));
+	}
+
+	@Test
+	public void documentPassedThrough() {
+		Document document = this.converter.convertToDocument("<test>hello</test>");
+		assertSame(document, new CachingXmlPayloadConverter(1).convertToDocument(document));
+	}
+
+	@Test
+	public void documentNotSharedAcrossThreads() throws Exception {
+		final String payload = "<test>hello</test>";
+		Document document = this.converter.convertToDocument(payload);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Document other = executor.submit(new Callable<Document>() {
+				public Document call() throws Exception {
+					return converter.convertToDocument(payload);
+				}
+			}).get();
+			assertNotSame(document, other);
+			assertEquals("hello", other.getDocumentElement().getTextContent());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void concurrentConversion() throws Exception {
+		final DefaultXmlPayloadConverter converter = new DefaultXmlPayloadConverter();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for (int i = 0; i < 100; i++) {
+				final String payload = "<test>" + i + "</test>";
+				results.add(executor.submit(new Callable<String>() {
+					public String call() throws Exception {
+						return converter.convertToDocument(payload).getDocumentElement().getTextContent();
+					}
+				}));
+			}
+			for (int i = 0; i < 100; i++) {
+				assertEquals(String.valueOf(i), results.get(i).get());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
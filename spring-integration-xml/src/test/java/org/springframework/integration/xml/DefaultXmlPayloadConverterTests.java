@@ -20,6 +20,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.StringReader;
 
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.Source;
 import javax.xml.transform.dom.DOMSource;
@@ -34,6 +35,7 @@ import org.springframework.integration.MessagingException;
 import org.springframework.xml.transform.StringSource;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
+import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 
 /**
@@ -118,6 +120,25 @@ public class DefaultXmlPayloadConverterTests {
 		Node n = converter.convertToNode(new DOMSource(element));
 		assertTrue("Wrong node returned", element == n);
     }
-    
+
+	@Test
+	public void testCustomizedDocumentBuilderKeptForEveryConversion() {
+		converter = new DefaultXmlPayloadConverter() {
+			@Override
+			protected DocumentBuilder getDocumentBuilder() {
+				DocumentBuilder documentBuilder = super.getDocumentBuilder();
+				documentBuilder.setEntityResolver(new EntityResolver() {
+					public InputSource resolveEntity(String publicId, String systemId) {
+						return new InputSource(new StringReader("hello"));
+					}
+				});
+				return documentBuilder;
+			}
+		};
+		String payload = "<!DOCTYPE test [<!ENTITY greeting SYSTEM \"urn:greeting\">]><test>&greeting;</test>";
+		for (int i = 0; i < 2; i++) {
+			XMLAssert.assertXMLEqual(testDocument, converter.convertToDocument(payload));
+		}
+	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.integration.xml.config;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
@@ -33,6 +34,7 @@ import org.springframework.integration.MessageChannel;
 import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.core.PollableChannel;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.xml.XmlPayloadConverter;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
@@ -99,6 +101,16 @@ public class XPathHeaderEnricherParserTests {
 		assertEquals(new Double(84), result.getHeaders().get("ref-test"));
 	}
 
+	@Test
+	public void sharedConverter() {
+		this.context.getBean("sharedConverterInput", MessageChannel.class).send(this.message);
+		Message<?> result = this.output.receive(0);
+		assertEquals("John Doe", result.getHeaders().get("name"));
+		Node person = (Node) result.getHeaders().get("person");
+		XmlPayloadConverter converter = this.context.getBean("sharedConverter", XmlPayloadConverter.class);
+		assertSame(converter.convertToDocument(this.message.getPayload()), person.getOwnerDocument());
+	}
+
 	@Test
 	public void defaultOverwrite() {
 		assertEquals(false, this.getEnricherProperty("defaultHeaderEnricher", "defaultOverwrite"));
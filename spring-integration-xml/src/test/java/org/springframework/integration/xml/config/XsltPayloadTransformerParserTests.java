@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2008 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,6 +34,7 @@ import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
 import org.springframework.integration.core.PollableChannel;
 import org.springframework.integration.message.GenericMessage;
+import org.springframework.integration.test.util.TestUtils;
 import org.springframework.integration.xml.config.StubResultFactory.StubStringResult;
 import org.springframework.integration.xml.util.XmlTestUtil;
 import org.springframework.xml.transform.StringResult;
@@ -147,5 +148,16 @@ public class XsltPayloadTransformerParserTests {
         Assert.assertTrue(payload.contains("fixedStringForTesting"));
     }
 
+    @Test
+    public void pooledTransformerWithRefreshCheck() throws Exception {
+        Object transformer = TestUtils.getPropertyValue(applicationContext.getBean("pooledTransformer"), "handler.transformer");
+        assertEquals(4, TestUtils.getPropertyValue(transformer, "transformerPoolSize"));
+        assertEquals(5000L, TestUtils.getPropertyValue(transformer, "refreshCheckDelay"));
+        MessageChannel input = applicationContext.getBean("pooledIn", MessageChannel.class);
+        input.send(MessageBuilder.withPayload(this.doc).build());
+        Message<?> result = output.receive(0);
+        assertTrue(((String) result.getPayload()).contains("<bob>test</bob>"));
+    }
+
 
 }
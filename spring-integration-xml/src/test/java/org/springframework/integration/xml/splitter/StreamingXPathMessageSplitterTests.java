@@ -0,0 +1,205 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.xml.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHeaders;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.util.xml.StaxUtils;
+
+/**
+ * @since 2.1.1
+ */
+public class StreamingXPathMessageSplitterTests {
+
+	private static final String ORDERS =
+			"<orders><order id=\"1\">one</order><order id=\"2\"><item>two</item></order><other/><order id=\"3\">three</order></orders>";
+
+	private final QueueChannel replyChannel = new QueueChannel();
+
+
+	@Before
+	public void purge() {
+		this.replyChannel.clear();
+	}
+
+
+	@Test
+	public void splitString() {
+		StreamingXPathMessageSplitter splitter = this.createSplitter("/orders/order");
+		splitter.handleMessage(new GenericMessage<String>(ORDERS));
+		List<Message<?>> messages = this.replyChannel.clear();
+		assertEquals(3, messages.size());
+		assertEquals("<order id=\"1\">one</order>", messages.get(0).getPayload());
+		assertEquals("<order id=\"2\"><item>two</item></order>", messages.get(1).getPayload());
+		assertEquals("<order id=\"3\">three</order>", messages.get(2).getPayload());
+		MessageHeaders headers = messages.get(2).getHeaders();
+		assertEquals(Integer.valueOf(3), headers.getSequenceNumber());
+		assertEquals(Integer.valueOf(0), headers.getSequenceSize());
+	}
+
+	@Test
+	public void splitAtAnyDepthWithWildcard() {
+		StreamingXPathMessageSplitter splitter = this.createSplitter("//order/*");
+		splitter.handleMessage(new GenericMessage<String>("<a><b>" + ORDERS + "</b></a>"));
+		List<Message<?>> messages = this.replyChannel.clear();
+		assertEquals(1, messages.size());
+		assertEquals("<item>two</item>", messages.get(0).getPayload());
+	}
+
+	@Test
+	public void splitStaxSource() throws Exception {
+		StreamingXPathMessageSplitter splitter = this.createSplitter("/orders/order");
+		Source source = StaxUtils.createCustomStaxSource(
+				XMLInputFactory.newInstance().createXMLEventReader(new StringReader(ORDERS)));
+		splitter.handleMessage(new GenericMessage<Source>(source));
+		List<Message<?>> messages = this.replyChannel.clear();
+		assertEquals(3, messages.size());
+		assertEquals("<order id=\"3\">three</order>", messages.get(2).getPayload());
+	}
+
+	@Test
+	public void noMatchProducesNoMessages() {
+		StreamingXPathMessageSplitter splitter = this.createSplitter("/orders/order");
+		splitter.handleMessage(new GenericMessage<String>("<wrongDocument><order/></wrongDocument>"));
+		assertNull(this.replyChannel.receive(0));
+	}
+
+	@Test
+	public void namespacesCopiedToFragment() {
+		StreamingXPathMessageSplitter splitter = new StreamingXPathMessageSplitter("/ns:orders/ns:order",
+				Collections.singletonMap("ns", "http://www.example.org/orders"));
+		splitter.setOutputChannel(this.replyChannel);
+		splitter.handleMessage(new GenericMessage<String>("<o:orders xmlns:o=\"http://www.example.org/orders\" xmlns=\"urn:x\">"
+				+ "<o:order>one</o:order><order>ignored</order></o:orders>"));
+		List<Message<?>> messages = this.replyChannel.clear();
+		assertEquals(1, messages.size());
+		String fragment = (String) messages.get(0).getPayload();
+		assertTrue(fragment, fragment.startsWith("<o:order "));
+		assertTrue(fragment, fragment.contains("xmlns:o=\"http://www.example.org/orders\""));
+		assertTrue(fragment, fragment.contains("xmlns=\"urn:x\""));
+	}
+
+	@Test
+	public void createDocuments() {
+		StreamingXPathMessageSplitter splitter = this.createSplitter("/orders/order");
+		splitter.setCreateDocuments(true);
+		splitter.handleMessage(new GenericMessage<byte[]>(ORDERS.getBytes()));
+		List<Message<?>> messages = this.replyChannel.clear();
+		assertEquals(3, messages.size());
+		Document document = (Document) messages.get(1).getPayload();
+		assertEquals("order", document.getDocumentElement().getLocalName());
+		assertEquals("2", document.getDocumentElement().getAttribute("id"));
+		assertEquals("two", document.getDocumentElement().getTextContent());
+	}
+
+	@Test
+	public void splitFile() throws Exception {
+		File file = File.createTempFile("orders", ".xml");
+		file.deleteOnExit();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?><orders>");
+		for (int i = 0; i < 1000; i++) {
+			writer.write("<order>" + i + "</order>");
+		}
+		writer.write("</orders>");
+		writer.close();
+		StreamingXPathMessageSplitter splitter = this.createSplitter("/orders/order");
+		splitter.handleMessage(new GenericMessage<File>(file));
+		List<Message<?>> messages = this.replyChannel.clear();
+		assertEquals(1000, messages.size());
+		assertEquals("<order>999</order>", messages.get(999).getPayload());
+		assertTrue("file should have been closed", file.delete());
+	}
+
+	@Test
+	public void streamClosedAfterSplit() {
+		CloseTrackingInputStream stream = new CloseTrackingInputStream(ORDERS.getBytes());
+		StreamingXPathMessageSplitter splitter = this.createSplitter("/orders/order");
+		splitter.handleMessage(new GenericMessage<StreamSource>(new StreamSource(stream)));
+		assertEquals(3, this.replyChannel.clear().size());
+		assertTrue(stream.closed);
+	}
+
+	@Test
+	public void streamClosedOnMalformedContent() {
+		CloseTrackingInputStream stream = new CloseTrackingInputStream("<orders><order>one</order><order>".getBytes());
+		StreamingXPathMessageSplitter splitter = this.createSplitter("/orders/order");
+		try {
+			splitter.handleMessage(new GenericMessage<InputStream>(stream));
+		}
+		catch (MessagingException e) {
+			// expected
+		}
+		assertEquals(1, this.replyChannel.clear().size());
+		assertTrue(stream.closed);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unboundPrefix() {
+		new StreamingXPathMessageSplitter("/ns:orders");
+	}
+
+
+	private StreamingXPathMessageSplitter createSplitter(String path) {
+		StreamingXPathMessageSplitter splitter = new StreamingXPathMessageSplitter(path);
+		splitter.setOutputChannel(this.replyChannel);
+		return splitter;
+	}
+
+
+	private static class CloseTrackingInputStream extends ByteArrayInputStream {
+
+		private volatile boolean closed;
+
+		CloseTrackingInputStream(byte[] bytes) {
+			super(bytes);
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.closed = true;
+			super.close();
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2008 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,10 @@
 
 package org.springframework.integration.xml.transformer;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+
 import javax.xml.transform.Result;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.dom.DOMResult;
@@ -24,10 +28,12 @@ import org.junit.Before;
 import org.junit.Test;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessagingException;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.test.util.TestUtils;
 import org.springframework.integration.xml.result.StringResultFactory;
 import org.springframework.integration.xml.util.XmlTestUtil;
 import org.springframework.xml.transform.StringResult;
@@ -35,6 +41,8 @@ import org.springframework.xml.transform.StringSource;
 import org.w3c.dom.Document;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 import static org.custommonkey.xmlunit.XMLAssert.assertXMLEqual;
 
@@ -165,6 +173,69 @@ public class XsltPayloadTransformerTests {
         assertEquals("Wrong content in string", "hello world", returned.toString());
     }
 
+    @Test
+    public void fileAsPayload() throws Exception {
+        File file = File.createTempFile("order", ".xml");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(docAsString.getBytes("ISO-8859-1"));
+        out.close();
+        Object returned = transformer.doTransform(buildMessage(file));
+        assertEquals("Wrong type of return ", DOMResult.class, returned.getClass());
+        assertXMLEqual(outputAsString, XmlTestUtil.docToString((Document) ((DOMResult) returned).getNode()));
+    }
+
+    @Test
+    public void inputStreamAsPayload() throws Exception {
+        transformer.setResultFactory(new StringResultFactory());
+        Object returned = transformer.doTransform(buildMessage(
+                new ByteArrayInputStream(docAsString.getBytes("ISO-8859-1"))));
+        assertEquals("Wrong type of return ", StringResult.class, returned.getClass());
+        assertXMLEqual(outputAsString, returned.toString());
+    }
+
+    @Test
+    public void parametersAreNotRetainedByPooledTransformers() throws Exception {
+        String xsl = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\"><xsl:param name=\"name\" select=\"'none'\"/><xsl:template match=\"order\"><bob><xsl:value-of select=\"$name\"/></bob></xsl:template></xsl:stylesheet>";
+        transformer = new XsltPayloadTransformer(new ByteArrayResource(xsl.getBytes("UTF-8")));
+        transformer.setXsltParamHeaders(new String[] {"name"});
+        Message<?> withHeader = MessageBuilder.withPayload(docAsString).setHeader("name", "test").build();
+        assertXMLEqual("<bob>test</bob>", (String) transformer.doTransform(withHeader));
+        assertXMLEqual("<bob>none</bob>", (String) transformer.doTransform(buildMessage(docAsString)));
+    }
+
+    @Test
+    public void unmodifiedStylesheetIsNotRecompiled() throws Exception {
+        Resource resource = new ClassPathResource("transform-with-import.xsl", this.getClass());
+        transformer = new XsltPayloadTransformer(resource);
+        transformer.setRefreshCheckDelay(0);
+        Object templates = TestUtils.getPropertyValue(transformer, "transformerPool.templates");
+        transformer.doTransform(buildMessage(docAsString));
+        assertSame(templates, TestUtils.getPropertyValue(transformer, "transformerPool.templates"));
+        XsltPayloadTransformer other = new XsltPayloadTransformer(resource);
+        assertNotSame(templates, TestUtils.getPropertyValue(other, "transformerPool.templates"));
+    }
+
+    @Test
+    public void modifiedStylesheetIsReloaded() throws Exception {
+        File file = File.createTempFile("transform", ".xsl");
+        file.deleteOnExit();
+        writeStylesheet(file, "<bob>test</bob>");
+        transformer = new XsltPayloadTransformer(new FileSystemResource(file));
+        transformer.setRefreshCheckDelay(0);
+        assertXMLEqual("<bob>test</bob>", (String) transformer.doTransform(buildMessage(docAsString)));
+        writeStylesheet(file, "<alice>test</alice>");
+        file.setLastModified(file.lastModified() + 2000);
+        assertXMLEqual("<alice>test</alice>", (String) transformer.doTransform(buildMessage(docAsString)));
+    }
+
+    private void writeStylesheet(File file, String output) throws Exception {
+        String xsl = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\"><xsl:template match=\"order\">" + output + "</xsl:template></xsl:stylesheet>";
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(xsl.getBytes("UTF-8"));
+        out.close();
+    }
+
     protected Message<?> buildMessage(Object payload) {
         return MessageBuilder.withPayload(payload).build();
     }